@@ -0,0 +1,91 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.benchmark;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.base.Tools;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.io.FlameReader;
+import org.jwildfire.create.tina.io.FlameWriter;
+import org.jwildfire.create.tina.io.StreamingFlameReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Flames per second when reading a large flame library (the reference flames repeated), by the string-based
+// readers and by the StreamingFlameReader
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FlameParseBenchmark {
+  private static final int LIBRARY_SIZE = 2000;
+  private static final String[] FLAME_FILES = { "TINA0001.flame", "TINA0010.flame", "TINA0014.flame", "TINA0017.flame", "TINA0024.flame", "benchmark1.flame" };
+
+  private File library;
+
+  @Setup(Level.Trial)
+  public void createLibrary() throws Exception {
+    FlameWriter writer = new FlameWriter();
+    String[] flameXML = new String[FLAME_FILES.length];
+    for (int i = 0; i < FLAME_FILES.length; i++) {
+      flameXML[i] = writer.getFlameXML(JWFBenchmarks.loadFlame(FLAME_FILES[i]));
+    }
+    StringBuilder sb = new StringBuilder();
+    sb.append("<flames name=\"benchmark\">\n");
+    for (int i = 0; i < LIBRARY_SIZE; i++) {
+      sb.append(flameXML[i % flameXML.length]);
+    }
+    sb.append("</flames>\n");
+    library = File.createTempFile("benchmark", ".flame");
+    Tools.writeUTF8Textfile(library.getAbsolutePath(), sb.toString());
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteLibrary() {
+    library.delete();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LIBRARY_SIZE)
+  public List<Flame> stringReader() throws Exception {
+    return new FlameReader(Prefs.getPrefs()).readFlamesfromXML(Tools.readUTF8Textfile(library.getAbsolutePath()));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LIBRARY_SIZE)
+  public List<Flame> streamingReader() throws Exception {
+    return new StreamingFlameReader(Prefs.getPrefs()).readFlames(library.getAbsolutePath());
+  }
+
+}
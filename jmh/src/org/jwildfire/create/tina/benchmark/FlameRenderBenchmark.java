@@ -0,0 +1,87 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.random.RandomGeneratorType;
+import org.jwildfire.create.tina.render.FlameRenderer;
+import org.jwildfire.create.tina.render.RenderInfo;
+import org.jwildfire.create.tina.render.RenderMode;
+import org.jwildfire.create.tina.render.RenderedFlame;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Complete renders (iteration and tonemapping) of some reference flames with a fixed number of samples (i.e. size
+// and sample density) per second, the samples per second are reported as secondary result
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FlameRenderBenchmark {
+  private static final int IMAGE_WIDTH = 320;
+  private static final int IMAGE_HEIGHT = 240;
+
+  @Param({ "TINA0001.flame", "TINA0010.flame", "TINA0017.flame" })
+  public String flameFile;
+
+  @Param({ "25" })
+  public double sampleDensity;
+
+  @Param({ "MARSAGLIA", "ZIGGURAT", "XORSHIFT", "PCG" })
+  public RandomGeneratorType randomGenerator;
+
+  private Flame flame;
+
+  @Setup(Level.Trial)
+  public void loadFlame() {
+    flame = JWFBenchmarks.loadFlame(flameFile);
+    flame.setSampleDensity(sampleDensity);
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class SampleCounter {
+    public long samples;
+  }
+
+  @Benchmark
+  public RenderedFlame renderFlame(SampleCounter pCounter) {
+    Prefs.getPrefs().setTinaRandomNumberGenerator(randomGenerator);
+    FlameRenderer renderer = new FlameRenderer(flame.makeCopy(), Prefs.getPrefs(), false, false);
+    renderer.setRandomSeed(JWFBenchmarks.SEED);
+    RenderedFlame res = renderer.renderFlame(new RenderInfo(IMAGE_WIDTH, IMAGE_HEIGHT, RenderMode.PRODUCTION));
+    pCounter.samples += renderer.getRenderedSamples();
+    return res;
+  }
+
+}
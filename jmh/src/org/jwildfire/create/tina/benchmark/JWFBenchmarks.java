@@ -0,0 +1,57 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.benchmark;
+
+import java.io.File;
+import java.util.List;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.io.FlameReader;
+import org.jwildfire.create.tina.variation.VariationFuncList;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Entry point of the benchmarks, accepts the usual JMH command line options. When the VariationFuncBenchmark is
+// run without explicit "-p variation=..." parameter, all variations from the VariationFuncList are measured.
+public class JWFBenchmarks {
+  // all random generators used by the benchmarks are initialized with this seed to make runs comparable
+  public static final long SEED = 4711;
+  public static final String FLAMES_DIR_PROPERTY = "jwf.benchmark.flames";
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions cmdOptions = new CommandLineOptions(args);
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(cmdOptions);
+    if (!cmdOptions.getParameter("variation").hasValue()) {
+      List<String> names = VariationFuncList.getNameList();
+      options.param("variation", names.toArray(new String[names.size()]));
+    }
+    new Runner(options.build()).run();
+  }
+
+  public static Flame loadFlame(String pFilename) {
+    String dir = System.getProperty(FLAMES_DIR_PROPERTY, "resources/flames");
+    List<Flame> flames = new FlameReader(Prefs.getPrefs()).readFlames(new File(dir, pFilename).getAbsolutePath());
+    if (flames.isEmpty()) {
+      throw new IllegalArgumentException(pFilename);
+    }
+    return flames.get(0);
+  }
+
+}
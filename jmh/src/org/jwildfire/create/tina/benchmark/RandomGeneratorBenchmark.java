@@ -0,0 +1,91 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.random.AbstractRandomGenerator;
+import org.jwildfire.create.tina.random.BufferedRandomGenerator;
+import org.jwildfire.create.tina.random.RandomGeneratorType;
+import org.jwildfire.create.tina.random.RandomStreamProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Time per random number of the generators: single calls of random(), blockwise by nextDoubles() and single calls
+// taken from a BufferedRandomGenerator (as used by the render threads)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomGeneratorBenchmark {
+  private static final int COUNT = 1024;
+
+  @Param({ "MARSAGLIA", "ZIGGURAT", "XORSHIFT", "PCG" })
+  public RandomGeneratorType generator;
+
+  private AbstractRandomGenerator randGen;
+  private AbstractRandomGenerator bufferedRandGen;
+  private final double[] buffer = new double[COUNT];
+
+  @Setup
+  public void setup() {
+    RandomStreamProvider streams = new RandomStreamProvider(Prefs.getPrefs(), generator, JWFBenchmarks.SEED);
+    randGen = streams.createStream(0);
+    bufferedRandGen = new BufferedRandomGenerator(streams.createStream(1));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COUNT)
+  public double random() {
+    double res = 0.0;
+    for (int i = 0; i < COUNT; i++) {
+      res += randGen.random();
+    }
+    return res;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COUNT)
+  public double[] nextDoubles() {
+    randGen.nextDoubles(buffer);
+    return buffer;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COUNT)
+  public double buffered() {
+    double res = 0.0;
+    for (int i = 0; i < COUNT; i++) {
+      res += bufferedRandGen.random();
+    }
+    return res;
+  }
+
+}
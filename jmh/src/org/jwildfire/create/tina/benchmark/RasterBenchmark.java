@@ -0,0 +1,103 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterCreator;
+import org.jwildfire.create.tina.random.AbstractRandomGenerator;
+import org.jwildfire.create.tina.random.MarsagliaRandomGenerator;
+import org.jwildfire.create.tina.render.PlotSample;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Throughput of AbstractRaster.addSamples() in samples per second, all threads write into the same raster.
+// Run it with different thread counts (JMH option -t) to see the effect of contention, e.g. "-t 1", "-t 4", "-t max".
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RasterBenchmark {
+  private static final int RASTER_WIDTH = 1024;
+  private static final int RASTER_HEIGHT = 768;
+  // same size as the plot buffer of the render threads
+  private static final int SAMPLE_COUNT = 2048;
+
+  @State(Scope.Benchmark)
+  public static class RasterState {
+    @Param({ "FLOAT_INT_RASTER", "FLOAT_INT_FLAT_RASTER", "FLOAT_INT_MAPPED_RASTER" })
+    public String rasterType;
+
+    private AbstractRaster raster;
+    private final AtomicInteger threadIdx = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void allocRaster() throws Exception {
+      Flame flame = new Flame();
+      raster = RasterCreator.valueOf(rasterType).getRasterClass(flame).newInstance();
+      raster.allocRaster(flame, RASTER_WIDTH, RASTER_HEIGHT);
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanupRaster() {
+      raster.cleanupRaster();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class SampleState {
+    private final PlotSample[] samples = new PlotSample[SAMPLE_COUNT];
+
+    @Setup(Level.Trial)
+    public void createSamples(RasterState pRaster) {
+      AbstractRandomGenerator randGen = new MarsagliaRandomGenerator();
+      randGen.randomize(JWFBenchmarks.SEED + pRaster.threadIdx.getAndIncrement());
+      for (int i = 0; i < SAMPLE_COUNT; i++) {
+        PlotSample sample = new PlotSample();
+        sample.screenX = randGen.random(RASTER_WIDTH);
+        sample.screenY = randGen.random(RASTER_HEIGHT);
+        sample.r = randGen.random() * 255.0;
+        sample.g = randGen.random() * 255.0;
+        sample.b = randGen.random() * 255.0;
+        samples[i] = sample;
+      }
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SAMPLE_COUNT)
+  public void addSamples(RasterState pRaster, SampleState pSamples) {
+    pRaster.raster.addSamples(pSamples.samples, SAMPLE_COUNT);
+  }
+
+}
@@ -0,0 +1,113 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterFloatInt;
+import org.jwildfire.create.tina.random.AbstractRandomGenerator;
+import org.jwildfire.create.tina.random.MarsagliaRandomGenerator;
+import org.jwildfire.create.tina.render.GammaCorrectionFilter;
+import org.jwildfire.create.tina.render.LogDensityFilter;
+import org.jwildfire.create.tina.render.PlotSample;
+import org.jwildfire.create.tina.render.image.RenderImageThread;
+import org.jwildfire.image.SimpleImage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Tonemapping (LogDensityFilter and GammaCorrectionFilter) of a randomly filled raster in one thread,
+// the result is given in pixels per second
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToneMappingBenchmark {
+  private static final int IMAGE_WIDTH = 800;
+  private static final int IMAGE_HEIGHT = 600;
+  // same border as used by the FlameRenderer to have space for the spatial filter
+  private static final int BORDER_WIDTH = 12;
+  private static final int SAMPLE_COUNT = 2048;
+
+  @Param({ "TINA0017.flame" })
+  public String flameFile;
+
+  private AbstractRaster raster;
+  private SimpleImage image;
+  private RenderImageThread renderThread;
+
+  @Setup
+  public void setup() {
+    Flame flame = JWFBenchmarks.loadFlame(flameFile);
+    flame.setSpatialOversampling(1);
+    AbstractRandomGenerator randGen = new MarsagliaRandomGenerator();
+    randGen.randomize(JWFBenchmarks.SEED);
+    int rasterWidth = IMAGE_WIDTH + 2 * BORDER_WIDTH;
+    int rasterHeight = IMAGE_HEIGHT + 2 * BORDER_WIDTH;
+    raster = new RasterFloatInt();
+    raster.allocRaster(flame, rasterWidth, rasterHeight);
+    PlotSample[] samples = new PlotSample[SAMPLE_COUNT];
+    for (int i = 0; i < SAMPLE_COUNT; i++) {
+      samples[i] = new PlotSample();
+    }
+    // about 20 samples per pixel, more densely in the centre like in a typical flame
+    for (int j = 0; j < 20 * rasterWidth * rasterHeight / SAMPLE_COUNT; j++) {
+      for (int i = 0; i < SAMPLE_COUNT; i++) {
+        PlotSample sample = samples[i];
+        double r = randGen.random() * randGen.random();
+        sample.screenX = (int) (rasterWidth * (0.5 + (randGen.random() - 0.5) * r));
+        sample.screenY = (int) (rasterHeight * (0.5 + (randGen.random() - 0.5) * r));
+        sample.r = randGen.random() * 255.0;
+        sample.g = randGen.random() * 255.0;
+        sample.b = randGen.random() * 255.0;
+      }
+      raster.addSamples(samples, SAMPLE_COUNT);
+    }
+    LogDensityFilter logDensityFilter = new LogDensityFilter(flame, randGen);
+    logDensityFilter.setRaster(raster, rasterWidth, rasterHeight, IMAGE_WIDTH, IMAGE_HEIGHT);
+    GammaCorrectionFilter gammaCorrectionFilter = new GammaCorrectionFilter(flame, false, rasterWidth, rasterHeight);
+    image = new SimpleImage(IMAGE_WIDTH, IMAGE_HEIGHT);
+    renderThread = new RenderImageThread(flame, logDensityFilter, gammaCorrectionFilter, 0, IMAGE_HEIGHT, image, null);
+  }
+
+  @TearDown
+  public void cleanup() {
+    raster.cleanupRaster();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(IMAGE_WIDTH * IMAGE_HEIGHT)
+  public SimpleImage renderImage() {
+    renderThread.run();
+    return image;
+  }
+
+}
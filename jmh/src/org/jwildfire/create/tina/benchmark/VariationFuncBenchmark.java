@@ -0,0 +1,96 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.Layer;
+import org.jwildfire.create.tina.base.XForm;
+import org.jwildfire.create.tina.base.XYZPoint;
+import org.jwildfire.create.tina.random.AbstractRandomGenerator;
+import org.jwildfire.create.tina.random.MarsagliaRandomGenerator;
+import org.jwildfire.create.tina.variation.FlameTransformationContext;
+import org.jwildfire.create.tina.variation.VariationFunc;
+import org.jwildfire.create.tina.variation.VariationFuncList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// time of one call of VariationFunc.transform() with the default parameters of the variation
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariationFuncBenchmark {
+  private static final int POINT_COUNT = 1024;
+
+  @Param({ "linear3D" })
+  public String variation;
+
+  private VariationFunc func;
+  private XForm xForm;
+  private FlameTransformationContext ctx;
+  private final XYZPoint[] points = new XYZPoint[POINT_COUNT];
+  private final XYZPoint affineT = new XYZPoint();
+  private final XYZPoint varT = new XYZPoint();
+  private int pointIdx;
+
+  @Setup
+  public void setup() {
+    AbstractRandomGenerator randGen = new MarsagliaRandomGenerator();
+    randGen.randomize(JWFBenchmarks.SEED);
+    Flame flame = new Flame();
+    Layer layer = flame.getFirstLayer();
+    xForm = new XForm();
+    layer.getXForms().add(xForm);
+    func = VariationFuncList.getVariationFuncInstance(variation, true);
+    xForm.addVariation(1.0, func);
+    ctx = new FlameTransformationContext(null, randGen, 0);
+    ctx.setPreserveZCoordinate(true);
+    xForm.initTransform();
+    func.init(ctx, layer, xForm, 1.0);
+    for (int i = 0; i < POINT_COUNT; i++) {
+      XYZPoint p = new XYZPoint();
+      p.x = 4.0 * randGen.random() - 2.0;
+      p.y = 4.0 * randGen.random() - 2.0;
+      p.z = 2.0 * randGen.random() - 1.0;
+      p.color = randGen.random();
+      points[i] = p;
+    }
+  }
+
+  @Benchmark
+  public double transform() {
+    affineT.assign(points[pointIdx]);
+    pointIdx = (pointIdx + 1) % POINT_COUNT;
+    varT.clear();
+    func.transform(ctx, xForm, affineT, varT, 1.0);
+    return varT.x + varT.y + varT.z;
+  }
+
+}
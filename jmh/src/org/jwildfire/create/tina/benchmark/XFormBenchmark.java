@@ -0,0 +1,90 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.XForm;
+import org.jwildfire.create.tina.base.XYZPoint;
+import org.jwildfire.create.tina.random.MarsagliaRandomGenerator;
+import org.jwildfire.create.tina.variation.FlameTransformationContext;
+import org.jwildfire.create.tina.variation.VariationFuncList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// XForm.transformPoint() of a set of xforms with linear variations, with and without the compiled transformation step
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XFormBenchmark {
+  private static final int XFORM_COUNT = 4;
+
+  @Param({ "true", "false" })
+  public boolean compiled;
+
+  private final XForm[] xForms = new XForm[XFORM_COUNT];
+  private FlameTransformationContext ctx;
+  private final XYZPoint affineT = new XYZPoint();
+  private final XYZPoint varT = new XYZPoint();
+  private final XYZPoint p = new XYZPoint();
+  private int xFormIdx;
+
+  @Setup
+  public void setup() {
+    MarsagliaRandomGenerator randGen = new MarsagliaRandomGenerator();
+    randGen.randomize(JWFBenchmarks.SEED);
+    ctx = new FlameTransformationContext(null, randGen, 0);
+    boolean oldCompiled = Prefs.getPrefs().isTinaCompiledXForms();
+    Prefs.getPrefs().setTinaCompiledXForms(compiled);
+    try {
+      for (int i = 0; i < XFORM_COUNT; i++) {
+        XForm xForm = new XForm();
+        xForm.setXYCoeff00(0.5 + 0.5 * randGen.random());
+        xForm.setXYCoeff11(0.5 + 0.5 * randGen.random());
+        xForm.setXYCoeff20(randGen.random() - 0.5);
+        xForm.setXYCoeff21(randGen.random() - 0.5);
+        xForm.addVariation(1.0, VariationFuncList.getVariationFuncInstance("linear3D"));
+        xForm.initTransform();
+        xForms[i] = xForm;
+      }
+    }
+    finally {
+      Prefs.getPrefs().setTinaCompiledXForms(oldCompiled);
+    }
+  }
+
+  @Benchmark
+  public double transformPoint() {
+    xForms[xFormIdx].transformPoint(ctx, affineT, varT, p, p);
+    xFormIdx = (xFormIdx + 1) % XFORM_COUNT;
+    return p.x;
+  }
+
+}
@@ -0,0 +1,152 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.base;
+
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+
+import org.codehaus.janino.ClassBodyEvaluator;
+import org.codehaus.janino.Scanner;
+
+// Thread-safe cache of classes which were compiled from class bodies (e.g. the code of custom_wf or of scripts). The key is the
+// source code together with the base class, so every copy of a flame (and every frame of an animation) which contains the
+// same code shares one compiled class and only creates new instances of it. Note that static fields of such code are
+// therefore shared by all instances and keep their values between runs. The least recently used classes are removed
+// when the number of entries exceeds the limit.
+public class CompiledClassCache {
+  private static final int DEFAULT_MAX_ENTRIES = 64;
+  private static final CompiledClassCache instance = new CompiledClassCache(DEFAULT_MAX_ENTRIES);
+
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+  private int maxEntries;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long compileTime;
+
+  private static class Entry {
+    private Class<?> clazz;
+  }
+
+  public static CompiledClassCache getInstance() {
+    return instance;
+  }
+
+  public CompiledClassCache(int pMaxEntries) {
+    maxEntries = pMaxEntries;
+  }
+
+  // creates a new instance of the class which is defined by the class body pSource and extends pBaseClass
+  public <T> T newInstance(Class<T> pBaseClass, String pSource) throws Exception {
+    return pBaseClass.cast(getClass(pBaseClass, pSource).getDeclaredConstructor().newInstance());
+  }
+
+  public Class<?> getClass(Class<?> pBaseClass, String pSource) throws Exception {
+    String key = pBaseClass.getName() + "#" + pSource;
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry == null) {
+        entry = new Entry();
+        entries.put(key, entry);
+        evict();
+      }
+    }
+    // compile outside of the lock of the cache, concurrent requests for the same code wait for the first one
+    synchronized (entry) {
+      if (entry.clazz != null) {
+        synchronized (this) {
+          hits++;
+        }
+        return entry.clazz;
+      }
+      long t0 = System.currentTimeMillis();
+      try {
+        entry.clazz = compile(pBaseClass, pSource);
+      }
+      catch (Exception ex) {
+        synchronized (this) {
+          if (entries.get(key) == entry) {
+            entries.remove(key);
+          }
+        }
+        throw ex;
+      }
+      finally {
+        synchronized (this) {
+          misses++;
+          compileTime += System.currentTimeMillis() - t0;
+        }
+      }
+      return entry.clazz;
+    }
+  }
+
+  private static Class<?> compile(Class<?> pBaseClass, String pSource) throws Exception {
+    ClassBodyEvaluator evaluator = new ClassBodyEvaluator(new Scanner(null, new StringReader(pSource)), pBaseClass, new Class[0], (ClassLoader) null);
+    return evaluator.getClazz();
+  }
+
+  private void evict() {
+    for (Iterator<Entry> it = entries.values().iterator(); entries.size() > maxEntries && it.hasNext();) {
+      it.next();
+      it.remove();
+      evictions++;
+    }
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  public synchronized void setMaxEntries(int pMaxEntries) {
+    maxEntries = pMaxEntries;
+    evict();
+  }
+
+  public synchronized int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public synchronized int getSize() {
+    return entries.size();
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  // total time spent in the compiler in milliseconds
+  public synchronized long getCompileTime() {
+    return compileTime;
+  }
+
+  public synchronized String getStatistics() {
+    return String.format(Locale.US, "%d of %d classes, %d hits, %d misses, %d evictions, %d ms compile time", entries.size(), maxEntries, hits, misses, evictions, compileTime);
+  }
+
+}
@@ -48,6 +48,7 @@ public class Prefs extends ManagedObject {
   static final String KEY_GENERAL_DEVELOPMENT_MODE = "general.development_mode";
   static final String KEY_GENERAL_BASE_MATH_LIB = "general.base_math_lib";
   static final String KEY_GENERAL_PATH_THUMBNAILS = "general.path.thumbnails";
+  static final String KEY_GENERAL_THUMBNAIL_CACHE_SIZE = "general.thumbnail_cache_size";
 
   static final String KEY_SUNFLOW_PATH_SCENES = "sunflow.path.scenes";
 
@@ -93,6 +94,12 @@ public class Prefs extends ManagedObject {
   static final String KEY_TINA_RANDOMBATCH_DUALITY_PREFERED_VARIATION_PROBABILITY2 = "tina.random_batch.duality.prefered_variation_probability2";
   static final String KEY_TINA_RANDOMMOVIEBATCH_SIZE = "tina.random_movie_batch.size";
   static final String KEY_TINA_RASTER_TYPE = "tina.raster_type";
+  static final String KEY_TINA_RESSOURCE_CACHE_SIZE = "tina.ressource_cache_size";
+  static final String KEY_TINA_ADAPTIVE_NOISE_TARGET = "tina.adaptive_noise_target";
+  static final String KEY_TINA_ANIMATION_PARALLEL_FRAMES = "tina.render.animation.parallel_frames";
+  static final String KEY_TINA_COMPILED_XFORMS = "tina.render.compiled_xforms";
+  static final String KEY_TINA_RENDER_STATE_CHECKPOINT_INTERVAL = "tina.render_state.checkpoint_interval";
+  static final String KEY_TINA_COMPRESS_RENDER_STATE = "tina.render_state.compress";
   static final String KEY_TINA_RANDOMBATCH_BGCOLOR_RED = "tina.random_batch.bg_color.red";
   static final String KEY_TINA_RANDOMBATCH_BGCOLOR_GREEN = "tina.random_batch.bg_color.green";
   static final String KEY_TINA_RANDOMBATCH_BGCOLOR_BLUE = "tina.random_batch.bg_color.blue";
@@ -171,6 +178,9 @@ public class Prefs extends ManagedObject {
   @Property(description = "Drawer for thumbnail-cache (restart of program after change required)", category = PropertyCategory.GENERAL)
   private String thumbnailPath = null;
 
+  @Property(description = "Maximum size (in MB) of the thumbnail-cache (restart of program after change required)", category = PropertyCategory.GENERAL)
+  private int thumbnailCacheSize = 256;
+
   @Property(description = "Image drawer", category = PropertyCategory.GENERAL)
   private String imagePath = null;
   private String lastInputImagePath = null;
@@ -426,7 +436,7 @@ public class Prefs extends ManagedObject {
   public static class RasterCreatorEditor extends ComboBoxPropertyEditor {
     public RasterCreatorEditor() {
       super();
-      setAvailableValues(new RasterCreator[] { RasterCreator.FLOAT_INT_RASTER });
+      setAvailableValues(new RasterCreator[] { RasterCreator.FLOAT_INT_RASTER, RasterCreator.FLOAT_INT_FLAT_RASTER, RasterCreator.FLOAT_INT_MAPPED_RASTER });
     }
   }
 
@@ -455,6 +465,24 @@ public class Prefs extends ManagedObject {
   @Property(description = "Type of the iteration-raster (less precision needs less memory)", category = PropertyCategory.TINA, editorClass = RasterCreatorEditor.class)
   private RasterCreator tinaRasterType = RasterCreator.getDefaultValue();
 
+  @Property(description = "Compress the raster when saving the state of a render (*.jwfrender)", category = PropertyCategory.TINA)
+  private boolean tinaCompressRenderState = true;
+
+  @Property(description = "Interval (in minutes) for automatically updating a render state (*.jwfrender) saved in the interactive renderer, 0 disables the automatic update", category = PropertyCategory.TINA)
+  private int tinaRenderStateCheckpointInterval = 0;
+
+  @Property(description = "Use specialized code for transforms with only linear variations (faster, switch off only for comparison)", category = PropertyCategory.TINA)
+  private boolean tinaCompiledXForms = true;
+
+  @Property(description = "Number of animation frames which are rendered at the same time, sharing the render threads (0 = automatic, only small frames are rendered in parallel)", category = PropertyCategory.TINA)
+  private int tinaAnimationParallelFrames = 0;
+
+  @Property(description = "Maximum size (in MB) of the cache for images, meshes and other ressources used by variations, 0 means a quarter of the available memory", category = PropertyCategory.TINA)
+  private int tinaRessourceCacheSize = 0;
+
+  @Property(description = "Adaptive sampling of final renders: the rendering stops as soon as the estimated noise of all image tiles is below this value (e.g. 0.01), 0 disables it", category = PropertyCategory.TINA)
+  private double tinaAdaptiveNoiseTarget = 0.0;
+
   @Property(description = "Random number generator to use", category = PropertyCategory.TINA, editorClass = RandomGeneratorTypeEditor.class)
   private RandomGeneratorType tinaRandomNumberGenerator = RandomGeneratorType.getDefaultValue();
 
@@ -691,6 +719,7 @@ public class Prefs extends ManagedObject {
 
   public void assign(Prefs pSrc) {
     thumbnailPath = pSrc.thumbnailPath;
+    thumbnailCacheSize = pSrc.thumbnailCacheSize;
     scriptPath = pSrc.scriptPath;
     lastInputScriptPath = pSrc.lastInputScriptPath;
     lastOutputScriptPath = pSrc.lastOutputScriptPath;
@@ -741,6 +770,12 @@ public class Prefs extends ManagedObject {
     tinaSaveHDRInIR = pSrc.tinaSaveHDRInIR;
     tinaDefaultBGTransparency = pSrc.tinaDefaultBGTransparency;
     tinaRasterType = pSrc.tinaRasterType;
+    tinaCompressRenderState = pSrc.tinaCompressRenderState;
+    tinaRenderStateCheckpointInterval = pSrc.tinaRenderStateCheckpointInterval;
+    tinaCompiledXForms = pSrc.tinaCompiledXForms;
+    tinaAnimationParallelFrames = pSrc.tinaAnimationParallelFrames;
+    tinaRessourceCacheSize = pSrc.tinaRessourceCacheSize;
+    tinaAdaptiveNoiseTarget = pSrc.tinaAdaptiveNoiseTarget;
     tinaJWFScriptPath = pSrc.tinaJWFScriptPath;
     tinaCustomVariationsPath = pSrc.tinaCustomVariationsPath;
     tinaGradientPath = pSrc.tinaGradientPath;
@@ -1621,4 +1656,60 @@ public class Prefs extends ManagedObject {
     tinaFontScale = pTinaFontScale;
   }
 
+  public boolean isTinaCompressRenderState() {
+    return tinaCompressRenderState;
+  }
+
+  public void setTinaCompressRenderState(boolean pTinaCompressRenderState) {
+    tinaCompressRenderState = pTinaCompressRenderState;
+  }
+
+  public int getTinaRenderStateCheckpointInterval() {
+    return tinaRenderStateCheckpointInterval;
+  }
+
+  public void setTinaRenderStateCheckpointInterval(int pTinaRenderStateCheckpointInterval) {
+    tinaRenderStateCheckpointInterval = pTinaRenderStateCheckpointInterval;
+  }
+
+  public boolean isTinaCompiledXForms() {
+    return tinaCompiledXForms;
+  }
+
+  public void setTinaCompiledXForms(boolean pTinaCompiledXForms) {
+    tinaCompiledXForms = pTinaCompiledXForms;
+  }
+
+  public int getTinaAnimationParallelFrames() {
+    return tinaAnimationParallelFrames;
+  }
+
+  public void setTinaAnimationParallelFrames(int pTinaAnimationParallelFrames) {
+    tinaAnimationParallelFrames = pTinaAnimationParallelFrames;
+  }
+
+  public int getTinaRessourceCacheSize() {
+    return tinaRessourceCacheSize;
+  }
+
+  public void setTinaRessourceCacheSize(int pTinaRessourceCacheSize) {
+    tinaRessourceCacheSize = pTinaRessourceCacheSize;
+  }
+
+  public int getThumbnailCacheSize() {
+    return thumbnailCacheSize;
+  }
+
+  public void setThumbnailCacheSize(int pThumbnailCacheSize) {
+    thumbnailCacheSize = pThumbnailCacheSize;
+  }
+
+  public double getTinaAdaptiveNoiseTarget() {
+    return tinaAdaptiveNoiseTarget;
+  }
+
+  public void setTinaAdaptiveNoiseTarget(double pTinaAdaptiveNoiseTarget) {
+    tinaAdaptiveNoiseTarget = pTinaAdaptiveNoiseTarget;
+  }
+
 }
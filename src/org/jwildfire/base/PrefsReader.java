@@ -101,6 +101,7 @@ public class PrefsReader {
         pPrefs.setImagePath(getProperty(props, Prefs.KEY_GENERAL_PATH_IMAGES, pPrefs.getImagePath()));
         pPrefs.setScriptPath(getProperty(props, Prefs.KEY_GENERAL_PATH_SCRIPTS, pPrefs.getScriptPath()));
         pPrefs.setThumbnailPath(getProperty(props, Prefs.KEY_GENERAL_PATH_THUMBNAILS, pPrefs.getThumbnailPath()));
+        pPrefs.setThumbnailCacheSize(getIntProperty(props, Prefs.KEY_GENERAL_THUMBNAIL_CACHE_SIZE, pPrefs.getThumbnailCacheSize()));
         pPrefs.setMovieFlamesPath(getProperty(props, Prefs.KEY_TINA_PATH_MOVIEFLAMES, pPrefs.getMovieFlamesPath()));
         pPrefs.setSoundFilePath(getProperty(props, Prefs.KEY_GENERAL_PATH_SOUND_FILES, pPrefs.getSoundFilePath()));
         pPrefs.setTinaAdvancedCodeEditor(getBooleanProperty(props, Prefs.KEY_TINA_ADVANCED_CODE_EDITOR, pPrefs.isTinaAdvancedCodeEditor()));
@@ -208,6 +209,12 @@ public class PrefsReader {
         catch (Exception ex) {
           ex.printStackTrace();
         }
+        pPrefs.setTinaCompressRenderState(getBooleanProperty(props, Prefs.KEY_TINA_COMPRESS_RENDER_STATE, pPrefs.isTinaCompressRenderState()));
+        pPrefs.setTinaRenderStateCheckpointInterval(getIntProperty(props, Prefs.KEY_TINA_RENDER_STATE_CHECKPOINT_INTERVAL, pPrefs.getTinaRenderStateCheckpointInterval()));
+        pPrefs.setTinaCompiledXForms(getBooleanProperty(props, Prefs.KEY_TINA_COMPILED_XFORMS, pPrefs.isTinaCompiledXForms()));
+        pPrefs.setTinaAnimationParallelFrames(getIntProperty(props, Prefs.KEY_TINA_ANIMATION_PARALLEL_FRAMES, pPrefs.getTinaAnimationParallelFrames()));
+        pPrefs.setTinaRessourceCacheSize(getIntProperty(props, Prefs.KEY_TINA_RESSOURCE_CACHE_SIZE, pPrefs.getTinaRessourceCacheSize()));
+        pPrefs.setTinaAdaptiveNoiseTarget(getDoubleProperty(props, Prefs.KEY_TINA_ADAPTIVE_NOISE_TARGET, pPrefs.getTinaAdaptiveNoiseTarget()));
         try {
           pPrefs.setBaseMathLibType(BaseMathLibType.valueOf(getProperty(props, Prefs.KEY_GENERAL_BASE_MATH_LIB, BaseMathLibType.getDefaultValue().toString())));
         }
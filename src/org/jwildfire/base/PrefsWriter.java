@@ -34,6 +34,7 @@ public class PrefsWriter {
     addValue(sb, Prefs.KEY_GENERAL_PATH_IMAGES, pPrefs.getImagePath());
     addValue(sb, Prefs.KEY_GENERAL_PATH_SCRIPTS, pPrefs.getScriptPath());
     addValue(sb, Prefs.KEY_GENERAL_PATH_THUMBNAILS, pPrefs.getThumbnailPath());
+    addValue(sb, Prefs.KEY_GENERAL_THUMBNAIL_CACHE_SIZE, pPrefs.getThumbnailCacheSize());
     addValue(sb, Prefs.KEY_TINA_PATH_MOVIEFLAMES, pPrefs.getMovieFlamesPath());
     addValue(sb, Prefs.KEY_GENERAL_PATH_SOUND_FILES, pPrefs.getSoundFilePath());
     addValue(sb, Prefs.KEY_TINA_RENDER_DEFAULT_BG_TRANSPARENCY, pPrefs.isTinaDefaultBGTransparency());
@@ -66,6 +67,12 @@ public class PrefsWriter {
     addValue(sb, Prefs.KEY_TINA_RANDOMBATCH_BGCOLOR_BLUE, pPrefs.getTinaRandomBatchBGColorBlue());
     addValue(sb, Prefs.KEY_TINA_RANDOMBATCH_REFRESH_TYPE, pPrefs.getTinaRandomBatchRefreshType().toString());
     addValue(sb, Prefs.KEY_TINA_RASTER_TYPE, pPrefs.getTinaRasterType().toString());
+    addValue(sb, Prefs.KEY_TINA_COMPRESS_RENDER_STATE, pPrefs.isTinaCompressRenderState());
+    addValue(sb, Prefs.KEY_TINA_RENDER_STATE_CHECKPOINT_INTERVAL, pPrefs.getTinaRenderStateCheckpointInterval());
+    addValue(sb, Prefs.KEY_TINA_COMPILED_XFORMS, pPrefs.isTinaCompiledXForms());
+    addValue(sb, Prefs.KEY_TINA_ANIMATION_PARALLEL_FRAMES, pPrefs.getTinaAnimationParallelFrames());
+    addValue(sb, Prefs.KEY_TINA_RESSOURCE_CACHE_SIZE, pPrefs.getTinaRessourceCacheSize());
+    addValue(sb, Prefs.KEY_TINA_ADAPTIVE_NOISE_TARGET, pPrefs.getTinaAdaptiveNoiseTarget());
     addValue(sb, Prefs.KEY_SUNFLOW_PATH_SCENES, pPrefs.getSunflowScenePath());
     addValue(sb, Prefs.KEY_TINA_PRESERVE_FREE_CPUS, pPrefs.getTinaPreserveFreeCPUs());
     addValue(sb, Prefs.KEY_TINA_DISABLE_WIKIMEDIA_COMMONS_WARNING, pPrefs.isTinaDisableWikimediaCommonsWarning());
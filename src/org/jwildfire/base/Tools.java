@@ -43,9 +43,11 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.jwildfire.base.mathlib.MathLib;
 import org.jwildfire.image.Pixel;
@@ -84,9 +86,11 @@ public class Tools {
   public static final String FILEEXT_JWFSCRIPT = "jwfscript";
   public static final String FILEEXT_MP3 = "mp3";
   public static final String FILEEXT_OBJ = "obj";
+  public static final String FILEEXT_PLY = "ply";
   public static final String FILEEXT_PNG = "png";
   public static final String FILEEXT_PNS = "pns";
   public static final String FILEEXT_SUNFLOW_SCENE = "sc";
+  public static final String FILEEXT_STL = "stl";
   public static final String FILEEXT_SVG = "svg";
   public static final String FILEEXT_TXT = "txt";
   public static final String FILEEXT_TEXT = "text";
@@ -456,9 +460,27 @@ public class Tools {
     private final List<XMLAttribute> attrList = new ArrayList<XMLAttribute>();
     private final Map<String, XMLAttribute> attrMap = new HashMap<String, XMLAttribute>();
 
+    private Set<String> namePrefixes;
+
     public void addAttribute(XMLAttribute pAttribute) {
       attrList.add(pAttribute);
       attrMap.put(pAttribute.getName(), pAttribute);
+      namePrefixes = null;
+    }
+
+    // true if the name of any attribute starts with the given prefix, which must end with "_"
+    public boolean hasAttributeWithPrefix(String pPrefix) {
+      if (namePrefixes == null) {
+        namePrefixes = new HashSet<String>();
+        for (XMLAttribute attr : attrList) {
+          String name = attr.getName();
+          int p = -1;
+          while ((p = name.indexOf('_', p + 1)) >= 0) {
+            namePrefixes.add(name.substring(0, p + 1));
+          }
+        }
+      }
+      return namePrefixes.contains(pPrefix);
     }
 
     public XMLAttribute getAttribute(String pKey) {
@@ -511,7 +533,7 @@ public class Tools {
       catch (Throwable ex) {
         throw new RuntimeException("Error parsing attribute \"" + name + "\" (" + pXML + ")", ex);
       }
-      if (value != null) {
+      if (value != null && value.indexOf('&') >= 0) {
         value = value.replaceAll("&quot;", "\"").replaceAll("&lt;", "<").replaceAll("&gt;", ">").replaceAll("&amp;", "&");
       }
       res.addAttribute(new XMLAttribute(name, value));
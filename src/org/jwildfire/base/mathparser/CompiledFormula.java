@@ -1,6 +1,6 @@
 /*
   JWildfire - an image and animation processor written in Java 
-  Copyright (C) 1995-2014 Andreas Maschke
+  Copyright (C) 1995-2016 Andreas Maschke
 
   This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
   General Public License as published by the Free Software Foundation; either version 2.1 of the 
@@ -14,18 +14,12 @@
   if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
   02110-1301 USA, or see the FSF site: http://www.fsf.org.
 */
-package org.jwildfire.create.tina.meshgen.marchingcubes;
+package org.jwildfire.base.mathparser;
 
-public class InvalidatablePoint extends Point3f {
-  public boolean invalid;
+// A formula which was compiled from a parsed JEP expression, it reads the current values of the variables of the
+// JEPWrapper and evaluates directly to a primitive double
+public abstract class CompiledFormula {
 
-  public InvalidatablePoint() {
-
-  }
-
-  public InvalidatablePoint(InvalidatablePoint pSrc) {
-    super();
-    invalid = pSrc.invalid;
-  }
+  public abstract double evaluate();
 
 }
@@ -0,0 +1,479 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.base.mathparser;
+
+import org.nfunk.jep.ASTConstant;
+import org.nfunk.jep.ASTFunNode;
+import org.nfunk.jep.ASTVarNode;
+import org.nfunk.jep.Node;
+import org.nfunk.jep.Operator;
+import org.nfunk.jep.OperatorSet;
+import org.nfunk.jep.Variable;
+import org.nfunk.jep.function.Abs;
+import org.nfunk.jep.function.Add;
+import org.nfunk.jep.function.ArcCosine;
+import org.nfunk.jep.function.ArcSine;
+import org.nfunk.jep.function.ArcTangent;
+import org.nfunk.jep.function.ArcTangent2;
+import org.nfunk.jep.function.Ceil;
+import org.nfunk.jep.function.Comparative;
+import org.nfunk.jep.function.Cosine;
+import org.nfunk.jep.function.CosineH;
+import org.nfunk.jep.function.Divide;
+import org.nfunk.jep.function.Exp;
+import org.nfunk.jep.function.Floor;
+import org.nfunk.jep.function.If;
+import org.nfunk.jep.function.Logarithm;
+import org.nfunk.jep.function.Logical;
+import org.nfunk.jep.function.Modulus;
+import org.nfunk.jep.function.Multiply;
+import org.nfunk.jep.function.NaturalLogarithm;
+import org.nfunk.jep.function.Not;
+import org.nfunk.jep.function.PostfixMathCommandI;
+import org.nfunk.jep.function.Power;
+import org.nfunk.jep.function.Sine;
+import org.nfunk.jep.function.SineH;
+import org.nfunk.jep.function.SquareRoot;
+import org.nfunk.jep.function.Subtract;
+import org.nfunk.jep.function.TanH;
+import org.nfunk.jep.function.Tangent;
+import org.nfunk.jep.function.UMinus;
+
+// Translates a parsed JEP expression into a tree of CompiledFormula nodes which work on primitive doubles. Expressions
+// which contain unsupported constructs (e.g. complex numbers, strings or random numbers) are not compiled.
+class FormulaCompiler {
+  private static final double LOG10 = Math.log(10.0);
+
+  private final JEPWrapper wrapper;
+  private final OperatorSet operators;
+
+  public FormulaCompiler(JEPWrapper pWrapper, OperatorSet pOperators) {
+    wrapper = pWrapper;
+    operators = pOperators;
+  }
+
+  // returns null if the expression can not be compiled
+  public CompiledFormula compileNode(Node pNode) {
+    if (pNode instanceof ASTConstant) {
+      Object value = ((ASTConstant) pNode).getValue();
+      return value instanceof Double ? new Const((Double) value) : null;
+    }
+    else if (pNode instanceof ASTVarNode) {
+      Variable var = ((ASTVarNode) pNode).getVar();
+      if (var.isConstant()) {
+        return var.getValue() instanceof Double ? new Const((Double) var.getValue()) : null;
+      }
+      int idx = wrapper.getVarIndex(var.getName());
+      return idx >= 0 ? new Var(wrapper, idx) : null;
+    }
+    else if (pNode instanceof ASTFunNode) {
+      CompiledFormula args[] = new CompiledFormula[pNode.jjtGetNumChildren()];
+      for (int i = 0; i < args.length; i++) {
+        args[i] = compileNode(pNode.jjtGetChild(i));
+        if (args[i] == null) {
+          return null;
+        }
+      }
+      CompiledFormula res = compileFunction((ASTFunNode) pNode, args);
+      if (res == null) {
+        return null;
+      }
+      // fold constant expressions
+      for (CompiledFormula arg : args) {
+        if (!(arg instanceof Const)) {
+          return res;
+        }
+      }
+      return new Const(res.evaluate());
+    }
+    return null;
+  }
+
+  private CompiledFormula compileFunction(ASTFunNode pNode, final CompiledFormula[] pArgs) {
+    PostfixMathCommandI pfmc = pNode.getPFMC();
+    Operator op = pNode.getOperator();
+    switch (pArgs.length) {
+      case 1: {
+        final CompiledFormula a = pArgs[0];
+        if (pfmc instanceof UMinus) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return -a.evaluate();
+            }
+          };
+        }
+        else if (pfmc instanceof Not) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return a.evaluate() == 0.0 ? 1.0 : 0.0;
+            }
+          };
+        }
+        else if (pfmc instanceof Sine) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.sin(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof Cosine) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.cos(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof Tangent) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.tan(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof ArcSine) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.asin(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof ArcCosine) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.acos(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof ArcTangent) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.atan(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof SineH) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.sinh(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof CosineH) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.cosh(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof TanH) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.tanh(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof Exp) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.exp(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof NaturalLogarithm) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.log(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof Logarithm) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.log(a.evaluate()) / LOG10;
+            }
+          };
+        }
+        else if (pfmc instanceof SquareRoot) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.sqrt(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof Abs) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.abs(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof Floor) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.floor(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof Ceil) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.ceil(a.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof Rect) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              double x = a.evaluate() / Math.PI;
+              return (int) (x < 0.0 ? x - 1.0 : x) % 2 == 0 ? 1.0 : 0.0;
+            }
+          };
+        }
+        else if (pfmc instanceof Sawtooth) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              double x = a.evaluate() / Math.PI;
+              double r = x - (int) (x);
+              return x < 0.0 ? r + 1.0 : r;
+            }
+          };
+        }
+        else if (pfmc instanceof Triangle) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              double x = a.evaluate() / Math.PI;
+              double r = x < 0.0 ? ((int) (x) - x) * 2.0 : (x - (int) (x)) * 2.0;
+              return r > 1.0 ? 2.0 - r : r;
+            }
+          };
+        }
+        break;
+      }
+      case 2: {
+        final CompiledFormula a = pArgs[0];
+        final CompiledFormula b = pArgs[1];
+        if (pfmc instanceof Add) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return a.evaluate() + b.evaluate();
+            }
+          };
+        }
+        else if (pfmc instanceof Subtract) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return a.evaluate() - b.evaluate();
+            }
+          };
+        }
+        else if (pfmc instanceof Multiply) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return a.evaluate() * b.evaluate();
+            }
+          };
+        }
+        else if (pfmc instanceof Divide) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return a.evaluate() / b.evaluate();
+            }
+          };
+        }
+        else if (pfmc instanceof Modulus) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return a.evaluate() % b.evaluate();
+            }
+          };
+        }
+        else if (pfmc instanceof Power) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.pow(a.evaluate(), b.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof ArcTangent2) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return Math.atan2(a.evaluate(), b.evaluate());
+            }
+          };
+        }
+        else if (pfmc instanceof Logical && op == operators.getAnd()) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return a.evaluate() != 0.0 && b.evaluate() != 0.0 ? 1.0 : 0.0;
+            }
+          };
+        }
+        else if (pfmc instanceof Logical && op == operators.getOr()) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return a.evaluate() != 0.0 || b.evaluate() != 0.0 ? 1.0 : 0.0;
+            }
+          };
+        }
+        else if (pfmc instanceof Comparative) {
+          return compileComparison(op, a, b);
+        }
+        break;
+      }
+      case 3: {
+        final CompiledFormula cond = pArgs[0];
+        final CompiledFormula a = pArgs[1];
+        final CompiledFormula b = pArgs[2];
+        if (pfmc instanceof If) {
+          return new CompiledFormula() {
+            @Override
+            public double evaluate() {
+              return cond.evaluate() > 0.0 ? a.evaluate() : b.evaluate();
+            }
+          };
+        }
+        break;
+      }
+    }
+    if (pArgs.length > 2 && (pfmc instanceof Add || pfmc instanceof Multiply)) {
+      // n-ary sums and products
+      final boolean add = pfmc instanceof Add;
+      return new CompiledFormula() {
+        @Override
+        public double evaluate() {
+          double res = pArgs[0].evaluate();
+          for (int i = 1; i < pArgs.length; i++) {
+            res = add ? res + pArgs[i].evaluate() : res * pArgs[i].evaluate();
+          }
+          return res;
+        }
+      };
+    }
+    return null;
+  }
+
+  private CompiledFormula compileComparison(Operator pOp, final CompiledFormula a, final CompiledFormula b) {
+    if (pOp == operators.getLT()) {
+      return new CompiledFormula() {
+        @Override
+        public double evaluate() {
+          return a.evaluate() < b.evaluate() ? 1.0 : 0.0;
+        }
+      };
+    }
+    else if (pOp == operators.getGT()) {
+      return new CompiledFormula() {
+        @Override
+        public double evaluate() {
+          return a.evaluate() > b.evaluate() ? 1.0 : 0.0;
+        }
+      };
+    }
+    else if (pOp == operators.getLE()) {
+      return new CompiledFormula() {
+        @Override
+        public double evaluate() {
+          return a.evaluate() <= b.evaluate() ? 1.0 : 0.0;
+        }
+      };
+    }
+    else if (pOp == operators.getGE()) {
+      return new CompiledFormula() {
+        @Override
+        public double evaluate() {
+          return a.evaluate() >= b.evaluate() ? 1.0 : 0.0;
+        }
+      };
+    }
+    else if (pOp == operators.getEQ()) {
+      return new CompiledFormula() {
+        @Override
+        public double evaluate() {
+          return a.evaluate() == b.evaluate() ? 1.0 : 0.0;
+        }
+      };
+    }
+    else if (pOp == operators.getNE()) {
+      return new CompiledFormula() {
+        @Override
+        public double evaluate() {
+          return a.evaluate() != b.evaluate() ? 1.0 : 0.0;
+        }
+      };
+    }
+    return null;
+  }
+
+  private static class Const extends CompiledFormula {
+    private final double value;
+
+    public Const(double pValue) {
+      value = pValue;
+    }
+
+    @Override
+    public double evaluate() {
+      return value;
+    }
+  }
+
+  private static class Var extends CompiledFormula {
+    private final JEPWrapper wrapper;
+    private final int idx;
+
+    public Var(JEPWrapper pWrapper, int pIdx) {
+      wrapper = pWrapper;
+      idx = pIdx;
+    }
+
+    @Override
+    public double evaluate() {
+      return wrapper.varValues[idx];
+    }
+  }
+
+}
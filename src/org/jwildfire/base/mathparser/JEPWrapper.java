@@ -16,11 +16,17 @@
 */
 package org.jwildfire.base.mathparser;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.nfunk.jep.JEP;
 import org.nfunk.jep.Node;
 
 public class JEPWrapper {
   private final JEP parser;
+  private final Map<String, Integer> varIndices = new HashMap<String, Integer>();
+  private String[] varNames = new String[0];
+  double[] varValues = new double[0];
 
   public JEPWrapper() {
     parser = new JEP();
@@ -31,12 +37,42 @@ public class JEPWrapper {
     parser.addFunction("triangle", new Triangle());
   }
 
-  public void addVariable(String pName, double pValue) {
+  // returns the index of the variable for setVarValue(int, double)
+  public int addVariable(String pName, double pValue) {
     parser.addVariable(pName, pValue);
+    Integer idx = varIndices.get(pName);
+    if (idx == null) {
+      idx = varNames.length;
+      varIndices.put(pName, idx);
+      String[] newNames = new String[idx + 1];
+      System.arraycopy(varNames, 0, newNames, 0, idx);
+      newNames[idx] = pName;
+      double[] newValues = new double[idx + 1];
+      System.arraycopy(varValues, 0, newValues, 0, idx);
+      varNames = newNames;
+      varValues = newValues;
+    }
+    varValues[idx] = pValue;
+    return idx;
   }
 
   public void setVarValue(String pName, double pValue) {
     parser.setVarValue(pName, pValue);
+    Integer idx = varIndices.get(pName);
+    if (idx != null) {
+      varValues[idx] = pValue;
+    }
+  }
+
+  // index of a variable which was added by addVariable(), -1 if unknown
+  public int getVarIndex(String pName) {
+    Integer idx = varIndices.get(pName);
+    return idx != null ? idx : -1;
+  }
+
+  // fast setter for compiled formulas, the value is not visible to evaluate(Node)
+  public void setVarValue(int pIndex, double pValue) {
+    varValues[pIndex] = pValue;
   }
 
   public Node parse(String pExpression) {
@@ -57,4 +93,30 @@ public class JEPWrapper {
     }
   }
 
+  // compiles the parsed expression, expressions which can not be compiled are evaluated by JEP
+  public CompiledFormula compile(Node pNode) {
+    CompiledFormula res = new FormulaCompiler(this, parser.getOperatorSet()).compileNode(pNode);
+    return res != null ? res : new InterpretedFormula(pNode);
+  }
+
+  public static boolean isInterpreted(CompiledFormula pFormula) {
+    return pFormula instanceof InterpretedFormula;
+  }
+
+  private class InterpretedFormula extends CompiledFormula {
+    private final Node node;
+
+    public InterpretedFormula(Node pNode) {
+      node = pNode;
+    }
+
+    @Override
+    public double evaluate() {
+      for (int i = 0; i < varNames.length; i++) {
+        parser.setVarValue(varNames[i], varValues[i]);
+      }
+      return JEPWrapper.this.evaluate(node);
+    }
+  }
+
 }
@@ -22,9 +22,9 @@ import org.jwildfire.base.Property;
 import org.jwildfire.base.PropertyMax;
 import org.jwildfire.base.PropertyMin;
 import org.jwildfire.base.Tools;
+import org.jwildfire.base.mathparser.CompiledFormula;
 import org.jwildfire.base.mathparser.JEPWrapper;
 import org.jwildfire.image.SimpleImage;
-import org.nfunk.jep.Node;
 
 import com.l2fprod.common.beans.editor.ComboBoxPropertyEditor;
 
@@ -82,11 +82,12 @@ public class PerlinNoiseCreator extends ImageCreator {
     if (this.seed != 0)
       Tools.srand123(this.seed);
     JEPWrapper parser = null;
-    Node node = null;
+    CompiledFormula func = null;
+    int xIdx = -1;
     if (transform) {
       parser = new JEPWrapper();
-      parser.addVariable("x", 0.0);
-      node = parser.parse(transformation);
+      xIdx = parser.addVariable("x", 0.0);
+      func = parser.compile(parser.parse(transformation));
     }
 
     switch (colorMode) {
@@ -127,8 +128,8 @@ public class PerlinNoiseCreator extends ImageCreator {
         for (int l = 0; l < octaves; l++) {
           double noiseValue = noise(x * freq, y * freq, 0.0);
           if (transform) {
-            parser.setVarValue("x", noiseValue);
-            noiseValue = (Double) parser.evaluate(node);
+            parser.setVarValue(xIdx, noiseValue);
+            noiseValue = func.evaluate();
           }
           grayValue += alphaInt * noiseValue;
           freq *= frequencyMultiplier;
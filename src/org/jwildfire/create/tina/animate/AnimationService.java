@@ -21,9 +21,10 @@ import static org.jwildfire.base.mathlib.MathLib.fabs;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jwildfire.base.Prefs;
 import org.jwildfire.base.Tools;
@@ -72,12 +73,8 @@ public class AnimationService {
   }
 
   public static <T> double getPropertyValue(T pSource, String pName) {
-    @SuppressWarnings("unchecked")
-    Class<T> cls = (Class<T>) pSource.getClass();
-    Field field;
     try {
-      field = cls.getDeclaredField(pName);
-      field.setAccessible(true);
+      Field field = getMotionCurveBinding(pSource.getClass()).getPropertyField(pName);
       Class<?> fieldCls = field.getType();
       if (fieldCls == double.class || fieldCls == Double.class) {
         Double res = field.getDouble(pSource);
@@ -101,12 +98,8 @@ public class AnimationService {
   }
 
   public static <T> void setPropertyValue(T pDest, String pName, double pValue) {
-    @SuppressWarnings("unchecked")
-    Class<T> cls = (Class<T>) pDest.getClass();
-    Field field;
     try {
-      field = cls.getDeclaredField(pName);
-      field.setAccessible(true);
+      Field field = getMotionCurveBinding(pDest.getClass()).getPropertyField(pName);
       Class<?> fieldCls = field.getType();
       if (fieldCls == double.class || fieldCls == Double.class) {
         field.setDouble(pDest, pValue);
@@ -157,33 +150,28 @@ public class AnimationService {
   }
 
   private static void _evalMotionCurves(Object pObject, double pFrame) throws IllegalAccessException {
-    Class<?> cls = pObject.getClass();
-    for (Field field : cls.getDeclaredFields()) {
-      field.setAccessible(true);
-      if (field.getType() == MotionCurve.class && field.getName().endsWith(Tools.CURVE_POSTFIX)) {
-        MotionCurve curve = (MotionCurve) field.get(pObject);
-        if (curve.isEnabled()) {
-          double value = evalCurve(pFrame, curve);
-          String propName = field.getName().substring(0, field.getName().length() - Tools.CURVE_POSTFIX.length());
-          curve.getChangeHandler().processValueChange(pObject, propName, value);
-          if (pObject instanceof RGBPalette) {
-            curve.getChangeHandler().processValueChange(pObject, "modified", 1.0);
-          }
-          //setPropertyValue(pObject, propName, value);
-          //          System.out.println(propName + " " + value);
-        }
-      }
-      else if (field.getType().isAssignableFrom(ArrayList.class)) {
-        List<?> childs = (List<?>) field.get(pObject);
-        for (Object child : childs) {
-          _evalMotionCurves(child, pFrame);
+    MotionCurveBinding binding = getMotionCurveBinding(pObject.getClass());
+    for (int i = 0; i < binding.curveFields.length; i++) {
+      MotionCurve curve = (MotionCurve) binding.curveFields[i].get(pObject);
+      if (curve.isEnabled()) {
+        double value = evalCurve(pFrame, curve);
+        String propName = binding.propertyNames[i];
+        curve.getChangeHandler().processValueChange(pObject, propName, value);
+        if (pObject instanceof RGBPalette) {
+          curve.getChangeHandler().processValueChange(pObject, "modified", 1.0);
         }
       }
-      else if (field.getType().isAssignableFrom(RGBPalette.class)) {
-        RGBPalette gradient = (RGBPalette) field.get(pObject);
-        _evalMotionCurves(gradient, pFrame);
+    }
+    for (Field field : binding.listFields) {
+      List<?> childs = (List<?>) field.get(pObject);
+      for (Object child : childs) {
+        _evalMotionCurves(child, pFrame);
       }
     }
+    for (Field field : binding.gradientFields) {
+      RGBPalette gradient = (RGBPalette) field.get(pObject);
+      _evalMotionCurves(gradient, pFrame);
+    }
     if (pObject instanceof Variation) {
       Variation var = (Variation) pObject;
       VariationFunc func = var.getFunc();
@@ -213,26 +201,23 @@ public class AnimationService {
   }
 
   private static void _disableMotionCurves(Object pObject) throws IllegalAccessException {
-    Class<?> cls = pObject.getClass();
-    for (Field field : cls.getDeclaredFields()) {
-      field.setAccessible(true);
-      if (field.getType() == MotionCurve.class && field.getName().endsWith(Tools.CURVE_POSTFIX)) {
-        MotionCurve curve = (MotionCurve) field.get(pObject);
-        if (curve.isEnabled()) {
-          curve.setEnabled(false);
-        }
+    MotionCurveBinding binding = getMotionCurveBinding(pObject.getClass());
+    for (Field field : binding.curveFields) {
+      MotionCurve curve = (MotionCurve) field.get(pObject);
+      if (curve.isEnabled()) {
+        curve.setEnabled(false);
       }
-      else if (field.getType().isAssignableFrom(ArrayList.class)) {
-        List<?> childs = (List<?>) field.get(pObject);
-        for (Object child : childs) {
-          _disableMotionCurves(child);
-        }
-      }
-      else if (field.getType().isAssignableFrom(RGBPalette.class)) {
-        RGBPalette gradient = (RGBPalette) field.get(pObject);
-        _disableMotionCurves(gradient);
+    }
+    for (Field field : binding.listFields) {
+      List<?> childs = (List<?>) field.get(pObject);
+      for (Object child : childs) {
+        _disableMotionCurves(child);
       }
     }
+    for (Field field : binding.gradientFields) {
+      RGBPalette gradient = (RGBPalette) field.get(pObject);
+      _disableMotionCurves(gradient);
+    }
     if (pObject instanceof Variation) {
       Variation var = (Variation) pObject;
       VariationFunc func = var.getFunc();
@@ -245,12 +230,71 @@ public class AnimationService {
     }
   }
 
+  // the fields of a class which are relevant for evaluating motion curves, determined only once per class
+  private static class MotionCurveBinding {
+    private final Field curveFields[];
+    private final String propertyNames[];
+    private final Field listFields[];
+    private final Field gradientFields[];
+    private final Class<?> cls;
+    private final Map<String, Field> propertyFields = new ConcurrentHashMap<String, Field>();
+
+    public MotionCurveBinding(Class<?> pCls) {
+      List<Field> curves = new ArrayList<Field>();
+      List<Field> lists = new ArrayList<Field>();
+      List<Field> gradients = new ArrayList<Field>();
+      for (Field field : pCls.getDeclaredFields()) {
+        if (field.getType() == MotionCurve.class && field.getName().endsWith(Tools.CURVE_POSTFIX)) {
+          field.setAccessible(true);
+          curves.add(field);
+        }
+        else if (field.getType().isAssignableFrom(ArrayList.class)) {
+          field.setAccessible(true);
+          lists.add(field);
+        }
+        else if (field.getType().isAssignableFrom(RGBPalette.class)) {
+          field.setAccessible(true);
+          gradients.add(field);
+        }
+      }
+      curveFields = curves.toArray(new Field[curves.size()]);
+      propertyNames = new String[curveFields.length];
+      for (int i = 0; i < curveFields.length; i++) {
+        String name = curveFields[i].getName();
+        propertyNames[i] = name.substring(0, name.length() - Tools.CURVE_POSTFIX.length());
+      }
+      listFields = lists.toArray(new Field[lists.size()]);
+      gradientFields = gradients.toArray(new Field[gradients.size()]);
+      cls = pCls;
+    }
+
+    public Field getPropertyField(String pName) throws NoSuchFieldException {
+      Field res = propertyFields.get(pName);
+      if (res == null) {
+        res = cls.getDeclaredField(pName);
+        res.setAccessible(true);
+        propertyFields.put(pName, res);
+      }
+      return res;
+    }
+  }
+
+  private static final Map<Class<?>, MotionCurveBinding> motionCurveBindingCache = new ConcurrentHashMap<Class<?>, MotionCurveBinding>();
+
+  private static MotionCurveBinding getMotionCurveBinding(Class<?> pCls) {
+    MotionCurveBinding res = motionCurveBindingCache.get(pCls);
+    if (res == null) {
+      res = new MotionCurveBinding(pCls);
+      motionCurveBindingCache.put(pCls, res);
+    }
+    return res;
+  }
+
   public static double evalCurve(double pFrame, MotionCurve curve) {
     MotionCurve currCurve = curve;
     double value = 0.0;
     while (currCurve != null) {
-      Envelope envelope = currCurve.toEnvelope();
-      value += envelope.evaluate(pFrame);
+      value += currCurve.evaluate(pFrame);
       currCurve = currCurve.getParent();
     }
     return value;
@@ -274,22 +318,8 @@ public class AnimationService {
     }
   }
 
-  private static Map<Class<?>, List<Field>> motionCurvePropertyCache = new HashMap<Class<?>, List<Field>>();
-
   private static List<Field> getMotionCurveProperties(Object pObject) {
-    Class<?> cls = pObject.getClass();
-    List<Field> res = motionCurvePropertyCache.get(cls);
-    if (res == null) {
-      res = new ArrayList<Field>();
-      motionCurvePropertyCache.put(cls, res);
-      for (Field field : cls.getDeclaredFields()) {
-        field.setAccessible(true);
-        if (field.getType() == MotionCurve.class && field.getName().endsWith(Tools.CURVE_POSTFIX)) {
-          res.add(field);
-        }
-      }
-    }
-    return res;
+    return Arrays.asList(getMotionCurveBinding(pObject.getClass()).curveFields);
   }
 
   public static List<MotionCurveAttribute> getAllMotionCurves(Object pObject) {
@@ -16,8 +16,14 @@
 */
 package org.jwildfire.create.tina.animate;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import org.jwildfire.base.Prefs;
 import org.jwildfire.base.Tools;
@@ -25,6 +31,7 @@ import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.io.FlameWriter;
 import org.jwildfire.create.tina.render.FlameRenderer;
 import org.jwildfire.create.tina.render.RenderInfo;
+import org.jwildfire.create.tina.render.RenderExecutor;
 import org.jwildfire.create.tina.render.RenderMode;
 import org.jwildfire.create.tina.render.RenderedFlame;
 import org.jwildfire.image.Pixel;
@@ -32,12 +39,18 @@ import org.jwildfire.image.SimpleImage;
 import org.jwildfire.io.ImageWriter;
 
 public class SWFAnimationRenderThread implements Runnable {
+  // frames up to this size are rendered in parallel when the number of parallel frames is not set in the preferences
+  private static final int AUTO_PARALLEL_FRAMES_MAX_PIXELS = 800 * 600;
+  private static final int ANB_HEADER_SIZE = 16 + 20;
+
   private final SWFAnimationRenderThreadController controller;
   private final String outputFilename;
-  private boolean cancelSignalled;
+  private volatile boolean cancelSignalled;
   private FlameMovie flameMovie;
   private Throwable lastError;
-  private final List<SimpleImage> renderedImages = new ArrayList<SimpleImage>();
+  private RandomAccessFile anbFile;
+  private String anbFilename;
+  private int anbFrameCount;
 
   public SWFAnimationRenderThread(SWFAnimationRenderThreadController pController, FlameMovie pAnimation, String pOutputFilename) {
     controller = pController;
@@ -51,19 +64,21 @@ public class SWFAnimationRenderThread implements Runnable {
       try {
         cancelSignalled = false;
         lastError = null;
-        renderedImages.clear();
         controller.getProgressUpdater().initProgress(flameMovie.getFrameCount());
         int startFrame = 1;
         int endFrame = flameMovie.getFrameCount();
-        for (int i = startFrame; i <= endFrame; i++) {
-          if (cancelSignalled) {
-            break;
+        if (flameMovie.getSequenceOutputType() == SequenceOutputType.FLAMES) {
+          for (int i = startFrame; i <= endFrame; i++) {
+            if (cancelSignalled) {
+              break;
+            }
+            saveFlame(createFlame(i), i);
+            controller.getProgressUpdater().updateProgress(i);
           }
-          Flame currFlame = createFlame(i);
-          processFlame(currFlame, i);
-          controller.getProgressUpdater().updateProgress(i);
         }
-        finishSequence();
+        else {
+          renderFrames(startFrame, endFrame);
+        }
       }
       catch (Throwable ex) {
         lastError = ex;
@@ -75,28 +90,123 @@ public class SWFAnimationRenderThread implements Runnable {
     }
   }
 
-  private void finishSequence() throws Exception {
+  // Renders up to getParallelFrameCount() frames at the same time, each one with its share of the render threads.
+  // Finished frames are written in order by this thread, and only a limited number of frames is rendered ahead,
+  // so at most two images per parallel frame are held in memory.
+  private void renderFrames(int pStartFrame, int pEndFrame) throws Exception {
+    int parallelFrames = getParallelFrameCount(pEndFrame - pStartFrame + 1);
+    int threadsPerFrame = Math.max(1, Prefs.getPrefs().getTinaRenderThreads() / parallelFrames);
+    Semaphore renderSlots = new Semaphore(parallelFrames);
+    Deque<Future<SimpleImage>> pendingFrames = new ArrayDeque<Future<SimpleImage>>();
+    int nextFrame = pStartFrame;
+    int writtenFrames = 0;
+    try {
+      while (true) {
+        while (!cancelSignalled && nextFrame <= pEndFrame && pendingFrames.size() < 2 * parallelFrames) {
+          Flame flame = createFlame(nextFrame);
+          if (flameMovie.getSequenceOutputType() == SequenceOutputType.ANB) {
+            flame.setBGTransparency(true);
+          }
+          pendingFrames.add(RenderExecutor.getIterationExecutor().submit(new RenderFrameTask(flame, threadsPerFrame, renderSlots)));
+          nextFrame++;
+        }
+        if (cancelSignalled || pendingFrames.isEmpty()) {
+          break;
+        }
+        SimpleImage image = getRenderedImage(pendingFrames.removeFirst());
+        if (image == null) {
+          break;
+        }
+        int frame = pStartFrame + writtenFrames;
+        processImage(image, frame, writtenFrames, pEndFrame - pStartFrame + 1);
+        writtenFrames++;
+        controller.getProgressUpdater().updateProgress(frame);
+      }
+    }
+    finally {
+      for (Future<SimpleImage> pendingFrame : pendingFrames) {
+        pendingFrame.cancel(false);
+      }
+      if (anbFile != null) {
+        finishANB(writtenFrames);
+      }
+    }
+  }
+
+  private SimpleImage getRenderedImage(Future<SimpleImage> pFrame) throws Exception {
+    try {
+      return pFrame.get();
+    }
+    catch (ExecutionException ex) {
+      if (ex.getCause() instanceof Exception) {
+        throw (Exception) ex.getCause();
+      }
+      throw ex;
+    }
+  }
+
+  private int getParallelFrameCount(int pFrameCount) {
+    int res = Prefs.getPrefs().getTinaAnimationParallelFrames();
+    if (res < 1) {
+      res = flameMovie.getFrameWidth() * flameMovie.getFrameHeight() <= AUTO_PARALLEL_FRAMES_MAX_PIXELS ? Prefs.getPrefs().getTinaRenderThreads() : 1;
+    }
+    return Math.max(1, Math.min(res, pFrameCount));
+  }
+
+  private class RenderFrameTask implements Callable<SimpleImage> {
+    private final Flame flame;
+    private final int threadCount;
+    private final Semaphore renderSlots;
+
+    public RenderFrameTask(Flame pFlame, int pThreadCount, Semaphore pRenderSlots) {
+      flame = pFlame;
+      threadCount = pThreadCount;
+      renderSlots = pRenderSlots;
+    }
+
+    @Override
+    public SimpleImage call() throws Exception {
+      renderSlots.acquire();
+      try {
+        return cancelSignalled ? null : renderFlame(flame, threadCount);
+      }
+      finally {
+        renderSlots.release();
+      }
+    }
+  }
+
+  private void processImage(SimpleImage pImage, int pFrame, int pFrameIdx, int pFrameCount) throws Exception {
     switch (flameMovie.getSequenceOutputType()) {
+      case PNG_IMAGES:
+        saveImage(pImage, pFrame);
+        break;
       case ANB:
-        createANB();
+        if (anbFile == null) {
+          createANB(pImage.getImageWidth(), pImage.getImageHeight(), pFrameCount);
+        }
+        writeANBFrame(pImage, pFrameIdx);
         break;
+      default:
+        throw new IllegalStateException(String.valueOf(flameMovie.getSequenceOutputType()));
     }
   }
 
-  private void createANB() throws Exception {
-    int width = renderedImages.get(0).getImageWidth();
-    int height = renderedImages.get(0).getImageHeight();
+  // The frames of an ANB file are stored channel by channel (all red values of all frames first), so the file is
+  // allocated for all frames at the beginning and every frame is written to its place when it is finished
+  private void createANB(int pWidth, int pHeight, int pFrameCount) throws Exception {
+    int width = pWidth;
+    int height = pHeight;
 
-    int frameCount = renderedImages.size();
+    int frameCount = pFrameCount;
     int size = (width + 1) * (height + 1);
-    int totalSize = 16 + 20 + 4 * frameCount * size; // header + (r + g + b + alpha) * frameCount 
     int direction = 1;
     int endBehaviour = 0;
     int step = 16;
     int reserved1 = 0;
     int reserved2 = 0;
 
-    byte buffer[] = new byte[totalSize];
+    byte buffer[] = new byte[ANB_HEADER_SIZE];
     int offset = 0;
     buffer[offset++] = 'A';
     buffer[offset++] = 'N';
@@ -134,17 +244,56 @@ public class SWFAnimationRenderThread implements Runnable {
     buffer[offset++] = (byte) (reserved2 >> 8);
     buffer[offset++] = (byte) (reserved2 >> 16);
     buffer[offset++] = (byte) (reserved2 >> 24);
-    for (int channel = 0; channel < 4; channel++) {
-      for (int i = 0; i < frameCount; i++) {
-        fillBuffer(buffer, offset, renderedImages.get(i), channel);
-        offset += size;
-      }
-    }
+
     String filename = outputFilename;
     if (!filename.endsWith(Tools.FILEEXT_ANB)) {
       filename = filename + "." + Tools.FILEEXT_ANB;
     }
-    Tools.writeFile(filename, buffer);
+    anbFilename = filename;
+    anbFrameCount = frameCount;
+    anbFile = new RandomAccessFile(filename, "rw");
+    anbFile.setLength(ANB_HEADER_SIZE + 4L * frameCount * size);
+    anbFile.seek(0);
+    anbFile.write(buffer);
+  }
+
+  private void writeANBFrame(SimpleImage pImage, int pFrameIdx) throws Exception {
+    int size = (pImage.getImageWidth() + 1) * (pImage.getImageHeight() + 1);
+    byte buffer[] = new byte[size];
+    for (int channel = 0; channel < 4; channel++) {
+      fillBuffer(buffer, 0, pImage, channel);
+      anbFile.seek(ANB_HEADER_SIZE + ((long) channel * anbFrameCount + pFrameIdx) * size);
+      anbFile.write(buffer);
+    }
+  }
+
+  // closes the ANB file, if the rendering was cancelled the written frames are moved together
+  private void finishANB(int pWrittenFrames) throws Exception {
+    try {
+      if (pWrittenFrames < anbFrameCount && pWrittenFrames > 0) {
+        int size = (int) ((anbFile.length() - ANB_HEADER_SIZE) / (4L * anbFrameCount));
+        byte buffer[] = new byte[size];
+        for (int channel = 1; channel < 4; channel++) {
+          for (int i = 0; i < pWrittenFrames; i++) {
+            anbFile.seek(ANB_HEADER_SIZE + ((long) channel * anbFrameCount + i) * size);
+            anbFile.readFully(buffer);
+            anbFile.seek(ANB_HEADER_SIZE + ((long) channel * pWrittenFrames + i) * size);
+            anbFile.write(buffer);
+          }
+        }
+        anbFile.setLength(ANB_HEADER_SIZE + 4L * pWrittenFrames * size);
+        int frameCount = pWrittenFrames - 1;
+        anbFile.seek(12);
+        anbFile.write(new byte[] { (byte) frameCount, (byte) (frameCount >> 8), (byte) (frameCount >> 16), (byte) (frameCount >> 24) });
+      }
+    }
+    finally {
+      anbFile.close();
+      anbFile = null;
+    }
+    if (pWrittenFrames == 0) {
+      new File(anbFilename).delete();
+    }
   }
 
   private void fillBuffer(byte[] pBuffer, int pOffset, SimpleImage pImage, int pChannel) {
@@ -173,27 +322,12 @@ public class SWFAnimationRenderThread implements Runnable {
     }
   }
 
-  private void processFlame(Flame pCurrFlame, int pFrame) throws Exception {
-    switch (flameMovie.getSequenceOutputType()) {
-      case FLAMES:
-        saveFlame(pCurrFlame, pFrame);
-        break;
-      case PNG_IMAGES:
-        saveImage(renderFlame(pCurrFlame), pFrame);
-        break;
-      case ANB:
-        pCurrFlame.setBGTransparency(true);
-        renderedImages.add(renderFlame(pCurrFlame));
-        break;
-    }
-  }
-
   private void saveImage(SimpleImage pImage, int pFrame) throws Exception {
     String filename = generateFilename(pFrame, Tools.FILEEXT_PNG);
     new ImageWriter().saveAsPNG(pImage, filename);
   }
 
-  private SimpleImage renderFlame(Flame pFlame) {
+  private SimpleImage renderFlame(Flame pFlame, int pThreadCount) {
     RenderInfo info = new RenderInfo(flameMovie.getFrameWidth(), flameMovie.getFrameHeight(), RenderMode.PRODUCTION);
     double wScl = (double) info.getImageWidth() / (double) pFlame.getWidth();
     double hScl = (double) info.getImageHeight() / (double) pFlame.getHeight();
@@ -203,6 +337,7 @@ public class SWFAnimationRenderThread implements Runnable {
 
     FlameRenderer renderer = new FlameRenderer(pFlame, Prefs.getPrefs(), pFlame.isBGTransparency(), false);
     renderer.setProgressUpdater(null);
+    renderer.setRenderThreadCount(pThreadCount);
     pFlame.setSampleDensity(flameMovie.getQuality());
     RenderedFlame res = renderer.renderFlame(info);
     return res.getImage();
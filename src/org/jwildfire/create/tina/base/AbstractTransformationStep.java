@@ -27,4 +27,9 @@ public abstract class AbstractTransformationStep implements TransformationStep,
     xform = pXForm;
   }
 
+  // name under which the time of this step is reported by the TransformationProfiler, null if the step does not belong to a variation
+  public String getProfileName() {
+    return null;
+  }
+
 }
@@ -34,4 +34,9 @@ public final class EnforcedPostVariationTransformationStep extends AbstractTrans
     variation.transform(pContext, xform, pVarT, pVarT);
   }
 
+  @Override
+  public String getProfileName() {
+    return variation.getFunc().getName();
+  }
+
 }
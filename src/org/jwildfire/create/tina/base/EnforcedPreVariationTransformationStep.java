@@ -35,4 +35,9 @@ public class EnforcedPreVariationTransformationStep extends AbstractTransformati
     pAffineT.invalidate();
   }
 
+  @Override
+  public String getProfileName() {
+    return variation.getFunc().getName();
+  }
+
 }
@@ -34,4 +34,9 @@ public final class EnforcedVariationTransformationStep extends AbstractTransform
     variation.transform(pContext, xform, pVarT, pVarT);
   }
 
+  @Override
+  public String getProfileName() {
+    return variation.getFunc().getName();
+  }
+
 }
@@ -34,4 +34,9 @@ public final class PostVariationTransformationStep extends AbstractTransformatio
     variation.transform(pContext, xform, pAffineT, pVarT);
   }
 
+  @Override
+  public String getProfileName() {
+    return variation.getFunc().getName();
+  }
+
 }
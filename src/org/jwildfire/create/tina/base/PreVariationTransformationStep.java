@@ -35,4 +35,9 @@ public class PreVariationTransformationStep extends AbstractTransformationStep {
     pAffineT.invalidate();
   }
 
+  @Override
+  public String getProfileName() {
+    return variation.getFunc().getName();
+  }
+
 }
@@ -0,0 +1,133 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.base;
+
+import org.jwildfire.create.tina.variation.FlameTransformationContext;
+import org.jwildfire.create.tina.variation.Linear3DFunc;
+import org.jwildfire.create.tina.variation.LinearFunc;
+import org.jwildfire.create.tina.variation.Variation;
+
+// Replaces the whole chain of steps for the very common case of a transform which has only linear variations
+// and simple (or none) affine transforms, i.e. all work is done inside one method call
+public final class TransformationLinearStep extends AbstractTransformationStep {
+  private static final long serialVersionUID = 1L;
+  private final Variation[] variations;
+  private final boolean[] linear3D;
+  private final boolean hasXYCoeffs;
+  private final boolean hasXYPostCoeffs;
+
+  public TransformationLinearStep(XForm pXForm) {
+    super(pXForm);
+    variations = new Variation[pXForm.getVariationCount()];
+    linear3D = new boolean[variations.length];
+    for (int i = 0; i < variations.length; i++) {
+      variations[i] = pXForm.getVariation(i);
+      linear3D[i] = variations[i].getFunc() instanceof Linear3DFunc;
+    }
+    hasXYCoeffs = pXForm.isHasXYCoeffs();
+    hasXYPostCoeffs = pXForm.isHasXYPostCoeffs();
+  }
+
+  public static boolean isApplicable(XForm pXForm) {
+    if (pXForm.isHasYZCoeffs() || pXForm.isHasZXCoeffs() || pXForm.isHasYZPostCoeffs() || pXForm.isHasZXPostCoeffs()) {
+      return false;
+    }
+    for (Variation variation : pXForm.getVariations()) {
+      if (variation.getPriority() != 0 || variation.getFunc().getPriority() != 0) {
+        return false;
+      }
+      if (!(variation.getFunc() instanceof Linear3DFunc) && !(variation.getFunc() instanceof LinearFunc)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void transform(FlameTransformationContext pContext, XYZPoint pAffineT, XYZPoint pVarT, XYZPoint pSrcPoint, XYZPoint pDstPoint) {
+    // TransformationInitStep
+    pAffineT.clear();
+    pAffineT.doHide = pSrcPoint.doHide;
+    pAffineT.color = pSrcPoint.color * xform.c1 + xform.c2;
+    pAffineT.material = pSrcPoint.material * xform.material1 + xform.material2;
+    pAffineT.modGamma = pSrcPoint.modGamma * xform.modGamma1 + xform.modGamma2;
+    pAffineT.modContrast = pSrcPoint.modContrast * xform.modContrast1 + xform.modContrast2;
+    pAffineT.modSaturation = pSrcPoint.modSaturation * xform.modSaturation1 + xform.modSaturation2;
+    pAffineT.modHue = pSrcPoint.modHue * xform.modHue1 + xform.modHue2;
+    // TransformationAffineFlatStep/TransformationAffineNoneStep
+    if (hasXYCoeffs) {
+      pAffineT.x = xform.xyCoeff00 * pSrcPoint.x + xform.xyCoeff10 * pSrcPoint.y + xform.xyCoeff20;
+      pAffineT.y = xform.xyCoeff01 * pSrcPoint.x + xform.xyCoeff11 * pSrcPoint.y + xform.xyCoeff21;
+    }
+    else {
+      pAffineT.x = pSrcPoint.x;
+      pAffineT.y = pSrcPoint.y;
+    }
+    pAffineT.z = pSrcPoint.z;
+    // TransformationPreparePreVariationsStep
+    pVarT.invalidate();
+    pVarT.x = pVarT.y = pVarT.z = 0.0;
+    pVarT.color = pAffineT.color;
+    pVarT.material = pAffineT.material;
+    pVarT.modGamma = pAffineT.modGamma;
+    pVarT.modContrast = pAffineT.modContrast;
+    pVarT.modSaturation = pAffineT.modSaturation;
+    pVarT.modHue = pAffineT.modHue;
+    pVarT.rgbColor = pAffineT.rgbColor;
+    pVarT.redColor = pAffineT.redColor;
+    pVarT.greenColor = pAffineT.greenColor;
+    pVarT.blueColor = pAffineT.blueColor;
+    pVarT.doHide = pAffineT.doHide;
+    // VariationTransformationStep with linear/linear3D
+    for (int i = 0; i < variations.length; i++) {
+      double amount = variations[i].getAmount();
+      pVarT.x += amount * pAffineT.x;
+      pVarT.y += amount * pAffineT.y;
+      if (linear3D[i] || pContext.isPreserveZCoordinate()) {
+        pVarT.z += amount * pAffineT.z;
+      }
+    }
+    // TransformationPreparePostAffineStep
+    pDstPoint.color = pVarT.color;
+    pDstPoint.material = pVarT.material;
+    pDstPoint.modGamma = pVarT.modGamma;
+    pDstPoint.modContrast = pVarT.modContrast;
+    pDstPoint.modSaturation = pVarT.modSaturation;
+    pDstPoint.modHue = pVarT.modHue;
+    pDstPoint.rgbColor = pVarT.rgbColor;
+    pDstPoint.redColor = pVarT.redColor;
+    pDstPoint.greenColor = pVarT.greenColor;
+    pDstPoint.blueColor = pVarT.blueColor;
+    pDstPoint.doHide = pVarT.doHide;
+    // TransformationPostAffineFlatStep/TransformationPostAffineNoneStep
+    if (hasXYPostCoeffs) {
+      pDstPoint.x = xform.xyPostCoeff00 * pVarT.x + xform.xyPostCoeff10 * pVarT.y + xform.xyPostCoeff20;
+      pDstPoint.y = xform.xyPostCoeff01 * pVarT.x + xform.xyPostCoeff11 * pVarT.y + xform.xyPostCoeff21;
+    }
+    else {
+      pDstPoint.x = pVarT.x;
+      pDstPoint.y = pVarT.y;
+    }
+    pDstPoint.z = pVarT.z;
+  }
+
+  @Override
+  public String getProfileName() {
+    return "linear (compiled)";
+  }
+
+}
@@ -0,0 +1,106 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.base;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.jwildfire.create.tina.variation.FlameTransformationContext;
+
+// Collects call counts and (sampled) computation times of the transformation steps of each XForm. There is one instance
+// per render thread (see FlameTransformationContext), so no synchronization is necessary.
+public class TransformationProfiler {
+  // measure only every n-th transformation, because System.nanoTime() is expensive compared to most of the variations
+  public static final int SAMPLE_INTERVAL = 64;
+
+  public static class XFormProfile {
+    private final String[] stepNames;
+    private final long[] stepNanos;
+    private long calls;
+    private long sampledCalls;
+
+    private XFormProfile(TransformationStep[] pSteps) {
+      stepNames = new String[pSteps.length];
+      stepNanos = new long[pSteps.length];
+      for (int i = 0; i < pSteps.length; i++) {
+        stepNames[i] = pSteps[i] instanceof AbstractTransformationStep ? ((AbstractTransformationStep) pSteps[i]).getProfileName() : null;
+      }
+    }
+
+    public int getStepCount() {
+      return stepNames.length;
+    }
+
+    public String getStepName(int pIdx) {
+      return stepNames[pIdx];
+    }
+
+    public long getStepNanos(int pIdx) {
+      return stepNanos[pIdx];
+    }
+
+    public long getCalls() {
+      return calls;
+    }
+
+    public long getSampledCalls() {
+      return sampledCalls;
+    }
+  }
+
+  private final Map<XForm, XFormProfile> profiles = new IdentityHashMap<>();
+  private XForm lastXForm;
+  private XFormProfile lastProfile;
+  private int sampleCounter;
+
+  void transformPoint(XForm pXForm, TransformationStep[] pSteps, FlameTransformationContext pContext, XYZPoint pAffineT, XYZPoint pVarT, XYZPoint pSrcPoint, XYZPoint pDstPoint) {
+    XFormProfile profile = getProfile(pXForm, pSteps);
+    profile.calls++;
+    if (++sampleCounter >= SAMPLE_INTERVAL) {
+      sampleCounter = 0;
+      profile.sampledCalls++;
+      for (int i = 0; i < pSteps.length; i++) {
+        long t0 = System.nanoTime();
+        pSteps[i].transform(pContext, pAffineT, pVarT, pSrcPoint, pDstPoint);
+        profile.stepNanos[i] += System.nanoTime() - t0;
+      }
+    }
+    else {
+      for (int i = 0; i < pSteps.length; i++) {
+        pSteps[i].transform(pContext, pAffineT, pVarT, pSrcPoint, pDstPoint);
+      }
+    }
+  }
+
+  private XFormProfile getProfile(XForm pXForm, TransformationStep[] pSteps) {
+    if (pXForm != lastXForm || lastProfile.stepNanos.length != pSteps.length) {
+      lastProfile = profiles.get(pXForm);
+      // the steps are created again when the xform is changed
+      if (lastProfile == null || lastProfile.stepNanos.length != pSteps.length) {
+        lastProfile = new XFormProfile(pSteps);
+        profiles.put(pXForm, lastProfile);
+      }
+      lastXForm = pXForm;
+    }
+    return lastProfile;
+  }
+
+  public XFormProfile getProfile(XForm pXForm) {
+    return profiles.get(pXForm);
+  }
+
+}
@@ -34,4 +34,9 @@ public final class VariationTransformationStep extends AbstractTransformationSte
     variation.transform(pContext, xform, pAffineT, pVarT);
   }
 
+  @Override
+  public String getProfileName() {
+    return variation.getFunc().getName();
+  }
+
 }
@@ -23,6 +23,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.jwildfire.base.Prefs;
 import org.jwildfire.base.mathlib.MathLib;
 import org.jwildfire.create.tina.animate.AnimAware;
 import org.jwildfire.create.tina.base.motion.MotionCurve;
@@ -405,42 +406,46 @@ public final class XForm implements Assignable<XForm>, Serializable {
     return hasZXCoeffs;
   }
 
-  private List<TransformationStep> t = new ArrayList<>();
+  private TransformationStep[] t = new TransformationStep[0];
 
   private void createTransformations() {
-    t = new ArrayList<TransformationStep>();
-    t.add(new TransformationInitStep(this));
+    if (Prefs.getPrefs().isTinaCompiledXForms() && TransformationLinearStep.isApplicable(this)) {
+      t = new TransformationStep[] { new TransformationLinearStep(this) };
+      return;
+    }
+    List<TransformationStep> steps = new ArrayList<TransformationStep>();
+    steps.add(new TransformationInitStep(this));
     if (!isHasXYCoeffs() && !isHasYZCoeffs() && !isHasZXCoeffs()) {
-      t.add(new TransformationAffineNoneStep(this));
+      steps.add(new TransformationAffineNoneStep(this));
     }
     else if (isHasXYCoeffs() && !isHasYZCoeffs() && !isHasZXCoeffs()) {
-      t.add(new TransformationAffineFlatStep(this));
+      steps.add(new TransformationAffineFlatStep(this));
     }
     else {
-      t.add(new TransformationAffineFullStep(this));
+      steps.add(new TransformationAffineFullStep(this));
     }
-    t.add(new TransformationPreparePreVariationsStep(this));
+    steps.add(new TransformationPreparePreVariationsStep(this));
 
     for (Variation variation : variations) {
       if (variation.getPriority() < 0) {
         if (variation.getFunc().getPriority() < 0) {
-          t.add(new PreVariationTransformationStep(this, variation));
+          steps.add(new PreVariationTransformationStep(this, variation));
         }
         else {
-          t.add(new EnforcedPreVariationTransformationStep(this, variation));
+          steps.add(new EnforcedPreVariationTransformationStep(this, variation));
         }
       }
     }
 
-    t.add(new TransformationPrepareVariationsStep(this));
+    steps.add(new TransformationPrepareVariationsStep(this));
 
     for (Variation variation : variations) {
       if (variation.getPriority() == 0) {
         if (variation.getFunc().getPriority() == 0) {
-          t.add(new VariationTransformationStep(this, variation));
+          steps.add(new VariationTransformationStep(this, variation));
         }
         else {
-          t.add(new EnforcedVariationTransformationStep(this, variation));
+          steps.add(new EnforcedVariationTransformationStep(this, variation));
         }
       }
     }
@@ -448,29 +453,35 @@ public final class XForm implements Assignable<XForm>, Serializable {
     for (Variation variation : variations) {
       if (variation.getPriority() > 0) {
         if (variation.getFunc().getPriority() > 0) {
-          t.add(new PostVariationTransformationStep(this, variation));
+          steps.add(new PostVariationTransformationStep(this, variation));
         }
         else {
-          t.add(new EnforcedPostVariationTransformationStep(this, variation));
+          steps.add(new EnforcedPostVariationTransformationStep(this, variation));
         }
       }
     }
 
-    t.add(new TransformationPreparePostAffineStep(this));
+    steps.add(new TransformationPreparePostAffineStep(this));
     if (!isHasXYPostCoeffs() && !isHasYZPostCoeffs() && !isHasZXPostCoeffs()) {
-      t.add(new TransformationPostAffineNoneStep(this));
+      steps.add(new TransformationPostAffineNoneStep(this));
     }
     else if (isHasXYPostCoeffs() && !isHasYZPostCoeffs() && !isHasZXPostCoeffs()) {
-      t.add(new TransformationPostAffineFlatStep(this));
+      steps.add(new TransformationPostAffineFlatStep(this));
     }
     else {
-      t.add(new TransformationPostAffineStep(this));
+      steps.add(new TransformationPostAffineStep(this));
     }
+    t = steps.toArray(new TransformationStep[steps.size()]);
   }
 
   public void transformPoint(FlameTransformationContext pContext, XYZPoint pAffineT, XYZPoint pVarT, XYZPoint pSrcPoint, XYZPoint pDstPoint) {
-    for (TransformationStep transformation : t) {
-      transformation.transform(pContext, pAffineT, pVarT, pSrcPoint, pDstPoint);
+    final TransformationStep[] steps = t;
+    if (pContext.getTransformationProfiler() != null) {
+      pContext.getTransformationProfiler().transformPoint(this, steps, pContext, pAffineT, pVarT, pSrcPoint, pDstPoint);
+      return;
+    }
+    for (int i = 0; i < steps.length; i++) {
+      steps[i].transform(pContext, pAffineT, pVarT, pSrcPoint, pDstPoint);
     }
   }
 
@@ -22,6 +22,7 @@ import static org.jwildfire.base.mathlib.MathLib.fabs;
 import java.io.Serializable;
 
 import org.jwildfire.create.tina.edit.Assignable;
+import org.jwildfire.envelope.CompiledEnvelope;
 import org.jwildfire.envelope.Envelope;
 import org.jwildfire.envelope.Envelope.Interpolation;
 
@@ -40,6 +41,7 @@ public class MotionCurve implements Serializable, Assignable<MotionCurve> {
   private double[] y = new double[] {};
   private MotionCurve parent;
   private final MotionValueChangeHandler changeHandler;
+  private transient CompiledEnvelope compiledEnvelope;
 
   public MotionCurve() {
     changeHandler = DefaultMotionValueChangeHandler.INSTANCE;
@@ -83,6 +85,17 @@ public class MotionCurve implements Serializable, Assignable<MotionCurve> {
     return res;
   }
 
+  // evaluates this curve (without parent) at the given frame, the same as toEnvelope().evaluate(pFrame) but without
+  // recalculating the interpolation as long as the points are not changed
+  public double evaluate(double pFrame) {
+    CompiledEnvelope envelope = compiledEnvelope;
+    if (envelope == null || !envelope.isCompiledFrom(x, y, interpolation)) {
+      envelope = new CompiledEnvelope(x, y, interpolation);
+      compiledEnvelope = envelope;
+    }
+    return envelope.evaluate(pFrame);
+  }
+
   public boolean isEnabled() {
     return enabled;
   }
@@ -106,6 +119,8 @@ public class MotionCurve implements Serializable, Assignable<MotionCurve> {
     y = new double[pSrc.y.length];
     System.arraycopy(pSrc.y, 0, y, 0, y.length);
     parent = pSrc.parent;
+    // immutable, may be shared by all copies
+    compiledEnvelope = pSrc.compiledEnvelope;
   }
 
   @Override
@@ -30,6 +30,8 @@ public interface AbstractRaster {
 
   void readRasterPointSafe(int pX, int pY, RasterPoint pDestRasterPoint);
 
+  void writeRasterPoint(int pX, int pY, RasterPoint pSrcRasterPoint);
+
   void addSamples(PlotSample[] pPlotBuffer, int pCount);
 
   void finalizeRaster();
@@ -25,6 +25,20 @@ public enum RasterCreator {
     public Class<? extends AbstractRaster> getRasterClass(Flame pFlame) {
       return pFlame.getSolidRenderSettings().isSolidRenderingEnabled() ? RasterFloatIntWithPreciseZBuffer.class : RasterFloatInt.class;
     }
+  },
+  FLOAT_INT_FLAT_RASTER
+  {
+    @Override
+    public Class<? extends AbstractRaster> getRasterClass(Flame pFlame) {
+      return pFlame.getSolidRenderSettings().isSolidRenderingEnabled() ? RasterFloatIntWithPreciseZBuffer.class : RasterFloatIntFlat.class;
+    }
+  },
+  FLOAT_INT_MAPPED_RASTER
+  {
+    @Override
+    public Class<? extends AbstractRaster> getRasterClass(Flame pFlame) {
+      return pFlame.getSolidRenderSettings().isSolidRenderingEnabled() ? RasterFloatIntWithPreciseZBuffer.class : RasterFloatIntMapped.class;
+    }
   };
 
   public abstract Class<? extends AbstractRaster> getRasterClass(Flame pFlame);
@@ -63,6 +63,14 @@ public class RasterFloatInt implements AbstractRaster, Serializable {
       pDestRasterPoint.clear();
   }
 
+  @Override
+  public void writeRasterPoint(int pX, int pY, RasterPoint pSrcRasterPoint) {
+    red[pX][pY] = (float) pSrcRasterPoint.red;
+    green[pX][pY] = (float) pSrcRasterPoint.green;
+    blue[pX][pY] = (float) pSrcRasterPoint.blue;
+    count[pX][pY] = (int) pSrcRasterPoint.count;
+  }
+
   @Override
   public synchronized void addSamples(PlotSample[] pPlotBuffer, int pCount) {
     for (int i = 0; i < pCount; i++) {
@@ -0,0 +1,165 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.base.raster;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.render.FlameRendererView;
+import org.jwildfire.create.tina.render.PlotSample;
+
+// Row-major raster with all channels of a pixel stored next to each other in one contiguous array.
+// The rows are split into stripes with a lock for each. A plot buffer is sorted by stripe first, so a render thread
+// takes each lock only once per buffer, and threads only have to wait for each other when they hit the same stripe.
+public class RasterFloatIntFlat implements AbstractRaster, Serializable {
+  private static final long serialVersionUID = 2L;
+  private static final int CHANNELS = 4;
+  private static final int OFFSET_RED = 0;
+  private static final int OFFSET_GREEN = 1;
+  private static final int OFFSET_BLUE = 2;
+  private static final int OFFSET_COUNT = 3;
+  private static final int MAX_STRIPES = 64;
+
+  protected int data[];
+  protected int rasterWidth, rasterHeight;
+  private int rowsPerStripe;
+  private transient Object stripeLocks[];
+
+  @Override
+  public void incCount(int pX, int pY) {
+    synchronized (stripeLocks[pY / rowsPerStripe]) {
+      data[getIndex(pX, pY) + OFFSET_COUNT]++;
+    }
+  }
+
+  @Override
+  public void allocRaster(Flame flame, int pWidth, int pHeight) {
+    long size = (long) pWidth * (long) pHeight * (long) CHANNELS;
+    if (size > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Raster of size " + pWidth + "x" + pHeight + " is too large for a flat raster, please choose another raster type");
+    }
+    rasterWidth = pWidth;
+    rasterHeight = pHeight;
+    rowsPerStripe = Math.max(1, (pHeight + MAX_STRIPES - 1) / MAX_STRIPES);
+    data = new int[(int) size];
+    initStripeLocks();
+  }
+
+  private void initStripeLocks() {
+    stripeLocks = new Object[(rasterHeight + rowsPerStripe - 1) / rowsPerStripe];
+    for (int i = 0; i < stripeLocks.length; i++) {
+      stripeLocks[i] = new Object();
+    }
+  }
+
+  private void readObject(ObjectInputStream pIn) throws IOException, ClassNotFoundException {
+    pIn.defaultReadObject();
+    initStripeLocks();
+  }
+
+  private int getIndex(int pX, int pY) {
+    return (pY * rasterWidth + pX) * CHANNELS;
+  }
+
+  @Override
+  public void readRasterPoint(int pX, int pY, RasterPoint pDestRasterPoint) {
+    pDestRasterPoint.clear();
+    int idx = getIndex(pX, pY);
+    pDestRasterPoint.red = Float.intBitsToFloat(data[idx + OFFSET_RED]);
+    pDestRasterPoint.green = Float.intBitsToFloat(data[idx + OFFSET_GREEN]);
+    pDestRasterPoint.blue = Float.intBitsToFloat(data[idx + OFFSET_BLUE]);
+    pDestRasterPoint.count = data[idx + OFFSET_COUNT];
+  }
+
+  @Override
+  public void readRasterPointSafe(int pX, int pY, RasterPoint pDestRasterPoint) {
+    if (pX >= 0 && pX < rasterWidth && pY >= 0 && pY < rasterHeight)
+      readRasterPoint(pX, pY, pDestRasterPoint);
+    else
+      pDestRasterPoint.clear();
+  }
+
+  @Override
+  public void writeRasterPoint(int pX, int pY, RasterPoint pSrcRasterPoint) {
+    int idx = getIndex(pX, pY);
+    synchronized (stripeLocks[pY / rowsPerStripe]) {
+      data[idx + OFFSET_RED] = Float.floatToRawIntBits((float) pSrcRasterPoint.red);
+      data[idx + OFFSET_GREEN] = Float.floatToRawIntBits((float) pSrcRasterPoint.green);
+      data[idx + OFFSET_BLUE] = Float.floatToRawIntBits((float) pSrcRasterPoint.blue);
+      data[idx + OFFSET_COUNT] = (int) pSrcRasterPoint.count;
+    }
+  }
+
+  @Override
+  public void addSamples(PlotSample[] pPlotBuffer, int pCount) {
+    // counting sort of the samples by stripe
+    int stripeCount = stripeLocks.length;
+    int stripeStart[] = new int[stripeCount + 1];
+    for (int i = 0; i < pCount; i++) {
+      stripeStart[pPlotBuffer[i].screenY / rowsPerStripe + 1]++;
+    }
+    for (int i = 0; i < stripeCount; i++) {
+      stripeStart[i + 1] += stripeStart[i];
+    }
+    int sortedIdx[] = new int[pCount];
+    int pos[] = new int[stripeCount];
+    System.arraycopy(stripeStart, 0, pos, 0, stripeCount);
+    for (int i = 0; i < pCount; i++) {
+      sortedIdx[pos[pPlotBuffer[i].screenY / rowsPerStripe]++] = i;
+    }
+    // start at a different stripe in each thread to reduce contention
+    int firstStripe = (int) (Thread.currentThread().getId() % stripeCount);
+    for (int s = 0; s < stripeCount; s++) {
+      int stripe = (firstStripe + s) % stripeCount;
+      int from = stripeStart[stripe], to = stripeStart[stripe + 1];
+      if (from < to) {
+        synchronized (stripeLocks[stripe]) {
+          for (int i = from; i < to; i++) {
+            PlotSample sample = pPlotBuffer[sortedIdx[i]];
+            int idx = getIndex(sample.screenX, sample.screenY);
+            data[idx + OFFSET_RED] = Float.floatToRawIntBits(Float.intBitsToFloat(data[idx + OFFSET_RED]) + (float) sample.r);
+            data[idx + OFFSET_GREEN] = Float.floatToRawIntBits(Float.intBitsToFloat(data[idx + OFFSET_GREEN]) + (float) sample.g);
+            data[idx + OFFSET_BLUE] = Float.floatToRawIntBits(Float.intBitsToFloat(data[idx + OFFSET_BLUE]) + (float) sample.b);
+            data[idx + OFFSET_COUNT]++;
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public void finalizeRaster() {
+    // EMPTY    
+  }
+
+  @Override
+  public void addShadowMapSamples(int pShadowMapIdx, PlotSample[] pPlotBuffer, int pCount) {
+    // EMPTY
+  }
+
+  @Override
+  public void notifyInit(FlameRendererView view) {
+    // EMPTY    
+  }
+
+  @Override
+  public void cleanupRaster() {
+    // EMPTY       
+  }
+}
@@ -0,0 +1,289 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.base.raster;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.render.FlameRendererView;
+import org.jwildfire.create.tina.render.PlotSample;
+
+// Raster which keeps its data in a memory-mapped file rather than on the java heap, so very large rasters
+// neither count against -Xmx nor have to be scanned by the GC. When the render state is saved, a copy of the raster file
+// is written next to it.
+public class RasterFloatIntMapped implements AbstractRaster, Serializable {
+  private static final long serialVersionUID = 1L;
+  private static final int BYTES_PER_POINT = 16;
+  private static final int OFFSET_RED = 0;
+  private static final int OFFSET_GREEN = 4;
+  private static final int OFFSET_BLUE = 8;
+  private static final int OFFSET_COUNT = 12;
+  private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+  protected int rasterWidth, rasterHeight;
+  private int rowsPerSegment;
+  private String filename;
+  private transient boolean tempFile;
+  private transient MappedByteBuffer segments[];
+
+  @Override
+  public void incCount(int pX, int pY) {
+    MappedByteBuffer segment = segments[pY / rowsPerSegment];
+    int offset = getOffset(pX, pY) + OFFSET_COUNT;
+    segment.putInt(offset, segment.getInt(offset) + 1);
+  }
+
+  @Override
+  public void allocRaster(Flame flame, int pWidth, int pHeight) {
+    rasterWidth = pWidth;
+    rasterHeight = pHeight;
+    rowsPerSegment = calcRowsPerSegment(pWidth);
+    try {
+      File file = File.createTempFile("jwf_raster", ".raw");
+      file.deleteOnExit();
+      filename = file.getAbsolutePath();
+      tempFile = true;
+      mapFile(true);
+    }
+    catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  private int calcRowsPerSegment(int pWidth) {
+    return (int) Math.max(1L, MAX_SEGMENT_SIZE / ((long) pWidth * BYTES_PER_POINT));
+  }
+
+  private void mapFile(boolean pClear) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(filename, "rw");
+    try {
+      if (pClear) {
+        file.setLength(0);
+      }
+      file.setLength((long) rasterWidth * (long) rasterHeight * BYTES_PER_POINT);
+      FileChannel channel = file.getChannel();
+      int segmentCount = (rasterHeight + rowsPerSegment - 1) / rowsPerSegment;
+      segments = new MappedByteBuffer[segmentCount];
+      long segmentSize = (long) rowsPerSegment * (long) rasterWidth * BYTES_PER_POINT;
+      for (int i = 0; i < segmentCount; i++) {
+        long position = i * segmentSize;
+        long size = Math.min(segmentSize, file.length() - position);
+        segments[i] = channel.map(MapMode.READ_WRITE, position, size);
+        segments[i].order(ByteOrder.LITTLE_ENDIAN);
+      }
+    }
+    finally {
+      // the mappings stay valid after closing the file
+      file.close();
+    }
+  }
+
+  private int getOffset(int pX, int pY) {
+    return ((pY % rowsPerSegment) * rasterWidth + pX) * BYTES_PER_POINT;
+  }
+
+  @Override
+  public void readRasterPoint(int pX, int pY, RasterPoint pDestRasterPoint) {
+    pDestRasterPoint.clear();
+    MappedByteBuffer segment = segments[pY / rowsPerSegment];
+    int offset = getOffset(pX, pY);
+    pDestRasterPoint.red = segment.getFloat(offset + OFFSET_RED);
+    pDestRasterPoint.green = segment.getFloat(offset + OFFSET_GREEN);
+    pDestRasterPoint.blue = segment.getFloat(offset + OFFSET_BLUE);
+    pDestRasterPoint.count = segment.getInt(offset + OFFSET_COUNT);
+  }
+
+  @Override
+  public void readRasterPointSafe(int pX, int pY, RasterPoint pDestRasterPoint) {
+    if (pX >= 0 && pX < rasterWidth && pY >= 0 && pY < rasterHeight)
+      readRasterPoint(pX, pY, pDestRasterPoint);
+    else
+      pDestRasterPoint.clear();
+  }
+
+  @Override
+  public void writeRasterPoint(int pX, int pY, RasterPoint pSrcRasterPoint) {
+    MappedByteBuffer segment = segments[pY / rowsPerSegment];
+    int offset = getOffset(pX, pY);
+    segment.putFloat(offset + OFFSET_RED, (float) pSrcRasterPoint.red);
+    segment.putFloat(offset + OFFSET_GREEN, (float) pSrcRasterPoint.green);
+    segment.putFloat(offset + OFFSET_BLUE, (float) pSrcRasterPoint.blue);
+    segment.putInt(offset + OFFSET_COUNT, (int) pSrcRasterPoint.count);
+  }
+
+  @Override
+  public synchronized void addSamples(PlotSample[] pPlotBuffer, int pCount) {
+    for (int i = 0; i < pCount; i++) {
+      PlotSample sample = pPlotBuffer[i];
+      MappedByteBuffer segment = segments[sample.screenY / rowsPerSegment];
+      int offset = getOffset(sample.screenX, sample.screenY);
+      segment.putFloat(offset + OFFSET_RED, segment.getFloat(offset + OFFSET_RED) + (float) sample.r);
+      segment.putFloat(offset + OFFSET_GREEN, segment.getFloat(offset + OFFSET_GREEN) + (float) sample.g);
+      segment.putFloat(offset + OFFSET_BLUE, segment.getFloat(offset + OFFSET_BLUE) + (float) sample.b);
+      segment.putInt(offset + OFFSET_COUNT, segment.getInt(offset + OFFSET_COUNT) + 1);
+    }
+  }
+
+  public synchronized void flush() {
+    for (MappedByteBuffer segment : segments) {
+      segment.force();
+    }
+  }
+
+  // Writes a copy of the raster data into the given file. The raster itself keeps on using its own file, so the copy is
+  // not changed by samples which are added afterwards. The data is not forced to disk.
+  public synchronized void copyTo(File pFile) throws IOException {
+    RandomAccessFile dest = new RandomAccessFile(pFile, "rw");
+    try {
+      dest.setLength(0);
+      FileChannel destChannel = dest.getChannel();
+      for (MappedByteBuffer segment : segments) {
+        ByteBuffer src = segment.duplicate();
+        src.clear();
+        while (src.hasRemaining()) {
+          destChannel.write(src);
+        }
+      }
+    }
+    finally {
+      dest.close();
+    }
+  }
+
+  // Replaces the raster data by the content of the given file, which was created by copyTo()
+  public synchronized void copyFrom(File pFile) throws IOException {
+    RandomAccessFile src = new RandomAccessFile(pFile, "r");
+    try {
+      if (src.length() != (long) rasterWidth * (long) rasterHeight * BYTES_PER_POINT) {
+        throw new IOException("Raster file <" + pFile.getAbsolutePath() + "> does not match the raster size " + rasterWidth + "x" + rasterHeight);
+      }
+      FileChannel srcChannel = src.getChannel();
+      long position = 0;
+      for (MappedByteBuffer segment : segments) {
+        ByteBuffer dest = segment.duplicate();
+        dest.clear();
+        while (dest.hasRemaining()) {
+          int n = srcChannel.read(dest, position + dest.position());
+          if (n < 0) {
+            throw new EOFException();
+          }
+        }
+        position += dest.capacity();
+      }
+    }
+    finally {
+      src.close();
+    }
+  }
+
+  public String getFilename() {
+    return filename;
+  }
+
+  private void writeObject(ObjectOutputStream pOut) throws IOException {
+    flush();
+    pOut.defaultWriteObject();
+  }
+
+  private void readObject(ObjectInputStream pIn) throws IOException, ClassNotFoundException {
+    pIn.defaultReadObject();
+    tempFile = false;
+    mapFile(false);
+  }
+
+  @Override
+  public void finalizeRaster() {
+    // EMPTY    
+  }
+
+  @Override
+  public void addShadowMapSamples(int pShadowMapIdx, PlotSample[] pPlotBuffer, int pCount) {
+    // EMPTY
+  }
+
+  @Override
+  public void notifyInit(FlameRendererView view) {
+    // EMPTY    
+  }
+
+  // Releases the mapping and removes a temporary raster file, the raster can not be used anymore afterwards.
+  // Persisted raster files are kept, so a saved render state may still be resumed from them.
+  @Override
+  public synchronized void cleanupRaster() {
+    if (segments != null) {
+      unmapSegments();
+      if (tempFile) {
+        new File(filename).delete();
+      }
+    }
+  }
+
+  public synchronized boolean isReleased() {
+    return segments == null;
+  }
+
+  // The file channel is already closed after mapping, but the mappings (and so the file on disk) are only released when the
+  // buffers are garbage-collected. So they are unmapped explicitly, failures just leave the unmapping to the GC.
+  private void unmapSegments() {
+    MappedByteBuffer oldSegments[] = segments;
+    segments = null;
+    if (oldSegments != null) {
+      for (MappedByteBuffer segment : oldSegments) {
+        unmap(segment);
+      }
+    }
+  }
+
+  private static void unmap(MappedByteBuffer pBuffer) {
+    try {
+      // Java 9+
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      invokeCleaner.invoke(theUnsafe.get(null), pBuffer);
+      return;
+    }
+    catch (Exception ex) {
+      // try the pre-Java 9 way
+    }
+    try {
+      Method cleanerMethod = pBuffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(pBuffer);
+      if (cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    }
+    catch (Exception ex) {
+      // EMPTY
+    }
+  }
+}
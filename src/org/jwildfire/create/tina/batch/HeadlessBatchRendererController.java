@@ -37,6 +37,7 @@ import org.jwildfire.create.tina.render.ProgressUpdater;
  */
 public class HeadlessBatchRendererController implements JobRenderThreadController
 {
+  private static final String OPTION_PROFILE = "PROFILE";
   JProgressBar pro = new JProgressBar();
   JTable table = new JTable();
 
@@ -85,6 +86,7 @@ public class HeadlessBatchRendererController implements JobRenderThreadControlle
     int width;
     int quality;
     String filename;
+    boolean variationProfiling = false;
     File f;
     List<File> files = new LinkedList<File>();
     long start = System.nanoTime();
@@ -106,6 +108,11 @@ public class HeadlessBatchRendererController implements JobRenderThreadControlle
           Prefs.getPrefs().setTinaRandomNumberGenerator(RandomGeneratorType.valueOf(args[4]));
           System.out.println(was + " changed to " + Prefs.getPrefs().getTinaRandomNumberGenerator().name());
         }
+        for (int i = 4; i < args.length; i++) {
+          if (OPTION_PROFILE.equalsIgnoreCase(args[i].trim())) {
+            variationProfiling = true;
+          }
+        }
         f = new File(filename);
         if (!f.exists())
           throw new Exception(filename + " does not exist");
@@ -144,14 +151,16 @@ public class HeadlessBatchRendererController implements JobRenderThreadControlle
     QualityProfile qualpro = new QualityProfile();
     qualpro.setQuality(quality);
     JobRenderThread job = new JobRenderThread(controller, joblist, respro, qualpro, true);
+    job.setVariationProfiling(variationProfiling);
     job.run();
     System.out.println((System.nanoTime() - start) / 1000 / 1000 + " ms");
   }
 
   private static void usage(String args[]) {
-    System.out.println("Please include the following parameters: \n\tfilename,height,width,quality,[optional:rng]\n" +
+    System.out.println("Please include the following parameters: \n\tfilename,height,width,quality,[optional:rng],[optional:" + OPTION_PROFILE + "]\n" +
         "Example: HeadlessBatchRendererController file1.flame,1024,1280,2000\n" +
-        "Example: HeadlessBatchRendererController file1.flame,1024,1280,2000,ZIGGURAT");
+        "Example: HeadlessBatchRendererController file1.flame,1024,1280,2000,ZIGGURAT\n" +
+        "Example: HeadlessBatchRendererController file1.flame,1024,1280,2000," + OPTION_PROFILE + " (writes the time spent per variation into <image>.profile.txt)");
     if (args != null)
       System.out.println("You Passed: " + Arrays.toString(args) + "\n");
     System.out.println();
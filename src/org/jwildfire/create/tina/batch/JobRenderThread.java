@@ -24,6 +24,7 @@ import java.util.List;
 import org.jwildfire.base.Prefs;
 import org.jwildfire.base.QualityProfile;
 import org.jwildfire.base.ResolutionProfile;
+import org.jwildfire.base.Tools;
 import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.io.FlameReader;
 import org.jwildfire.create.tina.render.FlameRenderer;
@@ -41,6 +42,7 @@ public class JobRenderThread implements Runnable {
   private boolean cancelSignalled;
   private final boolean doOverwriteExisting;
   private FlameRenderer renderer;
+  private boolean variationProfiling;
 
   public JobRenderThread(JobRenderThreadController pController, List<Job> pActiveJobList, ResolutionProfile pResolutionProfile, QualityProfile pQualityProfile, boolean pDoOverwriteExisting) {
     controller = pController;
@@ -76,6 +78,8 @@ public class JobRenderThread implements Runnable {
             RenderInfo info = new RenderInfo(width, height, RenderMode.PRODUCTION);
             info.setRenderHDR(qualityProfile.isWithHDR());
             info.setRenderHDRIntensityMap(qualityProfile.isWithHDRIntensityMap());
+            info.setVariationProfiling(variationProfiling);
+            info.setNoiseTarget(Prefs.getPrefs().getTinaAdaptiveNoiseTarget());
             List<Flame> flames = new FlameReader(Prefs.getPrefs()).readFlames(job.getFlameFilename());
             Flame flame = flames.get(0);
             String primaryFilename = job.getImageFilename(flame.getStereo3dMode());
@@ -107,6 +111,9 @@ public class JobRenderThread implements Runnable {
                   if (res.getHDRIntensityMap() != null) {
                     new ImageWriter().saveImage(res.getHDRIntensityMap(), job.getImageFilename(flame.getStereo3dMode()) + ".intensity.hdr");
                   }
+                  if (res.getVariationProfile() != null) {
+                    Tools.writeUTF8Textfile(primaryFilename + ".profile.txt", res.getVariationProfile().getReport());
+                  }
                 }
               }
 
@@ -180,4 +187,13 @@ public class JobRenderThread implements Runnable {
     }
   }
 
+  public boolean isVariationProfiling() {
+    return variationProfiling;
+  }
+
+  // write a report of the time spent in each variation next to each rendered image (*.profile.txt)
+  public void setVariationProfiling(boolean pVariationProfiling) {
+    variationProfiling = pVariationProfiling;
+  }
+
 }
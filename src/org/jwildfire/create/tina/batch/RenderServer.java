@@ -0,0 +1,401 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.base.Tools;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.io.FlameReader;
+import org.jwildfire.create.tina.render.FlameRenderer;
+import org.jwildfire.create.tina.render.RenderInfo;
+import org.jwildfire.create.tina.render.RenderMode;
+import org.jwildfire.create.tina.render.RenderedFlame;
+import org.jwildfire.io.ImageWriter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+// Headless render service for render nodes. Jobs are taken from a watch directory and/or a local http endpoint and are
+// rendered concurrently, all jobs together use not more than the given number of render threads. The caches of the
+// RessourceManager are kept between jobs.
+public class RenderServer {
+  private static final int WATCH_INTERVAL_MILLIS = 2000;
+  // number of done jobs which are kept for reporting, older ones are removed
+  private static final int MAX_DONE_JOBS = 1000;
+
+  private final int threadBudget;
+  private final int concurrentJobs;
+  private final File outputDirectory;
+  private final ExecutorService jobExecutor;
+  private final Map<Integer, RenderServerJob> jobs = new LinkedHashMap<Integer, RenderServerJob>();
+  private final Deque<Integer> doneJobIds = new ArrayDeque<Integer>();
+  private final AtomicInteger nextJobId = new AtomicInteger(1);
+  private int defaultWidth = 800;
+  private int defaultHeight = 600;
+  private int defaultQuality = 300;
+  private HttpServer httpServer;
+  private volatile boolean stopped;
+
+  public RenderServer(int pThreadBudget, int pConcurrentJobs, File pOutputDirectory) {
+    threadBudget = Math.max(1, pThreadBudget);
+    concurrentJobs = Math.max(1, Math.min(pConcurrentJobs, threadBudget));
+    outputDirectory = pOutputDirectory;
+    jobExecutor = Executors.newFixedThreadPool(concurrentJobs, new ThreadFactory() {
+      private final AtomicInteger threadCount = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable pRunnable) {
+        return new Thread(pRunnable, "JWildfire-job-" + threadCount.incrementAndGet());
+      }
+    });
+  }
+
+  public void setDefaultSize(int pWidth, int pHeight, int pQuality) {
+    defaultWidth = pWidth;
+    defaultHeight = pHeight;
+    defaultQuality = pQuality;
+  }
+
+  public int getThreadsPerJob() {
+    return Math.max(1, threadBudget / concurrentJobs);
+  }
+
+  public RenderServerJob submitFile(String pFlameFilename, int pWidth, int pHeight, int pQuality) {
+    int id = nextJobId.getAndIncrement();
+    String imageFilename = createImageFilename(new File(pFlameFilename).getName());
+    return submit(new RenderServerJob(id, pFlameFilename, null, imageFilename, pWidth, pHeight, pQuality));
+  }
+
+  public RenderServerJob submitXML(String pFlameXML, int pWidth, int pHeight, int pQuality) {
+    int id = nextJobId.getAndIncrement();
+    String imageFilename = new File(outputDirectory, "job" + id + "." + Tools.FILEEXT_PNG).getAbsolutePath();
+    return submit(new RenderServerJob(id, null, pFlameXML, imageFilename, pWidth, pHeight, pQuality));
+  }
+
+  private RenderServerJob submit(final RenderServerJob pJob) {
+    synchronized (jobs) {
+      jobs.put(pJob.getId(), pJob);
+    }
+    jobExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        renderJob(pJob);
+      }
+    });
+    System.out.println("Queued " + pJob.getReport());
+    return pJob;
+  }
+
+  private String createImageFilename(String pFlameFilename) {
+    String name = pFlameFilename;
+    int p = name.lastIndexOf(".");
+    if (p > 0 && name.substring(p).equalsIgnoreCase("." + Tools.FILEEXT_FLAME)) {
+      name = name.substring(0, p);
+    }
+    return new File(outputDirectory, name + "." + Tools.FILEEXT_PNG).getAbsolutePath();
+  }
+
+  public RenderServerJob getJob(int pId) {
+    synchronized (jobs) {
+      return jobs.get(pId);
+    }
+  }
+
+  public List<RenderServerJob> getJobs() {
+    synchronized (jobs) {
+      return new ArrayList<RenderServerJob>(jobs.values());
+    }
+  }
+
+  private void renderJob(RenderServerJob pJob) {
+    if (stopped) {
+      pJob.setCancelled();
+      retireJob(pJob);
+      System.out.println("Cancelled " + pJob.getReport());
+      return;
+    }
+    pJob.setStarted();
+    try {
+      FlameReader reader = new FlameReader(Prefs.getPrefs());
+      List<Flame> flames = pJob.getFlameXML() != null ? reader.readFlamesfromXML(pJob.getFlameXML()) : reader.readFlames(pJob.getFlameFilename());
+      if (flames.isEmpty()) {
+        throw new Exception("No flame found");
+      }
+      Flame flame = flames.get(0);
+      RenderInfo info = new RenderInfo(pJob.getWidth(), pJob.getHeight(), RenderMode.PRODUCTION);
+      double wScl = (double) info.getImageWidth() / (double) flame.getWidth();
+      double hScl = (double) info.getImageHeight() / (double) flame.getHeight();
+      flame.setPixelsPerUnit((wScl + hScl) * 0.5 * flame.getPixelsPerUnit());
+      flame.setWidth(info.getImageWidth());
+      flame.setHeight(info.getImageHeight());
+      flame.setSampleDensity(pJob.getQuality());
+      FlameRenderer renderer = new FlameRenderer(flame, Prefs.getPrefs(), flame.isBGTransparency(), false);
+      renderer.setRenderThreadCount(getThreadsPerJob());
+      RenderedFlame res = renderer.renderFlame(info);
+      new ImageWriter().saveImage(res.getImage(), pJob.getImageFilename(), true);
+      pJob.setFinished(renderer.getRenderedSamples());
+    }
+    catch (Throwable ex) {
+      pJob.setFailed(ex);
+    }
+    retireJob(pJob);
+    System.out.println("Done " + pJob.getReport());
+  }
+
+  // Keeps only the most recent done jobs, so a long-running server does not accumulate all jobs it ever rendered
+  private void retireJob(RenderServerJob pJob) {
+    synchronized (jobs) {
+      doneJobIds.addLast(pJob.getId());
+      while (doneJobIds.size() > MAX_DONE_JOBS) {
+        jobs.remove(doneJobIds.removeFirst());
+      }
+    }
+  }
+
+  // Polls the directory for new *.flame files. A file is taken when it was not changed since the last poll, so files
+  // which are still written are not rendered too early. Polling also works on network file systems.
+  public void watchDirectory(File pDirectory) throws InterruptedException {
+    Map<String, Long> seenFiles = new HashMap<String, Long>();
+    Map<String, Long> submittedFiles = new HashMap<String, Long>();
+    while (!stopped) {
+      File[] files = pDirectory.listFiles();
+      if (files != null) {
+        Set<String> currentFiles = new HashSet<String>();
+        for (File file : files) {
+          if (!file.isFile() || !file.getName().toLowerCase().endsWith("." + Tools.FILEEXT_FLAME)) {
+            continue;
+          }
+          String path = file.getAbsolutePath();
+          currentFiles.add(path);
+          long stamp = file.lastModified() ^ (file.length() << 32);
+          Long submitted = submittedFiles.get(path);
+          if (submitted != null && submitted.longValue() == stamp) {
+            continue;
+          }
+          Long seen = seenFiles.put(path, stamp);
+          if (seen != null && seen.longValue() == stamp) {
+            submittedFiles.put(path, stamp);
+            submitFile(path, defaultWidth, defaultHeight, defaultQuality);
+          }
+        }
+        // forget files which were removed
+        seenFiles.keySet().retainAll(currentFiles);
+        submittedFiles.keySet().retainAll(currentFiles);
+      }
+      Thread.sleep(WATCH_INTERVAL_MILLIS);
+    }
+  }
+
+  // GET  /jobs                 state of all jobs, one line per job
+  // GET  /jobs/<id>            state of a job
+  // GET  /jobs/<id>/image      the rendered image
+  // POST /jobs?width=&height=&quality=[&file=]  render the flame of the request body (or the given flame file)
+  public void startHttpServer(int pPort) throws IOException {
+    httpServer = HttpServer.create(new InetSocketAddress("localhost", pPort), 0);
+    httpServer.createContext("/jobs", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange pExchange) throws IOException {
+        try {
+          handleJobsRequest(pExchange);
+        }
+        catch (Exception ex) {
+          sendResponse(pExchange, 400, "text/plain", (ex.toString() + "\n").getBytes("UTF-8"));
+        }
+        finally {
+          pExchange.close();
+        }
+      }
+    });
+    httpServer.setExecutor(Executors.newSingleThreadExecutor());
+    httpServer.start();
+  }
+
+  private void handleJobsRequest(HttpExchange pExchange) throws Exception {
+    String path = pExchange.getRequestURI().getPath();
+    Map<String, String> params = parseQuery(pExchange.getRequestURI().getRawQuery());
+    if ("POST".equalsIgnoreCase(pExchange.getRequestMethod())) {
+      int width = params.containsKey("width") ? Integer.parseInt(params.get("width")) : defaultWidth;
+      int height = params.containsKey("height") ? Integer.parseInt(params.get("height")) : defaultHeight;
+      int quality = params.containsKey("quality") ? Integer.parseInt(params.get("quality")) : defaultQuality;
+      RenderServerJob job;
+      if (params.containsKey("file")) {
+        job = submitFile(params.get("file"), width, height, quality);
+      }
+      else {
+        job = submitXML(Tools.readUTF8Textfile(pExchange.getRequestBody()), width, height, quality);
+      }
+      sendResponse(pExchange, 200, "text/plain", (job.getId() + "\n").getBytes("UTF-8"));
+      return;
+    }
+    String[] parts = path.split("/");
+    // parts[0] is empty, parts[1] is "jobs"
+    if (parts.length <= 2) {
+      StringBuilder sb = new StringBuilder();
+      for (RenderServerJob job : getJobs()) {
+        sb.append(job.getReport()).append("\n");
+      }
+      sendResponse(pExchange, 200, "text/plain", sb.toString().getBytes("UTF-8"));
+      return;
+    }
+    RenderServerJob job = getJob(Integer.parseInt(parts[2]));
+    if (job == null) {
+      sendResponse(pExchange, 404, "text/plain", "Unknown job\n".getBytes("UTF-8"));
+    }
+    else if (parts.length > 3 && "image".equals(parts[3])) {
+      if (job.getStatus() != RenderServerJob.Status.FINISHED) {
+        sendResponse(pExchange, 404, "text/plain", (job.getStatus() + "\n").getBytes("UTF-8"));
+      }
+      else {
+        sendResponse(pExchange, 200, "image/png", Tools.readFile(job.getImageFilename()));
+      }
+    }
+    else {
+      sendResponse(pExchange, 200, "text/plain", (job.getReport() + "\n").getBytes("UTF-8"));
+    }
+  }
+
+  private static Map<String, String> parseQuery(String pQuery) throws Exception {
+    Map<String, String> res = new HashMap<String, String>();
+    if (pQuery != null) {
+      for (String param : pQuery.split("&")) {
+        int p = param.indexOf("=");
+        if (p > 0) {
+          res.put(URLDecoder.decode(param.substring(0, p), "UTF-8"), URLDecoder.decode(param.substring(p + 1), "UTF-8"));
+        }
+      }
+    }
+    return res;
+  }
+
+  private static void sendResponse(HttpExchange pExchange, int pStatus, String pContentType, byte[] pData) throws IOException {
+    pExchange.getResponseHeaders().set("Content-Type", pContentType);
+    pExchange.sendResponseHeaders(pStatus, pData.length);
+    OutputStream os = pExchange.getResponseBody();
+    try {
+      os.write(pData);
+    }
+    finally {
+      os.close();
+    }
+  }
+
+  public void shutdown() throws InterruptedException {
+    stopped = true;
+    if (httpServer != null) {
+      httpServer.stop(0);
+    }
+    jobExecutor.shutdown();
+    jobExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+  }
+
+  public static void main(String args[]) throws Exception {
+    System.setProperty("java.awt.headless", "true");
+    int port = -1;
+    File watchDirectory = null;
+    File outputDirectory = null;
+    int threads = Prefs.getPrefs().getTinaRenderThreads();
+    int concurrentJobs = 2;
+    int width = 800, height = 600, quality = 300;
+    try {
+      for (int i = 0; i < args.length; i++) {
+        String arg = args[i];
+        if (i + 1 >= args.length) {
+          throw new IllegalArgumentException(arg);
+        }
+        String value = args[++i];
+        if ("-port".equals(arg)) {
+          port = Integer.parseInt(value);
+        }
+        else if ("-watch".equals(arg)) {
+          watchDirectory = new File(value);
+        }
+        else if ("-output".equals(arg)) {
+          outputDirectory = new File(value);
+        }
+        else if ("-threads".equals(arg)) {
+          threads = Integer.parseInt(value);
+        }
+        else if ("-jobs".equals(arg)) {
+          concurrentJobs = Integer.parseInt(value);
+        }
+        else if ("-width".equals(arg)) {
+          width = Integer.parseInt(value);
+        }
+        else if ("-height".equals(arg)) {
+          height = Integer.parseInt(value);
+        }
+        else if ("-quality".equals(arg)) {
+          quality = Integer.parseInt(value);
+        }
+        else {
+          throw new IllegalArgumentException(arg);
+        }
+      }
+      if (port < 0 && watchDirectory == null) {
+        throw new IllegalArgumentException("Neither -port nor -watch specified");
+      }
+    }
+    catch (Exception ex) {
+      System.err.println(ex.getMessage());
+      usage();
+      return;
+    }
+    if (outputDirectory == null) {
+      outputDirectory = watchDirectory != null ? watchDirectory : new File(".");
+    }
+    RenderServer server = new RenderServer(threads, concurrentJobs, outputDirectory);
+    server.setDefaultSize(width, height, quality);
+    System.out.println("Rendering " + server.concurrentJobs + " job(s) at once with " + server.getThreadsPerJob() + " thread(s) each");
+    if (port >= 0) {
+      server.startHttpServer(port);
+      System.out.println("Listening on http://localhost:" + port + "/jobs");
+    }
+    if (watchDirectory != null) {
+      System.out.println("Watching " + watchDirectory.getAbsolutePath());
+      server.watchDirectory(watchDirectory);
+    }
+  }
+
+  private static void usage() {
+    System.out.println("Usage: RenderServer [-port <port>] [-watch <directory>] [-output <directory>] [-threads <total render threads>]\n" +
+        "                    [-jobs <concurrent jobs>] [-width <default width>] [-height <default height>] [-quality <default quality>]\n" +
+        "Example: RenderServer -watch /data/flames -output /data/images -threads 16 -jobs 4\n" +
+        "Example: RenderServer -port 8090 (curl --data-binary @my.flame \"http://localhost:8090/jobs?width=1920&height=1080&quality=500\")");
+  }
+
+}
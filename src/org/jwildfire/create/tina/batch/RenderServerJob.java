@@ -0,0 +1,153 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.batch;
+
+import java.util.Locale;
+
+// A job of the RenderServer, the flame is either given by a file or by its xml-representation
+public class RenderServerJob {
+  public enum Status {
+    QUEUED, RUNNING, FINISHED, FAILED, CANCELLED
+  }
+
+  private final int id;
+  private final String flameFilename;
+  private volatile String flameXML;
+  private final String imageFilename;
+  private final int width;
+  private final int height;
+  private final int quality;
+  private volatile Status status = Status.QUEUED;
+  private final long submitTime;
+  private volatile long startTime;
+  private volatile long finishTime;
+  private volatile long renderedSamples;
+  private volatile Throwable lastError;
+
+  public RenderServerJob(int pId, String pFlameFilename, String pFlameXML, String pImageFilename, int pWidth, int pHeight, int pQuality) {
+    id = pId;
+    flameFilename = pFlameFilename;
+    flameXML = pFlameXML;
+    imageFilename = pImageFilename;
+    width = pWidth;
+    height = pHeight;
+    quality = pQuality;
+    submitTime = System.currentTimeMillis();
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public String getFlameFilename() {
+    return flameFilename;
+  }
+
+  public String getFlameXML() {
+    return flameXML;
+  }
+
+  public String getImageFilename() {
+    return imageFilename;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  public int getQuality() {
+    return quality;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  void setStarted() {
+    startTime = System.currentTimeMillis();
+    status = Status.RUNNING;
+  }
+
+  void setFinished(long pRenderedSamples) {
+    renderedSamples = pRenderedSamples;
+    finishTime = System.currentTimeMillis();
+    status = Status.FINISHED;
+    flameXML = null;
+  }
+
+  void setFailed(Throwable pError) {
+    lastError = pError;
+    finishTime = System.currentTimeMillis();
+    status = Status.FAILED;
+    flameXML = null;
+  }
+
+  void setCancelled() {
+    finishTime = System.currentTimeMillis();
+    status = Status.CANCELLED;
+    flameXML = null;
+  }
+
+  public boolean isDone() {
+    return status == Status.FINISHED || status == Status.FAILED || status == Status.CANCELLED;
+  }
+
+  public Throwable getLastError() {
+    return lastError;
+  }
+
+  public long getQueuedMillis() {
+    return (startTime > 0 ? startTime : System.currentTimeMillis()) - submitTime;
+  }
+
+  public long getRenderMillis() {
+    if (startTime == 0) {
+      return 0;
+    }
+    return (finishTime > 0 ? finishTime : System.currentTimeMillis()) - startTime;
+  }
+
+  public long getRenderedSamples() {
+    return renderedSamples;
+  }
+
+  public double getSamplesPerSecond() {
+    long millis = getRenderMillis();
+    return millis > 0 ? renderedSamples * 1000.0 / millis : 0.0;
+  }
+
+  public double getPixelsPerSecond() {
+    long millis = getRenderMillis();
+    return millis > 0 && status == Status.FINISHED ? (double) width * height * 1000.0 / millis : 0.0;
+  }
+
+  // one line with the state and the throughput of this job
+  public String getReport() {
+    String source = flameFilename != null ? flameFilename : "<xml>";
+    String res = String.format(Locale.US, "%d\t%s\t%s\t%dx%d\tquality=%d\tqueued=%dms\trender=%dms\tsamples=%d\tsamples/s=%.0f\tpixels/s=%.0f\t%s",
+        id, status, source, width, height, quality, getQueuedMillis(), getRenderMillis(), renderedSamples, getSamplesPerSecond(), getPixelsPerSecond(), imageFilename);
+    if (lastError != null) {
+      res += "\t" + lastError;
+    }
+    return res;
+  }
+
+}
@@ -1,6 +1,6 @@
 package org.jwildfire.create.tina.browser;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.jwildfire.create.tina.swing.ThumbnailCacheKey;
@@ -8,11 +8,23 @@ import org.jwildfire.create.tina.swing.ThumbnailCacheProvider;
 import org.jwildfire.image.SimpleImage;
 
 public class RenderCache {
-  private Map<String, SimpleImage> renderCache = new HashMap<String, SimpleImage>();
+  // recently rendered thumbnails, older ones are taken from the ThumbnailCacheProvider
+  private static final int MAX_CACHED_IMAGES = 512;
+  private final Map<String, SimpleImage> renderCache = new LinkedHashMap<String, SimpleImage>(MAX_CACHED_IMAGES, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, SimpleImage> pEldest) {
+      return size() > MAX_CACHED_IMAGES;
+    }
+  };
   private boolean storeThumbnails = true;
 
   public SimpleImage getImage(FlameFlatNode pNode, int pWidth, int pHeight) {
-    SimpleImage img = renderCache.get(pNode.getFilename());
+    SimpleImage img;
+    synchronized (renderCache) {
+      img = renderCache.get(pNode.getFilename());
+    }
     if (img == null && storeThumbnails) {
       img = ThumbnailCacheProvider.getThumbnail(new ThumbnailCacheKey(pNode.getFilename()), pWidth, pHeight);
     }
@@ -20,7 +32,9 @@ public class RenderCache {
   }
 
   public void putImage(FlameFlatNode pNode, SimpleImage pImg, int pWidth, int pHeight) {
-    renderCache.put(pNode.getFilename(), pImg);
+    synchronized (renderCache) {
+      renderCache.put(pNode.getFilename(), pImg);
+    }
     if (storeThumbnails) {
       ThumbnailCacheProvider.storeThumbnail(new ThumbnailCacheKey(pNode.getFilename()), pWidth, pHeight, pImg);
     }
@@ -176,6 +176,11 @@ public class AbstractFlameReader {
 
   protected XMLAttributes parseFlameAttributes(Flame pFlame, String pXML) {
     XMLAttributes atts = Tools.parseAttributes(pXML);
+    parseFlameAttributes(pFlame, atts);
+    return atts;
+  }
+
+  protected void parseFlameAttributes(Flame pFlame, XMLAttributes atts) {
     String hs;
     if ((hs = atts.get(ATTR_NAME)) != null) {
       pFlame.setName(hs);
@@ -639,7 +644,6 @@ public class AbstractFlameReader {
       default:
         break;
     }
-    return atts;
   }
 
   public static final String ATTR_WEIGHT = "weight";
@@ -684,7 +688,10 @@ public class AbstractFlameReader {
   public static final String ATTR_POSTBLUR_FALLOFF = "post_blur_falloff";
 
   protected void parseXFormAttributes(Flame pFlame, XForm pXForm, String pXML) {
-    XMLAttributes atts = Tools.parseAttributes(pXML);
+    parseXFormAttributes(pFlame, pXForm, Tools.parseAttributes(pXML));
+  }
+
+  protected void parseXFormAttributes(Flame pFlame, XForm pXForm, XMLAttributes atts) {
     String hs;
     if ((hs = atts.get(ATTR_NAME)) != null) {
       pXForm.setName(hs);
@@ -817,19 +824,18 @@ public class AbstractFlameReader {
     readMotionCurves(pXForm, atts, null);
     // variations
     {
-      List<String> variationNameList = VariationFuncList.getNameList();
       Map<String, String> aliasMap = VariationFuncList.getAliasMap();
 
       for (XMLAttribute attr : atts.getAttributes()) {
         String rawName = attr.getName();
         String name = removeIndexFromAttr(rawName);
         String varName = name;
-        boolean hasVariation = variationNameList.indexOf(varName) >= 0;
+        boolean hasVariation = VariationFuncList.isVariationName(varName);
         if (!hasVariation) {
           String aliasName = aliasMap.get(name);
           if (aliasName != null) {
             varName = aliasName;
-            hasVariation = variationNameList.indexOf(varName) >= 0;
+            hasVariation = VariationFuncList.isVariationName(varName);
           }
         }
         if (hasVariation) {
@@ -928,6 +934,44 @@ public class AbstractFlameReader {
     }
   }
 
+  protected void parseLayerAttributes(Layer pLayer, XMLAttributes atts) {
+    String hs;
+    if ((hs = atts.get(ATTR_WEIGHT)) != null) {
+      pLayer.setWeight(Double.parseDouble(hs));
+    }
+    if ((hs = atts.get(ATTR_VISIBLE)) != null) {
+      pLayer.setVisible(Integer.parseInt(hs) == 1);
+    }
+    if ((hs = atts.get(ATTR_NAME)) != null) {
+      pLayer.setName(hs);
+    }
+    if ((hs = atts.get(ATTR_GRADIENT_MAP)) != null) {
+      pLayer.setGradientMapFilename(hs);
+    }
+    if ((hs = atts.get(ATTR_GRADIENT_MAP_HOFFSET)) != null) {
+      pLayer.setGradientMapHorizOffset(Double.parseDouble(hs));
+    }
+    if ((hs = atts.get(ATTR_GRADIENT_MAP_HSCALE)) != null) {
+      pLayer.setGradientMapHorizScale(Double.parseDouble(hs));
+    }
+    if ((hs = atts.get(ATTR_GRADIENT_MAP_VOFFSET)) != null) {
+      pLayer.setGradientMapVertOffset(Double.parseDouble(hs));
+    }
+    if ((hs = atts.get(ATTR_GRADIENT_MAP_VSCALE)) != null) {
+      pLayer.setGradientMapVertScale(Double.parseDouble(hs));
+    }
+    if ((hs = atts.get(ATTR_GRADIENT_MAP_LCOLOR_ADD)) != null) {
+      pLayer.setGradientMapLocalColorAdd(Double.parseDouble(hs));
+    }
+    if ((hs = atts.get(ATTR_GRADIENT_MAP_LCOLOR_SCALE)) != null) {
+      pLayer.setGradientMapLocalColorScale(Double.parseDouble(hs));
+    }
+    if ((hs = atts.get(ATTR_SMOOTH_GRADIENT)) != null) {
+      pLayer.setSmoothGradient("1".equals(hs));
+    }
+    readMotionCurves(pLayer, atts, "");
+  }
+
   protected String removeIndexFromAttr(String pName) {
     int s = pName.indexOf("#");
     if (s < 0) {
@@ -955,22 +999,7 @@ public class AbstractFlameReader {
           break;
         int pe = flameXML.indexOf("/>", ps + 1);
         String hs = flameXML.substring(ps + 7, pe);
-        {
-          int index = 0;
-          int r = 0, g = 0, b = 0;
-          XMLAttributes atts = Tools.parseAttributes(hs);
-          String attr;
-          if ((attr = atts.get(ATTR_INDEX)) != null) {
-            index = Integer.parseInt(attr);
-          }
-          if ((attr = atts.get(ATTR_RGB)) != null) {
-            String s[] = attr.split(" ");
-            r = Tools.FTOI(Double.parseDouble(s[0]));
-            g = Tools.FTOI(Double.parseDouble(s[1]));
-            b = Tools.FTOI(Double.parseDouble(s[2]));
-          }
-          layer.getPalette().setColor(index, r, g, b);
-        }
+        readColor(Tools.parseAttributes(hs), layer);
         p = pe + 2;
       }
     }
@@ -980,33 +1009,58 @@ public class AbstractFlameReader {
       if (ps >= 0) {
         ps = flameXML.indexOf(">", ps + 1);
         int pe = flameXML.indexOf("</palette>", ps + 1);
-        String hs = flameXML.substring(ps + 1, pe);
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < hs.length(); i++) {
-          char c = hs.charAt(i);
-          if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
-            sb.append(c);
-          }
-          else if (c >= 'a' && c <= 'z') {
-            sb.append(Character.toUpperCase(c));
-          }
-        }
-        hs = sb.toString();
-        if ((hs.length() % 6) != 0)
-          throw new RuntimeException("Invalid/unknown palette");
-        int index = 0;
-        for (int i = 0; i < hs.length(); i += 6) {
-          int r = Integer.parseInt(hs.substring(i, i + 2), 16);
-          int g = Integer.parseInt(hs.substring(i + 2, i + 4), 16);
-          int b = Integer.parseInt(hs.substring(i + 4, i + 6), 16);
-          // System.out.println(hs.substring(i, i + 2) + "#" + hs.substring(i + 2, i + 4) + "#" + hs.substring(i + 4, i + 6));
-          // System.out.println("  flame->palette->setColor(" + index + "," + r + "," + g + "," + b + ");");
-          layer.getPalette().setColor(index++, r, g, b);
-        }
+        readPalette(flameXML.substring(ps + 1, pe), layer);
       }
     }
   }
 
+  protected void readColor(XMLAttributes atts, Layer layer) {
+    int index = 0;
+    int r = 0, g = 0, b = 0;
+    String attr;
+    if ((attr = atts.get(ATTR_INDEX)) != null) {
+      index = Integer.parseInt(attr);
+    }
+    if ((attr = atts.get(ATTR_RGB)) != null) {
+      String s[] = attr.split(" ");
+      r = Tools.FTOI(Double.parseDouble(s[0]));
+      g = Tools.FTOI(Double.parseDouble(s[1]));
+      b = Tools.FTOI(Double.parseDouble(s[2]));
+    }
+    layer.getPalette().setColor(index, r, g, b);
+  }
+
+  protected void readPalette(String hs, Layer layer) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < hs.length(); i++) {
+      char c = hs.charAt(i);
+      if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+        sb.append(c);
+      }
+      else if (c >= 'a' && c <= 'z') {
+        sb.append(Character.toUpperCase(c));
+      }
+    }
+    hs = sb.toString();
+    if ((hs.length() % 6) != 0)
+      throw new RuntimeException("Invalid/unknown palette");
+    int index = 0;
+    for (int i = 0; i < hs.length(); i += 6) {
+      int r = parseHexByte(hs, i);
+      int g = parseHexByte(hs, i + 2);
+      int b = parseHexByte(hs, i + 4);
+      layer.getPalette().setColor(index++, r, g, b);
+    }
+  }
+
+  private int parseHexByte(String pHex, int pOffset) {
+    int hi = Character.digit(pHex.charAt(pOffset), 16);
+    int lo = Character.digit(pHex.charAt(pOffset + 1), 16);
+    if (hi < 0 || lo < 0)
+      throw new NumberFormatException("For input string: \"" + pHex.substring(pOffset, pOffset + 2) + "\"");
+    return (hi << 4) | lo;
+  }
+
   protected void readFinalXForms(String flameXML, Flame flame, Layer layer) {
     // FinalXForm
     {
@@ -1019,7 +1073,7 @@ public class AbstractFlameReader {
         if (pe < 0) {
           pe = flameXML.indexOf("/>", ps + 1);
         }
-        String hs = flameXML.substring(ps + 7, pe);
+        String hs = flameXML.substring(ps + 12, pe);
         XForm xForm = new XForm();
         parseXFormAttributes(flame, xForm, hs);
         layer.getFinalXForms().add(xForm);
@@ -1058,6 +1112,10 @@ public class AbstractFlameReader {
   }
 
   public static void readMotionCurveAttributes(XMLAttributes atts, MotionCurve curve, String namePrefix) {
+    // most of the curves are not present, which is cheaper to check than looking up each curve attribute
+    if (namePrefix.endsWith("_") && !atts.hasAttributeWithPrefix(namePrefix)) {
+      return;
+    }
     String hs;
     if ((hs = atts.get(namePrefix + AbstractFlameReader.CURVE_ATTR_ENABLED)) != null) {
       curve.setEnabled(Boolean.parseBoolean(hs));
@@ -30,6 +30,16 @@ public class FlameReader {
   }
 
   public List<Flame> readFlames(String pFilename) {
+    try {
+      return new StreamingFlameReader(prefs).readFlames(pFilename);
+    }
+    catch (Exception ex) {
+      // malformed files, which were accepted by the string-based readers
+      return readFlamesFromTextfile(pFilename);
+    }
+  }
+
+  private List<Flame> readFlamesFromTextfile(String pFilename) {
     try {
       String flamesXML = Tools.readUTF8Textfile(pFilename);
       return readFlamesfromXML(flamesXML);
@@ -49,7 +49,7 @@ public class JWFFlameReader extends AbstractFlameReader {
             break;
           }
         }
-        String hs = flameXML.substring(ps + 7, pe);
+        String hs = flameXML.substring(ps + ATTR_JWF_FLAME.length() + 2, pe);
         parseFlameAttributes(flame, hs);
       }
       flame.getLayers().clear();
@@ -87,41 +87,7 @@ public class JWFFlameReader extends AbstractFlameReader {
 
   protected XMLAttributes parseLayerAttributes(Layer pLayer, String pXML) {
     XMLAttributes atts = Tools.parseAttributes(pXML);
-    String hs;
-    if ((hs = atts.get(ATTR_WEIGHT)) != null) {
-      pLayer.setWeight(Double.parseDouble(hs));
-    }
-    if ((hs = atts.get(ATTR_VISIBLE)) != null) {
-      pLayer.setVisible(Integer.parseInt(hs) == 1);
-    }
-    if ((hs = atts.get(ATTR_NAME)) != null) {
-      pLayer.setName(hs);
-    }
-    if ((hs = atts.get(ATTR_GRADIENT_MAP)) != null) {
-      pLayer.setGradientMapFilename(hs);
-    }
-    if ((hs = atts.get(ATTR_GRADIENT_MAP_HOFFSET)) != null) {
-      pLayer.setGradientMapHorizOffset(Double.parseDouble(hs));
-    }
-    if ((hs = atts.get(ATTR_GRADIENT_MAP_HSCALE)) != null) {
-      pLayer.setGradientMapHorizScale(Double.parseDouble(hs));
-    }
-    if ((hs = atts.get(ATTR_GRADIENT_MAP_VOFFSET)) != null) {
-      pLayer.setGradientMapVertOffset(Double.parseDouble(hs));
-    }
-    if ((hs = atts.get(ATTR_GRADIENT_MAP_VSCALE)) != null) {
-      pLayer.setGradientMapVertScale(Double.parseDouble(hs));
-    }
-    if ((hs = atts.get(ATTR_GRADIENT_MAP_LCOLOR_ADD)) != null) {
-      pLayer.setGradientMapLocalColorAdd(Double.parseDouble(hs));
-    }
-    if ((hs = atts.get(ATTR_GRADIENT_MAP_LCOLOR_SCALE)) != null) {
-      pLayer.setGradientMapLocalColorScale(Double.parseDouble(hs));
-    }
-    if ((hs = atts.get(ATTR_SMOOTH_GRADIENT)) != null) {
-      pLayer.setSmoothGradient("1".equals(hs));
-    }
-    readMotionCurves(pLayer, atts, "");
+    parseLayerAttributes(pLayer, atts);
     return atts;
   }
 }
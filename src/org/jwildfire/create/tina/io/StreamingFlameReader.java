@@ -0,0 +1,403 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.io;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.base.Tools.XMLAttribute;
+import org.jwildfire.base.Tools.XMLAttributes;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.Layer;
+import org.jwildfire.create.tina.base.XForm;
+
+// Reads flam3 and JWF flames in a single pass over the file, without loading the whole file into memory or
+// cutting it into substrings. Attribute names may contain the "#" of indexed variations (e.g. "linear#1#"), which
+// are no valid XML names, so a lenient pull scanner is used instead of a StAX parser.
+public class StreamingFlameReader extends AbstractFlameReader {
+  private static final String ELEM_FLAME = "flame";
+  private static final String ELEM_LAYER = "layer";
+  private static final String ELEM_XFORM = "xform";
+  private static final String ELEM_FINALXFORM = "finalxform";
+  private static final String ELEM_COLOR = "color";
+  private static final String ELEM_PALETTE = "palette";
+
+  public StreamingFlameReader(Prefs pPrefs) {
+    super(pPrefs);
+  }
+
+  public List<Flame> readFlames(String pFilename) throws IOException {
+    try (Reader reader = new InputStreamReader(new FileInputStream(pFilename), StandardCharsets.UTF_8)) {
+      return readFlames(reader);
+    }
+  }
+
+  public List<Flame> readFlamesfromXML(String pXML) {
+    try {
+      return readFlames(new StringReader(pXML));
+    }
+    catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  public List<Flame> readFlames(Reader pReader) throws IOException {
+    List<Flame> res = new ArrayList<Flame>();
+    XMLScanner scanner = new XMLScanner(pReader);
+    Flame flame = null;
+    String flameElement = null;
+    int flameDepth = 0;
+    XMLAttributes flameAtts = null;
+    Layer layer = null;
+    XMLAttributes layerAtts = null;
+    String palette = null;
+    StringBuilder paletteContent = null;
+    while (scanner.next(paletteContent)) {
+      String name = scanner.getName();
+      if (scanner.isEndTag()) {
+        if (flame == null) {
+          continue;
+        }
+        if (paletteContent != null && ELEM_PALETTE.equals(name)) {
+          if (palette == null) {
+            palette = paletteContent.toString();
+          }
+          paletteContent = null;
+        }
+        else if (layer != null && ELEM_LAYER.equals(name) && JWFFlameReader.ATTR_JWF_FLAME.equals(flameElement)) {
+          finishLayer(layer, layerAtts, palette);
+          layer = null;
+          palette = null;
+        }
+        else if (name.equals(flameElement) && --flameDepth == 0) {
+          if (layer != null) {
+            finishLayer(layer, layerAtts, palette);
+          }
+          res.add(flame);
+          flame = null;
+          layer = null;
+          palette = null;
+        }
+        continue;
+      }
+
+      XMLAttributes atts = scanner.getAttributes();
+      if (flame == null) {
+        if (JWFFlameReader.ATTR_JWF_FLAME.equals(name)) {
+          flame = new Flame();
+          parseFlameAttributes(flame, atts);
+          flame.getLayers().clear();
+        }
+        else if (ELEM_FLAME.equals(name)) {
+          flame = new Flame();
+          parseFlameAttributes(flame, atts);
+          // flam3 flames have exactly one layer, which is finished together with the flame
+          layer = flame.getFirstLayer();
+          layerAtts = atts;
+        }
+        if (flame != null) {
+          flameElement = name;
+          flameDepth = 1;
+          palette = null;
+          if (scanner.isEmptyTag()) {
+            flameDepth = 0;
+            if (layer != null) {
+              finishLayer(layer, layerAtts, palette);
+            }
+            res.add(flame);
+            flame = null;
+            layer = null;
+          }
+        }
+      }
+      else if (name.equals(flameElement)) {
+        // nested flames (e.g. the edit history of some flam3 files) are not read separately
+        if (!scanner.isEmptyTag()) {
+          flameDepth++;
+        }
+      }
+      else if (layer == null) {
+        if (ELEM_LAYER.equals(name) && JWFFlameReader.ATTR_JWF_FLAME.equals(flameElement)) {
+          layer = new Layer();
+          flame.getLayers().add(layer);
+          parseLayerAttributes(layer, atts);
+          layerAtts = atts;
+          palette = null;
+          if (scanner.isEmptyTag()) {
+            finishLayer(layer, layerAtts, palette);
+            layer = null;
+          }
+        }
+      }
+      else if (ELEM_XFORM.equals(name)) {
+        XForm xForm = new XForm();
+        parseXFormAttributes(flame, xForm, atts);
+        layer.getXForms().add(xForm);
+      }
+      else if (ELEM_FINALXFORM.equals(name)) {
+        XForm xForm = new XForm();
+        parseXFormAttributes(flame, xForm, atts);
+        layer.getFinalXForms().add(xForm);
+      }
+      else if (ELEM_COLOR.equals(name)) {
+        readColor(atts, layer);
+      }
+      else if (ELEM_PALETTE.equals(name) && !scanner.isEmptyTag()) {
+        paletteContent = new StringBuilder();
+      }
+    }
+    return res;
+  }
+
+  private void finishLayer(Layer pLayer, XMLAttributes pLayerAtts, String pPalette) {
+    if (pPalette != null) {
+      readPalette(pPalette, pLayer);
+    }
+    readMotionCurves(pLayer.getPalette(), pLayerAtts, "palette_");
+  }
+
+  private static class XMLScanner {
+    private final Reader reader;
+    private final char[] buffer = new char[65536];
+    private int pos;
+    private int limit;
+    private final StringBuilder sb = new StringBuilder();
+    private String name;
+    private boolean endTag;
+    private boolean emptyTag;
+    private XMLAttributes attributes;
+
+    public XMLScanner(Reader pReader) {
+      reader = pReader;
+    }
+
+    private int read() throws IOException {
+      if (pos >= limit) {
+        limit = reader.read(buffer, 0, buffer.length);
+        pos = 0;
+        if (limit <= 0) {
+          limit = 0;
+          return -1;
+        }
+      }
+      return buffer[pos++];
+    }
+
+    private int readNonWhitespace() throws IOException {
+      int c;
+      while ((c = read()) >= 0 && Character.isWhitespace(c)) {
+      }
+      return c;
+    }
+
+    private void skipPast(String pTerminator, StringBuilder pContent) throws IOException {
+      int matched = 0;
+      int c;
+      while ((c = read()) >= 0) {
+        if (pContent != null) {
+          pContent.append((char) c);
+        }
+        if (c == pTerminator.charAt(matched)) {
+          if (++matched == pTerminator.length()) {
+            if (pContent != null) {
+              pContent.setLength(pContent.length() - pTerminator.length());
+            }
+            return;
+          }
+        }
+        else {
+          matched = c == pTerminator.charAt(0) ? 1 : 0;
+        }
+      }
+      throw new IllegalArgumentException("Unexpected end of file, missing \"" + pTerminator + "\"");
+    }
+
+    // moves to the next start or end tag, character data in front of the tag is appended to pContent (if not null)
+    public boolean next(StringBuilder pContent) throws IOException {
+      while (true) {
+        int c;
+        while ((c = read()) != '<') {
+          if (c < 0) {
+            return false;
+          }
+          if (pContent != null) {
+            pContent.append((char) c);
+          }
+        }
+        c = read();
+        if (c == '?') {
+          skipPast("?>", null);
+        }
+        else if (c == '!') {
+          c = read();
+          if (c == '-') {
+            skipPast("-->", null);
+          }
+          else if (c == '[') {
+            skipPast("CDATA[", null);
+            skipPast("]]>", pContent);
+          }
+          else {
+            skipPast(">", null);
+          }
+        }
+        else if (c == '/') {
+          endTag = true;
+          emptyTag = false;
+          attributes = null;
+          c = readName(readNonWhitespace());
+          if (c != '>') {
+            skipPast(">", null);
+          }
+          return true;
+        }
+        else {
+          endTag = false;
+          emptyTag = false;
+          attributes = new XMLAttributes();
+          readStartTag(c);
+          return true;
+        }
+      }
+    }
+
+    private int readName(int c) throws IOException {
+      sb.setLength(0);
+      while (c >= 0 && c != '>' && c != '/' && c != '=' && !Character.isWhitespace(c)) {
+        sb.append((char) c);
+        c = read();
+      }
+      name = sb.toString();
+      return c;
+    }
+
+    private void readStartTag(int c) throws IOException {
+      c = readName(c);
+      String elementName = name;
+      while (true) {
+        if (Character.isWhitespace(c)) {
+          c = readNonWhitespace();
+        }
+        if (c < 0) {
+          throw new IllegalArgumentException("Unexpected end of file in element <" + elementName + ">");
+        }
+        else if (c == '>') {
+          break;
+        }
+        else if (c == '/') {
+          emptyTag = true;
+          c = read();
+        }
+        else {
+          c = readName(c);
+          String attrName = name;
+          if (Character.isWhitespace(c)) {
+            c = readNonWhitespace();
+          }
+          if (c != '=') {
+            throw new IllegalArgumentException("Missing value of attribute \"" + attrName + "\" in element <" + elementName + ">");
+          }
+          int quote = readNonWhitespace();
+          if (quote != '"' && quote != '\'') {
+            throw new IllegalArgumentException("Invalid value of attribute \"" + attrName + "\" in element <" + elementName + ">");
+          }
+          sb.setLength(0);
+          boolean hasEntities = false;
+          while ((c = read()) != quote) {
+            if (c < 0) {
+              throw new IllegalArgumentException("Unexpected end of file in element <" + elementName + ">");
+            }
+            hasEntities |= c == '&';
+            sb.append((char) c);
+          }
+          String value = hasEntities ? decodeEntities(sb) : sb.toString();
+          attributes.addAttribute(new XMLAttribute(attrName, value));
+          c = read();
+        }
+      }
+      name = elementName;
+    }
+
+    // decodes the same entities as Tools.parseAttributes()
+    private static String decodeEntities(CharSequence pValue) {
+      StringBuilder res = new StringBuilder(pValue.length());
+      for (int i = 0; i < pValue.length(); i++) {
+        char c = pValue.charAt(i);
+        if (c == '&') {
+          if (startsWith(pValue, i, "&quot;")) {
+            res.append('"');
+            i += 5;
+            continue;
+          }
+          else if (startsWith(pValue, i, "&lt;")) {
+            res.append('<');
+            i += 3;
+            continue;
+          }
+          else if (startsWith(pValue, i, "&gt;")) {
+            res.append('>');
+            i += 3;
+            continue;
+          }
+          else if (startsWith(pValue, i, "&amp;")) {
+            res.append('&');
+            i += 4;
+            continue;
+          }
+        }
+        res.append(c);
+      }
+      return res.toString();
+    }
+
+    private static boolean startsWith(CharSequence pValue, int pOffset, String pPrefix) {
+      if (pOffset + pPrefix.length() > pValue.length()) {
+        return false;
+      }
+      for (int i = 0; i < pPrefix.length(); i++) {
+        if (pValue.charAt(pOffset + i) != pPrefix.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public boolean isEndTag() {
+      return endTag;
+    }
+
+    public boolean isEmptyTag() {
+      return emptyTag;
+    }
+
+    public XMLAttributes getAttributes() {
+      return attributes;
+    }
+  }
+
+}
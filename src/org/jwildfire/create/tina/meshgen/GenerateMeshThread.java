@@ -18,19 +18,21 @@ package org.jwildfire.create.tina.meshgen;
 
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jwildfire.base.Prefs;
 import org.jwildfire.create.tina.meshgen.filter.PreFilter;
 import org.jwildfire.create.tina.meshgen.marchingcubes.FacesMerger;
 import org.jwildfire.create.tina.meshgen.marchingcubes.GenerateFacesThread;
 import org.jwildfire.create.tina.meshgen.marchingcubes.ImageStackSampler;
+import org.jwildfire.create.tina.meshgen.marchingcubes.IndexedMesh;
 import org.jwildfire.create.tina.meshgen.marchingcubes.Mesh;
 import org.jwildfire.create.tina.meshgen.marchingcubes.MeshWriter;
-import org.jwildfire.create.tina.meshgen.marchingcubes.Point3f;
+import org.jwildfire.create.tina.meshgen.marchingcubes.VoxelGrid;
 import org.jwildfire.create.tina.render.ProgressUpdater;
+import org.jwildfire.create.tina.render.RenderExecutor;
 
 public class GenerateMeshThread implements Runnable {
   private final String outFilename;
@@ -44,10 +46,12 @@ public class GenerateMeshThread implements Runnable {
   private final MeshGenGenerateThreadFinishEvent finishEvent;
   private final ProgressUpdater progressUpdater;
   private boolean finished;
-  private final List<GenerateFacesThread> threads = new ArrayList<GenerateFacesThread>();
+  private volatile List<GenerateFacesThread> threads = Collections.emptyList();
   private final List<PreFilter> preFilterList;
   private boolean forceAbort;
   private Mesh mesh;
+  private IndexedMesh indexedMesh;
+  private final VoxelGrid voxels;
 
   public GenerateMeshThread(String pOutFilename, MeshGenGenerateThreadFinishEvent pFinishEvent, ProgressUpdater pProgressUpdater,
       String pInputSequencePattern, int pInputSequenceSize, int pInputSequenceStep, int pThreshold, double pSpatialFilterRadius, int pImageDownSample, boolean pWithNormals,
@@ -63,11 +67,31 @@ public class GenerateMeshThread implements Runnable {
     imageDownSample = pImageDownSample;
     withNormals = pWithNormals;
     preFilterList = pPreFilterList;
+    voxels = null;
+  }
+
+  // creates the mesh from slices which are already in memory (the pre-filters and downsampling must have been applied),
+  // the voxel grid is closed afterwards
+  public GenerateMeshThread(String pOutFilename, MeshGenGenerateThreadFinishEvent pFinishEvent, ProgressUpdater pProgressUpdater,
+      VoxelGrid pVoxels, int pThreshold, double pSpatialFilterRadius, boolean pWithNormals) {
+    outFilename = pOutFilename;
+    finishEvent = pFinishEvent;
+    progressUpdater = pProgressUpdater;
+    voxels = pVoxels;
+    inputSequencePattern = null;
+    inputSequenceSize = pVoxels.getSizeZ();
+    inputSequenceStep = 1;
+    threshold = pThreshold;
+    spatialFilterRadius = pSpatialFilterRadius;
+    imageDownSample = 1;
+    withNormals = pWithNormals;
+    preFilterList = null;
   }
 
   @Override
   public void run() {
     mesh = null;
+    indexedMesh = null;
     System.gc();
     finished = false;
     try {
@@ -82,7 +106,7 @@ public class GenerateMeshThread implements Runnable {
         }
         progressUpdater.initProgress(maxProgress);
       }
-      mesh = createMesh();
+      indexedMesh = createMesh();
 
       if (progressUpdater != null) {
         progressUpdater.updateProgress(maxProgress);
@@ -97,15 +121,22 @@ public class GenerateMeshThread implements Runnable {
     }
   }
 
-  private Mesh createMesh() throws Exception {
-    ImageStackSampler sampler = new ImageStackSampler(inputSequencePattern, inputSequenceSize, inputSequenceStep, spatialFilterRadius, imageDownSample, preFilterList);
-
-    RawFaces rawFaces = createFaces(sampler, threshold);
+  private IndexedMesh createMesh() throws Exception {
+    List<GenerateFacesThread> slabs;
+    ImageStackSampler sampler = voxels != null ? new ImageStackSampler(voxels, spatialFilterRadius) : new ImageStackSampler(inputSequencePattern, inputSequenceSize, inputSequenceStep, spatialFilterRadius, imageDownSample, preFilterList);
+    try {
+      slabs = createFaces(sampler, threshold);
+    }
+    finally {
+      sampler.dispose();
+    }
     if (forceAbort) {
       return null;
     }
 
-    Mesh mesh = FacesMerger.generateMesh(rawFaces);
+    IndexedMesh mesh = FacesMerger.generateMesh(slabs);
+    slabs = null;
+    threads = Collections.emptyList();
     if (forceAbort) {
       return null;
     }
@@ -119,72 +150,32 @@ public class GenerateMeshThread implements Runnable {
   }
 
   /**
-   * Create a list of faces from the specified image data and the given isovalue.
+   * Create the faces from the specified image data and the given isovalue, each thread processes a slab of cubes.
    */
-  public RawFaces createFaces(ImageStackSampler pSampler, int pSeekValue) {
+  public List<GenerateFacesThread> createFaces(ImageStackSampler pSampler, int pSeekValue) {
     int threadCount = Prefs.getPrefs().getTinaRenderThreads();
-    Set<Integer> totalProgress = new HashSet<Integer>();
-    threads.clear();
-    int zsize = pSampler.getStackZSize() + 1;
+    AtomicInteger totalProgress = new AtomicInteger();
+    List<GenerateFacesThread> slabs = new ArrayList<GenerateFacesThread>();
+    // cubes range from -1 to zsize, so that the surface is closed at the borders
+    int zsize = pSampler.getStackZSize() + 2;
     if (zsize < threadCount) {
       threadCount = zsize;
     }
+    if (threadCount < 1) {
+      threadCount = 1;
+    }
 
     int zmin = -1;
-    int zPerThread = zsize / threadCount;
     for (int i = 0; i < threadCount; i++) {
-      GenerateFacesThread thread = new GenerateFacesThread(pSampler, pSeekValue);
-      threads.add(thread);
-      thread.setZmin(zmin);
-      thread.setWithNormals(withNormals);
+      int zmax = -1 + (int) ((long) zsize * (i + 1) / threadCount) - 1;
+      GenerateFacesThread thread = new GenerateFacesThread(pSampler, pSeekValue, zmin, zmax, withNormals);
       thread.setProgressUpdater(progressUpdater, totalProgress);
-      int zmax = zmin + zPerThread - 1;
-      if (zmax >= pSampler.getStackZSize()) {
-        zmax = pSampler.getStackZSize() - 1;
-      }
-      thread.setZmin(zmin);
-      thread.setZmax(zmax);
-      zmin += zPerThread;
-      new Thread(thread).start();
-    }
-
-    while (true) {
-      boolean finished = true;
-      for (int i = threads.size() - 1; i >= 0; i--) {
-        GenerateFacesThread thread = threads.get(i);
-        if (!thread.isDone()) {
-          finished = false;
-          break;
-        }
-      }
-      try {
-        Thread.sleep(1);
-      }
-      catch (InterruptedException e) {
-        e.printStackTrace();
-      }
-      if (finished) {
-        break;
-      }
-    }
-
-    // Merge result
-    List<Point3f> faces = new ArrayList<Point3f>();
-    List<Point3f> normals;
-    if (withNormals) {
-      normals = new ArrayList<Point3f>();
-      for (GenerateFacesThread thread : threads) {
-        faces.addAll(thread.getFaces());
-        normals.addAll(thread.getNormals());
-      }
+      slabs.add(thread);
+      zmin = zmax + 1;
     }
-    else {
-      normals = null;
-      for (GenerateFacesThread thread : threads) {
-        faces.addAll(thread.getFaces());
-      }
-    }
-    return new RawFaces(faces, normals);
+    threads = slabs;
+    RenderExecutor.runAndWait(slabs);
+    return slabs;
   }
 
   public boolean isFinished() {
@@ -198,7 +189,11 @@ public class GenerateMeshThread implements Runnable {
     }
   }
 
+  // the mesh in the (memory consuming) list-based form which is used by the preview
   public Mesh getMesh() {
+    if (mesh == null && indexedMesh != null) {
+      mesh = indexedMesh.toMesh();
+    }
     return mesh;
   }
 
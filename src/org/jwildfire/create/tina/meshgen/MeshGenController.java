@@ -57,6 +57,7 @@ import org.jwildfire.create.tina.meshgen.filter.PreFilter;
 import org.jwildfire.create.tina.meshgen.filter.PreFilterType;
 import org.jwildfire.create.tina.meshgen.marchingcubes.Mesh;
 import org.jwildfire.create.tina.meshgen.marchingcubes.MeshPreviewRenderer;
+import org.jwildfire.create.tina.meshgen.marchingcubes.VoxelGrid;
 import org.jwildfire.create.tina.meshgen.render.MeshGenRenderOutputType;
 import org.jwildfire.create.tina.meshgen.render.MeshGenRenderThread;
 import org.jwildfire.create.tina.meshgen.render.RenderSlicesThread;
@@ -66,6 +67,7 @@ import org.jwildfire.create.tina.render.ProgressUpdater;
 import org.jwildfire.create.tina.render.RenderInfo;
 import org.jwildfire.create.tina.render.RenderMode;
 import org.jwildfire.create.tina.render.RenderedFlame;
+import org.jwildfire.create.tina.render.SliceObserver;
 import org.jwildfire.create.tina.swing.FlameFileChooser;
 import org.jwildfire.create.tina.swing.FlameHolder;
 import org.jwildfire.create.tina.swing.JWFNumberField;
@@ -862,6 +864,13 @@ public class MeshGenController {
     }
     else if (currBaseFlame != null) {
       try {
+        if (MeshGenRenderOutputType.MESH.equals(getOutputType())) {
+          File outFile = chooseMeshFile();
+          if (outFile != null) {
+            renderMesh(outFile);
+          }
+          return;
+        }
         JFileChooser chooser = new ImageFileChooser(Tools.FILEEXT_PNG);
         if (prefs.getOutputImagePath() != null) {
           try {
@@ -899,18 +908,13 @@ public class MeshGenController {
           };
           Flame flame = currBaseFlame.makeCopy();
 
-          switch (getOutputType()) {
-            case VOXELSTACK: {
-              String outfilenamePattern = SequenceFilenameGen.createFilenamePattern(file);
-              renderSlicesThread = new RenderSlicesThread(
-                  prefs, flame, outfilenamePattern, finishEvent, renderSequenceProgressUpdater, renderWidthREd.getIntValue(), renderHeightREd.getIntValue(),
-                  sliceCountREd.getIntValue(), slicesPerRenderREd.getIntValue(), renderQualityREd.getIntValue(), zminREd.getDoubleValue(),
-                  zmaxREd.getDoubleValue(), thicknessModREd.getDoubleValue(), thicknessSamplesREd.getIntValue());
+          String outfilenamePattern = SequenceFilenameGen.createFilenamePattern(file);
+          renderSlicesThread = new RenderSlicesThread(
+              prefs, flame, outfilenamePattern, finishEvent, renderSequenceProgressUpdater, renderWidthREd.getIntValue(), renderHeightREd.getIntValue(),
+              sliceCountREd.getIntValue(), slicesPerRenderREd.getIntValue(), renderQualityREd.getIntValue(), zminREd.getDoubleValue(),
+              zmaxREd.getDoubleValue(), thicknessModREd.getDoubleValue(), thicknessSamplesREd.getIntValue());
 
-              lastRenderedSequenceOutFilePattern = outfilenamePattern;
-              break;
-            }
-          }
+          lastRenderedSequenceOutFilePattern = outfilenamePattern;
 
           enableControls();
           new Thread(renderSlicesThread).start();
@@ -922,6 +926,70 @@ public class MeshGenController {
     }
   }
 
+  // renders the slices into a voxel grid (using the pre-filter and downsample settings of the mesh generation) and
+  // creates the mesh from it, without writing and reading slice images
+  private void renderMesh(final File pOutFile) throws Exception {
+    final List<PreFilter> preFilterList = getPreFilterList();
+    final int downsample = Math.max(1, sequenceDownSampleREd.getIntValue());
+    final VoxelGrid voxels = new VoxelGrid(renderWidthREd.getIntValue() / downsample, renderHeightREd.getIntValue() / downsample);
+    final int sliceCount = sliceCountREd.getIntValue();
+    SliceObserver sliceObserver = new SliceObserver() {
+
+      @Override
+      public void notifySliceRendered(int pSliceIndex, SimpleImage pImage) throws Exception {
+        voxels.addSlice(pImage, preFilterList, downsample);
+      }
+
+    };
+
+    MeshGenGenerateThreadFinishEvent finishEvent = new MeshGenGenerateThreadFinishEvent() {
+
+      @Override
+      public void succeeded(double pElapsedTime) {
+        try {
+          tinaController.getMessageHelper().showStatusMessage(currBaseFlame, "render time: " + Tools.doubleToString(pElapsedTime) + "s");
+        }
+        catch (Throwable ex) {
+          errorHandler.handleError(ex);
+        }
+        renderSlicesThread = null;
+        // slices are missing when the rendering was cancelled
+        if (voxels.getSizeZ() == sliceCount) {
+          generateMesh(pOutFile, voxels);
+        }
+        else {
+          closeVoxelGrid(voxels);
+          enableControls();
+        }
+      }
+
+      @Override
+      public void failed(Throwable exception) {
+        errorHandler.handleError(exception);
+        closeVoxelGrid(voxels);
+        renderSlicesThread = null;
+        enableControls();
+      }
+
+    };
+    Flame flame = currBaseFlame.makeCopy();
+    renderSlicesThread = new RenderSlicesThread(
+        prefs, flame, sliceObserver, finishEvent, renderSequenceProgressUpdater, renderWidthREd.getIntValue(), renderHeightREd.getIntValue(),
+        sliceCount, slicesPerRenderREd.getIntValue(), renderQualityREd.getIntValue(), zminREd.getDoubleValue(),
+        zmaxREd.getDoubleValue(), thicknessModREd.getDoubleValue(), thicknessSamplesREd.getIntValue());
+    enableControls();
+    new Thread(renderSlicesThread).start();
+  }
+
+  private void closeVoxelGrid(VoxelGrid pVoxels) {
+    try {
+      pVoxels.close();
+    }
+    catch (Exception ex) {
+      ex.printStackTrace();
+    }
+  }
+
   public void sliceCount_changed() {
     refreshAllPreviews(true);
   }
@@ -1010,63 +1078,82 @@ public class MeshGenController {
     }
     else if (sequenceSlicesREd.getIntValue() > 0) {
       try {
-        JFileChooser chooser = new MeshFileChooser(prefs);
-        if (prefs.getTinaMeshPath() != null) {
-          try {
-            chooser.setCurrentDirectory(new File(prefs.getTinaMeshPath()));
-          }
-          catch (Exception ex) {
-            ex.printStackTrace();
-          }
+        File outFile = chooseMeshFile();
+        if (outFile != null) {
+          generateMesh(outFile, null);
         }
-        if (chooser.showSaveDialog(rootPanel) == JFileChooser.APPROVE_OPTION) {
-          final File outFile = chooser.getSelectedFile();
-          prefs.setLastMeshFile(outFile);
-
-          MeshGenGenerateThreadFinishEvent finishEvent = new MeshGenGenerateThreadFinishEvent() {
-
-            @Override
-            public void succeeded(double pElapsedTime) {
-              try {
-                tinaController.getMessageHelper().showStatusMessage("Mesh creation time: " + Tools.doubleToString(pElapsedTime) + "s");
-              }
-              catch (Throwable ex) {
-                errorHandler.handleError(ex);
-              }
-              lastGeneratedMeshFilename = outFile.getAbsolutePath();
-              if (autoPreviewCBx.isEnabled()) {
-                currPreviewMesh = new MeshPair(generateMeshThread.getMesh());
-                refreshPreviewMeshInfo();
-              }
-              generateMeshThread = null;
-              System.gc();
-              enableControls();
-              if (autoPreviewCBx.isEnabled()) {
-                refreshPreview(false);
-              }
-            }
-
-            @Override
-            public void failed(Throwable exception) {
-              errorHandler.handleError(exception);
-              generateMeshThread = null;
-              enableControls();
-            }
+      }
+      catch (Throwable ex) {
+        errorHandler.handleError(ex);
+      }
+    }
+  }
 
-          };
+  private File chooseMeshFile() {
+    JFileChooser chooser = new MeshFileChooser(prefs, true);
+    if (prefs.getTinaMeshPath() != null) {
+      try {
+        chooser.setCurrentDirectory(new File(prefs.getTinaMeshPath()));
+      }
+      catch (Exception ex) {
+        ex.printStackTrace();
+      }
+    }
+    if (chooser.showSaveDialog(rootPanel) == JFileChooser.APPROVE_OPTION) {
+      File outFile = chooser.getSelectedFile();
+      prefs.setLastMeshFile(outFile);
+      return outFile;
+    }
+    return null;
+  }
 
-          generateMeshThread = new GenerateMeshThread(outFile.getAbsolutePath(), finishEvent, generateMeshProgressUpdater,
-              getCurrSequencePattern(), sequenceSlicesREd.getIntValue(), imageStepREd.getIntValue(), sequenceThresholdREd.getIntValue(), sequenceFilterRadiusREd.getDoubleValue(),
-              sequenceDownSampleREd.getIntValue(), true, getPreFilterList());
+  // creates the mesh from the current image sequence, or from the given voxels (which were rendered directly)
+  private void generateMesh(final File pOutFile, VoxelGrid pVoxels) {
+    MeshGenGenerateThreadFinishEvent finishEvent = new MeshGenGenerateThreadFinishEvent() {
 
-          enableControls();
-          new Thread(generateMeshThread).start();
+      @Override
+      public void succeeded(double pElapsedTime) {
+        try {
+          tinaController.getMessageHelper().showStatusMessage("Mesh creation time: " + Tools.doubleToString(pElapsedTime) + "s");
+        }
+        catch (Throwable ex) {
+          errorHandler.handleError(ex);
+        }
+        // only meshes in the Wavefront format can be imported into the preview
+        lastGeneratedMeshFilename = pOutFile.getName().toLowerCase().endsWith("." + Tools.FILEEXT_OBJ) ? pOutFile.getAbsolutePath() : null;
+        if (autoPreviewCBx.isEnabled()) {
+          currPreviewMesh = new MeshPair(generateMeshThread.getMesh());
+          refreshPreviewMeshInfo();
+        }
+        generateMeshThread = null;
+        System.gc();
+        enableControls();
+        if (autoPreviewCBx.isEnabled()) {
+          refreshPreview(false);
         }
       }
-      catch (Throwable ex) {
-        errorHandler.handleError(ex);
+
+      @Override
+      public void failed(Throwable exception) {
+        errorHandler.handleError(exception);
+        generateMeshThread = null;
+        enableControls();
       }
+
+    };
+
+    if (pVoxels != null) {
+      generateMeshThread = new GenerateMeshThread(pOutFile.getAbsolutePath(), finishEvent, generateMeshProgressUpdater,
+          pVoxels, sequenceThresholdREd.getIntValue(), sequenceFilterRadiusREd.getDoubleValue(), true);
+    }
+    else {
+      generateMeshThread = new GenerateMeshThread(pOutFile.getAbsolutePath(), finishEvent, generateMeshProgressUpdater,
+          getCurrSequencePattern(), sequenceSlicesREd.getIntValue(), imageStepREd.getIntValue(), sequenceThresholdREd.getIntValue(), sequenceFilterRadiusREd.getDoubleValue(),
+          sequenceDownSampleREd.getIntValue(), true, getPreFilterList());
     }
+
+    enableControls();
+    new Thread(generateMeshThread).start();
   }
 
   private List<PreFilter> getPreFilterList() {
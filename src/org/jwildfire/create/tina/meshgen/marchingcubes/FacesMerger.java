@@ -17,165 +17,139 @@
 package org.jwildfire.create.tina.meshgen.marchingcubes;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
-import org.jwildfire.create.tina.meshgen.RawFaces;
+import org.jwildfire.create.tina.render.RenderExecutor;
 
 public class FacesMerger {
 
   private static final float DLFT_OBJSIZE = 10.0f;
-
-  private static class AvgNormal extends Point3f {
-    public int count;
-
-    public AvgNormal(Point3f pPoint) {
-      x = pPoint.x;
-      y = pPoint.y;
-      z = pPoint.z;
-      count = 1;
-    }
-
-    public void addPoint(Point3f pPoint) {
-      x += pPoint.x;
-      y += pPoint.y;
-      z += pPoint.z;
-      count++;
+  private static final int VERTICES_PER_TASK = 65536;
+
+  public static IndexedMesh generateMesh(List<GenerateFacesThread> pSlabs) {
+    int slabCount = pSlabs.size();
+    boolean withNormals = slabCount > 0 && pSlabs.get(0).getNormals() != null;
+
+    // map the vertices of each slab to global indices, the vertices in the bottom plane of a slab are shared with the previous slab
+    int[][] remap = new int[slabCount][];
+    int maxVertexCount = 0, maxFaceCount = 0;
+    for (GenerateFacesThread slab : pSlabs) {
+      maxVertexCount += slab.getVertexCount();
+      maxFaceCount += slab.getFaceCount();
     }
-
-    public float getAvgX() {
-      return count > 0 ? x / (float) count : 0.0f;
-    }
-
-    public float getAvgY() {
-      return count > 0 ? y / (float) count : 0.0f;
+    float[] vertices = new float[3 * maxVertexCount];
+    float[] normals = withNormals ? new float[3 * maxVertexCount] : null;
+    int vertexCount = 0;
+    for (int s = 0; s < slabCount; s++) {
+      GenerateFacesThread slab = pSlabs.get(s);
+      LongIntHashMap sharedVertices = s > 0 ? getTopVertices(pSlabs.get(s - 1), remap[s - 1], slab.getZmin()) : null;
+      int[] slabRemap = remap[s] = new int[slab.getVertexCount()];
+      float[] slabVertices = slab.getVertices();
+      float[] slabNormals = slab.getNormals();
+      long[] keys = slab.getVertexKeys();
+      for (int i = 0; i < slab.getVertexCount(); i++) {
+        int idx = sharedVertices != null && isInPlane(slab, keys[i], slab.getZmin()) ? sharedVertices.get(keys[i]) : -1;
+        if (idx < 0) {
+          idx = vertexCount++;
+          System.arraycopy(slabVertices, 3 * i, vertices, 3 * idx, 3);
+        }
+        if (withNormals) {
+          normals[3 * idx] += slabNormals[3 * i];
+          normals[3 * idx + 1] += slabNormals[3 * i + 1];
+          normals[3 * idx + 2] += slabNormals[3 * i + 2];
+        }
+        slabRemap[i] = idx;
+      }
     }
 
-    public float getAvgZ() {
-      return count > 0 ? z / (float) count : 0.0f;
+    int[] faces = new int[3 * maxFaceCount];
+    int faceCount = 0;
+    for (int s = 0; s < slabCount; s++) {
+      GenerateFacesThread slab = pSlabs.get(s);
+      int[] slabFaces = slab.getFaces();
+      int[] slabRemap = remap[s];
+      for (int i = 0; i < 3 * slab.getFaceCount(); i++) {
+        faces[3 * faceCount + i] = slabRemap[slabFaces[i]];
+      }
+      faceCount += slab.getFaceCount();
     }
 
+    transformVertices(vertices, normals, vertexCount);
+    return new IndexedMesh(vertices, normals, vertexCount, faces, faceCount);
   }
 
-  public static Mesh generateMesh(RawFaces pRawFaces) {
-    List<Point3f> vertices = pRawFaces.getVertices();
-    List<Point3f> faceNormals = pRawFaces.getNormals();
-
-    Map<Point3f, Integer> index = new HashMap<Point3f, Integer>();
-    List<Point3f> points = new ArrayList<Point3f>();
-
-    Point3f first = vertices.size() > 0 ? vertices.get(0) : new Point3f();
-    float xmin = first.x, xmax = first.x;
-    float ymin = first.y, ymax = first.y;
-    float zmin = first.z, zmax = first.z;
-
-    long t0, t1;
-
-    t0 = System.currentTimeMillis();
-    for (Point3f point : vertices) {
-      if (index.get(point) == null) {
-        index.put(point, points.size());
-        points.add(point);
-
-        if (point.x < xmin)
-          xmin = point.x;
-        else if (point.x > xmax)
-          xmax = point.x;
-
-        if (point.y < ymin)
-          ymin = point.y;
-        else if (point.y > ymax)
-          ymax = point.y;
+  private static boolean isInPlane(GenerateFacesThread pSlab, long pKey, int pZ) {
+    return GenerateFacesThread.getKeyType(pKey) != GenerateFacesThread.AXIS_Z && pSlab.getKeyZ(pKey) == pZ;
+  }
 
-        if (point.z < zmin)
-          zmin = point.z;
-        else if (point.z > zmax)
-          zmax = point.z;
+  private static LongIntHashMap getTopVertices(GenerateFacesThread pSlab, int[] pRemap, int pZ) {
+    long[] keys = pSlab.getVertexKeys();
+    LongIntHashMap res = new LongIntHashMap(pSlab.getVertexCount() / Math.max(1, pSlab.getZmax() - pSlab.getZmin() + 1));
+    for (int i = 0; i < pSlab.getVertexCount(); i++) {
+      if (isInPlane(pSlab, keys[i], pZ)) {
+        res.put(keys[i], pRemap[i]);
       }
     }
-    t1 = System.currentTimeMillis();
-    System.out.println("CREATE UNIQUE POINTS: " + (t1 - t0) / 1000.0 + "s");
-
-    t0 = System.currentTimeMillis();
-    Set<Face> facesSet = new HashSet<Face>();
-    List<Face> faces = new ArrayList<Face>();
-    Map<Integer, AvgNormal> normalMap = new HashMap<Integer, AvgNormal>();
-    for (int i = 0; i < vertices.size(); i += 3) {
-      int a = index.get(vertices.get(i));
-      int b = index.get(vertices.get(i + 1));
-      int c = index.get(vertices.get(i + 2));
-      if (a != b && b != c && a != c) {
-        Face face = new Face(a, c, b);
-        if (!facesSet.contains(face)) {
-          facesSet.add(face);
-          faces.add(face);
-          if (faceNormals != null) {
-            Point3f faceNormal = faceNormals.get(i / 3);
-            addFaceNormalToNormalMap(normalMap, a, faceNormal);
-            addFaceNormalToNormalMap(normalMap, b, faceNormal);
-            addFaceNormalToNormalMap(normalMap, c, faceNormal);
-          }
-        }
+    return res;
+  }
+
+  // normalizes the vertex normals and centers and scales the vertices to the default object size
+  private static void transformVertices(final float[] pVertices, final float[] pNormals, int pVertexCount) {
+    float xmin = 0.0f, xmax = 0.0f, ymin = 0.0f, ymax = 0.0f, zmin = 0.0f, zmax = 0.0f;
+    if (pVertexCount > 0) {
+      xmin = xmax = pVertices[0];
+      ymin = ymax = pVertices[1];
+      zmin = zmax = pVertices[2];
+      for (int i = 1; i < pVertexCount; i++) {
+        float x = pVertices[3 * i], y = pVertices[3 * i + 1], z = pVertices[3 * i + 2];
+        if (x < xmin)
+          xmin = x;
+        else if (x > xmax)
+          xmax = x;
+        if (y < ymin)
+          ymin = y;
+        else if (y > ymax)
+          ymax = y;
+        if (z < zmin)
+          zmin = z;
+        else if (z > zmax)
+          zmax = z;
       }
     }
-    t1 = System.currentTimeMillis();
-    System.out.println("CREATE FACES: " + (t1 - t0) / 1000.0 + "s");
-
-    t0 = System.currentTimeMillis();
-    float xsize = xmax - xmin;
-    float ysize = ymax - ymin;
-    float zsize = zmax - zmin;
-    float size = (xsize + ysize + zsize) / 3.0f;
-
-    float dx = -xmin - (xmax - xmin) / 2.0f;
-    float dy = -ymin - (ymax - ymin) / 2.0f;
-    float dz = -zmin - (zmax - zmin) / 2.0f;
-    float scale = DLFT_OBJSIZE / size;
-
-    if (faceNormals != null) {
-      List<Point3f> vertexNormals = new ArrayList<Point3f>();
-      for (int i = 0; i < points.size(); i++) {
-        Point3f point = points.get(i);
-        AvgNormal avgNormal = normalMap.get(i);
-        if (avgNormal != null) {
-          vertexNormals.add(new Point3f(avgNormal.getAvgX(), avgNormal.getAvgY(), avgNormal.getAvgZ()));
-        }
-        else {
-          vertexNormals.add(new Point3f());
+    float size = ((xmax - xmin) + (ymax - ymin) + (zmax - zmin)) / 3.0f;
+    final float dx = -xmin - (xmax - xmin) / 2.0f;
+    final float dy = -ymin - (ymax - ymin) / 2.0f;
+    final float dz = -zmin - (zmax - zmin) / 2.0f;
+    final float scale = size > 0.0f ? DLFT_OBJSIZE / size : 1.0f;
+
+    List<Runnable> tasks = new ArrayList<Runnable>();
+    for (int start = 0; start < pVertexCount; start += VERTICES_PER_TASK) {
+      final int from = start;
+      final int to = Math.min(start + VERTICES_PER_TASK, pVertexCount);
+      tasks.add(new Runnable() {
+
+        @Override
+        public void run() {
+          for (int i = from; i < to; i++) {
+            int offset = 3 * i;
+            pVertices[offset] = (pVertices[offset] + dx) * scale;
+            pVertices[offset + 1] = (pVertices[offset + 1] + dy) * scale;
+            pVertices[offset + 2] = (pVertices[offset + 2] + dz) * scale;
+            if (pNormals != null) {
+              float nx = pNormals[offset], ny = pNormals[offset + 1], nz = pNormals[offset + 2];
+              float r = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+              if (r > 0.0f) {
+                pNormals[offset] = nx / r;
+                pNormals[offset + 1] = ny / r;
+                pNormals[offset + 2] = nz / r;
+              }
+            }
+          }
         }
-        point.x = (point.x + dx) * scale;
-        point.y = (point.y + dy) * scale;
-        point.z = (point.z + dz) * scale;
-      }
-      t1 = System.currentTimeMillis();
-      System.out.println("SCALING POINTS: " + (t1 - t0) / 1000.0 + "s");
-      return new Mesh(points, vertexNormals, faces);
-    }
-    else {
-      for (Point3f point : points) {
-        point.x = (point.x + dx) * scale;
-        point.y = (point.y + dy) * scale;
-        point.z = (point.z + dz) * scale;
-      }
-      t1 = System.currentTimeMillis();
-      System.out.println("SCALING POINTS: " + (t1 - t0) / 1000.0 + "s");
-      return new Mesh(points, faces);
-    }
 
-  }
-
-  private static void addFaceNormalToNormalMap(Map<Integer, AvgNormal> pNormalMap, int pPointIndex, Point3f pFaceNormal) {
-    Integer key = Integer.valueOf(pPointIndex);
-    AvgNormal avg = pNormalMap.get(key);
-    if (avg == null) {
-      avg = new AvgNormal(pFaceNormal);
-      pNormalMap.put(key, avg);
-    }
-    else {
-      avg.addPoint(pFaceNormal);
+      });
     }
+    RenderExecutor.runAndWait(tasks);
   }
+
 }
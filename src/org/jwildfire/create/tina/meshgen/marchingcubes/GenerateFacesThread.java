@@ -16,35 +16,71 @@
 */
 package org.jwildfire.create.tina.meshgen.marchingcubes;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jwildfire.create.tina.render.ProgressUpdater;
 
+// Creates the faces of a slab of cubes (cube z-coordinates zmin..zmax). Each vertex is identified by the edge it lies on
+// (or by the corner it coincides with), so vertices are shared by all faces of the slab. The vertices in the bottom and
+// top plane of the slab are also created by the neighbouring slabs and are merged later by their keys (see FacesMerger).
 public class GenerateFacesThread implements Runnable {
-  private int zmin, zmax;
-  private boolean done;
-  private List<Point3f> faces = new ArrayList<Point3f>();
-  private List<Point3f> normals = new ArrayList<Point3f>();
+  static final int AXIS_X = 0;
+  static final int AXIS_Y = 1;
+  static final int AXIS_Z = 2;
+  static final int CORNER = 3;
+
+  private static final int INITIAL_CAPACITY = 4096;
+
+  /**
+   * corners of a cube and its edges
+   *        _________           0______x
+   *       /v0    v1/|         /|
+   *      /________/ |        / | 
+   *      |v3    v2| /v5    y/  |z 
+   *      |________|/
+   *       v7    v6
+   */
+  private static final int[][] CORNER_OFFSETS = { { 0, 0, 0 }, { 1, 0, 0 }, { 1, 1, 0 }, { 0, 1, 0 }, { 0, 0, 1 }, { 1, 0, 1 }, { 1, 1, 1 }, { 0, 1, 1 } };
+  private static final int[][] EDGE_CORNERS = { { 0, 1 }, { 1, 2 }, { 2, 3 }, { 3, 0 }, { 4, 5 }, { 5, 6 }, { 6, 7 }, { 7, 4 }, { 0, 4 }, { 1, 5 }, { 3, 7 }, { 2, 6 } };
+
+  private static final boolean[] AMBIGOUS = new boolean[256];
+  static {
+    for (int i = 0; i < PredefinedCases.ambigous.length; i++) {
+      AMBIGOUS[PredefinedCases.ambigous[i]] = true;
+    }
+  }
+
   private final ImageStackSampler sampler;
   private final int threshold;
-  private boolean forceAbort;
-  private boolean withNormals;
+  private final int zmin, zmax;
+  private final boolean withNormals;
+  private final int planeWidth, planeHeight;
+  private boolean done;
+  private volatile boolean forceAbort;
   private ProgressUpdater progressUpdater;
-  private Set<Integer> progressOfAllThreads;
+  private AtomicInteger progressOfAllThreads;
+
+  private final LongIntHashMap vertexMap = new LongIntHashMap(INITIAL_CAPACITY);
+  private float[] vertices = new float[3 * INITIAL_CAPACITY];
+  private float[] normals;
+  private long[] vertexKeys = new long[INITIAL_CAPACITY];
+  private int vertexCount;
+  private int[] faces = new int[3 * INITIAL_CAPACITY];
+  private int faceCount;
 
-  public GenerateFacesThread(ImageStackSampler pSampler, int pThreshold) {
+  public GenerateFacesThread(ImageStackSampler pSampler, int pThreshold, int pZmin, int pZmax, boolean pWithNormals) {
     sampler = pSampler;
     threshold = pThreshold;
-  }
-
-  public void setZmin(int pZmin) {
     zmin = pZmin;
-  }
-
-  public void setZmax(int pZmax) {
     zmax = pZmax;
+    withNormals = pWithNormals;
+    // corners range from -1 to size + 1
+    planeWidth = pSampler.getStackXSize() + 3;
+    planeHeight = pSampler.getStackYSize() + 3;
+    if (withNormals) {
+      normals = new float[3 * INITIAL_CAPACITY];
+    }
   }
 
   @Override
@@ -52,21 +88,48 @@ public class GenerateFacesThread implements Runnable {
     done = false;
     try {
       forceAbort = false;
-      Cube cube = new Cube();
-      for (int z = zmin; z <= zmax + 1; z += 1) {
-        for (int x = -1; x < sampler.getStackXSize() + 1; x += 1) {
-          for (int y = -1; y < sampler.getStackYSize() + 1; y += 1) {
-            cube.initCube(x, y, z);
-            EdgesCalculator.computeEdges(cube, sampler, threshold);
-            FacesCalculator.getFaces(cube, faces, withNormals ? normals : null, sampler, threshold);
+      int[] lower = new int[planeWidth * planeHeight];
+      int[] upper = new int[planeWidth * planeHeight];
+      sampleCorners(zmin, lower);
+      int[] cubeVertices = new int[12];
+      int xsize = sampler.getStackXSize();
+      int ysize = sampler.getStackYSize();
+      for (int z = zmin; z <= zmax; z++) {
+        sampleCorners(z + 1, upper);
+        for (int y = -1; y <= ysize; y++) {
+          int rowOffset = (y + 1) * planeWidth + 1;
+          for (int x = -1; x <= xsize; x++) {
+            int idx = rowOffset + x;
+            int caseNumber = 0;
+            if (lower[idx] > threshold)
+              caseNumber |= 1;
+            if (lower[idx + 1] > threshold)
+              caseNumber |= 2;
+            if (lower[idx + 1 + planeWidth] > threshold)
+              caseNumber |= 4;
+            if (lower[idx + planeWidth] > threshold)
+              caseNumber |= 8;
+            if (upper[idx] > threshold)
+              caseNumber |= 16;
+            if (upper[idx + 1] > threshold)
+              caseNumber |= 32;
+            if (upper[idx + 1 + planeWidth] > threshold)
+              caseNumber |= 64;
+            if (upper[idx + planeWidth] > threshold)
+              caseNumber |= 128;
+            if (caseNumber != 0 && caseNumber != 255) {
+              addCubeFaces(x, y, z, idx, caseNumber, lower, upper, cubeVertices);
+            }
           }
           if (forceAbort) {
             break;
           }
         }
+        int[] tmp = lower;
+        lower = upper;
+        upper = tmp;
         if (progressUpdater != null) {
-          progressOfAllThreads.add(new Integer(z));
-          progressUpdater.updateProgress(progressOfAllThreads.size());
+          progressUpdater.updateProgress(progressOfAllThreads.incrementAndGet());
         }
         if (forceAbort) {
           break;
@@ -78,15 +141,147 @@ public class GenerateFacesThread implements Runnable {
     }
   }
 
-  public boolean isDone() {
-    return done;
+  private void sampleCorners(int pZ, int[] pPlane) {
+    int xsize = sampler.getStackXSize();
+    int ysize = sampler.getStackYSize();
+    int idx = 0;
+    for (int y = -1; y <= ysize + 1; y++) {
+      for (int x = -1; x <= xsize + 1; x++) {
+        pPlane[idx++] = sampler.getIntensity(x, y, pZ);
+      }
+    }
   }
 
-  public List<Point3f> getFaces() {
-    return faces;
+  private void addCubeFaces(int pX, int pY, int pZ, int pIdx, int pCaseNumber, int[] pLower, int[] pUpper, int[] pCubeVertices) {
+    Arrays.fill(pCubeVertices, -1);
+    // ambigous cases are taken from the inverted case, which also inverts the orientation of the faces
+    boolean ambigous = AMBIGOUS[pCaseNumber];
+    int offset = ambigous ? (255 - pCaseNumber) * 15 : pCaseNumber * 15;
+    for (int index = 0; index < 5; index++, offset += 3) {
+      if (PredefinedCases.faces[offset] != -1) {
+        int a = getEdgeVertex(pX, pY, pZ, pIdx, PredefinedCases.faces[offset], pLower, pUpper, pCubeVertices);
+        int b = getEdgeVertex(pX, pY, pZ, pIdx, PredefinedCases.faces[offset + 1], pLower, pUpper, pCubeVertices);
+        int c = getEdgeVertex(pX, pY, pZ, pIdx, PredefinedCases.faces[offset + 2], pLower, pUpper, pCubeVertices);
+        // faces may degenerate when vertices coincide with corners
+        if (a != b && b != c && a != c) {
+          // counter-clockwise when seen from outside (i.e. from the lower intensities)
+          if (ambigous) {
+            addFace(a, b, c);
+          }
+          else {
+            addFace(a, c, b);
+          }
+        }
+      }
+    }
+  }
+
+  private int getEdgeVertex(int pX, int pY, int pZ, int pIdx, int pEdge, int[] pLower, int[] pUpper, int[] pCubeVertices) {
+    int res = pCubeVertices[pEdge];
+    if (res < 0) {
+      int c1 = EDGE_CORNERS[pEdge][0];
+      int c2 = EDGE_CORNERS[pEdge][1];
+      int i1 = getCornerIntensity(c1, pIdx, pLower, pUpper);
+      int i2 = getCornerIntensity(c2, pIdx, pLower, pUpper);
+      // interpolate from the corner with the lower intensity (which is outside)
+      if (i2 < i1) {
+        int tmp = c1;
+        c1 = c2;
+        c2 = tmp;
+        tmp = i1;
+        i1 = i2;
+        i2 = tmp;
+      }
+      int x1 = pX + CORNER_OFFSETS[c1][0], y1 = pY + CORNER_OFFSETS[c1][1], z1 = pZ + CORNER_OFFSETS[c1][2];
+      int x2 = pX + CORNER_OFFSETS[c2][0], y2 = pY + CORNER_OFFSETS[c2][1], z2 = pZ + CORNER_OFFSETS[c2][2];
+      float t = (threshold - i1) / (float) (i2 - i1);
+      long key;
+      if (t == 0.0f) {
+        key = getKey(x1, y1, z1, CORNER);
+      }
+      else {
+        int axis = x1 != x2 ? AXIS_X : y1 != y2 ? AXIS_Y : AXIS_Z;
+        key = getKey(Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2), axis);
+      }
+      res = vertexMap.get(key);
+      if (res < 0) {
+        res = addVertex(key, (x2 - x1) * t + x1, (y2 - y1) * t + y1, (z2 - z1) * t + z1);
+        vertexMap.put(key, res);
+      }
+      pCubeVertices[pEdge] = res;
+    }
+    return res;
+  }
+
+  private int getCornerIntensity(int pCorner, int pIdx, int[] pLower, int[] pUpper) {
+    int[] plane = CORNER_OFFSETS[pCorner][2] == 0 ? pLower : pUpper;
+    return plane[pIdx + CORNER_OFFSETS[pCorner][0] + CORNER_OFFSETS[pCorner][1] * planeWidth];
+  }
+
+  private long getKey(int pX, int pY, int pZ, int pType) {
+    long corner = ((long) (pZ + 1) * planeHeight + (pY + 1)) * planeWidth + (pX + 1);
+    return (corner << 2) | pType;
+  }
+
+  // z-coordinate of the corner a vertex key refers to
+  int getKeyZ(long pKey) {
+    return (int) ((pKey >>> 2) / ((long) planeWidth * planeHeight)) - 1;
   }
 
-  public void setProgressUpdater(ProgressUpdater pProgressUpdater, Set<Integer> pProgressOfAllThreads) {
+  static int getKeyType(long pKey) {
+    return (int) (pKey & 3);
+  }
+
+  private int addVertex(long pKey, float pX, float pY, float pZ) {
+    if (vertexCount == vertexKeys.length) {
+      int capacity = vertexKeys.length * 2;
+      vertexKeys = Arrays.copyOf(vertexKeys, capacity);
+      vertices = Arrays.copyOf(vertices, 3 * capacity);
+      if (withNormals) {
+        normals = Arrays.copyOf(normals, 3 * capacity);
+      }
+    }
+    vertexKeys[vertexCount] = pKey;
+    int offset = 3 * vertexCount;
+    vertices[offset] = pX;
+    vertices[offset + 1] = pY;
+    vertices[offset + 2] = pZ;
+    return vertexCount++;
+  }
+
+  private void addFace(int pA, int pB, int pC) {
+    if (3 * faceCount == faces.length) {
+      faces = Arrays.copyOf(faces, 2 * faces.length);
+    }
+    int offset = 3 * faceCount++;
+    faces[offset] = pA;
+    faces[offset + 1] = pB;
+    faces[offset + 2] = pC;
+    if (withNormals) {
+      // the (unnormalized) face normal, so the vertex normals are weighted by face area
+      int a = 3 * pA, b = 3 * pB, c = 3 * pC;
+      float ux = vertices[b] - vertices[a], uy = vertices[b + 1] - vertices[a + 1], uz = vertices[b + 2] - vertices[a + 2];
+      float vx = vertices[c] - vertices[a], vy = vertices[c + 1] - vertices[a + 1], vz = vertices[c + 2] - vertices[a + 2];
+      float nx = uy * vz - uz * vy;
+      float ny = uz * vx - ux * vz;
+      float nz = ux * vy - uy * vx;
+      normals[a] += nx;
+      normals[a + 1] += ny;
+      normals[a + 2] += nz;
+      normals[b] += nx;
+      normals[b + 1] += ny;
+      normals[b + 2] += nz;
+      normals[c] += nx;
+      normals[c + 1] += ny;
+      normals[c + 2] += nz;
+    }
+  }
+
+  public boolean isDone() {
+    return done;
+  }
+
+  public void setProgressUpdater(ProgressUpdater pProgressUpdater, AtomicInteger pProgressOfAllThreads) {
     progressUpdater = pProgressUpdater;
     progressOfAllThreads = pProgressOfAllThreads;
   }
@@ -95,12 +290,36 @@ public class GenerateFacesThread implements Runnable {
     forceAbort = true;
   }
 
-  public void setWithNormals(boolean pWithNormals) {
-    withNormals = pWithNormals;
+  public int getZmin() {
+    return zmin;
+  }
+
+  public int getZmax() {
+    return zmax;
+  }
+
+  public int getVertexCount() {
+    return vertexCount;
+  }
+
+  public float[] getVertices() {
+    return vertices;
   }
 
-  public List<Point3f> getNormals() {
+  public float[] getNormals() {
     return normals;
   }
 
+  public long[] getVertexKeys() {
+    return vertexKeys;
+  }
+
+  public int getFaceCount() {
+    return faceCount;
+  }
+
+  public int[] getFaces() {
+    return faces;
+  }
+
 }
@@ -16,7 +16,7 @@
 */
 package org.jwildfire.create.tina.meshgen.marchingcubes;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
@@ -28,48 +28,31 @@ import org.jwildfire.image.SimpleImage;
 import org.jwildfire.io.ImageReader;
 
 public class ImageStackSampler {
-  private static final int MAX_IMAGES_IN_CACHE = 128;
   private static final double MIN_SPATIAL_FILTER_RADIUS = 0.0;
   private static final double MAX_SPATIAL_FILTER_RADIUS = 0.5;
 
-  private final List<PreFilter> preFilterList;
+  private final VoxelGrid voxels;
 
   private final int stackXSize;
   private final int stackYSize;
   private final int stackZSize;
 
-  private final List<SimpleImage> images = new ArrayList<SimpleImage>();
-  private final List<Integer> imagesIndex = new ArrayList<Integer>();
-
-  private final String inputfilename;
-  private final double spatialFilterRadius;
-  private final int downsample;
-
   private final FilterKernel filterKernel = new GaussianFilterKernel();
   private final double[][][] filter;
   private final int noiseFilterSize;
 
+  // loads the images of a sequence into a voxel grid
   public ImageStackSampler(String pInputfilename, int pSlices, int inputSequenceStep, double pSpatialFilterRadius, int pDownsample, List<PreFilter> pPreFilterList) throws Exception {
-    if (pPreFilterList != null) {
-      preFilterList = pPreFilterList;
-    }
-    else {
-      preFilterList = Collections.emptyList();
-    }
-    inputfilename = pInputfilename;
-    downsample = pDownsample >= 1 ? pDownsample : 1;
-    for (int i = 1; i <= pSlices; i += inputSequenceStep) {
-      images.add(null);
-      imagesIndex.add(Integer.valueOf(i));
-    }
-    String filename = String.format(inputfilename, 1);
-    images.set(0, new ImageReader().loadImage(filename));
+    this(loadImages(pInputfilename, pSlices, inputSequenceStep, pDownsample, pPreFilterList), pSpatialFilterRadius);
+  }
 
-    stackXSize = images.get(0).getImageWidth() / downsample;
-    stackYSize = images.get(0).getImageHeight() / downsample;
-    stackZSize = images.size();
+  public ImageStackSampler(VoxelGrid pVoxels, double pSpatialFilterRadius) {
+    voxels = pVoxels;
+    stackXSize = voxels.getSizeX();
+    stackYSize = voxels.getSizeY();
+    stackZSize = voxels.getSizeZ();
 
-    spatialFilterRadius = pSpatialFilterRadius < MIN_SPATIAL_FILTER_RADIUS ? MIN_SPATIAL_FILTER_RADIUS : pSpatialFilterRadius > MAX_SPATIAL_FILTER_RADIUS ? MAX_SPATIAL_FILTER_RADIUS : pSpatialFilterRadius;
+    double spatialFilterRadius = pSpatialFilterRadius < MIN_SPATIAL_FILTER_RADIUS ? MIN_SPATIAL_FILTER_RADIUS : pSpatialFilterRadius > MAX_SPATIAL_FILTER_RADIUS ? MAX_SPATIAL_FILTER_RADIUS : pSpatialFilterRadius;
 
     noiseFilterSize = filterKernel.getFilterSize(spatialFilterRadius, 1);
 
@@ -77,6 +60,31 @@ public class ImageStackSampler {
     initFilter(spatialFilterRadius, noiseFilterSize, filter);
   }
 
+  private static VoxelGrid loadImages(String pInputfilename, int pSlices, int inputSequenceStep, int pDownsample, List<PreFilter> pPreFilterList) throws Exception {
+    List<PreFilter> preFilterList = pPreFilterList != null ? pPreFilterList : Collections.<PreFilter> emptyList();
+    int downsample = pDownsample >= 1 ? pDownsample : 1;
+    VoxelGrid res = null;
+    try {
+      for (int i = 1; i <= pSlices; i += inputSequenceStep) {
+        SimpleImage image = new ImageReader().loadImage(String.format(pInputfilename, i));
+        if (res == null) {
+          res = new VoxelGrid(image.getImageWidth() / downsample, image.getImageHeight() / downsample);
+        }
+        res.addSlice(image, preFilterList, downsample);
+      }
+      if (res == null) {
+        throw new Exception("An image sequence has to contain at least one image");
+      }
+      return res;
+    }
+    catch (Exception ex) {
+      if (res != null) {
+        res.close();
+      }
+      throw ex;
+    }
+  }
+
   public int getIntensity(Point3f pPoint) {
     return getIntensity((int) pPoint.x, (int) pPoint.y, (int) pPoint.z);
   }
@@ -133,53 +141,7 @@ public class ImageStackSampler {
   private int getIntensityInternal(int pX, int pY, int pZ) {
     if (pX < 0 || pX >= stackXSize || pY < 0 || pY >= stackYSize || pZ < 0 || pZ >= stackZSize)
       return 0;
-    SimpleImage img = images.get(pZ);
-    if (img == null) {
-      String filename = String.format(inputfilename, imagesIndex.get(pZ));
-      try {
-        SimpleImage loadedImage = new ImageReader().loadImage(filename);
-        for (PreFilter filter : preFilterList) {
-          filter.apply(loadedImage);
-        }
-        if (downsample > 1) {
-          double square = downsample * downsample;
-          img = new SimpleImage(loadedImage.getImageWidth() / downsample, loadedImage.getImageHeight() / downsample);
-          for (int i = 0; i < img.getImageHeight(); i++) {
-            for (int j = 0; j < img.getImageWidth(); j++) {
-              long sum = 0;
-              for (int ii = 0; ii < downsample; ii++) {
-                for (int jj = 0; jj < downsample; jj++) {
-                  sum += loadedImage.getRValue(j * downsample + jj, i * downsample + ii);
-                }
-              }
-              int value = (int) (sum / square + 0.5);
-              img.setRGB(j, i, value, value, value);
-            }
-          }
-        }
-        else {
-          img = loadedImage;
-        }
-      }
-      catch (Exception ex) {
-        throw new RuntimeException(ex);
-      }
-      images.set(pZ, img);
-      int imgCount = 1;
-      for (int i = pZ - 1; i >= 0; i--) {
-        if (images.get(i) != null) {
-          imgCount++;
-          if (imgCount >= MAX_IMAGES_IN_CACHE) {
-            images.set(i, null);
-            imgCount--;
-          }
-        }
-        else {
-          break;
-        }
-      }
-    }
-    return img.getRValue(pX, pY);
+    return voxels.getValue(pX, pY, pZ);
   }
 
   public int getStackXSize() {
@@ -194,4 +156,13 @@ public class ImageStackSampler {
     return stackZSize;
   }
 
+  public void dispose() {
+    try {
+      voxels.close();
+    }
+    catch (IOException ex) {
+      ex.printStackTrace();
+    }
+  }
+
 }
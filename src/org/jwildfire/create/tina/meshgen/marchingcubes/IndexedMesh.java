@@ -0,0 +1,75 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.meshgen.marchingcubes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// mesh stored in primitive arrays (3 floats per vertex/normal, 3 vertex indices per face)
+public class IndexedMesh {
+  private final float[] vertices;
+  private final float[] normals;
+  private final int vertexCount;
+  private final int[] faces;
+  private final int faceCount;
+
+  public IndexedMesh(float[] pVertices, float[] pNormals, int pVertexCount, int[] pFaces, int pFaceCount) {
+    vertices = pVertices;
+    normals = pNormals;
+    vertexCount = pVertexCount;
+    faces = pFaces;
+    faceCount = pFaceCount;
+  }
+
+  public float[] getVertices() {
+    return vertices;
+  }
+
+  // may be null
+  public float[] getNormals() {
+    return normals;
+  }
+
+  public int getVertexCount() {
+    return vertexCount;
+  }
+
+  public int[] getFaces() {
+    return faces;
+  }
+
+  public int getFaceCount() {
+    return faceCount;
+  }
+
+  public Mesh toMesh() {
+    List<Point3f> points = new ArrayList<Point3f>(vertexCount);
+    List<Point3f> vertexNormals = normals != null ? new ArrayList<Point3f>(vertexCount) : null;
+    for (int i = 0; i < vertexCount; i++) {
+      points.add(new Point3f(vertices[3 * i], vertices[3 * i + 1], vertices[3 * i + 2]));
+      if (vertexNormals != null) {
+        vertexNormals.add(new Point3f(normals[3 * i], normals[3 * i + 1], normals[3 * i + 2]));
+      }
+    }
+    List<Face> faceList = new ArrayList<Face>(faceCount);
+    for (int i = 0; i < faceCount; i++) {
+      faceList.add(new Face(faces[3 * i], faces[3 * i + 1], faces[3 * i + 2]));
+    }
+    return new Mesh(points, vertexNormals, faceList);
+  }
+
+}
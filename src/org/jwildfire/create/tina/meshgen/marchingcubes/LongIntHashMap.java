@@ -0,0 +1,108 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.meshgen.marchingcubes;
+
+import java.util.Arrays;
+
+// open-addressing map from (non-negative) long keys to int values, used to share the vertices of the marching cubes
+public class LongIntHashMap {
+  private static final long EMPTY = -1L;
+  private static final int MIN_CAPACITY = 1024;
+
+  private long[] keys;
+  private int[] values;
+  private int mask;
+  private int shift;
+  private int size;
+
+  public LongIntHashMap(int pExpectedSize) {
+    allocate(capacityFor(pExpectedSize));
+  }
+
+  private int capacityFor(int pSize) {
+    int capacity = MIN_CAPACITY;
+    while (capacity < 2 * pSize) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  private void allocate(int pCapacity) {
+    keys = new long[pCapacity];
+    Arrays.fill(keys, EMPTY);
+    values = new int[pCapacity];
+    mask = pCapacity - 1;
+    shift = 64 - Integer.numberOfTrailingZeros(pCapacity);
+    size = 0;
+  }
+
+  private int slot(long pKey) {
+    return (int) ((pKey * 0x9E3779B97F4A7C15L) >>> shift);
+  }
+
+  // returns the value of the given key or -1 if the key is not contained
+  public int get(long pKey) {
+    int idx = slot(pKey);
+    while (true) {
+      long key = keys[idx];
+      if (key == pKey) {
+        return values[idx];
+      }
+      else if (key == EMPTY) {
+        return -1;
+      }
+      idx = (idx + 1) & mask;
+    }
+  }
+
+  public void put(long pKey, int pValue) {
+    if (2 * (size + 1) > keys.length) {
+      rehash();
+    }
+    int idx = slot(pKey);
+    while (true) {
+      long key = keys[idx];
+      if (key == pKey) {
+        values[idx] = pValue;
+        return;
+      }
+      else if (key == EMPTY) {
+        keys[idx] = pKey;
+        values[idx] = pValue;
+        size++;
+        return;
+      }
+      idx = (idx + 1) & mask;
+    }
+  }
+
+  private void rehash() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(oldKeys.length * 2);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        put(oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+}
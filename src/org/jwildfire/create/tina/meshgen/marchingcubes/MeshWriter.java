@@ -17,46 +17,174 @@
 package org.jwildfire.create.tina.meshgen.marchingcubes;
 
 import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.PrintStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
 
 import org.jwildfire.base.Tools;
 
 public class MeshWriter {
-  public static void saveMesh(Mesh pMesh, String pOutFilename) {
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final Charset ASCII = Charset.forName("US-ASCII");
+
+  // the format (Wavefront OBJ, binary PLY or binary STL) is chosen by the extension of the file name
+  public static void saveMesh(IndexedMesh pMesh, String pOutFilename) {
+    String filename = pOutFilename.toLowerCase();
     try {
-      PrintStream ps = new PrintStream(pOutFilename);
-      try {
-        BufferedOutputStream buffOut = new BufferedOutputStream(ps, 32000);
-        try {
-          ps.println("# " + new File(pOutFilename).getName() + ", generated by " + Tools.APP_TITLE + " " + Tools.APP_VERSION);
-          for (Point3f point : pMesh.getVertices()) {
-            ps.println("v " + point.x + " " + point.y + " " + point.z);
-          }
-          if (pMesh.getVertexNormals() != null) {
-            for (Point3f point : pMesh.getVertexNormals()) {
-              ps.println("vn " + point.x + " " + point.y + " " + point.z);
-            }
-          }
-
-          ps.println("s 1");
-
-          for (Face face : pMesh.getFaces()) {
-            ps.println("f " + (face.a + 1) + " " + (face.b + 1) + " " + (face.c + 1));
-          }
+      if (filename.endsWith("." + Tools.FILEEXT_PLY)) {
+        savePLY(pMesh, pOutFilename);
+      }
+      else if (filename.endsWith("." + Tools.FILEEXT_STL)) {
+        saveSTL(pMesh, pOutFilename);
+      }
+      else {
+        saveOBJ(pMesh, pOutFilename);
+      }
+    }
+    catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  private static String getComment(String pOutFilename) {
+    return new File(pOutFilename).getName() + ", generated by " + Tools.APP_TITLE + " " + Tools.APP_VERSION;
+  }
 
+  public static void saveOBJ(IndexedMesh pMesh, String pOutFilename) throws IOException {
+    Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(pOutFilename), ASCII), BUFFER_SIZE);
+    try {
+      float[] vertices = pMesh.getVertices();
+      float[] normals = pMesh.getNormals();
+      int[] faces = pMesh.getFaces();
+      out.write("# " + getComment(pOutFilename) + "\n");
+      for (int i = 0; i < 3 * pMesh.getVertexCount(); i += 3) {
+        writeOBJLine(out, "v ", vertices[i], vertices[i + 1], vertices[i + 2]);
+      }
+      if (normals != null) {
+        for (int i = 0; i < 3 * pMesh.getVertexCount(); i += 3) {
+          writeOBJLine(out, "vn ", normals[i], normals[i + 1], normals[i + 2]);
         }
-        finally {
-          buffOut.flush();
-          buffOut.close();
+      }
+      out.write("s 1\n");
+      for (int i = 0; i < 3 * pMesh.getFaceCount(); i += 3) {
+        out.write("f ");
+        out.write(Integer.toString(faces[i] + 1));
+        out.write(' ');
+        out.write(Integer.toString(faces[i + 1] + 1));
+        out.write(' ');
+        out.write(Integer.toString(faces[i + 2] + 1));
+        out.write('\n');
+      }
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  private static void writeOBJLine(Writer pOut, String pPrefix, float pX, float pY, float pZ) throws IOException {
+    pOut.write(pPrefix);
+    pOut.write(Float.toString(pX));
+    pOut.write(' ');
+    pOut.write(Float.toString(pY));
+    pOut.write(' ');
+    pOut.write(Float.toString(pZ));
+    pOut.write('\n');
+  }
+
+  public static void savePLY(IndexedMesh pMesh, String pOutFilename) throws IOException {
+    OutputStream out = new BufferedOutputStream(new FileOutputStream(pOutFilename), BUFFER_SIZE);
+    try {
+      float[] vertices = pMesh.getVertices();
+      float[] normals = pMesh.getNormals();
+      int[] faces = pMesh.getFaces();
+      StringBuilder header = new StringBuilder();
+      header.append("ply\n");
+      header.append("format binary_little_endian 1.0\n");
+      header.append("comment ").append(getComment(pOutFilename)).append("\n");
+      header.append("element vertex ").append(pMesh.getVertexCount()).append("\n");
+      header.append("property float x\nproperty float y\nproperty float z\n");
+      if (normals != null) {
+        header.append("property float nx\nproperty float ny\nproperty float nz\n");
+      }
+      header.append("element face ").append(pMesh.getFaceCount()).append("\n");
+      header.append("property list uchar int vertex_indices\n");
+      header.append("end_header\n");
+      out.write(header.toString().getBytes(ASCII));
+
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      int vertexSize = normals != null ? 24 : 12;
+      for (int i = 0; i < 3 * pMesh.getVertexCount(); i += 3) {
+        if (buffer.remaining() < vertexSize) {
+          flush(buffer, out);
+        }
+        buffer.putFloat(vertices[i]).putFloat(vertices[i + 1]).putFloat(vertices[i + 2]);
+        if (normals != null) {
+          buffer.putFloat(normals[i]).putFloat(normals[i + 1]).putFloat(normals[i + 2]);
         }
       }
-      finally {
-        ps.close();
+      for (int i = 0; i < 3 * pMesh.getFaceCount(); i += 3) {
+        if (buffer.remaining() < 13) {
+          flush(buffer, out);
+        }
+        buffer.put((byte) 3).putInt(faces[i]).putInt(faces[i + 1]).putInt(faces[i + 2]);
       }
+      flush(buffer, out);
     }
-    catch (Exception ex) {
-      throw new RuntimeException(ex);
+    finally {
+      out.close();
+    }
+  }
+
+  public static void saveSTL(IndexedMesh pMesh, String pOutFilename) throws IOException {
+    OutputStream out = new BufferedOutputStream(new FileOutputStream(pOutFilename), BUFFER_SIZE);
+    try {
+      float[] vertices = pMesh.getVertices();
+      int[] faces = pMesh.getFaces();
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      byte[] header = new byte[80];
+      byte[] comment = getComment(pOutFilename).getBytes(ASCII);
+      System.arraycopy(comment, 0, header, 0, Math.min(comment.length, header.length));
+      buffer.put(header);
+      buffer.putInt(pMesh.getFaceCount());
+      for (int i = 0; i < 3 * pMesh.getFaceCount(); i += 3) {
+        if (buffer.remaining() < 50) {
+          flush(buffer, out);
+        }
+        int a = 3 * faces[i], b = 3 * faces[i + 1], c = 3 * faces[i + 2];
+        float ux = vertices[b] - vertices[a], uy = vertices[b + 1] - vertices[a + 1], uz = vertices[b + 2] - vertices[a + 2];
+        float vx = vertices[c] - vertices[a], vy = vertices[c + 1] - vertices[a + 1], vz = vertices[c + 2] - vertices[a + 2];
+        float nx = uy * vz - uz * vy;
+        float ny = uz * vx - ux * vz;
+        float nz = ux * vy - uy * vx;
+        float r = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (r > 0.0f) {
+          nx /= r;
+          ny /= r;
+          nz /= r;
+        }
+        buffer.putFloat(nx).putFloat(ny).putFloat(nz);
+        buffer.putFloat(vertices[a]).putFloat(vertices[a + 1]).putFloat(vertices[a + 2]);
+        buffer.putFloat(vertices[b]).putFloat(vertices[b + 1]).putFloat(vertices[b + 2]);
+        buffer.putFloat(vertices[c]).putFloat(vertices[c + 1]).putFloat(vertices[c + 2]);
+        buffer.putShort((short) 0);
+      }
+      flush(buffer, out);
     }
+    finally {
+      out.close();
+    }
+  }
+
+  private static void flush(ByteBuffer pBuffer, OutputStream pOut) throws IOException {
+    pOut.write(pBuffer.array(), 0, pBuffer.position());
+    pBuffer.clear();
   }
+
 }
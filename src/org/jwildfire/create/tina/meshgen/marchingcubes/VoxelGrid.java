@@ -0,0 +1,137 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.meshgen.marchingcubes;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jwildfire.create.tina.meshgen.filter.PreFilter;
+import org.jwildfire.image.SimpleImage;
+
+// Stack of slices with one byte (intensity) per voxel. The slices are appended in z-order and are stored in a
+// temporary file which is memory-mapped in slabs of several slices, so the size of the grid is not limited by the heap.
+// Slices may only be added by one thread, reading is thread-safe after all slices were added.
+public class VoxelGrid implements Closeable {
+  private static final long MAX_SLAB_SIZE = 64L * 1024L * 1024L;
+
+  private final int sizeX;
+  private final int sizeY;
+  private final int sliceSize;
+  private final int slicesPerSlab;
+  private final File file;
+  private final RandomAccessFile randomAccessFile;
+  private final FileChannel channel;
+  private MappedByteBuffer[] slabs = new MappedByteBuffer[0];
+  private int sizeZ;
+
+  public VoxelGrid(int pSizeX, int pSizeY) throws IOException {
+    if (pSizeX < 1 || pSizeY < 1) {
+      throw new IllegalArgumentException(pSizeX + "x" + pSizeY);
+    }
+    sizeX = pSizeX;
+    sizeY = pSizeY;
+    sliceSize = pSizeX * pSizeY;
+    slicesPerSlab = (int) Math.max(1L, MAX_SLAB_SIZE / sliceSize);
+    file = File.createTempFile("jwf_voxels", ".tmp");
+    file.deleteOnExit();
+    randomAccessFile = new RandomAccessFile(file, "rw");
+    channel = randomAccessFile.getChannel();
+  }
+
+  public void addSlice(byte[] pValues) throws IOException {
+    if (pValues.length != sliceSize) {
+      throw new IllegalArgumentException("Invalid slice size " + pValues.length);
+    }
+    int slab = sizeZ / slicesPerSlab;
+    if (slab >= slabs.length) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, (long) slab * slicesPerSlab * sliceSize, (long) slicesPerSlab * sliceSize);
+      slabs = Arrays.copyOf(slabs, slab + 1);
+      slabs[slab] = buffer;
+    }
+    MappedByteBuffer buffer = slabs[slab];
+    buffer.position((sizeZ % slicesPerSlab) * sliceSize);
+    buffer.put(pValues);
+    sizeZ++;
+  }
+
+  // adds the red channel of the image as slice, after applying the pre-filters and reducing the size by the
+  // given factor
+  public void addSlice(SimpleImage pImage, List<PreFilter> pPreFilterList, int pDownsample) throws IOException {
+    for (PreFilter filter : pPreFilterList) {
+      filter.apply(pImage);
+    }
+    byte[] values = new byte[sliceSize];
+    if (pDownsample > 1) {
+      double square = pDownsample * pDownsample;
+      for (int i = 0; i < sizeY; i++) {
+        for (int j = 0; j < sizeX; j++) {
+          long sum = 0;
+          for (int ii = 0; ii < pDownsample; ii++) {
+            for (int jj = 0; jj < pDownsample; jj++) {
+              sum += pImage.getRValue(j * pDownsample + jj, i * pDownsample + ii);
+            }
+          }
+          values[i * sizeX + j] = (byte) (int) (sum / square + 0.5);
+        }
+      }
+    }
+    else {
+      for (int i = 0; i < sizeY; i++) {
+        for (int j = 0; j < sizeX; j++) {
+          values[i * sizeX + j] = (byte) pImage.getRValue(j, i);
+        }
+      }
+    }
+    addSlice(values);
+  }
+
+  public int getValue(int pX, int pY, int pZ) {
+    return slabs[pZ / slicesPerSlab].get((pZ % slicesPerSlab) * sliceSize + pY * sizeX + pX) & 0xff;
+  }
+
+  public int getSizeX() {
+    return sizeX;
+  }
+
+  public int getSizeY() {
+    return sizeY;
+  }
+
+  public int getSizeZ() {
+    return sizeZ;
+  }
+
+  @Override
+  public void close() throws IOException {
+    slabs = new MappedByteBuffer[0];
+    try {
+      channel.close();
+      randomAccessFile.close();
+    }
+    finally {
+      // may fail while the mapped buffers were not garbage collected yet, the file is then removed at exit
+      file.delete();
+    }
+  }
+
+}
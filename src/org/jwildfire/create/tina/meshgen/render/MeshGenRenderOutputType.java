@@ -17,5 +17,7 @@
 package org.jwildfire.create.tina.meshgen.render;
 
 public enum MeshGenRenderOutputType {
-  VOXELSTACK
+  VOXELSTACK,
+  // the slices are passed to the mesh generation in memory, without writing images
+  MESH
 }
@@ -23,6 +23,7 @@ import org.jwildfire.create.tina.render.FlameRenderer;
 import org.jwildfire.create.tina.render.ProgressUpdater;
 import org.jwildfire.create.tina.render.RenderInfo;
 import org.jwildfire.create.tina.render.RenderMode;
+import org.jwildfire.create.tina.render.SliceObserver;
 import org.jwildfire.create.tina.render.SliceRenderInfo;
 
 public class RenderSlicesThread extends MeshGenRenderThread {
@@ -31,6 +32,7 @@ public class RenderSlicesThread extends MeshGenRenderThread {
   private int slicesCount, slicesPerRender;
   private final double thicknessMod;
   private final int thicknessSamples;
+  private final SliceObserver sliceObserver;
 
   public RenderSlicesThread(Prefs pPrefs, Flame pFlame, String pOutFilePattern, MeshGenGenerateThreadFinishEvent pFinishEvent, ProgressUpdater pProgressUpdater, int pRenderWidth, int pRenderHeight, int pSlicesCount, int pSlicesPerRender, int pQuality,
       double pZMin, double pZMax, double pThicknessMod, int pThicknessSamples) {
@@ -40,6 +42,19 @@ public class RenderSlicesThread extends MeshGenRenderThread {
     slicesPerRender = pSlicesPerRender;
     thicknessMod = pThicknessMod;
     thicknessSamples = pThicknessSamples;
+    sliceObserver = null;
+  }
+
+  // passes the rendered slices to the observer instead of saving them as images
+  public RenderSlicesThread(Prefs pPrefs, Flame pFlame, SliceObserver pSliceObserver, MeshGenGenerateThreadFinishEvent pFinishEvent, ProgressUpdater pProgressUpdater, int pRenderWidth, int pRenderHeight, int pSlicesCount, int pSlicesPerRender, int pQuality,
+      double pZMin, double pZMax, double pThicknessMod, int pThicknessSamples) {
+    super(pPrefs, pFlame, null, pFinishEvent, pProgressUpdater, pRenderWidth, pRenderHeight, pQuality,
+        pZMin, pZMax);
+    slicesCount = pSlicesCount;
+    slicesPerRender = pSlicesPerRender;
+    thicknessMod = pThicknessMod;
+    thicknessSamples = pThicknessSamples;
+    sliceObserver = pSliceObserver;
   }
 
   @Override
@@ -62,7 +77,12 @@ public class RenderSlicesThread extends MeshGenRenderThread {
     renderer.setProgressUpdater(progressUpdater);
     SliceRenderInfo renderInfo = new SliceRenderInfo(renderWidth, renderHeight, RenderMode.PRODUCTION, slicesCount, zmin, zmax, slicesPerRender);
 
-    renderer.renderSlices(renderInfo, outFilePattern, thicknessMod, thicknessSamples);
+    if (sliceObserver != null) {
+      renderer.renderSlices(renderInfo, sliceObserver, thicknessMod, thicknessSamples);
+    }
+    else {
+      renderer.renderSlices(renderInfo, outFilePattern, thicknessMod, thicknessSamples);
+    }
   }
 
 }
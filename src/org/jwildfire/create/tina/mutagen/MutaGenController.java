@@ -31,6 +31,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.swing.AbstractAction;
@@ -52,11 +53,6 @@ import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.base.Layer;
 import org.jwildfire.create.tina.io.FlameReader;
 import org.jwildfire.create.tina.io.FlameWriter;
-import org.jwildfire.create.tina.randomflame.RandomFlameGeneratorSampler;
-import org.jwildfire.create.tina.render.FlameRenderer;
-import org.jwildfire.create.tina.render.RenderInfo;
-import org.jwildfire.create.tina.render.RenderMode;
-import org.jwildfire.create.tina.render.RenderedFlame;
 import org.jwildfire.create.tina.swing.FlameFileChooser;
 import org.jwildfire.create.tina.swing.JWFNumberField;
 import org.jwildfire.create.tina.swing.TinaController;
@@ -207,7 +203,11 @@ public class MutaGenController {
   }
 
   private Flame createWeightedFlame(Flame pBaseFlame, Flame pFlame) {
-    double amount = (Double) amountREd.getValue();
+    return createWeightedFlame(pBaseFlame, pFlame, (Double) amountREd.getValue());
+  }
+
+  private Flame createWeightedFlame(Flame pBaseFlame, Flame pFlame, double pAmount) {
+    double amount = pAmount;
     if (amount < EPSILON) {
       return pBaseFlame.makeCopy();
     }
@@ -221,92 +221,6 @@ public class MutaGenController {
     }
   }
 
-  private SimpleImage renderFlame(Flame pFlame, Dimension pImgSize, boolean pWithTimeout) {
-    int pImageWidth = pImgSize.width, pImageHeight = pImgSize.height;
-    SimpleImage img;
-    if (pFlame != null && pImageWidth > 16 && pImageHeight > 16) {
-      return img = executeRenderThread(pFlame, pImageWidth, pImageHeight, pWithTimeout);
-    }
-    else {
-      img = new SimpleImage(pImageWidth, pImageHeight);
-    }
-    return img;
-  }
-
-  private class RenderThread implements Runnable {
-    private boolean done;
-    private final Flame flame;
-    private final int imageWidth;
-    private final int imageHeight;
-    private SimpleImage renderResult;
-    private FlameRenderer renderer;
-
-    public RenderThread(Flame pFlame, int pImageWidth, int pImageHeight) {
-      this.flame = pFlame;
-      this.imageWidth = pImageWidth;
-      this.imageHeight = pImageHeight;
-    }
-
-    @Override
-    public void run() {
-      done = false;
-      try {
-        RenderInfo info = new RenderInfo(imageWidth, imageHeight, RenderMode.PREVIEW);
-        double wScl = (double) info.getImageWidth() / (double) flame.getWidth();
-        double hScl = (double) info.getImageHeight() / (double) flame.getHeight();
-        flame.setPixelsPerUnit((wScl + hScl) * 0.5 * flame.getPixelsPerUnit());
-        flame.setWidth(imageWidth);
-        flame.setHeight(imageHeight);
-        flame.setSampleDensity(20.0);
-        renderer = new FlameRenderer(flame, prefs, false, false);
-        RenderedFlame res = renderer.renderFlame(info);
-        renderResult = res.getImage();
-      }
-      finally {
-        done = true;
-      }
-    }
-
-    public boolean isDone() {
-      return done;
-    }
-
-    public SimpleImage getRenderResult() {
-      return renderResult;
-    }
-
-    public void forceAbort() {
-      if (renderer != null) {
-        renderer.signalCancel();
-      }
-    }
-
-  }
-
-  private SimpleImage executeRenderThread(Flame pFlame, int pImageWidth, int pImageHeight, boolean pWithTimeout) {
-    Flame flame = pFlame.makeCopy();
-    flame.applyFastOversamplingSettings();
-
-    RenderThread thread = new RenderThread(flame, pImageWidth, pImageHeight);
-    long tMax = 600;
-    long t0 = System.currentTimeMillis();
-    new Thread(thread).start();
-    while (!thread.isDone()) {
-      try {
-        Thread.sleep(1);
-      }
-      catch (InterruptedException ex) {
-        throw new RuntimeException(ex);
-      }
-      long t1 = System.currentTimeMillis();
-      if (pWithTimeout && (t1 - t0 > tMax)) {
-        thread.forceAbort();
-        return null;
-      }
-    }
-    return thread.getRenderResult();
-  }
-
   private void createImagePanels() {
     if (imagePanels == null) {
       try {
@@ -498,97 +412,32 @@ public class MutaGenController {
         MutationSet selectedSet = mutationList.get(selectedGenerationIdx);
         final int rows = MUTA_ROWS;
         final int cols = MUTA_COLS;
-        Flame baseFlame = selectedSet.getFlame(pRow, pCol);
-        baseFlame = createWeightedFlame(selectedSet.getBaseFlame(), baseFlame);
+        final double amount = (Double) amountREd.getValue();
+        final Flame baseFlame = createWeightedFlame(selectedSet.getBaseFlame(), selectedSet.getFlame(pRow, pCol), amount);
+        final boolean doMorph = fabs(amount - 1.0) > EPSILON;
+        final MutationType horizType1 = (MutationType) horizontalTrend1Cmb.getSelectedItem();
+        final MutationType horizType2 = (MutationType) horizontalTrend2Cmb.getSelectedItem();
+        final MutationType vertType1 = (MutationType) verticalTrend1Cmb.getSelectedItem();
+        final MutationType vertType2 = (MutationType) verticalTrend2Cmb.getSelectedItem();
 
-        boolean doMorph = fabs((Double) amountREd.getValue() - 1.0) > EPSILON;
+        MutationGridRenderer renderer = new MutationGridRenderer(prefs, rows, cols, probeSize, renderSize, new MutationGridRenderer.CellMutator() {
 
-        List<Flame> mutations = new ArrayList<Flame>();
-        initProgress(rows, cols);
-        int centreX = rows / 2;
-        int centreY = cols / 2;
-
-        SimpleImage baseFlameImg = renderFlame(baseFlame.makeCopy(), probeSize, false);
-        SimpleImage simplifiedBaseFlameImg = RandomFlameGeneratorSampler.createSimplifiedRefImage(baseFlameImg);
-
-        int step = 0;
-        for (int i = 0; i < rows; i++) {
-          for (int j = 0; j < cols; j++) {
-            // Let centre flame untouched
-            SimpleImage renderedImg = null;
-            if ((i != centreX || j != centreY)) {
-              int x = (i - centreX);
-              int y = (j - centreY);
-              final int MAX_ITER = 10;
-              final double MIN_RENDER_COVERAGE = 0.36;
-              final double MIN_DIFF_COVERAGE = 0.22;
-              final double INVALID_COVERAGE = -1.0;
-              int iter = 0;
-              double bestCoverage = INVALID_COVERAGE;
-              Flame bestMutation = null;
-              while (true) {
-                Flame currMutation = baseFlame.makeCopy();
-                List<MutationType> mutationTypes = createMutationTypes(x, y);
-                modifyFlame(currMutation, x, y, mutationTypes);
-                renderedImg = renderFlame(currMutation.makeCopy(), probeSize, true);
-                double coverage = renderedImg != null ? RandomFlameGeneratorSampler.calculateCoverage(renderedImg, 0, 0, 0, true) : INVALID_COVERAGE;
-                if (coverage > MIN_RENDER_COVERAGE) {
-                  coverage = RandomFlameGeneratorSampler.calculateDiffCoverage(renderedImg, simplifiedBaseFlameImg);
-                }
-                if (coverage > MIN_DIFF_COVERAGE) {
-                  mutations.add(currMutation);
-                  if (doMorph) {
-                    Flame morphed = createWeightedFlame(baseFlame, currMutation);
-                    renderedImg = renderFlame(morphed, renderSize, false);
-                  }
-                  else {
-                    renderedImg = renderFlame(currMutation, renderSize, false);
-                  }
-                  break;
-                }
-                else if (coverage > bestCoverage) {
-                  bestCoverage = coverage;
-                  bestMutation = currMutation;
-                }
-                // Don't count invalid mutations
-                if (renderedImg != null) {
-                  iter++;
-                }
-                if (iter >= MAX_ITER) {
-                  mutations.add(bestMutation);
-                  if (doMorph) {
-                    Flame morphed = createWeightedFlame(baseFlame, bestMutation);
-                    renderedImg = renderFlame(morphed, renderSize, false);
-                  }
-                  else {
-                    renderedImg = renderFlame(bestMutation, renderSize, false);
-                  }
-                  break;
-                }
-              }
-            }
-            else {
-              mutations.add(baseFlame.makeCopy());
-              renderedImg = renderFlame(baseFlame.makeCopy(), renderSize, false);
-            }
-
-            ImagePanel pnl = imagePanels[i][j];
-            pnl.setImage(renderedImg);
-            showProgress(++step);
+          @Override
+          public Flame createMutation(Flame pBaseFlame, int pX, int pY) {
+            List<MutationType> mutationTypes = createMutationTypes(pX, pY, horizType1, horizType2, vertType1, vertType2);
+            modifyFlame(pBaseFlame, pX, pY, mutationTypes);
+            return pBaseFlame;
+          }
 
-            try {
-              pnl.invalidate();
-              Graphics g = pnl.getGraphics();
-              if (g != null) {
-                pnl.paint(g);
-              }
-            }
-            catch (Throwable ex) {
-              ex.printStackTrace();
-            }
+          @Override
+          public Flame createDisplayFlame(Flame pMutation) {
+            return doMorph ? createWeightedFlame(baseFlame, pMutation, amount) : pMutation;
           }
-        }
-        MutationSet newSet = new MutationSet(rows, cols, baseFlame, mutations);
+
+        });
+        renderer.startMutation(baseFlame);
+        Flame mutations[] = drawCells(renderer, rows, cols);
+        MutationSet newSet = new MutationSet(rows, cols, baseFlame, Arrays.asList(mutations));
         mutationList.add(newSet);
         selectedGenerationIdx = mutationList.size() - 1;
         enableControls();
@@ -600,47 +449,82 @@ public class MutaGenController {
     }
   }
 
-  private List<MutationType> createMutationTypes(int pX, int pY) {
-    MutationType horizType1 = (MutationType) horizontalTrend1Cmb.getSelectedItem();
-    MutationType horizType2 = (MutationType) horizontalTrend2Cmb.getSelectedItem();
-    MutationType vertType1 = (MutationType) verticalTrend1Cmb.getSelectedItem();
-    MutationType vertType2 = (MutationType) verticalTrend2Cmb.getSelectedItem();
+  // displays the cells in the order of their completion and returns the flames of all cells (in the order of the rows)
+  private Flame[] drawCells(MutationGridRenderer pRenderer, int pRows, int pCols) throws Throwable {
+    Flame flames[] = new Flame[pRows * pCols];
+    Throwable error = null;
+    initProgress(pRows, pCols);
+    try {
+      for (int step = 1; step <= pRows * pCols; step++) {
+        MutationGridRenderer.Cell cell = pRenderer.takeFinishedCell();
+        if (cell.getError() != null) {
+          if (error == null) {
+            error = cell.getError();
+            pRenderer.cancel();
+          }
+          continue;
+        }
+        flames[cell.getRow() * pCols + cell.getCol()] = cell.getFlame();
+        ImagePanel pnl = imagePanels[cell.getRow()][cell.getCol()];
+        pnl.setImage(cell.getImage());
+        showProgress(step);
+        try {
+          pnl.invalidate();
+          Graphics g = pnl.getGraphics();
+          if (g != null) {
+            pnl.paint(g);
+          }
+        }
+        catch (Throwable ex) {
+          ex.printStackTrace();
+        }
+      }
+    }
+    finally {
+      pRenderer.dispose();
+    }
+    if (error != null) {
+      throw error;
+    }
+    return flames;
+  }
 
+  private List<MutationType> createMutationTypes(int pX, int pY, MutationType pHorizType1, MutationType pHorizType2, MutationType pVertType1, MutationType pVertType2) {
     List<MutationType> mutations = new ArrayList<MutationType>();
     if (Math.random() < 0.5) {
       if (pX == 1 || pX == -1) {
-        mutations.add(horizType1);
+        mutations.add(pHorizType1);
       }
       if (pY == 1 || pY == -1) {
-        mutations.add(vertType1);
+        mutations.add(pVertType1);
       }
     }
     else {
       if (pY == 1 || pY == -1) {
-        mutations.add(vertType1);
+        mutations.add(pVertType1);
       }
       if (pX == 1 || pX == -1) {
-        mutations.add(horizType1);
+        mutations.add(pHorizType1);
       }
     }
     if (Math.random() > 0.5) {
       if (pX == 2 || pX == -2) {
-        mutations.add(horizType1);
-        mutations.add(horizType2);
+        mutations.add(pHorizType1);
+        mutations.add(pHorizType2);
       }
       if (pY == 2 || pY == -2) {
-        mutations.add(vertType1);
-        mutations.add(vertType2);
+        mutations.add(pVertType1);
+        mutations.add(pVertType2);
       }
     }
     else {
       if (pY == 2 || pY == -2) {
-        mutations.add(vertType1);
-        mutations.add(vertType2);
+        mutations.add(pVertType1);
+        mutations.add(pVertType2);
       }
       if (pX == 2 || pX == -2) {
-        mutations.add(horizType1);
-        mutations.add(horizType2);
+        mutations.add(pHorizType1);
+        mutations.add(pHorizType2);
       }
     }
     return mutations;
@@ -734,31 +618,36 @@ public class MutaGenController {
   }
 
   public void drawSelectedSet() {
-    Dimension imgSize = calcImageSize();
-    MutationSet selectedSet = mutationList.get(selectedGenerationIdx);
-    int rows = selectedSet.getRows();
-    int cols = selectedSet.getCols();
-    initProgress(rows, cols);
-    int step = 0;
-    for (int i = 0; i < rows; i++) {
-      for (int j = 0; j < cols; j++) {
-        Flame mutation = selectedSet.getFlame(i, j).makeCopy();
-        Flame morphed = createWeightedFlame(selectedSet.getBaseFlame(), mutation);
-        SimpleImage renderedImg = renderFlame(morphed, imgSize, false);
-        ImagePanel pnl = imagePanels[i][j];
-        pnl.setImage(renderedImg);
-        showProgress(++step);
-        pnl.invalidate();
-        try {
-          Graphics g = pnl.getGraphics();
-          if (g != null) {
-            pnl.paint(g);
-          }
-        }
-        catch (Throwable ex) {
-          ex.printStackTrace();
+    try {
+      Dimension imgSize = calcImageSize();
+      final MutationSet selectedSet = mutationList.get(selectedGenerationIdx);
+      int rows = selectedSet.getRows();
+      int cols = selectedSet.getCols();
+      final double amount = (Double) amountREd.getValue();
+      List<Flame> mutations = new ArrayList<Flame>();
+      for (int i = 0; i < rows; i++) {
+        for (int j = 0; j < cols; j++) {
+          mutations.add(selectedSet.getFlame(i, j));
         }
       }
+      MutationGridRenderer renderer = new MutationGridRenderer(prefs, rows, cols, imgSize, imgSize, new MutationGridRenderer.CellMutator() {
+
+        @Override
+        public Flame createMutation(Flame pBaseFlame, int pX, int pY) {
+          throw new IllegalStateException();
+        }
+
+        @Override
+        public Flame createDisplayFlame(Flame pMutation) {
+          return createWeightedFlame(selectedSet.getBaseFlame(), pMutation, amount);
+        }
+
+      });
+      renderer.startRendering(mutations);
+      drawCells(renderer, rows, cols);
+    }
+    catch (Throwable ex) {
+      errorHandler.handleError(ex);
     }
     enableControls();
   }
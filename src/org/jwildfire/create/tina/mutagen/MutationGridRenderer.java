@@ -0,0 +1,303 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.mutagen;
+
+import java.awt.Dimension;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.randomflame.RandomFlameGeneratorSampler;
+import org.jwildfire.create.tina.render.FlameRenderer;
+import org.jwildfire.create.tina.render.RasterStatistics;
+import org.jwildfire.create.tina.render.RenderInfo;
+import org.jwildfire.create.tina.render.RenderMode;
+import org.jwildfire.image.SimpleImage;
+
+// Renders the cells of a mutation grid concurrently. All renders (the small probes which are used to judge the mutations as
+// well as the final images) share one pool of threads, and each render uses only one thread. A probe is cancelled when it
+// takes too long, or when a cheap pre-render shows that (nearly) nothing of the flame is visible. The finished cells are
+// delivered in the order of their completion.
+public class MutationGridRenderer {
+  private static final int MAX_ITER = 10;
+  // mutations whose probes were cancelled are not counted, but the number of tries is limited anyway
+  private static final int MAX_TRIES = 3 * MAX_ITER;
+  private static final double MIN_RENDER_COVERAGE = 0.36;
+  private static final double MIN_DIFF_COVERAGE = 0.22;
+  private static final double INVALID_COVERAGE = -1.0;
+  // timeout of a probe which is rendered with all threads, a probe with one of n threads gets n times as long
+  private static final long PROBE_TIMEOUT = 600;
+  private static final double SAMPLE_DENSITY = 20.0;
+  private static final double PROBE_PRE_SAMPLE_DENSITY = SAMPLE_DENSITY / 8.0;
+  private static final double MIN_PROBE_HIT_RATE = 0.01;
+  private static final int MIN_IMAGE_SIZE = 16;
+
+  public static abstract class CellMutator {
+    // creates a mutation of the base flame, pX and pY are the offsets of the cell from the centre of the grid
+    public abstract Flame createMutation(Flame pBaseFlame, int pX, int pY);
+
+    // the flame which is displayed for the given mutation
+    public abstract Flame createDisplayFlame(Flame pMutation);
+  }
+
+  public static class Cell {
+    private final int row, col;
+    private final Flame flame;
+    private final SimpleImage image;
+    private final Throwable error;
+
+    public Cell(int pRow, int pCol, Flame pFlame, SimpleImage pImage, Throwable pError) {
+      row = pRow;
+      col = pCol;
+      flame = pFlame;
+      image = pImage;
+      error = pError;
+    }
+
+    public int getRow() {
+      return row;
+    }
+
+    public int getCol() {
+      return col;
+    }
+
+    public Flame getFlame() {
+      return flame;
+    }
+
+    public SimpleImage getImage() {
+      return image;
+    }
+
+    public Throwable getError() {
+      return error;
+    }
+  }
+
+  private final Prefs prefs;
+  private final int rows, cols;
+  private final Dimension probeSize;
+  private final Dimension renderSize;
+  private final CellMutator mutator;
+  private final BlockingQueue<Cell> finishedCells = new LinkedBlockingQueue<Cell>();
+  private ExecutorService executor;
+  private ScheduledExecutorService timeoutScheduler;
+  private long probeTimeout;
+  private volatile boolean cancelled;
+
+  public MutationGridRenderer(Prefs pPrefs, int pRows, int pCols, Dimension pProbeSize, Dimension pRenderSize, CellMutator pMutator) {
+    prefs = pPrefs;
+    rows = pRows;
+    cols = pCols;
+    probeSize = pProbeSize;
+    renderSize = pRenderSize;
+    mutator = pMutator;
+  }
+
+  // creates and renders the mutations of the base flame, the base flame itself is displayed in the centre
+  public void startMutation(final Flame pBaseFlame) {
+    start();
+    final SimpleImage simplifiedBaseFlameImg;
+    {
+      // the probe of the base flame is rendered only once and shared by all cells
+      SimpleImage baseFlameImg = renderProbe(pBaseFlame.makeCopy());
+      simplifiedBaseFlameImg = RandomFlameGeneratorSampler.createSimplifiedRefImage(baseFlameImg != null ? baseFlameImg : new SimpleImage(probeSize.width, probeSize.height));
+    }
+    final int centreX = rows / 2;
+    final int centreY = cols / 2;
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < cols; j++) {
+        final int row = i, col = j;
+        executor.execute(new CellTask(row, col) {
+
+          @Override
+          public Cell renderCell() {
+            if (row == centreX && col == centreY) {
+              Flame flame = pBaseFlame.makeCopy();
+              return new Cell(row, col, flame, render(flame.makeCopy(), renderSize), null);
+            }
+            Flame mutation = findMutation(pBaseFlame, row - centreX, col - centreY, simplifiedBaseFlameImg);
+            return new Cell(row, col, mutation, render(mutator.createDisplayFlame(mutation), renderSize), null);
+          }
+
+        });
+      }
+    }
+    executor.shutdown();
+  }
+
+  // renders the given mutations (in the order of the rows of the grid)
+  public void startRendering(List<Flame> pMutations) {
+    start();
+    for (int i = 0; i < rows; i++) {
+      for (int j = 0; j < cols; j++) {
+        final int row = i, col = j;
+        final Flame mutation = pMutations.get(i * cols + j);
+        executor.execute(new CellTask(row, col) {
+
+          @Override
+          public Cell renderCell() {
+            return new Cell(row, col, mutation, render(mutator.createDisplayFlame(mutation.makeCopy()), renderSize), null);
+          }
+
+        });
+      }
+    }
+    executor.shutdown();
+  }
+
+  private void start() {
+    int threadCount = Math.max(1, prefs.getTinaRenderThreads());
+    executor = Executors.newFixedThreadPool(threadCount);
+    probeTimeout = PROBE_TIMEOUT * threadCount;
+    timeoutScheduler = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  private abstract class CellTask implements Runnable {
+    private final int row, col;
+
+    public CellTask(int pRow, int pCol) {
+      row = pRow;
+      col = pCol;
+    }
+
+    protected abstract Cell renderCell();
+
+    @Override
+    public void run() {
+      Cell cell;
+      try {
+        cell = cancelled ? new Cell(row, col, null, null, null) : renderCell();
+      }
+      catch (Throwable ex) {
+        cell = new Cell(row, col, null, null, ex);
+      }
+      finishedCells.add(cell);
+    }
+  }
+
+  // waits for the next finished cell, all rows * cols cells are delivered (also after cancel())
+  public Cell takeFinishedCell() throws InterruptedException {
+    return finishedCells.take();
+  }
+
+  public void cancel() {
+    cancelled = true;
+  }
+
+  // must be called after all cells were taken
+  public void dispose() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    if (timeoutScheduler != null) {
+      timeoutScheduler.shutdownNow();
+    }
+  }
+
+  private Flame findMutation(Flame pBaseFlame, int pX, int pY, SimpleImage pSimplifiedBaseFlameImg) {
+    int iter = 0;
+    double bestCoverage = INVALID_COVERAGE;
+    Flame bestMutation = null;
+    for (int tries = 0; tries < MAX_TRIES && iter < MAX_ITER && !cancelled; tries++) {
+      Flame currMutation = mutator.createMutation(pBaseFlame.makeCopy(), pX, pY);
+      SimpleImage renderedImg = renderProbe(currMutation.makeCopy());
+      double coverage = renderedImg != null ? RandomFlameGeneratorSampler.calculateCoverage(renderedImg, 0, 0, 0, true) : INVALID_COVERAGE;
+      if (coverage > MIN_RENDER_COVERAGE) {
+        coverage = RandomFlameGeneratorSampler.calculateDiffCoverage(renderedImg, pSimplifiedBaseFlameImg);
+      }
+      if (coverage > MIN_DIFF_COVERAGE) {
+        return currMutation;
+      }
+      // Don't count invalid mutations, and never keep one of them, because it was not judged at all
+      if (renderedImg != null) {
+        if (coverage > bestCoverage || bestMutation == null) {
+          bestCoverage = coverage;
+          bestMutation = currMutation;
+        }
+        iter++;
+      }
+    }
+    return bestMutation != null ? bestMutation : pBaseFlame.makeCopy();
+  }
+
+  // renders a probe of the flame, returns null if the probe was cancelled
+  private SimpleImage renderProbe(Flame pFlame) {
+    if (pFlame == null || probeSize.width <= MIN_IMAGE_SIZE || probeSize.height <= MIN_IMAGE_SIZE) {
+      return null;
+    }
+    RenderInfo info = prepareFlame(pFlame, probeSize);
+    final FlameRenderer renderer = new FlameRenderer(pFlame, prefs, false, false);
+    renderer.setRenderThreadCount(1);
+    final AtomicBoolean timedOut = new AtomicBoolean();
+    ScheduledFuture<?> timeout = timeoutScheduler.schedule(new Runnable() {
+
+      @Override
+      public void run() {
+        timedOut.set(true);
+        renderer.signalCancel();
+      }
+
+    }, probeTimeout, TimeUnit.MILLISECONDS);
+    try {
+      RasterStatistics stats = renderer.sampleFlame(info, PROBE_PRE_SAMPLE_DENSITY);
+      if (stats.getHitRate() < MIN_PROBE_HIT_RATE || timedOut.get() || cancelled) {
+        return null;
+      }
+      renderer.sampleFlame(info, SAMPLE_DENSITY - PROBE_PRE_SAMPLE_DENSITY);
+      if (timedOut.get() || cancelled) {
+        return null;
+      }
+      return renderer.rerenderFlame(info).getImage();
+    }
+    finally {
+      timeout.cancel(false);
+    }
+  }
+
+  private SimpleImage render(Flame pFlame, Dimension pSize) {
+    if (pFlame == null || pSize.width <= MIN_IMAGE_SIZE || pSize.height <= MIN_IMAGE_SIZE) {
+      return new SimpleImage(pSize.width, pSize.height);
+    }
+    RenderInfo info = prepareFlame(pFlame, pSize);
+    FlameRenderer renderer = new FlameRenderer(pFlame, prefs, false, false);
+    renderer.setRenderThreadCount(1);
+    return renderer.renderFlame(info).getImage();
+  }
+
+  private RenderInfo prepareFlame(Flame pFlame, Dimension pSize) {
+    RenderInfo info = new RenderInfo(pSize.width, pSize.height, RenderMode.PREVIEW);
+    double wScl = (double) info.getImageWidth() / (double) pFlame.getWidth();
+    double hScl = (double) info.getImageHeight() / (double) pFlame.getHeight();
+    pFlame.setPixelsPerUnit((wScl + hScl) * 0.5 * pFlame.getPixelsPerUnit());
+    pFlame.setWidth(pSize.width);
+    pFlame.setHeight(pSize.height);
+    pFlame.setSampleDensity(SAMPLE_DENSITY);
+    pFlame.applyFastOversamplingSettings();
+    return info;
+  }
+
+}
@@ -25,8 +25,25 @@ public abstract class AbstractRandomGenerator {
 
   public abstract double random();
 
+  // fills the buffer with the next random numbers, generators should override this with a tight loop
+  public void nextDoubles(double[] pBuffer, int pOffset, int pLength) {
+    for (int i = pOffset, end = pOffset + pLength; i < end; i++) {
+      pBuffer[i] = random();
+    }
+  }
+
+  public void nextDoubles(double[] pBuffer) {
+    nextDoubles(pBuffer, 0, pBuffer.length);
+  }
+
   public abstract void randomize(long pSeed);
 
+  // seeds a stream of a RandomStreamProvider, generators which use only a part of the seed in randomize() should use
+  // all 64 bits here
+  public void randomizeStream(long pSeed) {
+    randomize(pSeed);
+  }
+
   public abstract void cleanup();
 
 }
@@ -0,0 +1,84 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.random;
+
+// Takes the random numbers of another generator blockwise from a buffer, the sequence is the same as of the
+// wrapped generator. Used by the render threads, so the generators can fill the buffer in a tight loop.
+public final class BufferedRandomGenerator extends AbstractRandomGenerator {
+  public static final int DEFAULT_BUFFER_SIZE = 256;
+
+  private final AbstractRandomGenerator generator;
+  private final double buffer[];
+  private int bufferIdx;
+
+  public BufferedRandomGenerator(AbstractRandomGenerator pGenerator, int pBufferSize) {
+    generator = pGenerator;
+    buffer = new double[pBufferSize];
+    bufferIdx = pBufferSize;
+  }
+
+  public BufferedRandomGenerator(AbstractRandomGenerator pGenerator) {
+    this(pGenerator, DEFAULT_BUFFER_SIZE);
+  }
+
+  @Override
+  public double random() {
+    if (bufferIdx >= buffer.length) {
+      generator.nextDoubles(buffer, 0, buffer.length);
+      bufferIdx = 0;
+    }
+    return buffer[bufferIdx++];
+  }
+
+  @Override
+  public void nextDoubles(double[] pBuffer, int pOffset, int pLength) {
+    int offset = pOffset;
+    int length = pLength;
+    while (length > 0) {
+      if (bufferIdx >= buffer.length) {
+        generator.nextDoubles(buffer, 0, buffer.length);
+        bufferIdx = 0;
+      }
+      int n = Math.min(length, buffer.length - bufferIdx);
+      System.arraycopy(buffer, bufferIdx, pBuffer, offset, n);
+      bufferIdx += n;
+      offset += n;
+      length -= n;
+    }
+  }
+
+  @Override
+  public void randomize(long pSeed) {
+    generator.randomize(pSeed);
+    bufferIdx = buffer.length;
+  }
+
+  @Override
+  public void randomizeStream(long pSeed) {
+    generator.randomizeStream(pSeed);
+    bufferIdx = buffer.length;
+  }
+
+  @Override
+  public void cleanup() {
+    generator.cleanup();
+  }
+
+  public AbstractRandomGenerator getGenerator() {
+    return generator;
+  }
+}
@@ -30,6 +30,18 @@ public class MarsagliaRandomGenerator extends AbstractRandomGenerator {
     v = (int) (pSeed << 16) >> 16;
   }
 
+  @Override
+  public void randomizeStream(long pSeed) {
+    u = (int) pSeed;
+    v = (int) (pSeed >>> 32);
+    if (u == 0) {
+      u = 12244355;
+    }
+    if (v == 0) {
+      v = 34384;
+    }
+  }
+
   @Override
   public double random() {
     v = 36969 * (v & 65535) + (v >> 16);
@@ -39,6 +51,21 @@ public class MarsagliaRandomGenerator extends AbstractRandomGenerator {
     return res < 0 ? -res : res;
   }
 
+  @Override
+  public void nextDoubles(double[] pBuffer, int pOffset, int pLength) {
+    int lu = u;
+    int lv = v;
+    for (int i = pOffset, end = pOffset + pLength; i < end; i++) {
+      lv = 36969 * (lv & 65535) + (lv >> 16);
+      lu = 18000 * (lu & 65535) + (lu >> 16);
+      int rnd = (lv << 16) + lu;
+      double res = (double) rnd * RAND_MAX_MUL;
+      pBuffer[i] = res < 0 ? -res : res;
+    }
+    u = lu;
+    v = lv;
+  }
+
   @Override
   public void cleanup() {
     // empty
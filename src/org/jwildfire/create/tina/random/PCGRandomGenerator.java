@@ -0,0 +1,61 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.random;
+
+// PCG32 (XSH-RR) generator of Melissa O'Neill, http://www.pcg-random.org/
+public class PCGRandomGenerator extends AbstractRandomGenerator {
+  private static final long MULTIPLIER = 6364136223846793005L;
+  private static final long INCREMENT = 1442695040888963407L;
+  private static final double INT_UNIT = 1.0 / (1L << 32);
+
+  private long state = 0x853c49e6748fea9bL;
+
+  @Override
+  public void randomize(long pSeed) {
+    state = 0;
+    state = state * MULTIPLIER + INCREMENT;
+    state += pSeed;
+    state = state * MULTIPLIER + INCREMENT;
+  }
+
+  @Override
+  public double random() {
+    long oldState = state;
+    state = oldState * MULTIPLIER + INCREMENT;
+    int xorShifted = (int) (((oldState >>> 18) ^ oldState) >>> 27);
+    int rot = (int) (oldState >>> 59);
+    return (Integer.rotateRight(xorShifted, rot) & 0xffffffffL) * INT_UNIT;
+  }
+
+  @Override
+  public void nextDoubles(double[] pBuffer, int pOffset, int pLength) {
+    long s = state;
+    for (int i = pOffset, end = pOffset + pLength; i < end; i++) {
+      long oldState = s;
+      s = oldState * MULTIPLIER + INCREMENT;
+      int xorShifted = (int) (((oldState >>> 18) ^ oldState) >>> 27);
+      int rot = (int) (oldState >>> 59);
+      pBuffer[i] = (Integer.rotateRight(xorShifted, rot) & 0xffffffffL) * INT_UNIT;
+    }
+    state = s;
+  }
+
+  @Override
+  public void cleanup() {
+    // empty
+  }
+}
@@ -24,7 +24,7 @@ import org.jwildfire.base.Prefs;
 public class RandomGeneratorFactory {
   private static Map<String, AbstractRandomGenerator> generatorMap = new HashMap<String, AbstractRandomGenerator>();
 
-  public static AbstractRandomGenerator getInstance(Prefs pPrefs, RandomGeneratorType pType, int pThreadId) {
+  public static synchronized AbstractRandomGenerator getInstance(Prefs pPrefs, RandomGeneratorType pType, int pThreadId) {
     String key = pType.toString() + "#" + pThreadId;
     AbstractRandomGenerator res = generatorMap.get(key);
     if (res == null) {
@@ -40,7 +40,7 @@ public class RandomGeneratorFactory {
     return getInstance(pPrefs, pType, 0);
   }
 
-  public static void cleanup() {
+  public static synchronized void cleanup() {
     for (AbstractRandomGenerator gen : generatorMap.values()) {
       try {
         gen.cleanup();
@@ -59,6 +59,22 @@ public enum RandomGeneratorType {
       return JavaInternalRandomGenerator.class;
     }
 
+  },
+  XORSHIFT {
+
+    @Override
+    protected Class<? extends AbstractRandomGenerator> getGeneratorClass(Prefs pPrefs) {
+      return XorShiftRandomGenerator.class;
+    }
+
+  },
+  PCG {
+
+    @Override
+    protected Class<? extends AbstractRandomGenerator> getGeneratorClass(Prefs pPrefs) {
+      return PCGRandomGenerator.class;
+    }
+
   };
 
   protected abstract Class<? extends AbstractRandomGenerator> getGeneratorClass(Prefs pPrefs);
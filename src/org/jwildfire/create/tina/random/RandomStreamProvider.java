@@ -0,0 +1,71 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.random;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jwildfire.base.Prefs;
+
+// Provides independent random streams for one render (one stream per render thread), all derived from a single seed.
+// Renders with the same seed and the same number of threads get the same random sequences in every thread, no matter
+// what else is rendered at the same time.
+public class RandomStreamProvider {
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  private static final AtomicLong seedUniquifier = new AtomicLong(System.nanoTime());
+
+  private final Prefs prefs;
+  private final RandomGeneratorType type;
+  private final long seed;
+
+  public RandomStreamProvider(Prefs pPrefs, RandomGeneratorType pType, long pSeed) {
+    prefs = pPrefs;
+    type = pType;
+    seed = pSeed;
+  }
+
+  public RandomStreamProvider(Prefs pPrefs, RandomGeneratorType pType) {
+    this(pPrefs, pType, createSeed());
+  }
+
+  public static long createSeed() {
+    return mix(seedUniquifier.addAndGet(GOLDEN_GAMMA) ^ System.nanoTime());
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public RandomGeneratorType getType() {
+    return type;
+  }
+
+  // creates a new generator for the given stream, every call with the same stream id returns the same sequence
+  public AbstractRandomGenerator createStream(int pStreamId) {
+    AbstractRandomGenerator res = type.createInstance(prefs);
+    res.randomizeStream(mix(seed + GOLDEN_GAMMA * (pStreamId + 1L)));
+    return res;
+  }
+
+  // finalizer of the SplitMix64 generator, maps consecutive values to well distributed seeds
+  private static long mix(long pValue) {
+    long z = pValue;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+}
@@ -18,7 +18,7 @@ package org.jwildfire.create.tina.random;
 
 public class SimpleRandomGenerator extends AbstractRandomGenerator {
 
-  private static int a = 1;
+  private int a = 1;
 
   private static final int RAND_MAX123 = 0x7fffffff;
 
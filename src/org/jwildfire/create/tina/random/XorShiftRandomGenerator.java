@@ -0,0 +1,74 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.random;
+
+// xoroshiro128+ generator of David Blackman and Sebastiano Vigna, http://xoroshiro.di.unimi.it/
+public class XorShiftRandomGenerator extends AbstractRandomGenerator {
+  private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+  private long s0 = 0x9e3779b97f4a7c15L;
+  private long s1 = 0xbf58476d1ce4e5b9L;
+
+  @Override
+  public void randomize(long pSeed) {
+    // the state is initialized by a SplitMix64 generator as recommended by the authors
+    long z = pSeed;
+    s0 = splitMix(z += 0x9e3779b97f4a7c15L);
+    s1 = splitMix(z += 0x9e3779b97f4a7c15L);
+    if (s0 == 0 && s1 == 0) {
+      s0 = 0x9e3779b97f4a7c15L;
+    }
+  }
+
+  private static long splitMix(long pValue) {
+    long z = pValue;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  @Override
+  public double random() {
+    long a = s0;
+    long b = s1;
+    long res = a + b;
+    b ^= a;
+    s0 = Long.rotateLeft(a, 55) ^ b ^ (b << 14);
+    s1 = Long.rotateLeft(b, 36);
+    return (res >>> 11) * DOUBLE_UNIT;
+  }
+
+  @Override
+  public void nextDoubles(double[] pBuffer, int pOffset, int pLength) {
+    long a = s0;
+    long b = s1;
+    for (int i = pOffset, end = pOffset + pLength; i < end; i++) {
+      long res = a + b;
+      b ^= a;
+      a = Long.rotateLeft(a, 55) ^ b ^ (b << 14);
+      b = Long.rotateLeft(b, 36);
+      pBuffer[i] = (res >>> 11) * DOUBLE_UNIT;
+    }
+    s0 = a;
+    s1 = b;
+  }
+
+  @Override
+  public void cleanup() {
+    // empty
+  }
+}
@@ -43,11 +43,29 @@ public class ZigguratRandom extends Random
 		return UNI();
 	}
 
+	public void nextDoubles(double[] buffer, int offset, int length) {
+		long jzr = jsr;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			long jz = jzr;
+			jzr ^= (jzr << 13);
+			jzr ^= (jzr >>> 17);
+			jzr ^= (jzr << 5);
+			buffer[i] = 0.5 * (1.0 + (double)(jz + jzr) / (double)Long.MIN_VALUE);
+		}
+		jsr = jzr;
+	}
+
 	public void setSeed(long seed) {
 		jsr ^= (int) seed;
 		super.setSeed(seed);
 	}
 
+	// sets the state independent of the previous state (unlike setSeed())
+	public void resetSeed(long seed) {
+		jsr = seed != 0 ? seed : 123456768;
+		super.setSeed(seed);
+	}
+
 	private long jsr = 123456768;
 
 	private static int[] kn;
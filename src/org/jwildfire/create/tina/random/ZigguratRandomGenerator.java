@@ -24,11 +24,21 @@ public class ZigguratRandomGenerator extends AbstractRandomGenerator {
     random.setSeed(pSeed);
   }
 
+  @Override
+  public void randomizeStream(long pSeed) {
+    random.resetSeed(pSeed);
+  }
+
   @Override
   public double random() {
     return random.nextDouble();
   }
 
+  @Override
+  public void nextDoubles(double[] pBuffer, int pOffset, int pLength) {
+    random.nextDoubles(pBuffer, pOffset, pLength);
+  }
+
   @Override
   public void cleanup() {
     // empty
@@ -0,0 +1,164 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.randomflame;
+
+import java.util.List;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.render.FlameRenderer;
+import org.jwildfire.create.tina.render.RasterStatistics;
+import org.jwildfire.create.tina.render.RenderInfo;
+import org.jwildfire.image.SimpleImage;
+
+// A random flame which is judged by the raster statistics of a cheap render (without tonemapping). The flame is rendered with a
+// small part of the samples first, and only completed if it may reach the required score.
+public class RandomFlameCandidate implements Runnable {
+  public static final double SAMPLE_DENSITY = 25.0;
+  private static final double EARLY_SAMPLE_DENSITY = SAMPLE_DENSITY / 8.0;
+  // candidates whose early score is below this part of the required score are rejected (the score of the early render is
+  // usually about 50-70% of the final score)
+  private static final double EARLY_REJECT_RATIO = 0.4;
+  // candidates are rejected if (nearly) all samples escape the image or are invalid
+  private static final double MIN_HIT_RATE = 0.01;
+  // The required coverage of a RandomBatchQuality was calibrated for the edge-filtered image coverage. It is mapped to a score
+  // which accepts about the same share of random flames (measured on 1300 flames of the "All" generator at 80x60 pixels).
+  private static final double[] CALIBRATED_COVERAGE = { 0.0, 0.08, 0.16, 0.24, 0.32, 0.40, 0.48, 0.56, 0.64, 0.72, 0.80, 1.0 };
+  private static final double[] CALIBRATED_SCORE = { 0.0, 0.10, 0.23, 0.34, 0.39, 0.47, 0.60, 0.66, 0.69, 0.78, 0.84, 1.0 };
+  // flames of generators which use the edge filter did (nearly) never reach a coverage above 0.48
+  private static final double[] CALIBRATED_ENTROPY_SCORE = { 0.0, 0.06, 0.15, 0.25, 0.32, 0.51, 0.81, 1.0, 1.0, 1.0, 1.0, 1.0 };
+
+  private final Flame flame;
+  private final Prefs prefs;
+  private final RenderInfo info;
+  private final boolean useEntropy;
+  private final double requiredScore;
+  private final List<RandomFlameCandidate> batch;
+  private volatile FlameRenderer renderer;
+  private volatile boolean cancelled;
+  private double score;
+  private boolean completed;
+
+  // pBatch are all candidates which are evaluated together, in the order of their creation. When this candidate is accepted,
+  // all candidates created after it are cancelled.
+  public RandomFlameCandidate(Flame pFlame, Prefs pPrefs, RenderInfo pInfo, boolean pUseEntropy, double pRequiredCoverage, List<RandomFlameCandidate> pBatch) {
+    flame = pFlame;
+    prefs = pPrefs;
+    info = pInfo;
+    useEntropy = pUseEntropy;
+    requiredScore = getRequiredScore(pRequiredCoverage, pUseEntropy);
+    batch = pBatch;
+  }
+
+  public static double getRequiredScore(double pCoverage, boolean pUseEntropy) {
+    double[] scores = pUseEntropy ? CALIBRATED_ENTROPY_SCORE : CALIBRATED_SCORE;
+    for (int i = 1; i < CALIBRATED_COVERAGE.length; i++) {
+      if (pCoverage <= CALIBRATED_COVERAGE[i]) {
+        double t = Math.max(0.0, (pCoverage - CALIBRATED_COVERAGE[i - 1]) / (CALIBRATED_COVERAGE[i] - CALIBRATED_COVERAGE[i - 1]));
+        return scores[i - 1] + t * (scores[i] - scores[i - 1]);
+      }
+    }
+    return scores[scores.length - 1];
+  }
+
+  @Override
+  public void run() {
+    if (cancelled) {
+      return;
+    }
+    flame.setSampleDensity(SAMPLE_DENSITY);
+    flame.applyFastOversamplingSettings();
+    try {
+      FlameRenderer newRenderer = new FlameRenderer(flame, prefs, false, true);
+      // the candidates are rendered in parallel, so each one uses only one thread
+      newRenderer.setRenderThreadCount(1);
+      renderer = newRenderer;
+      if (cancelled) {
+        return;
+      }
+      RasterStatistics stats = newRenderer.sampleFlame(info, EARLY_SAMPLE_DENSITY);
+      score = calculateScore(stats);
+      if (!cancelled && stats.getHitRate() >= MIN_HIT_RATE && score >= EARLY_REJECT_RATIO * requiredScore) {
+        complete();
+        if (!cancelled && isAccepted()) {
+          for (int i = batch.indexOf(this) + 1; i < batch.size(); i++) {
+            batch.get(i).cancel();
+          }
+        }
+      }
+    }
+    catch (Throwable ex) {
+      ex.printStackTrace();
+      renderer = null;
+      score = 0.0;
+      completed = true;
+    }
+    finally {
+      flame.applyDefaultOversamplingSettings();
+    }
+  }
+
+  private void complete() {
+    score = calculateScore(renderer.sampleFlame(info, SAMPLE_DENSITY - EARLY_SAMPLE_DENSITY));
+    completed = true;
+  }
+
+  // the covered part of the image, optionally weighted by the entropy of the brightness (which is low for flat areas)
+  private double calculateScore(RasterStatistics pStats) {
+    return useEntropy ? pStats.getCoverage() * pStats.getEntropy() : pStats.getCoverage();
+  }
+
+  public RandomFlameGeneratorSample createSample() {
+    flame.applyFastOversamplingSettings();
+    try {
+      if (renderer == null) {
+        renderer = new FlameRenderer(flame, prefs, false, true);
+        return new RandomFlameGeneratorSample(flame, renderer.renderFlame(info).getImage());
+      }
+      if (!completed) {
+        complete();
+      }
+      SimpleImage image = renderer.rerenderFlame(info).getImage();
+      return new RandomFlameGeneratorSample(flame, image);
+    }
+    finally {
+      flame.applyDefaultOversamplingSettings();
+    }
+  }
+
+  // stops the evaluation, the candidate is not accepted then
+  public void cancel() {
+    cancelled = true;
+    FlameRenderer currRenderer = renderer;
+    if (currRenderer != null) {
+      currRenderer.signalCancel();
+    }
+  }
+
+  public boolean isAccepted() {
+    return completed && !cancelled && score >= requiredScore;
+  }
+
+  public double getScore() {
+    return score;
+  }
+
+  public Flame getFlame() {
+    return flame;
+  }
+
+}
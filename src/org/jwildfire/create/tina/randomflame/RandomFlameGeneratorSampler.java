@@ -18,16 +18,18 @@ package org.jwildfire.create.tina.randomflame;
 
 import static org.jwildfire.base.mathlib.MathLib.fabs;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.jwildfire.base.Prefs;
 import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.base.Layer;
 import org.jwildfire.create.tina.palette.RGBPalette;
 import org.jwildfire.create.tina.randomgradient.RandomGradientGenerator;
 import org.jwildfire.create.tina.randomsymmetry.RandomSymmetryGenerator;
-import org.jwildfire.create.tina.render.FlameRenderer;
+import org.jwildfire.create.tina.render.RenderExecutor;
 import org.jwildfire.create.tina.render.RenderInfo;
 import org.jwildfire.create.tina.render.RenderMode;
-import org.jwildfire.create.tina.render.RenderedFlame;
 import org.jwildfire.create.tina.swing.RandomBatchQuality;
 import org.jwildfire.image.Pixel;
 import org.jwildfire.image.SimpleImage;
@@ -99,65 +101,57 @@ public class RandomFlameGeneratorSampler {
     return (double) coverage / (double) maxCoverage;
   }
 
+  // Creates up to quality.getMaxSamples() candidates and returns the first one which reaches the required coverage (or the best
+  // one). The candidates are evaluated in parallel, but always accepted in the order of their creation. Once a candidate is
+  // accepted, the evaluation of the candidates created after it is stopped.
   public RandomFlameGeneratorSample createSample() {
     RenderInfo info = new RenderInfo(imageWidth, imageHeight, RenderMode.PREVIEW);
-    Flame bestFlame = null;
-    int bgRed = prefs.getTinaRandomBatchBGColorRed();
-    int bgGreen = prefs.getTinaRandomBatchBGColorGreen();
-    int bgBlue = prefs.getTinaRandomBatchBGColorBlue();
     RandomFlameGeneratorState randGenState = randGen.initState(prefs, randGradientGen);
-    double bestCoverage = 0.0;
-    for (int j = 0; j < quality.getMaxSamples(); j++) {
-      // create flame
-      Flame flame;
-      try {
-        flame = randGen.createFlame(prefs, randGenState);
-        if (randGen.supportsSymmetry()) {
-          randSymmGen.addSymmetry(flame);
-        }
-      }
-      catch (Exception ex) {
-        flame = new Flame();
-        ex.printStackTrace();
+    int batchSize = Math.max(1, Runtime.getRuntime().availableProcessors());
+    RandomFlameCandidate bestCandidate = null;
+    int count = 0;
+    while (count < quality.getMaxSamples()) {
+      List<RandomFlameCandidate> candidates = new ArrayList<RandomFlameCandidate>();
+      for (int j = 0; j < batchSize && count < quality.getMaxSamples(); j++, count++) {
+        // the flames are created sequentially, because the generators are not thread-safe
+        Flame flame = createFlame(randGenState);
+        candidates.add(new RandomFlameCandidate(flame, prefs, info, randGen.isUseFilter(randGenState), quality.getCoverage(), candidates));
       }
-      flame.setWidth(imageWidth);
-      flame.setHeight(imageHeight);
-      flame.setPixelsPerUnit(10);
-      for (Layer layer : flame.getLayers()) {
-        RGBPalette palette = randGradientGen.generatePalette(paletteSize, fadePaletteColors);
-        layer.setPalette(palette);
-      }
-      flame = randGen.postProcessFlame(randGenState, flame);
-      // render it   
-      flame.setSampleDensity(25);
-      RenderedFlame renderedFlame;
-
-      flame.applyFastOversamplingSettings();
-      try {
-        FlameRenderer renderer = new FlameRenderer(flame, prefs, false, true);
-        renderedFlame = renderer.renderFlame(info);
-        if (j == quality.getMaxSamples() - 1) {
-          renderedFlame = new FlameRenderer(bestFlame, prefs, false, true).renderFlame(info);
-          return new RandomFlameGeneratorSample(bestFlame, renderedFlame.getImage());
+      RenderExecutor.runAndWait(candidates);
+      for (RandomFlameCandidate candidate : candidates) {
+        if (candidate.isAccepted()) {
+          return candidate.createSample();
         }
-        else {
-          double fCoverage = calculateCoverage(renderedFlame.getImage(), bgRed, bgGreen, bgBlue, randGen.isUseFilter(randGenState));
-          if (fCoverage >= quality.getCoverage()) {
-            return new RandomFlameGeneratorSample(flame, renderedFlame.getImage());
-          }
-          else {
-            if (bestFlame == null || fCoverage > bestCoverage) {
-              bestFlame = flame;
-              bestCoverage = fCoverage;
-            }
-          }
+        else if (bestCandidate == null || candidate.getScore() > bestCandidate.getScore()) {
+          bestCandidate = candidate;
         }
       }
-      finally {
-        flame.applyDefaultOversamplingSettings();
+    }
+    return bestCandidate.createSample();
+  }
+
+  private Flame createFlame(RandomFlameGeneratorState pRandGenState) {
+    Flame flame;
+    try {
+      flame = randGen.createFlame(prefs, pRandGenState);
+      if (randGen.supportsSymmetry()) {
+        randSymmGen.addSymmetry(flame);
       }
     }
-    throw new IllegalStateException();
+    catch (Exception ex) {
+      flame = new Flame();
+      ex.printStackTrace();
+    }
+    flame.setWidth(imageWidth);
+    flame.setHeight(imageHeight);
+    flame.setPixelsPerUnit(10);
+    for (Layer layer : flame.getLayers()) {
+      RGBPalette palette = randGradientGen.generatePalette(paletteSize, fadePaletteColors);
+      layer.setPalette(palette);
+    }
+    flame = randGen.postProcessFlame(pRandGenState, flame);
+    flame.setSampleDensity(RandomFlameCandidate.SAMPLE_DENSITY);
+    return flame;
   }
 
   public static SimpleImage createSimplifiedRefImage(SimpleImage pImg) {
@@ -22,8 +22,8 @@ import java.util.List;
 import org.jwildfire.base.Prefs;
 import org.jwildfire.create.tina.base.Flame;
 import org.jwildfire.create.tina.base.Layer;
+import org.jwildfire.create.tina.base.TransformationProfiler;
 import org.jwildfire.create.tina.random.AbstractRandomGenerator;
-import org.jwildfire.create.tina.random.RandomGeneratorFactory;
 import org.jwildfire.create.tina.variation.FlameTransformationContext;
 
 public abstract class AbstractRenderThread implements Runnable {
@@ -46,6 +46,8 @@ public abstract class AbstractRenderThread implements Runnable {
   protected AbstractRandomGenerator randGen;
   protected final int bgRed, bgGreen, bgBlue;
   protected final String bgImagefile;
+  private IterationProgressMonitor progressMonitor;
+  private long nextProgressNotification;
 
   public AbstractRenderThread(Prefs pPrefs, int pThreadId, int pThreadGroupSize, FlameRenderer pRenderer, List<RenderPacket> pRenderPackets, long pSamples, List<RenderSlice> pSlices, double pSliceThicknessMod, int pSliceThicknessSamples) {
     threadId = pThreadId;
@@ -53,7 +55,7 @@ public abstract class AbstractRenderThread implements Runnable {
     renderer = pRenderer;
     renderPackets = pRenderPackets;
     samples = pSamples;
-    randGen = RandomGeneratorFactory.getInstance(pPrefs, pPrefs.getTinaRandomNumberGenerator(), pThreadId);
+    randGen = pRenderer.createThreadRandomGenerator(pThreadId);
     slices = pSlices;
     sliceThicknessMod = pSliceThicknessMod;
     sliceThicknessSamples = pSliceThicknessSamples;
@@ -120,6 +122,9 @@ public abstract class AbstractRenderThread implements Runnable {
     }
     finally {
       finished = true;
+      if (progressMonitor != null) {
+        progressMonitor.notifyFinished();
+      }
     }
   }
 
@@ -127,6 +132,27 @@ public abstract class AbstractRenderThread implements Runnable {
     return currSample;
   }
 
+  protected void setCurrSample(long pCurrSample) {
+    currSample = pCurrSample;
+    if (progressMonitor != null && pCurrSample >= nextProgressNotification) {
+      nextProgressNotification = pCurrSample + progressMonitor.getNotificationStep();
+      progressMonitor.notifyProgress();
+    }
+  }
+
+  public TransformationProfiler getTransformationProfiler() {
+    return ctx.getTransformationProfiler();
+  }
+
+  public void setTransformationProfiler(TransformationProfiler pTransformationProfiler) {
+    ctx.setTransformationProfiler(pTransformationProfiler);
+  }
+
+  public void setProgressMonitor(IterationProgressMonitor pProgressMonitor) {
+    progressMonitor = pProgressMonitor;
+    nextProgressNotification = 0;
+  }
+
   public boolean isFinished() {
     return finished;
   }
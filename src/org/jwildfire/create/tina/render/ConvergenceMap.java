@@ -0,0 +1,168 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import java.util.Arrays;
+
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterPoint;
+
+// Per-tile noise estimate of a render, computed from the raster counts. The hits of a raster pixel are treated as
+// Poisson distributed, so the relative error of a pixel with c hits is 1 / sqrt(c). It is weighted by the brightness of
+// the pixel after the log-density mapping and the gamma correction (relative to the brightest pixel), because the noise
+// of dark pixels is less visible, while a high gamma makes it more visible. The noise of a tile is the RMS of the error
+// of its hit pixels and decreases with the square root of the number of samples. Tiles which were hit, but by fewer
+// samples than they have pixels, do not have a reliable estimate yet and are not converged.
+public class ConvergenceMap {
+  public static final int TILE_SIZE = 32;
+  // noise of a tile with too few hits, i.e. the relative error of a single hit
+  public static final double SPARSE_TILE_NOISE = 1.0;
+
+  private final int imageWidth;
+  private final int imageHeight;
+  private final int tileCountX;
+  private final int tileCountY;
+  private final double noiseTarget;
+  private final double gamma;
+  private final double[] noise;
+  private final double[] tileCounts;
+  private final int[] tileHitPixels;
+  private final int lightCount;
+  private long sampleCount;
+  private double maxNoise;
+
+  public ConvergenceMap(int pImageWidth, int pImageHeight, double pNoiseTarget, double pGamma, int pLightCount) {
+    imageWidth = pImageWidth;
+    imageHeight = pImageHeight;
+    tileCountX = (imageWidth + TILE_SIZE - 1) / TILE_SIZE;
+    tileCountY = (imageHeight + TILE_SIZE - 1) / TILE_SIZE;
+    noiseTarget = pNoiseTarget;
+    gamma = pGamma > 0.0 ? pGamma : 1.0;
+    noise = new double[tileCountX * tileCountY];
+    tileCounts = new double[noise.length];
+    tileHitPixels = new int[noise.length];
+    lightCount = pLightCount;
+  }
+
+  // reads the counts of the visible part of the raster, the render threads may keep on writing to it
+  public void update(AbstractRaster pRaster, int pBorderWidth, int pOversample, long pSampleCount) {
+    RasterPoint point = new RasterPoint(lightCount);
+    int x0 = pBorderWidth;
+    int y0 = pBorderWidth;
+    int x1 = x0 + imageWidth * pOversample;
+    int y1 = y0 + imageHeight * pOversample;
+    double countSum = 0.0;
+    double maxCount = 0.0;
+    long hitPixels = 0;
+    for (int y = y0; y < y1; y++) {
+      for (int x = x0; x < x1; x++) {
+        pRaster.readRasterPoint(x, y, point);
+        if (point.count > 0) {
+          countSum += point.count;
+          maxCount = Math.max(maxCount, point.count);
+          hitPixels++;
+        }
+      }
+    }
+    Arrays.fill(noise, 0.0);
+    Arrays.fill(tileCounts, 0.0);
+    Arrays.fill(tileHitPixels, 0);
+    if (hitPixels > 0) {
+      double meanCount = countSum / (double) hitPixels;
+      double maxBrightness = Math.log(1.0 + maxCount / meanCount);
+      for (int y = y0; y < y1; y++) {
+        int tileRow = ((y - y0) / pOversample / TILE_SIZE) * tileCountX;
+        for (int x = x0; x < x1; x++) {
+          pRaster.readRasterPoint(x, y, point);
+          if (point.count > 0) {
+            int tile = tileRow + (x - x0) / pOversample / TILE_SIZE;
+            double brightness = Math.pow(Math.log(1.0 + point.count / meanCount) / maxBrightness, 1.0 / gamma);
+            noise[tile] += brightness * brightness / point.count;
+            tileCounts[tile] += point.count;
+            tileHitPixels[tile]++;
+          }
+        }
+      }
+    }
+    maxNoise = 0.0;
+    for (int i = 0; i < noise.length; i++) {
+      int tileWidth = Math.min(TILE_SIZE, imageWidth - (i % tileCountX) * TILE_SIZE);
+      int tileHeight = Math.min(TILE_SIZE, imageHeight - (i / tileCountX) * TILE_SIZE);
+      if (tileHitPixels[i] == 0) {
+        noise[i] = 0.0;
+      }
+      else if (tileCounts[i] < tileWidth * tileHeight) {
+        noise[i] = SPARSE_TILE_NOISE;
+      }
+      else {
+        noise[i] = Math.sqrt(noise[i] / tileHitPixels[i]);
+      }
+      if (noise[i] > maxNoise) {
+        maxNoise = noise[i];
+      }
+    }
+    sampleCount = pSampleCount;
+  }
+
+  public boolean isConverged() {
+    return sampleCount > 0 && maxNoise <= noiseTarget;
+  }
+
+  // number of samples which are (assuming the noise decreases with 1/sqrt(samples)) required to reach the noise target
+  public long getEstimatedRequiredSamples() {
+    if (isConverged() || sampleCount == 0) {
+      return sampleCount;
+    }
+    double f = maxNoise / noiseTarget;
+    return (long) (sampleCount * f * f + 0.5);
+  }
+
+  public int getTileCountX() {
+    return tileCountX;
+  }
+
+  public int getTileCountY() {
+    return tileCountY;
+  }
+
+  public double getNoise(int pTileX, int pTileY) {
+    return noise[pTileY * tileCountX + pTileX];
+  }
+
+  // 1.0 if the tile has reached the noise target, otherwise the ratio of the samples done and the samples required
+  public double getConfidence(int pTileX, int pTileY) {
+    double n = getNoise(pTileX, pTileY);
+    if (n <= noiseTarget) {
+      return 1.0;
+    }
+    double f = noiseTarget / n;
+    return f * f;
+  }
+
+  public double getMaxNoise() {
+    return maxNoise;
+  }
+
+  public double getNoiseTarget() {
+    return noiseTarget;
+  }
+
+  public long getSampleCount() {
+    return sampleCount;
+  }
+
+}
@@ -64,10 +64,12 @@ public class DefaultRenderIterationState extends RenderIterationState {
   protected PointProjector projector;
   protected final ColorProvider colorProvider;
   protected final boolean solidRendering;
+  protected final XForm[] finalXForms;
 
   public DefaultRenderIterationState(AbstractRenderThread pRenderThread, FlameRenderer pRenderer, RenderPacket pPacket, Layer pLayer, FlameTransformationContext pCtx, AbstractRandomGenerator pRandGen) {
     super(pRenderThread, pRenderer, pPacket, pLayer, pCtx, pRandGen);
     solidRendering = flame.getSolidRenderSettings().isSolidRenderingEnabled();
+    finalXForms = pLayer.getFinalXForms().toArray(new XForm[pLayer.getFinalXForms().size()]);
     projector = new DefaultPointProjector();
     if (pLayer.getGradientMapFilename() != null && pLayer.getGradientMapFilename().length() > 0) {
       colorProvider = new GradientMapColorProvider(pLayer.getGradientMapFilename());
@@ -146,9 +148,8 @@ public class DefaultRenderIterationState extends RenderIterationState {
       return;
     else if ((xf.getDrawMode() == DrawMode.OPAQUE) && (randGen.random() > xf.getOpacity()))
       return;
-    List<XForm> finalXForms = layer.getFinalXForms();
-    if (finalXForms.size() > 0) {
-      applyFinalTransforms(finalXForms);
+    if (finalXForms.length > 0) {
+      applyFinalTransforms();
     }
     else {
       applyEmptyFinalTransform();
@@ -167,9 +168,8 @@ public class DefaultRenderIterationState extends RenderIterationState {
       return;
     else if ((xf.getDrawMode() == DrawMode.OPAQUE) && (randGen.random() > xf.getOpacity()))
       return;
-    List<XForm> finalXForms = layer.getFinalXForms();
-    if (finalXForms.size() > 0) {
-      applyFinalTransforms(finalXForms);
+    if (finalXForms.length > 0) {
+      applyFinalTransforms();
     }
     else {
       applyEmptyFinalTransform();
@@ -253,10 +253,10 @@ public class DefaultRenderIterationState extends RenderIterationState {
     q.assign(p);
   }
 
-  protected void applyFinalTransforms(List<XForm> finalXForms) {
-    finalXForms.get(0).transformPoint(ctx, affineT, varT, p, q);
-    for (int i = 1; i < finalXForms.size(); i++) {
-      finalXForms.get(i).transformPoint(ctx, affineT, varT, q, q);
+  protected void applyFinalTransforms() {
+    finalXForms[0].transformPoint(ctx, affineT, varT, p, q);
+    for (int i = 1; i < finalXForms.length; i++) {
+      finalXForms[i].transformPoint(ctx, affineT, varT, q, q);
     }
   }
 
@@ -92,7 +92,7 @@ public abstract class DefaultRenderThread extends AbstractRenderThread {
     try {
       for (iter = startIter; !forceAbort && (samples < 0 || iter < samples); iter += iterInc) {
         if (iter % 1000 == 0) {
-          currSample = iter;
+          setCurrSample(iter);
           for (DefaultRenderIterationState state : iterationState) {
             state.validateState();
           }
@@ -134,7 +134,7 @@ public abstract class DefaultRenderThread extends AbstractRenderThread {
         preFuseIter();
       }
       else if (iter % 10000 == 0) {
-        currSample = iter;
+        setCurrSample(iter);
         for (DefaultRenderIterationState state : iterationState) {
           state.validateState();
         }
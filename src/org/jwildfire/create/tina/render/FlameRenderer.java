@@ -17,14 +17,12 @@
 package org.jwildfire.create.tina.render;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jwildfire.base.Prefs;
 import org.jwildfire.base.QualityProfile;
@@ -35,9 +33,13 @@ import org.jwildfire.create.tina.base.Layer;
 import org.jwildfire.create.tina.base.Stereo3dColor;
 import org.jwildfire.create.tina.base.Stereo3dEye;
 import org.jwildfire.create.tina.base.Stereo3dMode;
+import org.jwildfire.create.tina.base.TransformationProfiler;
+import org.jwildfire.create.tina.base.XForm;
 import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterFloatIntMapped;
 import org.jwildfire.create.tina.random.AbstractRandomGenerator;
-import org.jwildfire.create.tina.random.RandomGeneratorFactory;
+import org.jwildfire.create.tina.random.BufferedRandomGenerator;
+import org.jwildfire.create.tina.random.RandomStreamProvider;
 import org.jwildfire.create.tina.render.image.AbstractImageRenderThread;
 import org.jwildfire.create.tina.render.image.PostFilterImageThread;
 import org.jwildfire.create.tina.render.image.RenderHDRImageThread;
@@ -62,6 +64,10 @@ import org.jwildfire.transform.ScaleTransformer;
 public class FlameRenderer {
   // constants
   private final static int MAX_FILTER_WIDTH = 25;
+  private final static int IMAGE_ROW_CHUNKS_PER_THREAD = 8;
+  // adaptive sampling: the convergence is checked after 1/8 of the requested samples, and then after every 1/16
+  private final static int ADAPTIVE_MIN_SAMPLES_DIVISOR = 8;
+  private final static int CONVERGENCE_CHECKS = 16;
   // init in initRaster
   protected int imageWidth;
   protected int imageHeight;
@@ -78,13 +84,14 @@ public class FlameRenderer {
   // init in initView
   private int renderScale = 1;
   protected AbstractRandomGenerator randGen;
+  private RandomStreamProvider randomStreams;
   //
   private ProgressUpdater progressUpdater;
   private int progressDisplayPhaseCount = 1;
   private int progressChangePerPhase = 0;
   private int progressDisplayPhase = 0;
   // 
-  protected final FlameTransformationContext flameTransformationContext;
+  protected FlameTransformationContext flameTransformationContext;
   private RenderInfo renderInfo;
 
   protected final Flame flame;
@@ -93,6 +100,11 @@ public class FlameRenderer {
 
   private List<IterationObserver> iterationObservers;
   private List<AbstractRenderThread> runningThreads;
+  private VariationProfile variationProfile;
+  private ConvergenceMap convergenceMap;
+  private long requestedSamples;
+  private int renderThreadCount;
+  private long renderedSamples;
   private boolean forceAbort;
   private Stereo3dEye eye = Stereo3dEye.UNSPECIFIED;
 
@@ -120,10 +132,28 @@ public class FlameRenderer {
     prefs = pPrefs;
     withAlpha = pWithAlpha;
     preview = pPreview;
-    randGen = RandomGeneratorFactory.getInstance(prefs, prefs.getTinaRandomNumberGenerator());
+    initRandomStreams(new RandomStreamProvider(prefs, prefs.getTinaRandomNumberGenerator()));
+  }
+
+  private void initRandomStreams(RandomStreamProvider pRandomStreams) {
+    randomStreams = pRandomStreams;
+    randGen = randomStreams.createStream(0);
     flameTransformationContext = new FlameTransformationContext(this, randGen, flame.getFrame());
-    flameTransformationContext.setPreserveZCoordinate(pFlame.isPreserveZ());
-    flameTransformationContext.setPreview(pPreview);
+    flameTransformationContext.setPreserveZCoordinate(flame.isPreserveZ());
+    flameTransformationContext.setPreview(preview);
+  }
+
+  // render with random sequences derived from the given seed (instead of a random seed), must be called before rendering
+  public void setRandomSeed(long pSeed) {
+    initRandomStreams(new RandomStreamProvider(prefs, prefs.getTinaRandomNumberGenerator(), pSeed));
+  }
+
+  public long getRandomSeed() {
+    return randomStreams.getSeed();
+  }
+
+  AbstractRandomGenerator createThreadRandomGenerator(int pThreadId) {
+    return new BufferedRandomGenerator(randomStreams.createStream(pThreadId + 1));
   }
 
   public void initRasterSizes(int pImageWidth, int pImageHeight) {
@@ -150,9 +180,22 @@ public class FlameRenderer {
 
   private void initRaster(int pImageWidth, int pImageHeight) {
     initRasterSizes(pImageWidth, pImageHeight);
+    releaseRaster();
     raster = allocRaster();
   }
 
+  // Called when the final image was created from the raster. Rasters which hold external resources (e.g. the
+  // temporary file of a mapped raster) give them back here, so renders in a loop do not pile them up.
+  private void releaseRaster() {
+    if (raster != null) {
+      raster.cleanupRaster();
+    }
+  }
+
+  private boolean isRasterReleased() {
+    return raster == null || (raster instanceof RasterFloatIntMapped && ((RasterFloatIntMapped) raster).isReleased());
+  }
+
   private AbstractRaster allocRaster() {
     Class<? extends AbstractRaster> rasterClass = prefs.getTinaRasterType().getRasterClass(flame);
     AbstractRaster raster;
@@ -189,6 +232,9 @@ public class FlameRenderer {
   }
 
   public RenderedFlame rerenderFlame(RenderInfo pRenderInfo) {
+    if (isRasterReleased()) {
+      return renderFlame(pRenderInfo);
+    }
     renderInfo = pRenderInfo;
     if (!Stereo3dMode.NONE.equals(flame.getStereo3dMode())) {
       return renderImageStereo3d(pRenderInfo);
@@ -196,11 +242,16 @@ public class FlameRenderer {
     else {
       RenderedFlame res = new RenderedFlame();
       res.init(pRenderInfo);
-      if ((flame.getSampleDensity() <= 10.0 && flame.getSpatialFilterRadius() <= MathLib.EPSILON) || renderScale > 1) {
-        renderImageSimple(res.getImage());
+      try {
+        if ((flame.getSampleDensity() <= 10.0 && flame.getSpatialFilterRadius() <= MathLib.EPSILON) || renderScale > 1) {
+          renderImageSimple(res.getImage());
+        }
+        else {
+          renderImage(res.getImage(), res.getHDRImage(), res.getHDRIntensityMap());
+        }
       }
-      else {
-        renderImage(res.getImage(), res.getHDRImage(), res.getHDRIntensityMap());
+      finally {
+        releaseRaster();
       }
       return res;
     }
@@ -208,6 +259,8 @@ public class FlameRenderer {
 
   public RenderedFlame renderFlame(RenderInfo pRenderInfo) {
     renderInfo = pRenderInfo;
+    variationProfile = pRenderInfo.isVariationProfiling() ? new VariationProfile() : null;
+    renderedSamples = 0;
     if (!Stereo3dMode.NONE.equals(flame.getStereo3dMode())) {
       return renderImageStereo3d(pRenderInfo);
     }
@@ -216,6 +269,35 @@ public class FlameRenderer {
     }
   }
 
+  // Iterates samples of the given density into the raster (without creating an image) and returns the statistics of all samples
+  // iterated so far. Further calls with the same render info continue the render, so a flame can be judged by a cheap render
+  // before spending more samples. The image may be created afterwards by rerenderFlame(), when the sample density of the flame
+  // is the total density of all calls.
+  public RasterStatistics sampleFlame(RenderInfo pRenderInfo, double pSampleDensity) {
+    if (raster == null || renderInfo != pRenderInfo) {
+      renderInfo = pRenderInfo;
+      variationProfile = null;
+      convergenceMap = null;
+      renderedSamples = 0;
+      initRaster(pRenderInfo.getImageWidth(), pRenderInfo.getImageHeight());
+    }
+    if (flame.isRenderable() && !forceAbort) {
+      double origSampleDensity = flame.getSampleDensity();
+      try {
+        flame.setSampleDensity(pSampleDensity);
+        List<List<RenderPacket>> renderFlames = new ArrayList<List<RenderPacket>>();
+        for (int t = 0; t < getRenderThreadCount(); t++) {
+          renderFlames.add(createRenderPackets(flame, flame.getFrame()));
+        }
+        iterate(0, 1, renderFlames, null, 1.0, 1);
+      }
+      finally {
+        flame.setSampleDensity(origSampleDensity);
+      }
+    }
+    return new RasterStatistics(raster, maxBorderWidth, oversample, imageWidth, imageHeight, flame.getActiveLightCount(), renderedSamples * flame.calcPostSymmetrySampleMultiplier());
+  }
+
   private RenderedFlame renderImageStereo3d(RenderInfo pRenderInfo) {
     Stereo3dEye storedEye = eye;
     double storedAngle = flame.getStereo3dAngle();
@@ -454,6 +536,7 @@ public class FlameRenderer {
     }
 
     double origZoom = flame.getCamZoom();
+    double origSampleDensity = flame.getSampleDensity();
     try {
       SimpleImage img = renderNormal ? res.getImage() : null;
       SimpleHDRImage hdrImg = renderHDR ? res.getHDRImage() : null;
@@ -471,12 +554,17 @@ public class FlameRenderer {
         throw new IllegalStateException();
       }
       List<List<RenderPacket>> renderFlames = new ArrayList<List<RenderPacket>>();
-      for (int t = 0; t < prefs.getTinaRenderThreads(); t++) {
+      for (int t = 0; t < getRenderThreadCount(); t++) {
         renderFlames.add(createRenderPackets(flame, flame.getFrame()));
       }
       forceAbort = false;
+      convergenceMap = renderInfo.getNoiseTarget() > 0.0 ? new ConvergenceMap(imageWidth, imageHeight, renderInfo.getNoiseTarget(), flame.getGamma(), flame.getActiveLightCount()) : null;
       iterate(0, 1, renderFlames, null, 1.0, 1);
       if (!forceAbort) {
+        if (convergenceMap != null && renderedSamples < requestedSamples) {
+          // the iteration was stopped early, the brightness must be calculated from the actual sample density
+          flame.setSampleDensity(origSampleDensity * (double) renderedSamples / (double) requestedSamples);
+        }
         if ((flame.getSampleDensity() <= 10.0 && flame.getSpatialFilterRadius() <= MathLib.EPSILON) || renderScale > 1) {
           renderImageSimple(img);
         }
@@ -487,7 +575,11 @@ public class FlameRenderer {
     }
     finally {
       flame.setCamZoom(origZoom);
+      flame.setSampleDensity(origSampleDensity);
+      releaseRaster();
     }
+    res.setVariationProfile(variationProfile);
+    res.setConvergenceMap(convergenceMap);
     return res;
   }
 
@@ -516,79 +608,48 @@ public class FlameRenderer {
     }
     renderHDRImage(pHDRImage);
     renderHDRIntensityMap(pHDRIntensityMap);
-    raster.cleanupRaster();
   }
 
   private void renderHDRIntensityMap(SimpleHDRImage pHDRIntensityMap) {
     if (pHDRIntensityMap != null) {
-      int threadCount = prefs.getTinaRenderThreads();
-      if (threadCount < 1 || pHDRIntensityMap.getImageHeight() < 8 * threadCount) {
-        threadCount = 1;
-      }
-      int rowsPerThread = pHDRIntensityMap.getImageHeight() / threadCount;
+      int threadCount = getImageThreadCount(pHDRIntensityMap.getImageHeight());
       List<RenderHDRIntensityMapThread> threads = new ArrayList<>();
       for (int i = 0; i < threadCount; i++) {
-        int startRow = i * rowsPerThread;
-        int endRow = i < threadCount - 1 ? startRow + rowsPerThread : pHDRIntensityMap.getImageHeight();
-        RenderHDRIntensityMapThread thread = new RenderHDRIntensityMapThread(flame, logDensityFilter, startRow, endRow, pHDRIntensityMap);
-        threads.add(thread);
-        if (threadCount > 1) {
-          new Thread(thread).start();
-        }
-        else {
-          thread.run();
-        }
+        threads.add(new RenderHDRIntensityMapThread(flame, logDensityFilter, 0, pHDRIntensityMap.getImageHeight(), pHDRIntensityMap));
       }
-      waitForThreads(threadCount, threads);
+      runImageThreads(threads, pHDRIntensityMap.getImageHeight());
     }
   }
 
-  private void waitForThreads(int threadCount, List<? extends AbstractImageRenderThread> threads) {
-    if (threadCount > 1) {
-      while (true) {
-        boolean ready = true;
-        for (AbstractImageRenderThread t : threads) {
-          if (!t.isDone()) {
-            ready = false;
-            break;
-          }
-        }
-        if (!ready) {
-          try {
-            Thread.sleep(1);
-          }
-          catch (InterruptedException e) {
-            e.printStackTrace();
-          }
-        }
-        else
-          break;
+  private int getImageThreadCount(int pImageHeight) {
+    int threadCount = getRenderThreadCount();
+    if (threadCount < 1 || pImageHeight < 8 * threadCount) {
+      threadCount = 1;
+    }
+    return threadCount;
+  }
+
+  private void runImageThreads(List<? extends AbstractImageRenderThread> pThreads, int pImageHeight) {
+    if (pThreads.size() > 1) {
+      // many small chunks of rows instead of one large block per thread, so that the threads finish at about the same time
+      int chunkSize = Math.max(1, pImageHeight / (pThreads.size() * IMAGE_ROW_CHUNKS_PER_THREAD));
+      AtomicInteger nextRow = new AtomicInteger(0);
+      for (AbstractImageRenderThread thread : pThreads) {
+        thread.setRowChunks(nextRow, chunkSize);
       }
     }
+    RenderExecutor.runAndWait(pThreads);
   }
 
   private void renderHDRImage(SimpleHDRImage pHDRImage) {
     if (pHDRImage != null) {
-      int threadCount = prefs.getTinaRenderThreads();
-      if (threadCount < 1 || pHDRImage.getImageHeight() < 8 * threadCount) {
-        threadCount = 1;
-      }
-      int rowsPerThread = pHDRImage.getImageHeight() / threadCount;
+      int threadCount = getImageThreadCount(pHDRImage.getImageHeight());
       PostDOFBuffer dofBuffer = flame.getCamDOF() > MathLib.EPSILON && flame.getSolidRenderSettings().isSolidRenderingEnabled() ? new PostDOFBuffer(pHDRImage) : null;
       List<RenderHDRImageThread> threads = new ArrayList<>();
       for (int i = 0; i < threadCount; i++) {
-        int startRow = i * rowsPerThread;
-        int endRow = i < threadCount - 1 ? startRow + rowsPerThread : pHDRImage.getImageHeight();
-        RenderHDRImageThread thread = new RenderHDRImageThread(flame, logDensityFilter, gammaCorrectionFilter, startRow, endRow, pHDRImage, dofBuffer != null ? new PostDOFCalculator(dofBuffer) : null);
-        threads.add(thread);
-        if (threadCount > 1) {
-          new Thread(thread).start();
-        }
-        else {
-          thread.run();
-        }
+        threads.add(new RenderHDRImageThread(flame, logDensityFilter, gammaCorrectionFilter, 0, pHDRImage.getImageHeight(), pHDRImage, dofBuffer != null ? new PostDOFCalculator(dofBuffer) : null));
       }
-      waitForThreads(threadCount, threads);
+      runImageThreads(threads, pHDRImage.getImageHeight());
       if (dofBuffer != null) {
         dofBuffer.renderToImage(pHDRImage);
       }
@@ -597,27 +658,13 @@ public class FlameRenderer {
 
   private void renderImage(SimpleImage pImage) {
     if (pImage != null) {
-      int threadCount = prefs.getTinaRenderThreads();
-      if (threadCount < 1 || pImage.getImageHeight() < 8 * threadCount) {
-        threadCount = 1;
-      }
-
+      int threadCount = getImageThreadCount(pImage.getImageHeight());
       PostDOFBuffer dofBuffer = flame.getCamDOF() > MathLib.EPSILON && flame.getSolidRenderSettings().isSolidRenderingEnabled() ? new PostDOFBuffer(pImage) : null;
-      int rowsPerThread = pImage.getImageHeight() / threadCount;
       List<RenderImageThread> threads = new ArrayList<RenderImageThread>();
       for (int i = 0; i < threadCount; i++) {
-        int startRow = i * rowsPerThread;
-        int endRow = i < threadCount - 1 ? startRow + rowsPerThread : pImage.getImageHeight();
-        RenderImageThread thread = new RenderImageThread(flame, logDensityFilter, gammaCorrectionFilter, startRow, endRow, pImage, dofBuffer != null ? new PostDOFCalculator(dofBuffer) : null);
-        threads.add(thread);
-        if (threadCount > 1) {
-          new Thread(thread).start();
-        }
-        else {
-          thread.run();
-        }
+        threads.add(new RenderImageThread(flame, logDensityFilter, gammaCorrectionFilter, 0, pImage.getImageHeight(), pImage, dofBuffer != null ? new PostDOFCalculator(dofBuffer) : null));
       }
-      waitForThreads(threadCount, threads);
+      runImageThreads(threads, pImage.getImageHeight());
       if (dofBuffer != null) {
         dofBuffer.renderToImage(pImage);
       }
@@ -626,69 +673,36 @@ public class FlameRenderer {
 
   private void postFilterImage(SimpleImage pImage) {
     if (pImage != null) {
-      int threadCount = prefs.getTinaRenderThreads();
-      if (threadCount < 1 || pImage.getImageHeight() < 8 * threadCount) {
-        threadCount = 1;
-      }
-      int rowsPerThread = pImage.getImageHeight() / threadCount;
+      int threadCount = getImageThreadCount(pImage.getImageHeight());
       SimpleImage input = pImage.clone();
       List<PostFilterImageThread> threads = new ArrayList<PostFilterImageThread>();
       for (int i = 0; i < threadCount; i++) {
-        int startRow = i * rowsPerThread;
-        int endRow = i < threadCount - 1 ? startRow + rowsPerThread : pImage.getImageHeight();
-        PostFilterImageThread thread = new PostFilterImageThread(startRow, endRow, input, pImage, flame.getPostNoiseFilterThreshold());
-        threads.add(thread);
-        if (threadCount > 1) {
-          new Thread(thread).start();
-        }
-        else {
-          thread.run();
-        }
+        threads.add(new PostFilterImageThread(0, pImage.getImageHeight(), input, pImage, flame.getPostNoiseFilterThreshold()));
       }
-      waitForThreads(threadCount, threads);
+      runImageThreads(threads, pImage.getImageHeight());
     }
   }
 
   private void renderImageSimple(SimpleImage pImage) {
-    int threadCount = prefs.getTinaRenderThreads();
+    int threadCount = getRenderThreadCount();
     if (threadCount < 1)
       threadCount = 1;
     logDensityFilter.setRaster(raster, rasterWidth, rasterHeight, pImage.getImageWidth(), pImage.getImageHeight());
     if (renderScale == 2) {
       SimpleImage newImg = new SimpleImage(pImage.getImageWidth() * renderScale, pImage.getImageHeight() * renderScale);
-      int rowsPerThread = pImage.getImageHeight() / threadCount;
       List<RenderImageSimpleScaledThread> threads = new ArrayList<RenderImageSimpleScaledThread>();
       for (int i = 0; i < threadCount; i++) {
-        int startRow = i * rowsPerThread;
-        int endRow = i < threadCount - 1 ? startRow + rowsPerThread : pImage.getImageHeight();
-        RenderImageSimpleScaledThread thread = new RenderImageSimpleScaledThread(flame, logDensityFilter, gammaCorrectionFilter, renderScale, startRow, endRow, pImage, newImg);
-        threads.add(thread);
-        if (threadCount > 1) {
-          new Thread(thread).start();
-        }
-        else {
-          thread.run();
-        }
+        threads.add(new RenderImageSimpleScaledThread(flame, logDensityFilter, gammaCorrectionFilter, renderScale, 0, pImage.getImageHeight(), pImage, newImg));
       }
-      waitForThreads(threadCount, threads);
+      runImageThreads(threads, pImage.getImageHeight());
       pImage.setBufferedImage(newImg.getBufferedImg(), newImg.getImageWidth(), newImg.getImageHeight());
     }
     else if (renderScale == 1) {
-      int rowsPerThread = pImage.getImageHeight() / threadCount;
       List<RenderImageSimpleThread> threads = new ArrayList<RenderImageSimpleThread>();
       for (int i = 0; i < threadCount; i++) {
-        int startRow = i * rowsPerThread;
-        int endRow = i < rowsPerThread - 1 ? startRow + rowsPerThread : pImage.getImageHeight();
-        RenderImageSimpleThread thread = new RenderImageSimpleThread(flame, logDensityFilter, gammaCorrectionFilter, startRow, endRow, pImage);
-        threads.add(thread);
-        if (threadCount > 1) {
-          new Thread(thread).start();
-        }
-        else {
-          thread.run();
-        }
+        threads.add(new RenderImageSimpleThread(flame, logDensityFilter, gammaCorrectionFilter, 0, pImage.getImageHeight(), pImage));
       }
-      waitForThreads(threadCount, threads);
+      runImageThreads(threads, pImage.getImageHeight());
     }
     else {
       throw new IllegalArgumentException("renderScale " + renderScale);
@@ -709,29 +723,52 @@ public class FlameRenderer {
     }
     long sampleProgressUpdateStep = nSamples / PROGRESS_STEPS;
     long nextProgressUpdate = sampleProgressUpdateStep;
+    long nextConvergenceCheck = nSamples / ADAPTIVE_MIN_SAMPLES_DIVISOR;
+    requestedSamples = nSamples;
     runningThreads = new ArrayList<AbstractRenderThread>();
     int nThreads = pPackets.size();
+    IterationProgressMonitor progressMonitor = new IterationProgressMonitor(nThreads, sampleProgressUpdateStep / nThreads);
     for (int i = 0; i < nThreads; i++) {
       AbstractRenderThread t = createFlameRenderThread(i, nThreads, pPackets.get(i), nSamples / (long) nThreads, pSlices, pSliceThicknessMod, pSliceThicknessSamples);
+      t.setProgressMonitor(progressMonitor);
+      if (variationProfile != null) {
+        t.setTransformationProfiler(new TransformationProfiler());
+      }
       runningThreads.add(t);
-      new Thread(t).start();
+    }
+    for (AbstractRenderThread t : runningThreads) {
+      RenderExecutor.execute(t);
     }
     boolean done = false;
     while (!done) {
       try {
-        Thread.sleep(10);
+        done = !progressMonitor.awaitProgress();
       }
       catch (InterruptedException e) {
         e.printStackTrace();
+        done = progressMonitor.isFinished();
+      }
+      if (forceAbort) {
+        // signalCancel() was called while iterating
+        for (AbstractRenderThread t : runningThreads) {
+          t.cancel();
+        }
       }
-      done = true;
       long currSamples = 0;
       for (AbstractRenderThread t : runningThreads) {
-        if (!t.isFinished()) {
-          done = false;
-        }
         currSamples += t.getCurrSample();
       }
+      if (convergenceMap != null && currSamples >= nextConvergenceCheck && !convergenceMap.isConverged()) {
+        convergenceMap.update(raster, maxBorderWidth, oversample, currSamples);
+        if (convergenceMap.isConverged()) {
+          for (AbstractRenderThread t : runningThreads) {
+            t.cancel();
+          }
+        }
+        else {
+          nextConvergenceCheck = currSamples + nSamples / CONVERGENCE_CHECKS;
+        }
+      }
       if (currSamples >= nextProgressUpdate) {
         if (progressUpdater != null) {
           int currProgress = (int) ((currSamples * PROGRESS_STEPS) / nSamples);
@@ -740,6 +777,32 @@ public class FlameRenderer {
         }
       }
     }
+    for (AbstractRenderThread t : runningThreads) {
+      renderedSamples += t.getCurrSample();
+    }
+    if (variationProfile != null) {
+      for (int i = 0; i < nThreads; i++) {
+        addToVariationProfile(runningThreads.get(i).getTransformationProfiler(), pPackets.get(i));
+      }
+    }
+  }
+
+  private void addToVariationProfile(TransformationProfiler pProfiler, List<RenderPacket> pPackets) {
+    for (RenderPacket packet : pPackets) {
+      List<Layer> layers = packet.getFlame().getLayers();
+      for (int i = 0; i < layers.size(); i++) {
+        Layer layer = layers.get(i);
+        String prefix = layers.size() > 1 ? "Layer " + (i + 1) + ", " : "";
+        for (int j = 0; j < layer.getXForms().size(); j++) {
+          XForm xForm = layer.getXForms().get(j);
+          variationProfile.addXFormProfile(prefix + "Transform " + (j + 1), false, pProfiler.getProfile(xForm));
+        }
+        for (int j = 0; j < layer.getFinalXForms().size(); j++) {
+          XForm xForm = layer.getFinalXForms().get(j);
+          variationProfile.addXFormProfile(prefix + "Final transform " + (j + 1), true, pProfiler.getProfile(xForm));
+        }
+      }
+    }
   }
 
   private RenderThreads startIterate(List<List<RenderPacket>> pFlames, RenderThreadPersistentState pState[], boolean pStartThreads) {
@@ -766,6 +829,20 @@ public class FlameRenderer {
     this.randGen = random;
   }
 
+  // number of samples computed by the last call of renderFlame()
+  public long getRenderedSamples() {
+    return renderedSamples;
+  }
+
+  // number of threads used by this renderer, 0 means the number of render threads defined in the preferences
+  public void setRenderThreadCount(int pRenderThreadCount) {
+    renderThreadCount = pRenderThreadCount;
+  }
+
+  private int getRenderThreadCount() {
+    return renderThreadCount > 0 ? renderThreadCount : prefs.getTinaRenderThreads();
+  }
+
   public void setProgressUpdater(ProgressUpdater pProgressUpdater) {
     progressUpdater = pProgressUpdater;
   }
@@ -800,60 +877,45 @@ public class FlameRenderer {
     }
   }
 
-  public void saveState(String pAbsolutePath, List<AbstractRenderThread> pThreads, long pSampleCount, long pElapsedMilliseconds, QualityProfile pQualityProfile) {
+  public synchronized void saveState(String pAbsolutePath, List<AbstractRenderThread> pThreads, long pSampleCount, long pElapsedMilliseconds, QualityProfile pQualityProfile) {
+    JWFRenderFileWriter writer = new JWFRenderFileWriter(prefs.isTinaCompressRenderState());
     pauseThreads(pThreads);
     // store thread state
     RenderThreadPersistentState state[] = new RenderThreadPersistentState[pThreads.size()];
     for (int i = 0; i < pThreads.size(); i++) {
       state[i] = pThreads.get(i).saveState();
     }
+    // the raster must be copied while the threads are paused, otherwise it would contain samples which are not covered by the
+    // saved thread states and sample count (and would be rendered twice after resuming). Only the copy is made during the
+    // pause, it is compressed and written while the render is running again.
+    JWFRenderFileWriter.RasterSnapshot snapshot;
     try {
-      try {
-        ObjectOutputStream outputStream = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(pAbsolutePath)));
-        try {
-          // save header
-          JWFRenderFileHeader header = new JWFRenderFileHeader(pThreads.size(), flame.getWidth(), flame.getHeight(),
-              pSampleCount, pElapsedMilliseconds, 1, 1, (int) (flame.getSampleDensity() + 0.5),
-              true, false, withAlpha);
-          outputStream.writeObject(header);
-          // save flame
-          outputStream.writeObject(flame);
-          // save renderInfo          
-          outputStream.writeObject(renderInfo);
-          // save thread state
-          for (int i = 0; i < pThreads.size(); i++) {
-            outputStream.writeObject(state[i]);
-          }
-          // save raster
-          outputStream.writeObject(raster);
-        }
-        finally {
-          outputStream.flush();
-          outputStream.close();
-        }
-      }
-      catch (Exception ex) {
-        ex.printStackTrace();
-        try {
-          new File(pAbsolutePath).delete();
-        }
-        catch (Exception ex2) {
-
-        }
-
-        throw new RuntimeException(ex);
-      }
+      snapshot = writer.createRasterSnapshot(pAbsolutePath, raster, rasterWidth, rasterHeight);
+    }
+    catch (Exception ex) {
+      ex.printStackTrace();
+      throw new RuntimeException(ex);
     }
     finally {
       resumeThreads(pThreads, state);
     }
+    try {
+      JWFRenderFileHeader header = new JWFRenderFileHeader(pThreads.size(), flame.getWidth(), flame.getHeight(),
+          pSampleCount, pElapsedMilliseconds, 1, 1, (int) (flame.getSampleDensity() + 0.5),
+          true, false, withAlpha);
+      writer.writeRenderFile(pAbsolutePath, header, flame, renderInfo, state, snapshot);
+    }
+    catch (Exception ex) {
+      ex.printStackTrace();
+      throw new RuntimeException(ex);
+    }
   }
 
   private void resumeThreads(List<AbstractRenderThread> pThreads, RenderThreadPersistentState pState[]) {
     for (int i = 0; i < pThreads.size(); i++) {
       AbstractRenderThread t = pThreads.get(i);
       t.setResumeState(pState[i]);
-      new Thread(t).start();
+      RenderExecutor.execute(t);
     }
   }
 
@@ -906,13 +968,17 @@ public class FlameRenderer {
     renderInfo = pRenderInfo;
     initRaster(pRenderInfo.getImageWidth(), pRenderInfo.getImageHeight());
     List<List<RenderPacket>> renderFlames = new ArrayList<List<RenderPacket>>();
-    for (int t = 0; t < prefs.getTinaRenderThreads(); t++) {
+    for (int t = 0; t < getRenderThreadCount(); t++) {
       renderFlames.add(createRenderPackets(flame, flame.getFrame()));
     }
     return startIterate(renderFlames, null, true);
   }
 
   public ResumedFlameRender resumeRenderFlame(String pAbsolutePath) {
+    if (JWFRenderFileReader.isBinaryRenderFile(pAbsolutePath)) {
+      return resumeBinaryRenderFlame(pAbsolutePath);
+    }
+    // render files of older versions
     try {
       ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(pAbsolutePath)));
       try {
@@ -929,11 +995,12 @@ public class FlameRenderer {
         for (int i = 0; i < header.numThreads; i++) {
           state[i] = (RenderThreadPersistentState) in.readObject();
         }
-        initRaster(renderInfo.getImageWidth(), renderInfo.getImageHeight());
+        initRasterSizes(renderInfo.getImageWidth(), renderInfo.getImageHeight());
         List<List<RenderPacket>> renderFlames = new ArrayList<List<RenderPacket>>();
         for (int t = 0; t < header.numThreads; t++) {
           renderFlames.add(createRenderPackets(flame, flame.getFrame()));
         }
+        releaseRaster();
         raster = null;
         // read raster
         raster = (AbstractRaster) in.readObject();
@@ -951,6 +1018,43 @@ public class FlameRenderer {
     }
   }
 
+  private ResumedFlameRender resumeBinaryRenderFlame(String pAbsolutePath) {
+    try {
+      JWFRenderFileReader reader = new JWFRenderFileReader(prefs);
+      reader.readRenderFile(pAbsolutePath);
+      JWFRenderFileHeader header = reader.getHeader();
+      flame.assign(reader.getFlame());
+      renderInfo = reader.getRenderInfo();
+      withAlpha = header.withTransparency;
+      if (reader.getRasterFilename() != null) {
+        initRasterSizes(renderInfo.getImageWidth(), renderInfo.getImageHeight());
+        releaseRaster();
+        // the render continues in a new raster file, so the raster file of the checkpoint stays unchanged
+        RasterFloatIntMapped mappedRaster = new RasterFloatIntMapped();
+        mappedRaster.allocRaster(flame, reader.getRasterWidth(), reader.getRasterHeight());
+        raster = mappedRaster;
+        mappedRaster.copyFrom(new File(reader.getRasterFilename()));
+      }
+      else {
+        initRaster(renderInfo.getImageWidth(), renderInfo.getImageHeight());
+        reader.readRaster(raster);
+      }
+      if (rasterWidth != reader.getRasterWidth() || rasterHeight != reader.getRasterHeight()) {
+        throw new IllegalStateException("Raster size " + reader.getRasterWidth() + "x" + reader.getRasterHeight() + " does not match the expected size " + rasterWidth + "x" + rasterHeight);
+      }
+      List<List<RenderPacket>> renderFlames = new ArrayList<List<RenderPacket>>();
+      for (int t = 0; t < header.numThreads; t++) {
+        renderFlames.add(createRenderPackets(flame, flame.getFrame()));
+      }
+      RenderThreads threads = startIterate(renderFlames, reader.getThreadState(), false);
+      return new ResumedFlameRender(header, threads.getRenderThreads());
+    }
+    catch (Exception ex) {
+      ex.printStackTrace();
+      throw new RuntimeException(ex);
+    }
+  }
+
   public Flame getFlame() {
     return flame;
   }
@@ -996,11 +1100,22 @@ public class FlameRenderer {
     preview = pPreview;
   }
 
-  public void renderSlices(SliceRenderInfo pSliceRenderInfo, String pFilenamePattern, double pSliceThicknessMod, int pSliceThicknessSamples) {
+  public void renderSlices(SliceRenderInfo pSliceRenderInfo, final String pFilenamePattern, double pSliceThicknessMod, int pSliceThicknessSamples) {
+    renderSlices(pSliceRenderInfo, new SliceObserver() {
+
+      @Override
+      public void notifySliceRendered(int pSliceIndex, SimpleImage pImage) throws Exception {
+        new ImageWriter().saveImage(pImage, String.format(pFilenamePattern, pSliceIndex + 1));
+      }
+
+    }, pSliceThicknessMod, pSliceThicknessSamples);
+  }
+
+  public void renderSlices(SliceRenderInfo pSliceRenderInfo, SliceObserver pObserver, double pSliceThicknessMod, int pSliceThicknessSamples) {
     if (!flame.isRenderable())
       throw new RuntimeException("Slices can not be created of empty flames");
 
-    int fileIdx = 1;
+    int sliceIdx = 0;
 
     int passes = pSliceRenderInfo.getSlices() / pSliceRenderInfo.getSlicesPerRender();
     if (pSliceRenderInfo.getSlices() % pSliceRenderInfo.getSlicesPerRender() != 0)
@@ -1032,7 +1147,7 @@ public class FlameRenderer {
       }
 
       List<List<RenderPacket>> renderFlames = new ArrayList<List<RenderPacket>>();
-      for (int t = 0; t < prefs.getTinaRenderThreads(); t++) {
+      for (int t = 0; t < getRenderThreadCount(); t++) {
         renderFlames.add(createRenderPackets(flame, flame.getFrame()));
       }
 
@@ -1057,9 +1172,8 @@ public class FlameRenderer {
               img.setARGB(j, i, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
             }
           }
-          String filename = String.format(pFilenamePattern, fileIdx++);
           try {
-            new ImageWriter().saveImage(renderedFlame.getImage(), filename);
+            pObserver.notifySliceRendered(sliceIdx++, img);
           }
           catch (Exception ex) {
             throw new RuntimeException(ex);
@@ -1087,7 +1201,7 @@ public class FlameRenderer {
     initRaster(flame.getWidth(), flame.getHeight());
 
     List<List<RenderPacket>> renderFlames = new ArrayList<List<RenderPacket>>();
-    for (int t = 0; t < prefs.getTinaRenderThreads(); t++) {
+    for (int t = 0; t < getRenderThreadCount(); t++) {
       renderFlames.add(createRenderPackets(flame, flame.getFrame()));
     }
     iterate(0, 1, renderFlames, null, 1.0, 1);
@@ -0,0 +1,59 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+// Render threads report their progress to the monitor, so the thread which is waiting for them to finish
+// is woken up only when there is something to do (update the progress bar, or continue after all threads finished)
+public class IterationProgressMonitor {
+  private final int threadCount;
+  private final long notificationStep;
+  private int finishedThreads;
+  private boolean progressChanged;
+
+  public IterationProgressMonitor(int pThreadCount, long pNotificationStep) {
+    threadCount = pThreadCount;
+    notificationStep = pNotificationStep > 0 ? pNotificationStep : 1;
+  }
+
+  public long getNotificationStep() {
+    return notificationStep;
+  }
+
+  public synchronized void notifyProgress() {
+    progressChanged = true;
+    notifyAll();
+  }
+
+  public synchronized void notifyFinished() {
+    finishedThreads++;
+    notifyAll();
+  }
+
+  public synchronized boolean isFinished() {
+    return finishedThreads >= threadCount;
+  }
+
+  // waits until some thread made progress or all threads are finished, returns false if all threads are finished
+  public synchronized boolean awaitProgress() throws InterruptedException {
+    while (!progressChanged && finishedThreads < threadCount) {
+      wait();
+    }
+    progressChanged = false;
+    return finishedThreads < threadCount;
+  }
+
+}
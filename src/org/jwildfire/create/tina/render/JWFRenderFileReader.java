@@ -0,0 +1,332 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.XYZPoint;
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterPoint;
+import org.jwildfire.create.tina.io.FlameReader;
+
+// Reads render files written by JWFRenderFileWriter. The raster blocks are not read by readRenderFile(),
+// only their positions are remembered, so the caller can allocate a raster of the right size first and
+// then fill it by readRaster().
+public class JWFRenderFileReader {
+  private final Prefs prefs;
+  private String filename;
+  private JWFRenderFileHeader header;
+  private Flame flame;
+  private RenderInfo renderInfo;
+  private RenderThreadPersistentState threadState[];
+  private int rasterWidth, rasterHeight;
+  private String rasterFilename;
+  private final List<Long> rasterBlockPositions = new ArrayList<Long>();
+
+  public JWFRenderFileReader(Prefs pPrefs) {
+    prefs = pPrefs;
+  }
+
+  public static boolean isBinaryRenderFile(String pFilename) {
+    try {
+      FileInputStream fis = new FileInputStream(pFilename);
+      try {
+        byte[] magic = new byte[JWFRenderFileWriter.MAGIC.length];
+        int read = 0;
+        while (read < magic.length) {
+          int n = fis.read(magic, read, magic.length - read);
+          if (n < 0) {
+            return false;
+          }
+          read += n;
+        }
+        return Arrays.equals(magic, JWFRenderFileWriter.MAGIC);
+      }
+      finally {
+        fis.close();
+      }
+    }
+    catch (IOException ex) {
+      return false;
+    }
+  }
+
+  public void readRenderFile(String pFilename) throws Exception {
+    filename = pFilename;
+    rasterBlockPositions.clear();
+    FileInputStream fis = new FileInputStream(pFilename);
+    try {
+      FileChannel channel = fis.getChannel();
+      ByteBuffer fileHeader = readFully(channel, channel.position(), JWFRenderFileWriter.MAGIC.length + 8);
+      byte[] magic = new byte[JWFRenderFileWriter.MAGIC.length];
+      fileHeader.get(magic);
+      if (!Arrays.equals(magic, JWFRenderFileWriter.MAGIC)) {
+        throw new IllegalArgumentException("<" + pFilename + "> is not a render file");
+      }
+      int version = fileHeader.getInt();
+      if (version > JWFRenderFileWriter.VERSION) {
+        throw new IllegalArgumentException("Render file version " + version + " is not supported");
+      }
+      fileHeader.getInt(); // flags
+
+      long position = fileHeader.capacity();
+      while (true) {
+        ByteBuffer sectionHeader = readFully(channel, position, JWFRenderFileWriter.SECTION_HEADER_SIZE);
+        int tag = sectionHeader.getInt();
+        long length = sectionHeader.getLong();
+        long dataPosition = position + JWFRenderFileWriter.SECTION_HEADER_SIZE;
+        if (tag == JWFRenderFileWriter.SECTION_END) {
+          break;
+        }
+        switch (tag) {
+          case JWFRenderFileWriter.SECTION_HEADER:
+            readHeaderSection(readSectionData(channel, dataPosition, length));
+            break;
+          case JWFRenderFileWriter.SECTION_FLAME:
+            readFlameSection(readSectionData(channel, dataPosition, length));
+            break;
+          case JWFRenderFileWriter.SECTION_RENDER_INFO:
+            readRenderInfoSection(readSectionData(channel, dataPosition, length));
+            break;
+          case JWFRenderFileWriter.SECTION_THREAD_STATE:
+            readThreadStateSection(readSectionData(channel, dataPosition, length));
+            break;
+          case JWFRenderFileWriter.SECTION_RASTER_INFO: {
+            DataInputStream in = readSectionData(channel, dataPosition, length);
+            rasterWidth = in.readInt();
+            rasterHeight = in.readInt();
+            break;
+          }
+          case JWFRenderFileWriter.SECTION_RASTER_FILE: {
+            byte[] data = new byte[(int) length];
+            readSectionData(channel, dataPosition, length).readFully(data);
+            rasterFilename = new String(data, "UTF-8");
+            break;
+          }
+          case JWFRenderFileWriter.SECTION_RASTER_BLOCK:
+            rasterBlockPositions.add(Long.valueOf(position));
+            break;
+          default:
+            // unknown section, written by a newer version
+            break;
+        }
+        position = dataPosition + length;
+      }
+    }
+    finally {
+      fis.close();
+    }
+    if (header == null || flame == null || renderInfo == null || threadState == null) {
+      throw new IllegalStateException("Render file <" + pFilename + "> is incomplete");
+    }
+  }
+
+  public void readRaster(AbstractRaster pRaster) throws Exception {
+    FileInputStream fis = new FileInputStream(filename);
+    try {
+      FileChannel channel = fis.getChannel();
+      Inflater inflater = new Inflater();
+      try {
+        RasterPoint point = new RasterPoint(0);
+        for (Long position : rasterBlockPositions) {
+          ByteBuffer sectionHeader = readFully(channel, position.longValue(), JWFRenderFileWriter.SECTION_HEADER_SIZE);
+          sectionHeader.getInt();
+          long length = sectionHeader.getLong();
+          ByteBuffer block = readFully(channel, position.longValue() + JWFRenderFileWriter.SECTION_HEADER_SIZE, (int) length);
+          int rowStart = block.getInt();
+          int rowCount = block.getInt();
+          int rawLength = block.getInt();
+          boolean compressed = block.get() != 0;
+          ByteBuffer data;
+          if (compressed) {
+            byte[] raw = new byte[rawLength];
+            inflater.reset();
+            inflater.setInput(block.array(), block.position(), block.remaining());
+            int read = 0;
+            while (read < rawLength) {
+              int n = inflater.inflate(raw, read, rawLength - read);
+              if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                throw new DataFormatException("Truncated raster block");
+              }
+              read += n;
+            }
+            data = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+          }
+          else {
+            data = block.slice().order(ByteOrder.LITTLE_ENDIAN);
+          }
+          for (int y = rowStart; y < rowStart + rowCount; y++) {
+            for (int x = 0; x < rasterWidth; x++) {
+              point.clear();
+              point.red = data.getFloat();
+              point.green = data.getFloat();
+              point.blue = data.getFloat();
+              point.count = data.getInt();
+              pRaster.writeRasterPoint(x, y, point);
+            }
+          }
+        }
+      }
+      finally {
+        inflater.end();
+      }
+    }
+    finally {
+      fis.close();
+    }
+  }
+
+  private void readHeaderSection(DataInputStream pIn) throws IOException {
+    int numThreads = pIn.readInt();
+    int width = pIn.readInt();
+    int height = pIn.readInt();
+    long sampleCount = pIn.readLong();
+    long elapsedMilliseconds = pIn.readLong();
+    int spatialOversample = pIn.readInt();
+    int colorOversample = pIn.readInt();
+    int quality = pIn.readInt();
+    boolean withHDR = pIn.readBoolean();
+    boolean withHDRIntensityMap = pIn.readBoolean();
+    boolean withTransparency = pIn.readBoolean();
+    header = new JWFRenderFileHeader(numThreads, width, height, sampleCount, elapsedMilliseconds, spatialOversample, colorOversample, quality, withHDR, withHDRIntensityMap, withTransparency);
+  }
+
+  private void readFlameSection(DataInputStream pIn) throws IOException {
+    byte[] data = new byte[pIn.available()];
+    pIn.readFully(data);
+    List<Flame> flames = new FlameReader(prefs).readFlamesfromXML(new String(data, "UTF-8"));
+    if (flames.size() != 1) {
+      throw new IllegalStateException("Render file must contain exactly one flame");
+    }
+    flame = flames.get(0);
+  }
+
+  private void readRenderInfoSection(DataInputStream pIn) throws IOException {
+    int imageWidth = pIn.readInt();
+    int imageHeight = pIn.readInt();
+    boolean renderHDR = pIn.readBoolean();
+    boolean renderHDRIntensityMap = pIn.readBoolean();
+    RenderMode renderMode = RenderMode.valueOf(pIn.readUTF());
+    renderInfo = new RenderInfo(imageWidth, imageHeight, renderMode);
+    renderInfo.setRenderHDR(renderHDR);
+    renderInfo.setRenderHDRIntensityMap(renderHDRIntensityMap);
+  }
+
+  private void readThreadStateSection(DataInputStream pIn) throws IOException {
+    int threadCount = pIn.readInt();
+    threadState = new RenderThreadPersistentState[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      DefaultRenderThreadPersistentState state = new DefaultRenderThreadPersistentState();
+      state.currSample = pIn.readLong();
+      state.startIter = pIn.readLong();
+      state.xfIndex = pIn.readInt();
+      int layerCount = pIn.readInt();
+      for (int j = 0; j < layerCount; j++) {
+        DefaultRenderThreadPersistentState.IterationState layerState = new DefaultRenderThreadPersistentState.IterationState();
+        layerState.packetIdx = pIn.readInt();
+        layerState.layerIdx = pIn.readInt();
+        layerState.xfIndex = pIn.readInt();
+        layerState.affineT = readPoint(pIn);
+        layerState.varT = readPoint(pIn);
+        layerState.p = readPoint(pIn);
+        layerState.q = readPoint(pIn);
+        state.getLayerState().add(layerState);
+      }
+      threadState[i] = state;
+    }
+  }
+
+  private XYZPoint readPoint(DataInputStream pIn) throws IOException {
+    if (!pIn.readBoolean()) {
+      return null;
+    }
+    XYZPoint res = new XYZPoint();
+    res.x = pIn.readDouble();
+    res.y = pIn.readDouble();
+    res.z = pIn.readDouble();
+    res.color = pIn.readDouble();
+    res.material = pIn.readDouble();
+    res.modGamma = pIn.readDouble();
+    res.modContrast = pIn.readDouble();
+    res.modSaturation = pIn.readDouble();
+    res.modHue = pIn.readDouble();
+    res.rgbColor = pIn.readBoolean();
+    res.redColor = pIn.readDouble();
+    res.greenColor = pIn.readDouble();
+    res.blueColor = pIn.readDouble();
+    res.doHide = pIn.readBoolean();
+    return res;
+  }
+
+  private DataInputStream readSectionData(FileChannel pChannel, long pPosition, long pLength) throws IOException {
+    ByteBuffer data = readFully(pChannel, pPosition, (int) pLength);
+    return new DataInputStream(new ByteArrayInputStream(data.array(), 0, data.limit()));
+  }
+
+  private ByteBuffer readFully(FileChannel pChannel, long pPosition, int pLength) throws IOException {
+    ByteBuffer res = ByteBuffer.allocate(pLength).order(ByteOrder.LITTLE_ENDIAN);
+    while (res.hasRemaining()) {
+      if (pChannel.read(res, pPosition + res.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+    res.flip();
+    return res;
+  }
+
+  public JWFRenderFileHeader getHeader() {
+    return header;
+  }
+
+  public Flame getFlame() {
+    return flame;
+  }
+
+  public RenderInfo getRenderInfo() {
+    return renderInfo;
+  }
+
+  public RenderThreadPersistentState[] getThreadState() {
+    return threadState;
+  }
+
+  public int getRasterWidth() {
+    return rasterWidth;
+  }
+
+  public int getRasterHeight() {
+    return rasterHeight;
+  }
+
+  public String getRasterFilename() {
+    return rasterFilename;
+  }
+}
@@ -0,0 +1,380 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.XYZPoint;
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterFloatIntMapped;
+import org.jwildfire.create.tina.base.raster.RasterPoint;
+import org.jwildfire.create.tina.io.JWFFlameWriter;
+
+// Writes the state of a render in the versioned binary *.jwfrender format:
+//   magic, version, flags, followed by a list of sections (int tag, long length, payload).
+// Unknown sections are skipped by the reader. The flame is stored as XML, the raster is split into
+// blocks of rows which are optionally compressed. The file is written to a temporary file first and
+// then moved over the previous version, so an interrupted checkpoint never destroys the last one.
+// Writing is split into two steps: createRasterSnapshot() only copies the raster data (and must be called while the render
+// threads are paused), writeRenderFile() compresses and writes it afterwards, while the render is running again.
+public class JWFRenderFileWriter {
+  static final byte[] MAGIC = { 'J', 'W', 'F', 'R', 'N', 'D', 'R', 0 };
+  static final int VERSION = 1;
+
+  static final int SECTION_END = 0;
+  static final int SECTION_HEADER = 1;
+  static final int SECTION_FLAME = 2;
+  static final int SECTION_RENDER_INFO = 3;
+  static final int SECTION_THREAD_STATE = 4;
+  static final int SECTION_RASTER_INFO = 5;
+  static final int SECTION_RASTER_BLOCK = 6;
+  static final int SECTION_RASTER_FILE = 7;
+
+  static final int BYTES_PER_RASTER_POINT = 16;
+  static final int SECTION_HEADER_SIZE = 12;
+  static final int RASTER_BLOCK_HEADER_SIZE = 13;
+  private static final int MAX_RASTER_BLOCK_SIZE = 4 * 1024 * 1024;
+
+  private final boolean compressed;
+
+  // Copy of the raster data at the time of a checkpoint. A mapped raster is copied into a file next to the render file,
+  // any other raster into uncompressed blocks of rows in memory.
+  public static class RasterSnapshot {
+    private final int rasterWidth;
+    private final int rasterHeight;
+    private final File rasterFile;
+    private final List<RasterBlock> blocks = new ArrayList<RasterBlock>();
+
+    private RasterSnapshot(int pRasterWidth, int pRasterHeight, File pRasterFile) {
+      rasterWidth = pRasterWidth;
+      rasterHeight = pRasterHeight;
+      rasterFile = pRasterFile;
+    }
+  }
+
+  private static class RasterBlock {
+    private final int rowStart;
+    private final int rowCount;
+    private final byte[] data;
+
+    private RasterBlock(int pRowStart, int pRowCount, byte[] pData) {
+      rowStart = pRowStart;
+      rowCount = pRowCount;
+      data = pData;
+    }
+  }
+
+  public JWFRenderFileWriter(boolean pCompressed) {
+    compressed = pCompressed;
+  }
+
+  public RasterSnapshot createRasterSnapshot(String pFilename, AbstractRaster pRaster, int pRasterWidth, int pRasterHeight) throws IOException {
+    if (pRaster instanceof RasterFloatIntMapped) {
+      RasterSnapshot res = new RasterSnapshot(pRasterWidth, pRasterHeight, new File(pFilename + ".raster.tmp"));
+      ((RasterFloatIntMapped) pRaster).copyTo(res.rasterFile);
+      return res;
+    }
+    RasterSnapshot res = new RasterSnapshot(pRasterWidth, pRasterHeight, null);
+    int rowSize = pRasterWidth * BYTES_PER_RASTER_POINT;
+    int blockRows = Math.max(1, MAX_RASTER_BLOCK_SIZE / rowSize);
+    RasterPoint point = new RasterPoint(0);
+    for (int rowStart = 0; rowStart < pRasterHeight; rowStart += blockRows) {
+      int rowCount = Math.min(blockRows, pRasterHeight - rowStart);
+      ByteBuffer rawBuffer = ByteBuffer.allocate(rowCount * rowSize).order(ByteOrder.LITTLE_ENDIAN);
+      for (int y = rowStart; y < rowStart + rowCount; y++) {
+        for (int x = 0; x < pRasterWidth; x++) {
+          pRaster.readRasterPoint(x, y, point);
+          rawBuffer.putFloat((float) point.red);
+          rawBuffer.putFloat((float) point.green);
+          rawBuffer.putFloat((float) point.blue);
+          rawBuffer.putInt((int) point.count);
+        }
+      }
+      res.blocks.add(new RasterBlock(rowStart, rowCount, rawBuffer.array()));
+    }
+    return res;
+  }
+
+  public void writeRenderFile(String pFilename, JWFRenderFileHeader pHeader, Flame pFlame, RenderInfo pRenderInfo, RenderThreadPersistentState pState[], AbstractRaster pRaster, int pRasterWidth, int pRasterHeight) throws Exception {
+    writeRenderFile(pFilename, pHeader, pFlame, pRenderInfo, pState, createRasterSnapshot(pFilename, pRaster, pRasterWidth, pRasterHeight));
+  }
+
+  public void writeRenderFile(String pFilename, JWFRenderFileHeader pHeader, Flame pFlame, RenderInfo pRenderInfo, RenderThreadPersistentState pState[], RasterSnapshot pRaster) throws Exception {
+    File file = new File(pFilename);
+    File tmpFile = new File(pFilename + ".tmp");
+    // a new raster file for each checkpoint, the previous one is still referenced by the previous render file
+    File rasterFile = pRaster.rasterFile != null ? createRasterFilename(pFilename) : null;
+    boolean success = false;
+    try {
+      if (rasterFile != null) {
+        RandomAccessFile raf = new RandomAccessFile(pRaster.rasterFile, "rw");
+        try {
+          raf.getChannel().force(false);
+        }
+        finally {
+          raf.close();
+        }
+        move(pRaster.rasterFile, rasterFile);
+      }
+      FileOutputStream fos = new FileOutputStream(tmpFile);
+      try {
+        FileChannel channel = fos.getChannel();
+        ByteBuffer fileHeader = ByteBuffer.allocate(MAGIC.length + 8).order(ByteOrder.LITTLE_ENDIAN);
+        fileHeader.put(MAGIC);
+        fileHeader.putInt(VERSION);
+        fileHeader.putInt(compressed ? 1 : 0);
+        fileHeader.flip();
+        writeFully(channel, fileHeader);
+
+        writeSection(channel, SECTION_HEADER, createHeaderSection(pHeader));
+        writeSection(channel, SECTION_FLAME, new JWFFlameWriter().getFlameXML(pFlame).getBytes("UTF-8"));
+        writeSection(channel, SECTION_RENDER_INFO, createRenderInfoSection(pRenderInfo));
+        writeSection(channel, SECTION_THREAD_STATE, createThreadStateSection(pState));
+        writeSection(channel, SECTION_RASTER_INFO, createRasterInfoSection(pRaster.rasterWidth, pRaster.rasterHeight));
+        if (rasterFile != null) {
+          writeSection(channel, SECTION_RASTER_FILE, rasterFile.getAbsolutePath().getBytes("UTF-8"));
+        }
+        else {
+          writeRasterBlocks(channel, pRaster);
+        }
+        writeSection(channel, SECTION_END, new byte[0]);
+        channel.force(false);
+      }
+      finally {
+        fos.close();
+      }
+      move(tmpFile, file);
+      success = true;
+    }
+    finally {
+      if (!success) {
+        tmpFile.delete();
+        if (pRaster.rasterFile != null) {
+          pRaster.rasterFile.delete();
+        }
+        if (rasterFile != null) {
+          rasterFile.delete();
+        }
+      }
+    }
+    if (rasterFile != null) {
+      deleteOtherRasterFiles(file, rasterFile);
+    }
+  }
+
+  private static void move(File pSrc, File pDest) throws IOException {
+    try {
+      Files.move(pSrc.toPath(), pDest.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch (AtomicMoveNotSupportedException ex) {
+      Files.move(pSrc.toPath(), pDest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static File createRasterFilename(String pFilename) {
+    long id = System.currentTimeMillis();
+    File res = new File(pFilename + ".raster." + id);
+    while (res.exists()) {
+      res = new File(pFilename + ".raster." + (++id));
+    }
+    return res;
+  }
+
+  // removes the raster files of previous checkpoints of the same render file
+  private static void deleteOtherRasterFiles(File pFile, File pRasterFile) {
+    File[] files = pFile.getAbsoluteFile().getParentFile().listFiles();
+    if (files != null) {
+      String prefix = pFile.getName() + ".raster.";
+      for (File file : files) {
+        if (file.getName().startsWith(prefix) && !file.getName().endsWith(".tmp") && !file.getName().equals(pRasterFile.getName())) {
+          file.delete();
+        }
+      }
+    }
+  }
+
+  private void writeRasterBlocks(FileChannel pChannel, RasterSnapshot pRaster) throws IOException {
+    int maxBlockSize = 0;
+    for (RasterBlock block : pRaster.blocks) {
+      maxBlockSize = Math.max(maxBlockSize, block.data.length);
+    }
+    byte[] compressedBuffer = compressed ? new byte[maxBlockSize + 1024] : null;
+    Deflater deflater = compressed ? new Deflater(Deflater.BEST_SPEED) : null;
+    ByteBuffer blockHeader = ByteBuffer.allocate(RASTER_BLOCK_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      for (RasterBlock block : pRaster.blocks) {
+        int rowStart = block.rowStart;
+        int rowCount = block.rowCount;
+        int rawLength = block.data.length;
+
+        ByteBuffer data = ByteBuffer.wrap(block.data);
+        boolean blockCompressed = false;
+        if (deflater != null) {
+          deflater.reset();
+          deflater.setInput(block.data, 0, rawLength);
+          deflater.finish();
+          int compressedLength = 0;
+          while (!deflater.finished() && compressedLength < compressedBuffer.length) {
+            compressedLength += deflater.deflate(compressedBuffer, compressedLength, compressedBuffer.length - compressedLength);
+          }
+          if (deflater.finished() && compressedLength < rawLength) {
+            data = ByteBuffer.wrap(compressedBuffer, 0, compressedLength);
+            blockCompressed = true;
+          }
+        }
+
+        blockHeader.clear();
+        blockHeader.putInt(rowStart);
+        blockHeader.putInt(rowCount);
+        blockHeader.putInt(rawLength);
+        blockHeader.put((byte) (blockCompressed ? 1 : 0));
+        blockHeader.flip();
+        writeSectionHeader(pChannel, SECTION_RASTER_BLOCK, RASTER_BLOCK_HEADER_SIZE + data.remaining());
+        writeFully(pChannel, blockHeader);
+        writeFully(pChannel, data);
+      }
+    }
+    finally {
+      if (deflater != null) {
+        deflater.end();
+      }
+    }
+  }
+
+  private byte[] createHeaderSection(JWFRenderFileHeader pHeader) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    out.writeInt(pHeader.numThreads);
+    out.writeInt(pHeader.width);
+    out.writeInt(pHeader.height);
+    out.writeLong(pHeader.sampleCount);
+    out.writeLong(pHeader.elapsedMilliseconds);
+    out.writeInt(pHeader.spatialOversample);
+    out.writeInt(pHeader.colorOversample);
+    out.writeInt(pHeader.quality);
+    out.writeBoolean(pHeader.withHDR);
+    out.writeBoolean(pHeader.withHDRIntensityMap);
+    out.writeBoolean(pHeader.withTransparency);
+    out.flush();
+    return bos.toByteArray();
+  }
+
+  private byte[] createRenderInfoSection(RenderInfo pRenderInfo) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    out.writeInt(pRenderInfo.getImageWidth());
+    out.writeInt(pRenderInfo.getImageHeight());
+    out.writeBoolean(pRenderInfo.isRenderHDR());
+    out.writeBoolean(pRenderInfo.isRenderHDRIntensityMap());
+    out.writeUTF(pRenderInfo.getRenderMode().name());
+    out.flush();
+    return bos.toByteArray();
+  }
+
+  private byte[] createThreadStateSection(RenderThreadPersistentState pState[]) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    out.writeInt(pState.length);
+    for (RenderThreadPersistentState state : pState) {
+      out.writeLong(state.currSample);
+      out.writeLong(state.startIter);
+      out.writeInt(state.xfIndex);
+      if (state instanceof DefaultRenderThreadPersistentState) {
+        DefaultRenderThreadPersistentState defaultState = (DefaultRenderThreadPersistentState) state;
+        out.writeInt(defaultState.getLayerState().size());
+        for (DefaultRenderThreadPersistentState.IterationState layerState : defaultState.getLayerState()) {
+          out.writeInt(layerState.packetIdx);
+          out.writeInt(layerState.layerIdx);
+          out.writeInt(layerState.xfIndex);
+          writePoint(out, layerState.affineT);
+          writePoint(out, layerState.varT);
+          writePoint(out, layerState.p);
+          writePoint(out, layerState.q);
+        }
+      }
+      else {
+        throw new IllegalArgumentException(state.getClass().getName());
+      }
+    }
+    out.flush();
+    return bos.toByteArray();
+  }
+
+  private void writePoint(DataOutputStream pOut, XYZPoint pPoint) throws IOException {
+    pOut.writeBoolean(pPoint != null);
+    if (pPoint != null) {
+      pOut.writeDouble(pPoint.x);
+      pOut.writeDouble(pPoint.y);
+      pOut.writeDouble(pPoint.z);
+      pOut.writeDouble(pPoint.color);
+      pOut.writeDouble(pPoint.material);
+      pOut.writeDouble(pPoint.modGamma);
+      pOut.writeDouble(pPoint.modContrast);
+      pOut.writeDouble(pPoint.modSaturation);
+      pOut.writeDouble(pPoint.modHue);
+      pOut.writeBoolean(pPoint.rgbColor);
+      pOut.writeDouble(pPoint.redColor);
+      pOut.writeDouble(pPoint.greenColor);
+      pOut.writeDouble(pPoint.blueColor);
+      pOut.writeBoolean(pPoint.doHide);
+    }
+  }
+
+  private byte[] createRasterInfoSection(int pRasterWidth, int pRasterHeight) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    out.writeInt(pRasterWidth);
+    out.writeInt(pRasterHeight);
+    out.flush();
+    return bos.toByteArray();
+  }
+
+  private void writeSection(FileChannel pChannel, int pTag, byte[] pData) throws IOException {
+    writeSectionHeader(pChannel, pTag, pData.length);
+    writeFully(pChannel, ByteBuffer.wrap(pData));
+  }
+
+  private void writeSectionHeader(FileChannel pChannel, int pTag, long pLength) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(SECTION_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(pTag);
+    header.putLong(pLength);
+    header.flip();
+    writeFully(pChannel, header);
+  }
+
+  private void writeFully(FileChannel pChannel, ByteBuffer pBuffer) throws IOException {
+    while (pBuffer.hasRemaining()) {
+      pChannel.write(pBuffer);
+    }
+  }
+
+}
@@ -48,6 +48,7 @@ public class LogDensityFilter extends FilterHolder {
   private final int PRECALC_LOG_ARRAY_SIZE = 512;
   private double precalcLogArray[];
   private double k1, k2;
+  private double area;
   private double motionBlurScl;
   private final AbstractRandomGenerator jitterRandGen, dofRandGen;
   private final boolean jitter;
@@ -62,7 +63,7 @@ public class LogDensityFilter extends FilterHolder {
     colorOversampling = jitter ? pFlame.getColorOversampling() : 1;
     if (jitter) {
       jitterRandGen = new MarsagliaRandomGenerator();
-      jitterRandGen.randomize(pFlame.hashCode());
+      jitterRandGen.randomize(pRandGen.random(Integer.MAX_VALUE));
     }
     else {
       jitterRandGen = null;
@@ -70,7 +71,7 @@ public class LogDensityFilter extends FilterHolder {
     solidRendering = flame.getSolidRenderSettings().isSolidRenderingEnabled();
     if (solidRendering && flame.getCamDOF() > MathLib.EPSILON) {
       dofRandGen = new MarsagliaRandomGenerator();
-      dofRandGen.randomize(pFlame.hashCode());
+      dofRandGen.randomize(pRandGen.random(Integer.MAX_VALUE));
     }
     else {
       dofRandGen = null;
@@ -92,14 +93,21 @@ public class LogDensityFilter extends FilterHolder {
         k1 /= 2.0;
     }
     double pixelsPerUnit = flame.getPixelsPerUnit() * flame.getCamZoom();
-    double area = ((double) pImageWidth * (double) pImageHeight) / (pixelsPerUnit * pixelsPerUnit);
-    k2 = 1.0 / (flame.getContrast() * area * flame.getSampleDensity());
+    area = ((double) pImageWidth * (double) pImageHeight) / (pixelsPerUnit * pixelsPerUnit);
+    setSampleDensity(flame.getSampleDensity());
+  }
 
-    precalcLogArray = new double[PRECALC_LOG_ARRAY_SIZE + 1];
+  // updates the constants which depend on the sample density (which changes during progressive rendering), without
+  // the need to create a new filter
+  public void setSampleDensity(double pSampleDensity) {
+    double newK2 = 1.0 / (flame.getContrast() * area * pSampleDensity);
+    double newPrecalcLogArray[] = new double[PRECALC_LOG_ARRAY_SIZE + 1];
     for (int i = 1; i <= PRECALC_LOG_ARRAY_SIZE; i++) {
       double x = i * motionBlurScl;
-      precalcLogArray[i] = (k1 * log10(1 + x * k2)) / (flame.getWhiteLevel() * x);
+      newPrecalcLogArray[i] = (k1 * log10(1 + x * newK2)) / (flame.getWhiteLevel() * x);
     }
+    k2 = newK2;
+    precalcLogArray = newPrecalcLogArray;
   }
 
   public void transformPointSimple(LogDensityPoint pFilteredPnt, int pX, int pY) {
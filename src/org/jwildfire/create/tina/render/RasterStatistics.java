@@ -0,0 +1,103 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterPoint;
+
+// Statistics of the raster counts of a (usually cheap) render, used to judge a flame without creating an image:
+// - coverage: the fraction of image pixels which were hit
+// - hit rate: the fraction of the plotted samples which are inside the image (the others escaped or were invalid)
+// - entropy: the normalized entropy of the log-density brightness levels of the hit pixels, i.e. 0.0 if all pixels
+//   have the same brightness and 1.0 if all levels are equally frequent
+public class RasterStatistics {
+  private static final int BRIGHTNESS_LEVELS = 16;
+
+  private double coverage;
+  private double hitRate;
+  private double entropy;
+  private long sampleCount;
+
+  public RasterStatistics(AbstractRaster pRaster, int pBorderWidth, int pOversample, int pImageWidth, int pImageHeight, int pLightCount, long pPlottedSamples) {
+    RasterPoint point = new RasterPoint(pLightCount);
+    int pixelCount = pImageWidth * pImageHeight;
+    int[] counts = new int[pixelCount];
+    long countSum = 0;
+    int hitPixels = 0;
+    int maxCount = 0;
+    for (int y = 0; y < pImageHeight; y++) {
+      for (int x = 0; x < pImageWidth; x++) {
+        int count = 0;
+        for (int j = 0; j < pOversample; j++) {
+          for (int i = 0; i < pOversample; i++) {
+            pRaster.readRasterPoint(pBorderWidth + x * pOversample + i, pBorderWidth + y * pOversample + j, point);
+            count += point.count;
+          }
+        }
+        if (count > 0) {
+          counts[y * pImageWidth + x] = count;
+          countSum += count;
+          hitPixels++;
+          if (count > maxCount) {
+            maxCount = count;
+          }
+        }
+      }
+    }
+    sampleCount = pPlottedSamples;
+    coverage = pixelCount > 0 ? (double) hitPixels / (double) pixelCount : 0.0;
+    hitRate = pPlottedSamples > 0 ? Math.min(1.0, (double) countSum / (double) pPlottedSamples) : 0.0;
+    entropy = 0.0;
+    if (hitPixels > 0) {
+      double meanCount = (double) countSum / (double) hitPixels;
+      double maxBrightness = Math.log(1.0 + maxCount / meanCount);
+      if (maxBrightness > 0.0) {
+        int[] levels = new int[BRIGHTNESS_LEVELS];
+        double scale = (BRIGHTNESS_LEVELS - 1) / maxBrightness;
+        for (int i = 0; i < pixelCount; i++) {
+          if (counts[i] > 0) {
+            levels[(int) (Math.log(1.0 + counts[i] / meanCount) * scale + 0.5)]++;
+          }
+        }
+        for (int i = 0; i < BRIGHTNESS_LEVELS; i++) {
+          if (levels[i] > 0) {
+            double p = (double) levels[i] / (double) hitPixels;
+            entropy -= p * Math.log(p);
+          }
+        }
+        entropy /= Math.log(BRIGHTNESS_LEVELS);
+      }
+    }
+  }
+
+  public double getCoverage() {
+    return coverage;
+  }
+
+  public double getHitRate() {
+    return hitRate;
+  }
+
+  public double getEntropy() {
+    return entropy;
+  }
+
+  public long getSampleCount() {
+    return sampleCount;
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// Periodically updates a saved render state while the render keeps on running. No checkpoints are created while the render
+// is paused.
+public class RenderCheckpointScheduler {
+  private final FlameRenderer renderer;
+  private final List<AbstractRenderThread> threads;
+  private final String filename;
+  private final long interval;
+  private final long elapsedMillisecondsOffset;
+  private final long startTime;
+  private final ScheduledExecutorService executor;
+  private final Object pauseLock = new Object();
+  private boolean paused;
+
+  public RenderCheckpointScheduler(FlameRenderer pRenderer, List<AbstractRenderThread> pThreads, String pFilename, long pIntervalMilliseconds, long pElapsedMilliseconds) {
+    renderer = pRenderer;
+    threads = pThreads;
+    filename = pFilename;
+    interval = pIntervalMilliseconds;
+    elapsedMillisecondsOffset = pElapsedMilliseconds;
+    startTime = System.currentTimeMillis();
+    executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+      @Override
+      public Thread newThread(Runnable pRunnable) {
+        Thread thread = new Thread(pRunnable, "JWildfire-render-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+      }
+
+    });
+  }
+
+  public void start() {
+    executor.scheduleWithFixedDelay(new Runnable() {
+
+      @Override
+      public void run() {
+        synchronized (pauseLock) {
+          if (!paused) {
+            try {
+              renderer.saveState(filename, threads, getSampleCount(), elapsedMillisecondsOffset + System.currentTimeMillis() - startTime, null);
+            }
+            catch (Exception ex) {
+              ex.printStackTrace();
+            }
+          }
+        }
+      }
+
+    }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  private long getSampleCount() {
+    long res = 0;
+    for (AbstractRenderThread thread : threads) {
+      res += thread.getCurrSample();
+    }
+    return res;
+  }
+
+  // waits for a running checkpoint to finish, so the render threads may be suspended afterwards
+  public void setPaused(boolean pPaused) {
+    synchronized (pauseLock) {
+      paused = pPaused;
+    }
+  }
+
+  // cancels all further checkpoints and waits for a running one to finish
+  public void stop() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+    catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
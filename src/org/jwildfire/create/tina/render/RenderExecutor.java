@@ -0,0 +1,120 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RenderExecutor {
+  private static ExecutorService iterationExecutor;
+  private static ForkJoinPool imageExecutor;
+
+  // The iteration threads run for the whole render and may be started from threads of this pool (e.g. when rendering frames in parallel),
+  // so the pool must not be bounded, but it keeps idle threads alive for the next render
+  public static synchronized ExecutorService getIterationExecutor() {
+    if (iterationExecutor == null) {
+      iterationExecutor = Executors.newCachedThreadPool(new RenderThreadFactory("JWildfire-render"));
+    }
+    return iterationExecutor;
+  }
+
+  // short-running tasks (like tonemapping of rows) are processed by a work-stealing pool
+  public static synchronized ForkJoinPool getImageExecutor() {
+    if (imageExecutor == null) {
+      imageExecutor = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+    }
+    return imageExecutor;
+  }
+
+  public static void execute(Runnable pTask) {
+    getIterationExecutor().execute(pTask);
+  }
+
+  // Executes all tasks in parallel and returns when all of them are done. The first task is executed by the calling thread.
+  public static void runAndWait(List<? extends Runnable> pTasks) {
+    if (pTasks.isEmpty()) {
+      return;
+    }
+    else if (pTasks.size() == 1) {
+      pTasks.get(0).run();
+      return;
+    }
+    final CountDownLatch latch = new CountDownLatch(pTasks.size() - 1);
+    ForkJoinPool executor = getImageExecutor();
+    for (int i = 1; i < pTasks.size(); i++) {
+      final Runnable task = pTasks.get(i);
+      executor.execute(new Runnable() {
+
+        @Override
+        public void run() {
+          try {
+            task.run();
+          }
+          catch (Throwable ex) {
+            ex.printStackTrace();
+          }
+          finally {
+            latch.countDown();
+          }
+        }
+
+      });
+    }
+    try {
+      pTasks.get(0).run();
+    }
+    finally {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          latch.await();
+          break;
+        }
+        catch (InterruptedException ex) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static class RenderThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    public RenderThreadFactory(String pPrefix) {
+      prefix = pPrefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable pRunnable) {
+      Thread thread = new Thread(pRunnable, prefix + "-" + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      thread.setPriority(Thread.NORM_PRIORITY);
+      return thread;
+    }
+
+  }
+
+}
@@ -27,6 +27,8 @@ public class RenderInfo implements Assignable<RenderInfo>, Serializable {
   private int imageWidth;
   private int imageHeight;
   private RenderMode renderMode = RenderMode.PRODUCTION;
+  private boolean variationProfiling;
+  private double noiseTarget;
 
   protected RenderInfo() {
 
@@ -81,6 +83,8 @@ public class RenderInfo implements Assignable<RenderInfo>, Serializable {
     renderHDRIntensityMap = pSrc.renderHDRIntensityMap;
     imageWidth = pSrc.imageWidth;
     imageHeight = pSrc.imageHeight;
+    variationProfiling = pSrc.variationProfiling;
+    noiseTarget = pSrc.noiseTarget;
   }
 
   @Override
@@ -93,7 +97,7 @@ public class RenderInfo implements Assignable<RenderInfo>, Serializable {
   @Override
   public boolean isEqual(RenderInfo pSrc) {
     if (renderHDR != pSrc.renderHDR || renderHDRIntensityMap != pSrc.renderHDRIntensityMap ||
-        imageWidth != pSrc.imageWidth || imageHeight != pSrc.imageHeight) {
+        imageWidth != pSrc.imageWidth || imageHeight != pSrc.imageHeight || noiseTarget != pSrc.noiseTarget) {
       return false;
     }
     return true;
@@ -107,4 +111,22 @@ public class RenderInfo implements Assignable<RenderInfo>, Serializable {
     this.renderMode = renderMode;
   }
 
+  public boolean isVariationProfiling() {
+    return variationProfiling;
+  }
+
+  public void setVariationProfiling(boolean pVariationProfiling) {
+    variationProfiling = pVariationProfiling;
+  }
+
+  // adaptive sampling: the iteration stops as soon as the estimated noise of all image tiles is below this value (the
+  // sample density of the flame is the upper limit), 0 disables adaptive sampling
+  public double getNoiseTarget() {
+    return noiseTarget;
+  }
+
+  public void setNoiseTarget(double pNoiseTarget) {
+    noiseTarget = pNoiseTarget;
+  }
+
 }
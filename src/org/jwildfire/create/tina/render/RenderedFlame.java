@@ -23,6 +23,8 @@ public class RenderedFlame {
   private SimpleImage image;
   private SimpleHDRImage hdrImage;
   private SimpleHDRImage hdrHeightMap;
+  private VariationProfile variationProfile;
+  private ConvergenceMap convergenceMap;
 
   public SimpleImage getImage() {
     return image;
@@ -46,4 +48,21 @@ public class RenderedFlame {
     }
   }
 
+  public VariationProfile getVariationProfile() {
+    return variationProfile;
+  }
+
+  public void setVariationProfile(VariationProfile pVariationProfile) {
+    variationProfile = pVariationProfile;
+  }
+
+  // per-tile noise of the image, only available if it was rendered with RenderInfo.getNoiseTarget() > 0
+  public ConvergenceMap getConvergenceMap() {
+    return convergenceMap;
+  }
+
+  public void setConvergenceMap(ConvergenceMap pConvergenceMap) {
+    convergenceMap = pConvergenceMap;
+  }
+
 }
@@ -22,32 +22,18 @@ import org.jwildfire.create.tina.random.AbstractRandomGenerator;
 import org.jwildfire.image.Pixel;
 
 public class SampleTonemapper {
-  private final Flame flame;
-  private final AbstractRandomGenerator randGen;
   private final LogDensityPoint logDensityPnt;
   private Pixel toolPixel;
   private final GammaCorrectedRGBPoint rbgPoint;
-  private LogDensityFilter logDensityFilter;
-  private GammaCorrectionFilter gammaCorrectionFilter;
-  private AbstractRaster raster;
-  private int rasterWidth;
-  private int rasterHeight;
-  private int imageWidth;
-  private int imageHeight;
+  private final LogDensityFilter logDensityFilter;
+  private final GammaCorrectionFilter gammaCorrectionFilter;
 
   public SampleTonemapper(Flame pFlame, AbstractRaster pRaster, int pRasterWidth, int pRasterHeight, int pImageWidth, int pImageHeight, AbstractRandomGenerator pRandGen) {
     logDensityPnt = new LogDensityPoint(pFlame.getActiveLightCount());
     toolPixel = new Pixel();
-    flame = pFlame.makeCopy();
-    randGen = pRandGen;
     rbgPoint = new GammaCorrectedRGBPoint();
-    logDensityFilter = new LogDensityFilter(pFlame, randGen);
-    imageWidth = pImageWidth;
-    imageHeight = pImageHeight;
-    gammaCorrectionFilter = new GammaCorrectionFilter(pFlame, false, imageWidth, imageHeight);
-    raster = pRaster;
-    rasterWidth = pRasterWidth;
-    rasterHeight = pRasterHeight;
+    logDensityFilter = new LogDensityFilter(pFlame, pRandGen);
+    gammaCorrectionFilter = new GammaCorrectionFilter(pFlame, false, pImageWidth, pImageHeight);
     logDensityFilter.setRaster(pRaster, pRasterWidth, pRasterHeight, pImageWidth, pImageHeight);
   }
 
@@ -66,14 +52,8 @@ public class SampleTonemapper {
   }
 
   public void setDensity(double quality) {
-    flame.setSampleDensity(quality);
-
-    LogDensityFilter newLogDensityFilter = new LogDensityFilter(flame, randGen);
-    GammaCorrectionFilter newGammaCorrectionFilter = new GammaCorrectionFilter(flame, false, imageWidth, imageHeight);
-    newLogDensityFilter.setRaster(raster, rasterWidth, rasterHeight, imageWidth, imageHeight);
-
-    gammaCorrectionFilter = newGammaCorrectionFilter;
-    logDensityFilter = newLogDensityFilter;
+    // only the log density filter depends on the sample density
+    logDensityFilter.setSampleDensity(quality);
   }
 
 }
@@ -1,6 +1,6 @@
 /*
   JWildfire - an image and animation processor written in Java 
-  Copyright (C) 1995-2013 Andreas Maschke
+  Copyright (C) 1995-2016 Andreas Maschke
 
   This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
   General Public License as published by the Free Software Foundation; either version 2.1 of the 
@@ -14,27 +14,12 @@
   if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
   02110-1301 USA, or see the FSF site: http://www.fsf.org.
 */
-package org.jwildfire.create.tina.meshgen;
+package org.jwildfire.create.tina.render;
 
-import java.util.List;
-
-import org.jwildfire.create.tina.meshgen.marchingcubes.Point3f;
-
-public class RawFaces {
-  private final List<Point3f> vertices;
-  private final List<Point3f> normals;
-
-  public RawFaces(List<Point3f> pVertices, List<Point3f> pNormals) {
-    vertices = pVertices;
-    normals = pNormals;
-  }
-
-  public List<Point3f> getVertices() {
-    return vertices;
-  }
-
-  public List<Point3f> getNormals() {
-    return normals;
-  }
+import org.jwildfire.image.SimpleImage;
 
+// Receives the images of FlameRenderer.renderSlices() in z-order, starting with pSliceIndex 0. The image may be
+// modified by the observer, it is not used by the renderer afterwards.
+public interface SliceObserver {
+  public void notifySliceRendered(int pSliceIndex, SimpleImage pImage) throws Exception;
 }
@@ -0,0 +1,153 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.render;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.jwildfire.create.tina.base.TransformationProfiler.XFormProfile;
+
+// Result of a render with RenderInfo.isVariationProfiling() enabled: estimated computation time of each variation and
+// of each transform, summed up over all render threads. The times are extrapolated from the sampled transformations.
+public class VariationProfile {
+
+  public static class Entry {
+    private final String name;
+    private long calls;
+    private double nanos;
+
+    public Entry(String pName) {
+      name = pName;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getCalls() {
+      return calls;
+    }
+
+    public double getNanos() {
+      return nanos;
+    }
+  }
+
+  private final Map<String, Entry> variations = new HashMap<>();
+  private final Map<String, Entry> xForms = new LinkedHashMap<>();
+  private long iterations;
+
+  public void addXFormProfile(String pLabel, boolean pFinalXForm, XFormProfile pProfile) {
+    if (pProfile == null || pProfile.getCalls() == 0) {
+      return;
+    }
+    double scale = pProfile.getSampledCalls() > 0 ? (double) pProfile.getCalls() / (double) pProfile.getSampledCalls() : 0.0;
+    double xFormNanos = 0.0;
+    for (int i = 0; i < pProfile.getStepCount(); i++) {
+      double nanos = pProfile.getStepNanos(i) * scale;
+      xFormNanos += nanos;
+      if (pProfile.getStepName(i) != null) {
+        addToEntry(variations, pProfile.getStepName(i), pProfile.getCalls(), nanos);
+      }
+    }
+    addToEntry(xForms, pLabel, pProfile.getCalls(), xFormNanos);
+    if (!pFinalXForm) {
+      iterations += pProfile.getCalls();
+    }
+  }
+
+  private void addToEntry(Map<String, Entry> pEntries, String pName, long pCalls, double pNanos) {
+    Entry entry = pEntries.get(pName);
+    if (entry == null) {
+      entry = new Entry(pName);
+      pEntries.put(pName, entry);
+    }
+    entry.calls += pCalls;
+    entry.nanos += pNanos;
+  }
+
+  public long getIterations() {
+    return iterations;
+  }
+
+  // variations, the most expensive first
+  public List<Entry> getVariations() {
+    List<Entry> res = new ArrayList<>(variations.values());
+    Collections.sort(res, new Comparator<Entry>() {
+
+      @Override
+      public int compare(Entry o1, Entry o2) {
+        return Double.compare(o2.nanos, o1.nanos);
+      }
+
+    });
+    return res;
+  }
+
+  // transforms in the order of the flame
+  public List<Entry> getXForms() {
+    return new ArrayList<>(xForms.values());
+  }
+
+  public double getNanosPerIteration(Entry pEntry) {
+    return iterations > 0 ? pEntry.nanos / (double) iterations : 0.0;
+  }
+
+  public double getTotalNanosPerIteration() {
+    double nanos = 0.0;
+    for (Entry entry : xForms.values()) {
+      nanos += entry.nanos;
+    }
+    return iterations > 0 ? nanos / (double) iterations : 0.0;
+  }
+
+  public String getReport() {
+    StringBuilder sb = new StringBuilder();
+    double total = getTotalNanosPerIteration();
+    sb.append(String.format(Locale.US, "%d iterations, %.1f ns per iteration in transforms\n", iterations, total));
+    sb.append(String.format(Locale.US, "\n%-32s %12s %12s %8s\n", "Variation", "calls/iter", "ns/iter", "share"));
+    Entry otherSteps = new Entry("(affine transforms, coloring)");
+    otherSteps.calls = iterations;
+    for (Entry entry : xForms.values()) {
+      otherSteps.nanos += entry.nanos;
+    }
+    for (Entry entry : getVariations()) {
+      appendEntry(sb, entry, total);
+      otherSteps.nanos -= entry.nanos;
+    }
+    appendEntry(sb, otherSteps, total);
+    sb.append(String.format(Locale.US, "\n%-32s %12s %12s %8s\n", "Transform", "calls/iter", "ns/iter", "share"));
+    for (Entry entry : getXForms()) {
+      appendEntry(sb, entry, total);
+    }
+    return sb.toString();
+  }
+
+  private void appendEntry(StringBuilder pSB, Entry pEntry, double pTotal) {
+    double nanos = getNanosPerIteration(pEntry);
+    double callsPerIter = iterations > 0 ? (double) pEntry.calls / (double) iterations : 0.0;
+    double share = pTotal > 0.0 ? 100.0 * nanos / pTotal : 0.0;
+    pSB.append(String.format(Locale.US, "%-32s %12.3f %12.1f %7.1f%%\n", pEntry.name, callsPerIter, nanos, share));
+  }
+
+}
@@ -16,8 +16,48 @@
 */
 package org.jwildfire.create.tina.render.image;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public abstract class AbstractImageRenderThread implements Runnable {
   private boolean done;
+  private final int startRow, endRow;
+  private AtomicInteger nextRow;
+  private int chunkSize;
+
+  protected AbstractImageRenderThread(int pStartRow, int pEndRow) {
+    startRow = pStartRow;
+    endRow = pEndRow;
+  }
+
+  @Override
+  public void run() {
+    setDone(false);
+    try {
+      if (nextRow != null) {
+        // fetch small chunks of rows from the shared counter until all rows are done, so fast threads help out slow ones
+        int row;
+        while ((row = nextRow.getAndAdd(chunkSize)) < endRow) {
+          renderRows(row, Math.min(row + chunkSize, endRow));
+        }
+      }
+      else {
+        renderRows(startRow, endRow);
+      }
+    }
+    finally {
+      setDone(true);
+    }
+  }
+
+  protected abstract void renderRows(int pStartRow, int pEndRow);
+
+  public void setRowChunks(AtomicInteger pNextRow, int pChunkSize) {
+    if (pChunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize " + pChunkSize);
+    }
+    nextRow = pNextRow;
+    chunkSize = pChunkSize;
+  }
 
   public boolean isDone() {
     return done;
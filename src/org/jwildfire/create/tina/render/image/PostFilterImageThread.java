@@ -23,7 +23,6 @@ import org.jwildfire.image.Pixel;
 import org.jwildfire.image.SimpleImage;
 
 public class PostFilterImageThread extends AbstractImageRenderThread {
-  private final int startRow, endRow;
   private final SimpleImage input, output;
   private final boolean showHits;
   private final Pixel toolPixel1 = new Pixel();
@@ -42,28 +41,20 @@ public class PostFilterImageThread extends AbstractImageRenderThread {
   }
 
   public PostFilterImageThread(int pStartRow, int pEndRow, SimpleImage pInput, SimpleImage pOutput, double pThreshold) {
+    super(pStartRow, pEndRow);
     input = pInput;
     output = pOutput;
-    startRow = pStartRow;
-    endRow = pEndRow;
     threshold = -MathLib.log(pThreshold) / 2.0;
     showHits = Prefs.getPrefs().isDevelopmentMode();
   }
 
   @Override
-  public void run() {
-    setDone(false);
-    try {
-      doFilter3();
-    }
-    finally {
-      setDone(true);
-    }
+  protected void renderRows(int pStartRow, int pEndRow) {
+    doFilter3(pStartRow, pEndRow);
   }
 
-  private void doFilter3() {
-    hits = 0;
-    for (int y = startRow; y < endRow; y++) {
+  private void doFilter3(int pStartRow, int pEndRow) {
+    for (int y = pStartRow; y < pEndRow; y++) {
       for (int x = 0; x < input.getImageWidth(); x++) {
         PixelValue pCenter = getPixel(input, toolPixel1, x, y);
         PixelValue pLeft = getPixel(input, toolPixel1, x - 1, y);
@@ -28,17 +28,15 @@ public class RenderHDRImageThread extends AbstractImageRenderThread {
   private final LogDensityFilter logDensityFilter;
   private final GammaCorrectionFilter gammaCorrectionFilter;
 
-  private final int startRow, endRow;
   private final LogDensityPoint logDensityPnt;
   private final GammaCorrectedHDRPoint rbgPoint;
   private final SimpleHDRImage img;
   private final PostDOFCalculator dofCalculator;
 
   public RenderHDRImageThread(Flame pFlame, LogDensityFilter pLogDensityFilter, GammaCorrectionFilter pGammaCorrectionFilter, int pStartRow, int pEndRow, SimpleHDRImage pImg, PostDOFCalculator pDofCalculator) {
+    super(pStartRow, pEndRow);
     logDensityFilter = pLogDensityFilter;
     gammaCorrectionFilter = pGammaCorrectionFilter;
-    startRow = pStartRow;
-    endRow = pEndRow;
     logDensityPnt = new LogDensityPoint(pFlame.getActiveLightCount());
     rbgPoint = new GammaCorrectedHDRPoint();
     img = pImg;
@@ -46,23 +44,17 @@ public class RenderHDRImageThread extends AbstractImageRenderThread {
   }
 
   @Override
-  public void run() {
-    setDone(false);
-    try {
-      for (int i = startRow; i < endRow; i++) {
-        for (int j = 0; j < img.getImageWidth(); j++) {
-          logDensityFilter.transformPoint(logDensityPnt, j, i);
-          gammaCorrectionFilter.transformPointHDR(logDensityPnt, rbgPoint, j, i);
-          if (dofCalculator != null) {
-            dofCalculator.addSample(j, i, rbgPoint.red, rbgPoint.green, rbgPoint.blue, logDensityPnt.dofDist, logDensityPnt.rp.zBuf);
-          }
-          img.setRGB(j, i, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
+  protected void renderRows(int pStartRow, int pEndRow) {
+    for (int i = pStartRow; i < pEndRow; i++) {
+      for (int j = 0; j < img.getImageWidth(); j++) {
+        logDensityFilter.transformPoint(logDensityPnt, j, i);
+        gammaCorrectionFilter.transformPointHDR(logDensityPnt, rbgPoint, j, i);
+        if (dofCalculator != null) {
+          dofCalculator.addSample(j, i, rbgPoint.red, rbgPoint.green, rbgPoint.blue, logDensityPnt.dofDist, logDensityPnt.rp.zBuf);
         }
+        img.setRGB(j, i, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
       }
     }
-    finally {
-      setDone(true);
-    }
   }
 
 }
@@ -24,32 +24,24 @@ import org.jwildfire.image.SimpleHDRImage;
 public class RenderHDRIntensityMapThread extends AbstractImageRenderThread {
   private final LogDensityFilter logDensityFilter;
 
-  private final int startRow, endRow;
   private final LogDensityPoint logDensityPnt;
   private final SimpleHDRImage img;
 
   public RenderHDRIntensityMapThread(Flame pFlame, LogDensityFilter pLogDensityFilter, int pStartRow, int pEndRow, SimpleHDRImage pImg) {
+    super(pStartRow, pEndRow);
     logDensityFilter = pLogDensityFilter;
-    startRow = pStartRow;
-    endRow = pEndRow;
     logDensityPnt = new LogDensityPoint(pFlame.getActiveLightCount());
     img = pImg;
   }
 
   @Override
-  public void run() {
-    setDone(false);
-    try {
-      for (int i = startRow; i < endRow; i++) {
-        for (int j = 0; j < img.getImageWidth(); j++) {
-          logDensityFilter.transformPoint(logDensityPnt, j, i);
-          img.setRGB(j, i, (float) logDensityPnt.intensity, (float) logDensityPnt.intensity, (float) logDensityPnt.intensity);
-        }
+  protected void renderRows(int pStartRow, int pEndRow) {
+    for (int i = pStartRow; i < pEndRow; i++) {
+      for (int j = 0; j < img.getImageWidth(); j++) {
+        logDensityFilter.transformPoint(logDensityPnt, j, i);
+        img.setRGB(j, i, (float) logDensityPnt.intensity, (float) logDensityPnt.intensity, (float) logDensityPnt.intensity);
       }
     }
-    finally {
-      setDone(true);
-    }
   }
 
 }
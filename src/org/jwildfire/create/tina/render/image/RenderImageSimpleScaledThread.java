@@ -26,7 +26,6 @@ import org.jwildfire.image.SimpleImage;
 public class RenderImageSimpleScaledThread extends AbstractImageRenderThread {
   private final LogDensityFilter logDensityFilter;
   private final GammaCorrectionFilter gammaCorrectionFilter;
-  private final int startRow, endRow;
   private final LogDensityPoint logDensityPnt;
   private final GammaCorrectedRGBPoint rbgPoint;
   private final SimpleImage img;
@@ -34,11 +33,10 @@ public class RenderImageSimpleScaledThread extends AbstractImageRenderThread {
   private final int renderScale;
 
   public RenderImageSimpleScaledThread(Flame pFlame, LogDensityFilter pLogDensityFilter, GammaCorrectionFilter pGammaCorrectionFilter, int pRenderScale, int pStartRow, int pEndRow, SimpleImage pImg, SimpleImage pNewImg) {
+    super(pStartRow, pEndRow);
     logDensityFilter = pLogDensityFilter;
     gammaCorrectionFilter = pGammaCorrectionFilter;
     renderScale = pRenderScale;
-    startRow = pStartRow;
-    endRow = pEndRow;
     logDensityPnt = new LogDensityPoint(pFlame.getActiveLightCount());
     rbgPoint = new GammaCorrectedRGBPoint();
     img = pImg;
@@ -46,26 +44,20 @@ public class RenderImageSimpleScaledThread extends AbstractImageRenderThread {
   }
 
   @Override
-  public void run() {
-    setDone(false);
-    try {
-      for (int i = startRow; i < endRow; i++) {
-        for (int j = 0; j < img.getImageWidth(); j++) {
-          logDensityFilter.transformPointSimple(logDensityPnt, j, i);
-          gammaCorrectionFilter.transformPoint(logDensityPnt, rbgPoint, j, i);
-          int x = j * renderScale;
-          int y = i * renderScale;
-
-          newImg.setARGB(x, y, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
-          newImg.setARGB(x + 1, y, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
-          newImg.setARGB(x, y + 1, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
-          newImg.setARGB(x + 1, y + 1, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
-        }
+  protected void renderRows(int pStartRow, int pEndRow) {
+    for (int i = pStartRow; i < pEndRow; i++) {
+      for (int j = 0; j < img.getImageWidth(); j++) {
+        logDensityFilter.transformPointSimple(logDensityPnt, j, i);
+        gammaCorrectionFilter.transformPoint(logDensityPnt, rbgPoint, j, i);
+        int x = j * renderScale;
+        int y = i * renderScale;
+
+        newImg.setARGB(x, y, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
+        newImg.setARGB(x + 1, y, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
+        newImg.setARGB(x, y + 1, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
+        newImg.setARGB(x + 1, y + 1, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
       }
     }
-    finally {
-      setDone(true);
-    }
   }
 
 }
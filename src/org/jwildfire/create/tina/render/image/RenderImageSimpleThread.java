@@ -26,36 +26,28 @@ import org.jwildfire.image.SimpleImage;
 public class RenderImageSimpleThread extends AbstractImageRenderThread {
   private final LogDensityFilter logDensityFilter;
   private final GammaCorrectionFilter gammaCorrectionFilter;
-  private final int startRow, endRow;
   private final LogDensityPoint logDensityPnt;
   private final GammaCorrectedRGBPoint rbgPoint;
   private final SimpleImage img;
 
   public RenderImageSimpleThread(Flame pFlame, LogDensityFilter pLogDensityFilter, GammaCorrectionFilter pGammaCorrectionFilter, int pStartRow, int pEndRow, SimpleImage pImg) {
+    super(pStartRow, pEndRow);
     logDensityFilter = pLogDensityFilter;
     gammaCorrectionFilter = pGammaCorrectionFilter;
-    startRow = pStartRow;
-    endRow = pEndRow;
     logDensityPnt = new LogDensityPoint(pFlame.getActiveLightCount());
     rbgPoint = new GammaCorrectedRGBPoint();
     img = pImg;
   }
 
   @Override
-  public void run() {
-    setDone(false);
-    try {
-      for (int i = startRow; i < endRow; i++) {
-        for (int j = 0; j < img.getImageWidth(); j++) {
-          logDensityFilter.transformPointSimple(logDensityPnt, j, i);
-          gammaCorrectionFilter.transformPoint(logDensityPnt, rbgPoint, j, i);
-          img.setARGB(j, i, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
-        }
+  protected void renderRows(int pStartRow, int pEndRow) {
+    for (int i = pStartRow; i < pEndRow; i++) {
+      for (int j = 0; j < img.getImageWidth(); j++) {
+        logDensityFilter.transformPointSimple(logDensityPnt, j, i);
+        gammaCorrectionFilter.transformPoint(logDensityPnt, rbgPoint, j, i);
+        img.setARGB(j, i, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
       }
     }
-    finally {
-      setDone(true);
-    }
   }
 
 }
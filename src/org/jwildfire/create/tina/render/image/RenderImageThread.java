@@ -28,17 +28,15 @@ public class RenderImageThread extends AbstractImageRenderThread {
   private final LogDensityFilter logDensityFilter;
   private final GammaCorrectionFilter gammaCorrectionFilter;
 
-  private final int startRow, endRow;
   private final LogDensityPoint logDensityPnt;
   private final GammaCorrectedRGBPoint rbgPoint;
   private final SimpleImage img;
   private final PostDOFCalculator dofCalculator;
 
   public RenderImageThread(Flame pFlame, LogDensityFilter pLogDensityFilter, GammaCorrectionFilter pGammaCorrectionFilter, int pStartRow, int pEndRow, SimpleImage pImg, PostDOFCalculator pDofCalculator) {
+    super(pStartRow, pEndRow);
     logDensityFilter = pLogDensityFilter;
     gammaCorrectionFilter = pGammaCorrectionFilter;
-    startRow = pStartRow;
-    endRow = pEndRow;
     logDensityPnt = new LogDensityPoint(pFlame.getActiveLightCount());
     rbgPoint = new GammaCorrectedRGBPoint();
     img = pImg;
@@ -46,22 +44,16 @@ public class RenderImageThread extends AbstractImageRenderThread {
   }
 
   @Override
-  public void run() {
-    setDone(false);
-    try {
-      for (int i = startRow; i < endRow; i++) {
-        for (int j = 0; j < img.getImageWidth(); j++) {
-          logDensityFilter.transformPoint(logDensityPnt, j, i);
-          gammaCorrectionFilter.transformPoint(logDensityPnt, rbgPoint, j, i);
-          if (dofCalculator != null) {
-            dofCalculator.addSample(j, i, rbgPoint.red, rbgPoint.green, rbgPoint.blue, logDensityPnt.dofDist, logDensityPnt.rp.zBuf);
-          }
-          img.setARGB(j, i, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
+  protected void renderRows(int pStartRow, int pEndRow) {
+    for (int i = pStartRow; i < pEndRow; i++) {
+      for (int j = 0; j < img.getImageWidth(); j++) {
+        logDensityFilter.transformPoint(logDensityPnt, j, i);
+        gammaCorrectionFilter.transformPoint(logDensityPnt, rbgPoint, j, i);
+        if (dofCalculator != null) {
+          dofCalculator.addSample(j, i, rbgPoint.red, rbgPoint.green, rbgPoint.blue, logDensityPnt.dofDist, logDensityPnt.rp.zBuf);
         }
+        img.setARGB(j, i, rbgPoint.alpha, rbgPoint.red, rbgPoint.green, rbgPoint.blue);
       }
     }
-    finally {
-      setDone(true);
-    }
   }
 }
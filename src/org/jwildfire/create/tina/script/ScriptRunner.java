@@ -16,10 +16,7 @@
 */
 package org.jwildfire.create.tina.script;
 
-import java.io.StringReader;
-
-import org.codehaus.janino.ClassBodyEvaluator;
-import org.codehaus.janino.Scanner;
+import org.jwildfire.base.CompiledClassCache;
 import org.jwildfire.create.tina.script.ui.FormBuilder;
 
 public class ScriptRunner {
@@ -27,8 +24,7 @@ public class ScriptRunner {
   private String scriptPath;
   
   public static ScriptRunner compile(String pScript) throws Exception {
-    ScriptRunner res = (ScriptRunner) ClassBodyEvaluator.createFastClassBodyEvaluator(new Scanner(null, new StringReader(pScript)), ScriptRunner.class, (ClassLoader) null);
-    return res;
+    return CompiledClassCache.getInstance().newInstance(ScriptRunner.class, pScript);
   }
 
   public void run(ScriptRunnerEnvironment pEnv) {
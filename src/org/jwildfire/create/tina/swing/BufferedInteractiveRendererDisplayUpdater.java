@@ -16,20 +16,39 @@
 */
 package org.jwildfire.create.tina.swing;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.swing.JPanel;
 
 import org.jwildfire.create.tina.render.AbstractRenderThread;
+import org.jwildfire.create.tina.render.RenderExecutor;
+import org.jwildfire.create.tina.render.SampleTonemapper;
 import org.jwildfire.create.tina.variation.RessourceManager;
 import org.jwildfire.image.SimpleImage;
 
+// The render threads only mark the plotted pixels (and their tiles) as dirty, the tonemapping of the dirty pixels is
+// done tile by tile (in parallel) when the image is updated. So the cost of an update depends on the changed area
+// and not on the size of the image.
 public class BufferedInteractiveRendererDisplayUpdater implements InteractiveRendererDisplayUpdater {
+  private static final int TILE_SIZE = 32;
+  // minimum number of dirty tiles per tonemapping task
+  private static final int MIN_TILES_PER_TASK = 4;
+
   private long sampleCount;
   private final JPanel imageRootPanel;
   private final SimpleImage image;
   private final int imageWidth;
   private final int imageHeight;
+  private final int tileCountX;
+  private final int tileCountY;
   private int[] buffer;
   private long[] iterationCount;
+  private SampleTonemapper[] tonemappers;
+  // Written by the render threads without synchronization. A flag which is set while its tile is processed is either
+  // seen by this update or it leaves the tile dirty for the next one.
+  private final byte[] dirtyPixels;
+  private final byte[] dirtyTiles;
 
   private boolean showPreview;
 
@@ -38,6 +57,10 @@ public class BufferedInteractiveRendererDisplayUpdater implements InteractiveRen
     image = pImage;
     imageWidth = image.getImageWidth();
     imageHeight = image.getImageHeight();
+    tileCountX = (imageWidth + TILE_SIZE - 1) / TILE_SIZE;
+    tileCountY = (imageHeight + TILE_SIZE - 1) / TILE_SIZE;
+    dirtyPixels = new byte[imageWidth * imageHeight];
+    dirtyTiles = new byte[tileCountX * tileCountY];
     buffer = getBufferFromImage();
     showPreview = pShowPreview;
   }
@@ -48,21 +71,30 @@ public class BufferedInteractiveRendererDisplayUpdater implements InteractiveRen
 
   @Override
   public void iterationFinished(AbstractRenderThread pEventSource, int pX, int pY) {
-    iterationCount[pEventSource.getThreadId()] = pEventSource.getCurrSample();
+    int threadId = pEventSource.getThreadId();
+    iterationCount[threadId] = pEventSource.getCurrSample();
     sampleCount = calculateSampleCount();
     int x = pX / pEventSource.getOversample();
     int y = pY / pEventSource.getOversample();
     if (showPreview && x >= 0 && x < imageWidth && y >= 0 && y < imageHeight) {
-      int argb = pEventSource.getTonemapper().tonemapSample(x, y);
+      if (tonemappers[threadId] == null) {
+        tonemappers[threadId] = pEventSource.getTonemapper();
+      }
       int offset = imageWidth * y + x;
-      buffer[offset] = argb;
+      if (dirtyPixels[offset] == 0) {
+        dirtyPixels[offset] = 1;
+        int tile = (y / TILE_SIZE) * tileCountX + x / TILE_SIZE;
+        if (dirtyTiles[tile] == 0) {
+          dirtyTiles[tile] = 1;
+        }
+      }
     }
   }
 
   @Override
-  public void updateImage(InteractiveRendererImagePostProcessor pProcessor) {
+  public synchronized void updateImage(InteractiveRendererImagePostProcessor pProcessor) {
     if (showPreview) {
-      image.getBufferedImg().setRGB(0, 0, imageWidth, imageHeight, buffer, 0, imageWidth);
+      tonemapDirtyTiles();
       if (pProcessor != null) {
         pProcessor.postProcessImage(image);
       }
@@ -70,6 +102,73 @@ public class BufferedInteractiveRendererDisplayUpdater implements InteractiveRen
     }
   }
 
+  private void tonemapDirtyTiles() {
+    List<SampleTonemapper> availableTonemappers = new ArrayList<SampleTonemapper>();
+    for (SampleTonemapper tonemapper : tonemappers) {
+      if (tonemapper != null) {
+        availableTonemappers.add(tonemapper);
+      }
+    }
+    if (availableTonemappers.isEmpty()) {
+      return;
+    }
+    int dirtyTileCount = 0;
+    int[] tiles = new int[dirtyTiles.length];
+    for (int i = 0; i < dirtyTiles.length; i++) {
+      if (dirtyTiles[i] != 0) {
+        dirtyTiles[i] = 0;
+        tiles[dirtyTileCount++] = i;
+      }
+    }
+    // each tonemapper may only be used by one thread
+    int taskCount = Math.max(1, Math.min(availableTonemappers.size(), dirtyTileCount / MIN_TILES_PER_TASK));
+    List<Runnable> tasks = new ArrayList<Runnable>(taskCount);
+    for (int i = 0; i < taskCount; i++) {
+      tasks.add(new TonemapTilesTask(availableTonemappers.get(i), tiles, i, taskCount, dirtyTileCount));
+    }
+    RenderExecutor.runAndWait(tasks);
+  }
+
+  private class TonemapTilesTask implements Runnable {
+    private final SampleTonemapper tonemapper;
+    private final int[] tiles;
+    private final int startIdx;
+    private final int step;
+    private final int endIdx;
+
+    public TonemapTilesTask(SampleTonemapper pTonemapper, int[] pTiles, int pStartIdx, int pStep, int pEndIdx) {
+      tonemapper = pTonemapper;
+      tiles = pTiles;
+      startIdx = pStartIdx;
+      step = pStep;
+      endIdx = pEndIdx;
+    }
+
+    @Override
+    public void run() {
+      for (int i = startIdx; i < endIdx; i += step) {
+        tonemapTile(tiles[i]);
+      }
+    }
+
+    private void tonemapTile(int pTile) {
+      int x0 = (pTile % tileCountX) * TILE_SIZE;
+      int y0 = (pTile / tileCountX) * TILE_SIZE;
+      int x1 = Math.min(x0 + TILE_SIZE, imageWidth);
+      int y1 = Math.min(y0 + TILE_SIZE, imageHeight);
+      for (int y = y0; y < y1; y++) {
+        int offset = y * imageWidth + x0;
+        for (int x = x0; x < x1; x++, offset++) {
+          if (dirtyPixels[offset] != 0) {
+            dirtyPixels[offset] = 0;
+            buffer[offset] = tonemapper.tonemapSample(x, y);
+          }
+        }
+      }
+      image.getBufferedImg().setRGB(x0, y0, x1 - x0, y1 - y0, buffer, y0 * imageWidth + x0, imageWidth);
+    }
+  }
+
   @Override
   public long getSampleCount() {
     return sampleCount;
@@ -115,5 +214,6 @@ public class BufferedInteractiveRendererDisplayUpdater implements InteractiveRen
   @Override
   public void initRender(int pThreadGroupSize) {
     iterationCount = new long[pThreadGroupSize];
+    tonemappers = new SampleTonemapper[pThreadGroupSize];
   }
 }
@@ -30,13 +30,23 @@ public class MeshFileChooser extends DefaultFileChooser {
 
   @Override
   protected String getDefaultExtension() {
-    return Tools.FILEEXT_OBJ;
+    FileFilter filter = getFileFilter();
+    return filter instanceof MeshFileFilter ? ((MeshFileFilter) filter).getExtension() : Tools.FILEEXT_OBJ;
   }
 
   public MeshFileChooser(Prefs pPrefs) {
+    this(pPrefs, false);
+  }
+
+  // the binary formats can only be written, but not be loaded
+  public MeshFileChooser(Prefs pPrefs, boolean pWithBinaryFormats) {
     setPreferredSize(new Dimension(800, 600));
     FileFilter filter = new MeshFileFilter();
     addChoosableFileFilter(filter);
+    if (pWithBinaryFormats) {
+      addChoosableFileFilter(new MeshFileFilter(Tools.FILEEXT_PLY, "*.ply files (binary Stanford format)"));
+      addChoosableFileFilter(new MeshFileFilter(Tools.FILEEXT_STL, "*.stl files (binary STL format)"));
+    }
     setFileFilter(filter);
     setAcceptAllFileFilterUsed(false);
   }
@@ -23,6 +23,17 @@ import javax.swing.filechooser.FileFilter;
 import org.jwildfire.base.Tools;
 
 public class MeshFileFilter extends FileFilter {
+  private final String extension;
+  private final String description;
+
+  public MeshFileFilter() {
+    this(Tools.FILEEXT_OBJ, "*.obj files (Wavefront format)");
+  }
+
+  public MeshFileFilter(String pExtension, String pDescription) {
+    extension = pExtension;
+    description = pDescription;
+  }
 
   @Override
   public boolean accept(File pFile) {
@@ -31,12 +42,16 @@ public class MeshFileFilter extends FileFilter {
     }
     String extension = getExtension(pFile);
     return (extension != null)
-        && extension.equals(Tools.FILEEXT_OBJ);
+        && extension.equals(this.extension);
   }
 
   @Override
   public String getDescription() {
-    return "*.obj files (Wavefront format)";
+    return description;
+  }
+
+  public String getExtension() {
+    return extension;
   }
 
   private String getExtension(File pFile) {
@@ -70,6 +70,7 @@ public class RenderMainFlameThread implements Runnable {
       info.setRenderHDR(renderHDR);
       boolean renderHDRIntensityMap = qualProfile.isWithHDRIntensityMap();
       info.setRenderHDRIntensityMap(renderHDRIntensityMap);
+      info.setNoiseTarget(prefs.getTinaAdaptiveNoiseTarget());
       flame.setSampleDensity(qualProfile.getQuality());
       long t0, t1;
       renderer = new FlameRenderer(flame, prefs, flame.isBGTransparency(), false);
@@ -1,12 +1,34 @@
 package org.jwildfire.create.tina.swing;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class ThumbnailCacheKey {
+  // larger files (i.e. images) are identified by name, size and modification time instead of their content
+  private static final long MAX_CONTENT_HASH_SIZE = 1024 * 1024;
+  // content hashes of recently used files, by name, size and modification time, so a file is only read again when it changed
+  private static final int MAX_CONTENT_HASH_CACHE_SIZE = 4096;
+  private static final Map<String, byte[]> contentHashCache = new LinkedHashMap<String, byte[]>(256, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, byte[]> pEldest) {
+      return size() > MAX_CONTENT_HASH_CACHE_SIZE;
+    }
+  };
+
   private final String filename;
   private final String keyExt;
   private final long modificationtime;
   private static final int version = 2;
+  private byte[] contentHash;
 
   public ThumbnailCacheKey(String pFilename) {
     this(pFilename, "");
@@ -18,15 +40,64 @@ public class ThumbnailCacheKey {
     keyExt = pKeyExt;
   }
 
-  public String getCacheKey(int pThumbnailWidth) {
-    return filename.hashCode() + "#" + modificationtime + "#" + keyExt + "#" + pThumbnailWidth + "#" + version;
+  // key of the ThumbnailStore, based on the content of the file, so copies or moved files share their thumbnails
+  public long getKeyHash(int pThumbnailWidth) {
+    return getKeyHash(pThumbnailWidth, -1, -1);
+  }
+
+  public long getKeyHash(int pThumbnailWidth, int pThumbnailHeight) {
+    return getKeyHash(pThumbnailWidth, pThumbnailHeight, -1);
   }
 
-  public String getCacheKey(int pThumbnailWidth, int pThumbnailHeight) {
-    return getCacheKey(pThumbnailWidth) + "#" + pThumbnailWidth;
+  public long getKeyHash(int pThumbnailWidth, int pThumbnailHeight, int pQuality) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      digest.update(getContentHash());
+      digest.update((keyExt + "#" + pThumbnailWidth + "#" + pThumbnailHeight + "#" + pQuality + "#" + version).getBytes(StandardCharsets.UTF_8));
+      byte[] hash = digest.digest();
+      long res = 0;
+      for (int i = 0; i < 8; i++) {
+        res = (res << 8) | (hash[i] & 0xff);
+      }
+      return res;
+    }
+    catch (NoSuchAlgorithmException ex) {
+      throw new RuntimeException(ex);
+    }
   }
 
-  public String getCacheKey(int pThumbnailWidth, int pThumbnailHeight, int pQuality) {
-    return getCacheKey(pThumbnailWidth, pThumbnailHeight) + "#" + pQuality;
+  private byte[] getContentHash() throws NoSuchAlgorithmException {
+    if (contentHash == null) {
+      File file = new File(filename);
+      String fileKey = file.getAbsolutePath() + "#" + file.length() + "#" + modificationtime;
+      synchronized (contentHashCache) {
+        contentHash = contentHashCache.get(fileKey);
+      }
+      if (contentHash != null) {
+        return contentHash;
+      }
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      if (file.isFile() && file.length() <= MAX_CONTENT_HASH_SIZE) {
+        try (InputStream is = new FileInputStream(file)) {
+          byte[] buffer = new byte[8192];
+          int len;
+          while ((len = is.read(buffer)) > 0) {
+            digest.update(buffer, 0, len);
+          }
+          contentHash = digest.digest();
+        }
+        catch (IOException ex) {
+          digest.reset();
+        }
+      }
+      if (contentHash == null) {
+        digest.update(fileKey.getBytes(StandardCharsets.UTF_8));
+        contentHash = digest.digest();
+      }
+      synchronized (contentHashCache) {
+        contentHashCache.put(fileKey, contentHash);
+      }
+    }
+    return contentHash;
   }
 }
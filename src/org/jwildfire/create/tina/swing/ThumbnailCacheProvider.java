@@ -2,13 +2,8 @@ package org.jwildfire.create.tina.swing;
 
 import java.io.File;
 
-import javax.swing.JLabel;
-
 import org.jwildfire.base.Prefs;
-import org.jwildfire.base.Tools;
 import org.jwildfire.image.SimpleImage;
-import org.jwildfire.io.ImageReader;
-import org.jwildfire.io.ImageWriter;
 
 public class ThumbnailCacheProvider {
 
@@ -16,66 +11,44 @@ public class ThumbnailCacheProvider {
   private static final String JWILDFIRE_DRAWER = "j-wildfire";
 
   public static SimpleImage getThumbnail(ThumbnailCacheKey pCacheKey, int pWidth) {
-    File file = new File(rootDrawer, pCacheKey.getCacheKey(pWidth) + "." + Tools.FILEEXT_PNG);
-    return tryReadImage(pWidth, file);
+    return tryReadImage(pCacheKey.getKeyHash(pWidth), pWidth, -1);
   }
 
   public static SimpleImage getThumbnail(ThumbnailCacheKey pCacheKey, int pWidth, int pHeight) {
-    File file = new File(rootDrawer, pCacheKey.getCacheKey(pWidth, pHeight) + "." + Tools.FILEEXT_PNG);
-    return tryReadImage(pWidth, pHeight, file);
+    return tryReadImage(pCacheKey.getKeyHash(pWidth, pHeight), pWidth, pHeight);
   }
 
   public static SimpleImage getThumbnail(ThumbnailCacheKey pCacheKey, int pWidth, int pHeight, int pQuality) {
-    File file = new File(rootDrawer, pCacheKey.getCacheKey(pWidth, pHeight, pQuality) + "." + Tools.FILEEXT_PNG);
-    return tryReadImage(pWidth, pHeight, file);
+    return tryReadImage(pCacheKey.getKeyHash(pWidth, pHeight, pQuality), pWidth, pHeight);
   }
 
-  private static SimpleImage tryReadImage(int pWidth, int pHeight, File pFile) {
-    if (pFile.exists()) {
-      try {
-        SimpleImage img = new ImageReader(new JLabel()).loadImage(pFile.getAbsolutePath());
-        if (img != null && img.getImageWidth() == pWidth && img.getImageHeight() == pHeight) {
-          return img;
-        }
-      }
-      catch (Exception ex) {
-        ex.printStackTrace();
+  private static SimpleImage tryReadImage(long pKeyHash, int pWidth, int pHeight) {
+    try {
+      SimpleImage img = store.get(pKeyHash);
+      if (img != null && img.getImageWidth() == pWidth && (pHeight < 0 || img.getImageHeight() == pHeight)) {
+        return img;
       }
     }
-    return null;
-  }
-
-  private static SimpleImage tryReadImage(int pWidth, File pFile) {
-    if (pFile.exists()) {
-      try {
-        SimpleImage img = new ImageReader(new JLabel()).loadImage(pFile.getAbsolutePath());
-        if (img != null && img.getImageWidth() == pWidth) {
-          return img;
-        }
-      }
-      catch (Exception ex) {
-        ex.printStackTrace();
-      }
+    catch (Exception ex) {
+      ex.printStackTrace();
     }
     return null;
   }
 
   public static void storeThumbnail(ThumbnailCacheKey pCacheKey, int pWidth, SimpleImage pThumbnail) {
-    File file = new File(rootDrawer, pCacheKey.getCacheKey(pWidth) + "." + Tools.FILEEXT_PNG);
-    tryWriteImage(pThumbnail, file);
+    tryWriteImage(pCacheKey.getKeyHash(pWidth), pThumbnail);
   }
 
   public static void storeThumbnail(ThumbnailCacheKey pCacheKey, int pWidth, int pHeight, SimpleImage pThumbnail) {
-    File file = new File(rootDrawer, pCacheKey.getCacheKey(pWidth, pHeight) + "." + Tools.FILEEXT_PNG);
-    tryWriteImage(pThumbnail, file);
+    tryWriteImage(pCacheKey.getKeyHash(pWidth, pHeight), pThumbnail);
   }
 
   public static void storeThumbnail(ThumbnailCacheKey pCacheKey, int pWidth, int pHeight, int pQuality, SimpleImage pThumbnail) {
-    File file = new File(rootDrawer, pCacheKey.getCacheKey(pWidth, pHeight, pQuality) + "." + Tools.FILEEXT_PNG);
-    tryWriteImage(pThumbnail, file);
+    tryWriteImage(pCacheKey.getKeyHash(pWidth, pHeight, pQuality), pThumbnail);
   }
 
   private static File rootDrawer;
+  private static final ThumbnailStore store;
 
   static {
     String path = Prefs.getPrefs().getThumbnailPath();
@@ -93,11 +66,20 @@ public class ThumbnailCacheProvider {
         }
       }
     }
+    long maxSize = Prefs.getPrefs().getThumbnailCacheSize() * 1024L * 1024L;
+    long maxMemorySize = Math.min(maxSize, Runtime.getRuntime().maxMemory() / 32);
+    store = new ThumbnailStore(rootDrawer, maxSize, maxMemorySize);
+    Runtime.getRuntime().addShutdownHook(new Thread() {
+      @Override
+      public void run() {
+        store.close();
+      }
+    });
   }
 
-  private static void tryWriteImage(SimpleImage pThumbnail, File pFile) {
+  private static void tryWriteImage(long pKeyHash, SimpleImage pThumbnail) {
     try {
-      new ImageWriter().saveAsPNG(pThumbnail, pFile.getAbsolutePath());
+      store.put(pKeyHash, pThumbnail);
     }
     catch (Exception ex) {
       ex.printStackTrace();
@@ -0,0 +1,433 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.swing;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jwildfire.image.SimpleImage;
+
+// Persistent store of thumbnails, which keeps the raw ARGB pixels of all thumbnails in one pack file and their
+// position in one index file. The least recently used thumbnails are removed when the size limit is exceeded, the
+// pack file is compacted when it becomes larger than twice the limit. Recently used thumbnails are additionally kept
+// in memory.
+// The directory may be shared by several instances of JWildfire, only the one which holds the lock file changes the
+// files. The others read the thumbnails which were stored when they started, and keep new thumbnails only in memory.
+public class ThumbnailStore {
+  private static final int INDEX_MAGIC = 0x4a574654;
+  private static final int INDEX_VERSION = 1;
+  private static final String INDEX_FILENAME = "thumbnails.idx";
+  private static final String PACK_FILENAME_PREFIX = "thumbnails.";
+  private static final String PACK_FILENAME_EXT = ".pack";
+  private static final String LOCK_FILENAME = "thumbnails.lock";
+  // number of changes after which the index is written
+  private static final int INDEX_SAVE_INTERVAL = 32;
+  // the pack file is accessed by a single mapping
+  private static final long MAX_STORE_SIZE = 512L * 1024L * 1024L;
+
+  private static class IndexEntry {
+    private long offset;
+    private final int width;
+    private final int height;
+
+    public IndexEntry(long pOffset, int pWidth, int pHeight) {
+      offset = pOffset;
+      width = pWidth;
+      height = pHeight;
+    }
+
+    public long getSize() {
+      return 4L * width * height;
+    }
+  }
+
+  private final File directory;
+  private final long maxSize;
+  private final long maxMemorySize;
+  // both maps are in access order, i.e. the first entry is the least recently used
+  private final LinkedHashMap<Long, IndexEntry> entries = new LinkedHashMap<Long, IndexEntry>(1024, 0.75f, true);
+  private final LinkedHashMap<Long, SimpleImage> memoryCache = new LinkedHashMap<Long, SimpleImage>(256, 0.75f, true);
+  private long size;
+  private long memorySize;
+  private int generation;
+  private RandomAccessFile packFile;
+  private FileChannel packChannel;
+  private MappedByteBuffer packBuffer;
+  private long packSize;
+  private int unsavedChanges;
+  private RandomAccessFile lockFile;
+  private FileLock lock;
+
+  public ThumbnailStore(File pDirectory, long pMaxSize, long pMaxMemorySize) {
+    directory = pDirectory;
+    maxSize = Math.min(pMaxSize, MAX_STORE_SIZE);
+    maxMemorySize = pMaxMemorySize;
+    acquireLock();
+    try {
+      readIndex();
+    }
+    catch (Exception ex) {
+      // missing or damaged index, start with an empty store
+      entries.clear();
+      size = 0;
+      generation++;
+    }
+    if (!isReadOnly()) {
+      deleteUnusedPackFiles();
+    }
+    try {
+      openPackFile();
+      // remove entries which were not written completely
+      for (Iterator<Map.Entry<Long, IndexEntry>> it = entries.entrySet().iterator(); it.hasNext();) {
+        Map.Entry<Long, IndexEntry> entry = it.next();
+        if (entry.getValue().offset + entry.getValue().getSize() > packSize) {
+          removeEntry(it, entry);
+        }
+      }
+    }
+    catch (IOException ex) {
+      ex.printStackTrace();
+      closePackFile();
+    }
+  }
+
+  public synchronized SimpleImage get(long pKey) {
+    Long key = Long.valueOf(pKey);
+    // also updates the access order of the persistent entry
+    IndexEntry entry = entries.get(key);
+    SimpleImage res = memoryCache.get(key);
+    if (res != null) {
+      return res;
+    }
+    if (entry == null || packChannel == null) {
+      return null;
+    }
+    try {
+      res = readImage(entry);
+    }
+    catch (IOException ex) {
+      ex.printStackTrace();
+      return null;
+    }
+    putIntoMemoryCache(key, res);
+    return res;
+  }
+
+  public synchronized void put(long pKey, SimpleImage pImage) {
+    Long key = Long.valueOf(pKey);
+    IndexEntry old = entries.remove(key);
+    if (old != null) {
+      size -= old.getSize();
+    }
+    removeFromMemoryCache(key);
+    if (packChannel == null || isReadOnly()) {
+      putIntoMemoryCache(key, pImage);
+      return;
+    }
+    int width = pImage.getImageWidth();
+    int height = pImage.getImageHeight();
+    IndexEntry entry = new IndexEntry(packSize, width, height);
+    if (entry.getSize() > maxSize) {
+      return;
+    }
+    try {
+      int[] pixels = pImage.getBufferedImg().getRGB(0, 0, width, height, null, 0, width);
+      ByteBuffer buffer = ByteBuffer.allocate(pixels.length * 4);
+      buffer.asIntBuffer().put(pixels);
+      write(packChannel, buffer, packSize);
+      packSize += entry.getSize();
+    }
+    catch (IOException ex) {
+      ex.printStackTrace();
+      return;
+    }
+    entries.put(key, entry);
+    size += entry.getSize();
+    putIntoMemoryCache(key, pImage);
+    for (Iterator<Map.Entry<Long, IndexEntry>> it = entries.entrySet().iterator(); size > maxSize && it.hasNext();) {
+      removeEntry(it, it.next());
+    }
+    if (packSize > 2 * maxSize) {
+      compact();
+    }
+    else if (++unsavedChanges >= INDEX_SAVE_INTERVAL) {
+      flush();
+    }
+  }
+
+  public synchronized void flush() {
+    if (isReadOnly()) {
+      return;
+    }
+    try {
+      if (packChannel != null) {
+        packChannel.force(false);
+      }
+      writeIndex();
+      unsavedChanges = 0;
+    }
+    catch (IOException ex) {
+      ex.printStackTrace();
+    }
+  }
+
+  public synchronized void close() {
+    flush();
+    closePackFile();
+    releaseLock();
+  }
+
+  // true if the files are changed by another store
+  public synchronized boolean isReadOnly() {
+    return lock == null;
+  }
+
+  public synchronized int getCount() {
+    return entries.size();
+  }
+
+  public synchronized long getSize() {
+    return size;
+  }
+
+  // removes the persistent entry, and its image from the memory, as it must not be returned any more
+  private void removeEntry(Iterator<Map.Entry<Long, IndexEntry>> pIterator, Map.Entry<Long, IndexEntry> pEntry) {
+    size -= pEntry.getValue().getSize();
+    removeFromMemoryCache(pEntry.getKey());
+    pIterator.remove();
+  }
+
+  private void removeFromMemoryCache(Long pKey) {
+    SimpleImage img = memoryCache.remove(pKey);
+    if (img != null) {
+      memorySize -= 4L * img.getImageWidth() * img.getImageHeight();
+    }
+  }
+
+  private void putIntoMemoryCache(Long pKey, SimpleImage pImage) {
+    memoryCache.put(pKey, pImage);
+    memorySize += 4L * pImage.getImageWidth() * pImage.getImageHeight();
+    for (Iterator<SimpleImage> it = memoryCache.values().iterator(); memorySize > maxMemorySize && it.hasNext();) {
+      SimpleImage img = it.next();
+      memorySize -= 4L * img.getImageWidth() * img.getImageHeight();
+      it.remove();
+    }
+  }
+
+  private SimpleImage readImage(IndexEntry pEntry) throws IOException {
+    long end = pEntry.offset + pEntry.getSize();
+    if (packBuffer == null || packBuffer.capacity() < end) {
+      packBuffer = packChannel.map(FileChannel.MapMode.READ_ONLY, 0, packSize);
+    }
+    ByteBuffer data = packBuffer.duplicate();
+    data.position((int) pEntry.offset);
+    data.limit((int) end);
+    BufferedImage img = new BufferedImage(pEntry.width, pEntry.height, BufferedImage.TYPE_INT_ARGB);
+    data.slice().asIntBuffer().get(((DataBufferInt) img.getRaster().getDataBuffer()).getData());
+    return new SimpleImage(img, pEntry.width, pEntry.height);
+  }
+
+  // copies all entries to a new pack file, in the order of their last usage
+  private void compact() {
+    int newGeneration = generation + 1;
+    File newFile = getPackFile(newGeneration);
+    try (RandomAccessFile newPackFile = new RandomAccessFile(newFile, "rw")) {
+      FileChannel newChannel = newPackFile.getChannel();
+      long newPackSize = 0;
+      List<Long> offsets = new ArrayList<Long>(entries.size());
+      for (IndexEntry entry : entries.values()) {
+        long pos = entry.offset;
+        long end = entry.offset + entry.getSize();
+        while (pos < end) {
+          pos += packChannel.transferTo(pos, end - pos, newChannel);
+        }
+        offsets.add(Long.valueOf(newPackSize));
+        newPackSize += entry.getSize();
+      }
+      newChannel.force(false);
+      int idx = 0;
+      for (IndexEntry entry : entries.values()) {
+        entry.offset = offsets.get(idx++).longValue();
+      }
+    }
+    catch (IOException ex) {
+      ex.printStackTrace();
+      newFile.delete();
+      return;
+    }
+    closePackFile();
+    File oldFile = getPackFile(generation);
+    generation = newGeneration;
+    flush();
+    if (!oldFile.delete()) {
+      // still mapped on some platforms
+      oldFile.deleteOnExit();
+    }
+    try {
+      openPackFile();
+    }
+    catch (IOException ex) {
+      ex.printStackTrace();
+      closePackFile();
+    }
+  }
+
+  private static void write(FileChannel pChannel, ByteBuffer pBuffer, long pPosition) throws IOException {
+    long pos = pPosition;
+    while (pBuffer.hasRemaining()) {
+      pos += pChannel.write(pBuffer, pos);
+    }
+  }
+
+  private File getPackFile(int pGeneration) {
+    return new File(directory, PACK_FILENAME_PREFIX + pGeneration + PACK_FILENAME_EXT);
+  }
+
+  private void openPackFile() throws IOException {
+    packFile = new RandomAccessFile(getPackFile(generation), isReadOnly() ? "r" : "rw");
+    packChannel = packFile.getChannel();
+    packSize = packChannel.size();
+    packBuffer = null;
+  }
+
+  private void closePackFile() {
+    packBuffer = null;
+    packChannel = null;
+    if (packFile != null) {
+      try {
+        packFile.close();
+      }
+      catch (IOException ex) {
+        ex.printStackTrace();
+      }
+      packFile = null;
+    }
+  }
+
+  private void acquireLock() {
+    try {
+      lockFile = new RandomAccessFile(new File(directory, LOCK_FILENAME), "rw");
+      lock = lockFile.getChannel().tryLock();
+    }
+    catch (IOException | OverlappingFileLockException ex) {
+      // locked by this process, or locks are not supported
+      lock = null;
+    }
+    if (lock == null) {
+      releaseLock();
+    }
+  }
+
+  private void releaseLock() {
+    if (lock != null) {
+      try {
+        lock.release();
+      }
+      catch (IOException ex) {
+        ex.printStackTrace();
+      }
+      lock = null;
+    }
+    if (lockFile != null) {
+      try {
+        lockFile.close();
+      }
+      catch (IOException ex) {
+        ex.printStackTrace();
+      }
+      lockFile = null;
+    }
+  }
+
+  private void deleteUnusedPackFiles() {
+    String currFilename = getPackFile(generation).getName();
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        String name = file.getName();
+        if (name.startsWith(PACK_FILENAME_PREFIX) && name.endsWith(PACK_FILENAME_EXT) && !name.equals(currFilename)) {
+          file.delete();
+        }
+      }
+    }
+  }
+
+  private void readIndex() throws IOException {
+    File file = new File(directory, INDEX_FILENAME);
+    if (!file.exists()) {
+      return;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+        throw new IOException("Invalid thumbnail index " + file.getAbsolutePath());
+      }
+      generation = in.readInt();
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        long key = in.readLong();
+        IndexEntry entry = new IndexEntry(in.readLong(), in.readInt(), in.readInt());
+        entries.put(Long.valueOf(key), entry);
+        size += entry.getSize();
+      }
+    }
+  }
+
+  private void writeIndex() throws IOException {
+    File file = new File(directory, INDEX_FILENAME);
+    File tmpFile = new File(directory, INDEX_FILENAME + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+      out.writeInt(INDEX_MAGIC);
+      out.writeInt(INDEX_VERSION);
+      out.writeInt(generation);
+      out.writeInt(entries.size());
+      // iteration does not change the access order, so the entries are read back in the same order
+      for (Map.Entry<Long, IndexEntry> mapEntry : entries.entrySet()) {
+        IndexEntry entry = mapEntry.getValue();
+        out.writeLong(mapEntry.getKey().longValue());
+        out.writeLong(entry.offset);
+        out.writeInt(entry.width);
+        out.writeInt(entry.height);
+      }
+    }
+    if (!tmpFile.renameTo(file)) {
+      file.delete();
+      if (!tmpFile.renameTo(file)) {
+        throw new IOException("Could not write " + file.getAbsolutePath());
+      }
+    }
+  }
+
+}
@@ -56,6 +56,7 @@ import org.jwildfire.create.tina.randomsymmetry.RandomSymmetryGeneratorList;
 import org.jwildfire.create.tina.render.AbstractRenderThread;
 import org.jwildfire.create.tina.render.FlameRenderer;
 import org.jwildfire.create.tina.render.IterationObserver;
+import org.jwildfire.create.tina.render.RenderCheckpointScheduler;
 import org.jwildfire.create.tina.render.RenderInfo;
 import org.jwildfire.create.tina.render.RenderMode;
 import org.jwildfire.create.tina.render.RenderThreads;
@@ -96,6 +97,7 @@ public class TinaInteractiveRendererController implements IterationObserver {
   private Flame currFlame;
   private RenderThreads threads;
   private UpdateDisplayThread updateDisplayThread;
+  private RenderCheckpointScheduler checkpointScheduler;
   private FlameRenderer renderer;
   private State state = State.IDLE;
   private final QuickSaveFilenameGen qsaveFilenameGen;
@@ -359,6 +361,7 @@ public class TinaInteractiveRendererController implements IterationObserver {
 
   private void cancelRender() {
     if (state == State.RENDER) {
+      stopCheckpointThread();
       if (updateDisplayThread != null) {
         updateDisplayThread.cancel();
       }
@@ -440,11 +443,17 @@ public class TinaInteractiveRendererController implements IterationObserver {
       for (Thread t : threads.getExecutingThreads()) {
         t.resume();
       }
+      if (checkpointScheduler != null) {
+        checkpointScheduler.setPaused(false);
+      }
     }
   }
 
   private void pauseRenderThreads() {
     if (threads != null && state == State.RENDER) {
+      if (checkpointScheduler != null) {
+        checkpointScheduler.setPaused(true);
+      }
       for (Thread t : threads.getExecutingThreads()) {
         t.suspend();
       }
@@ -774,6 +783,7 @@ public class TinaInteractiveRendererController implements IterationObserver {
         startDisplayThread(updateDisplayThread);
 
         state = State.RENDER;
+        startCheckpointThread(file.getAbsolutePath());
         enableControls();
       }
     }
@@ -782,6 +792,21 @@ public class TinaInteractiveRendererController implements IterationObserver {
     }
   }
 
+  private void startCheckpointThread(String pFilename) {
+    int interval = prefs.getTinaRenderStateCheckpointInterval();
+    if (interval > 0 && state == State.RENDER) {
+      checkpointScheduler = new RenderCheckpointScheduler(renderer, threads.getRenderThreads(), pFilename, interval * 60000L, System.currentTimeMillis() - renderStartTime + pausedRenderTime);
+      checkpointScheduler.start();
+    }
+  }
+
+  private void stopCheckpointThread() {
+    if (checkpointScheduler != null) {
+      checkpointScheduler.stop();
+      checkpointScheduler = null;
+    }
+  }
+
   public void pauseBtn_clicked() {
     if (state == State.RENDER) {
       try {
@@ -797,7 +822,9 @@ public class TinaInteractiveRendererController implements IterationObserver {
         if (chooser.showSaveDialog(imageRootPanel) == JFileChooser.APPROVE_OPTION) {
           File file = chooser.getSelectedFile();
           prefs.setLastOutputFlameFile(file);
+          stopCheckpointThread();
           renderer.saveState(file.getAbsolutePath(), threads.getRenderThreads(), displayUpdater.getSampleCount(), System.currentTimeMillis() - renderStartTime + pausedRenderTime, null);
+          startCheckpointThread(file.getAbsolutePath());
         }
       }
       catch (Throwable ex) {
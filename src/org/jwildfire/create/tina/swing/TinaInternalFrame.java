@@ -5310,6 +5310,7 @@ public class TinaInternalFrame extends JInternalFrame {
   private void initMeshGenOutputTypeCmb(JComboBox pCmb) {
     pCmb.removeAllItems();
     pCmb.addItem(MeshGenRenderOutputType.VOXELSTACK);
+    pCmb.addItem(MeshGenRenderOutputType.MESH);
     pCmb.setSelectedItem(MeshGenRenderOutputType.VOXELSTACK);
   }
 
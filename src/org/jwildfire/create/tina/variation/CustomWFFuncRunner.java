@@ -16,17 +16,13 @@
 */
 package org.jwildfire.create.tina.variation;
 
-import java.io.StringReader;
-
-import org.codehaus.janino.ClassBodyEvaluator;
-import org.codehaus.janino.Scanner;
+import org.jwildfire.base.CompiledClassCache;
 import org.jwildfire.create.tina.base.XForm;
 import org.jwildfire.create.tina.base.XYZPoint;
 
 public class CustomWFFuncRunner {
   public static CustomWFFuncRunner compile(String pScript) throws Exception {
-    CustomWFFuncRunner res = (CustomWFFuncRunner) ClassBodyEvaluator.createFastClassBodyEvaluator(new Scanner(null, new StringReader(pScript)), CustomWFFuncRunner.class, (ClassLoader) null);
-    return res;
+    return CompiledClassCache.getInstance().newInstance(CustomWFFuncRunner.class, pScript);
   }
 
   protected double a = 0.0;
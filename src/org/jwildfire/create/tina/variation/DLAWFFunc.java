@@ -20,9 +20,7 @@ import static org.jwildfire.base.mathlib.MathLib.M_PI;
 import static org.jwildfire.base.mathlib.MathLib.sinAndCos;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import odk.lang.DoubleWrapper;
 
@@ -52,7 +50,7 @@ public class DLAWFFunc extends VariationFunc {
 
   @Override
   public void transform(FlameTransformationContext pContext, XForm pXForm, XYZPoint pAffineTP, XYZPoint pVarTP, double pAmount) {
-    Point point = getRandomPoint();
+    Point point = getRandomPoint(pContext);
     pVarTP.x += pAmount * point.x;
     pVarTP.y += pAmount * point.y;
     if (pContext.isPreserveZCoordinate()) {
@@ -92,7 +90,7 @@ public class DLAWFFunc extends VariationFunc {
   }
 
   private String makeKey() {
-    return String.valueOf(buffer_size) + "#" + String.valueOf(_max_iter) + "#" + String.valueOf(seed) + "#" + String.valueOf(scale) + "#" + String.valueOf(jitter);
+    return "dla_wf#" + String.valueOf(buffer_size) + "#" + String.valueOf(_max_iter) + "#" + String.valueOf(seed) + "#" + String.valueOf(scale) + "#" + String.valueOf(jitter);
   }
 
   private static class Point {
@@ -101,56 +99,61 @@ public class DLAWFFunc extends VariationFunc {
 
   private static final Point ZERO = new Point();
 
-  private static Map<String, List<Point>> cache = new HashMap<String, List<Point>>();
-
   private DoubleWrapper sina = new DoubleWrapper();
   private DoubleWrapper cosa = new DoubleWrapper();
 
+  // the points are calculated once for every set of parameters and shared by all threads and copies of the flame
+  @SuppressWarnings("unchecked")
   private List<Point> getPoints() {
-    double jitterRadius = Math.max(Math.min(1.0, jitter), 0.0);
+    return (List<Point>) RessourceManager.getRessource(makeKey(), new RessourceManager.RessourceFactory() {
 
-    String key = makeKey();
-    List<Point> res = cache.get(key);
-    if (res == null) {
-      AbstractRandomGenerator randGen = new MarsagliaRandomGenerator();
-      randGen.randomize(seed);
-      short[][] points = calculate();
-      res = new ArrayList<Point>();
-      for (int i = 0; i < points.length; i++) {
-        for (int j = 0; j < points[i].length; j++) {
-          double aRnd;
-          // Always calculate random jitter at each cell to ensure to have always the same result, even if more cells get populated.
-          // This way the growth may be animated by just increasig the max_iter param. 
+      @Override
+      public Object createRessource() {
+        return calculatePoints();
+      }
+
+    });
+  }
+
+  private List<Point> calculatePoints() {
+    double jitterRadius = Math.max(Math.min(1.0, jitter), 0.0);
+    AbstractRandomGenerator randGen = new MarsagliaRandomGenerator();
+    randGen.randomize(seed);
+    short[][] points = calculate();
+    List<Point> res = new ArrayList<Point>();
+    for (int i = 0; i < points.length; i++) {
+      for (int j = 0; j < points[i].length; j++) {
+        double aRnd;
+        // Always calculate random jitter at each cell to ensure to have always the same result, even if more cells get populated.
+        // This way the growth may be animated by just increasig the max_iter param. 
+        if (jitterRadius > MathLib.EPSILON) {
+          aRnd = randGen.random();
+        }
+        else {
+          aRnd = 0.0;
+        }
+        if (points[i][j] != 0) {
+          Point point = new Point();
+          point.x = (double) (i - buffer_size / 2) / (double) buffer_size * scale;
+          point.y = (double) (j - buffer_size / 2) / (double) buffer_size * scale;
           if (jitterRadius > MathLib.EPSILON) {
-            aRnd = randGen.random();
-          }
-          else {
-            aRnd = 0.0;
+            double alpha = aRnd * 2 * M_PI;
+            sinAndCos(alpha, sina, cosa);
+            point.x += jitterRadius * cosa.value;
+            point.y += jitterRadius * sina.value;
           }
-          if (points[i][j] != 0) {
-            Point point = new Point();
-            point.x = (double) (i - buffer_size / 2) / (double) buffer_size * scale;
-            point.y = (double) (j - buffer_size / 2) / (double) buffer_size * scale;
-            if (jitterRadius > MathLib.EPSILON) {
-              double alpha = aRnd * 2 * M_PI;
-              sinAndCos(alpha, sina, cosa);
-              point.x += jitterRadius * cosa.value;
-              point.y += jitterRadius * sina.value;
-            }
-            res.add(point);
-          }
-
+          res.add(point);
         }
+
       }
-      cache.put(key, res);
     }
     return res;
   }
 
-  private Point getRandomPoint() {
-    List<Point> points = getPoints();
+  private Point getRandomPoint(FlameTransformationContext pContext) {
+    List<Point> points = _points;
     if (points.size() > 0) {
-      return points.get((int) (Math.random() * points.size()));
+      return points.get(pContext.random(points.size()));
     }
     else
       return ZERO;
@@ -230,9 +233,11 @@ public class DLAWFFunc extends VariationFunc {
   }
 
   private int _max_iter;
+  private List<Point> _points;
 
   @Override
   public void init(FlameTransformationContext pContext, Layer pLayer, XForm pXForm, double pAmount) {
     _max_iter = pContext.isPreview() ? (max_iter < 6000) ? max_iter : 6000 : max_iter;
+    _points = getPoints();
   }
 }
@@ -16,6 +16,7 @@
 */
 package org.jwildfire.create.tina.variation;
 
+import org.jwildfire.create.tina.base.TransformationProfiler;
 import org.jwildfire.create.tina.random.AbstractRandomGenerator;
 import org.jwildfire.create.tina.render.FlameRenderer;
 
@@ -25,6 +26,7 @@ public class FlameTransformationContext {
   private final int frame;
   private boolean preview;
   private boolean preserveZCoordinate;
+  private TransformationProfiler transformationProfiler;
 
   public FlameTransformationContext(FlameRenderer pFlameRenderer, AbstractRandomGenerator pRandGen, int pFrame) {
     randGen = pRandGen;
@@ -68,4 +70,12 @@ public class FlameTransformationContext {
     preserveZCoordinate = pPreserveZCoordinate;
   }
 
+  public TransformationProfiler getTransformationProfiler() {
+    return transformationProfiler;
+  }
+
+  public void setTransformationProfiler(TransformationProfiler pTransformationProfiler) {
+    transformationProfiler = pTransformationProfiler;
+  }
+
 }
@@ -202,13 +202,11 @@ public class Grid3DWFFunc extends VariationFunc {
 
   private double getSizeSpread(int pX, int pY, int pZ) {
     if (size_spread > MathLib.EPSILON) {
-      @SuppressWarnings("unchecked")
-      Map<String, Double> map = (Map<String, Double>) RessourceManager.getRessource(getSizeSpreadMapKey());
       String key = makeXYZKey(pX, pY, pZ);
-      Double storedValue = map.get(key);
+      Double storedValue = sizeSpreadMap.get(key);
       if (storedValue == null) {
         double spread = -sizeSpreadRnd.nextDouble() * size_spread + size_spread;
-        map.put(key, spread);
+        sizeSpreadMap.put(key, spread);
         return spread;
       }
       else {
@@ -220,13 +218,11 @@ public class Grid3DWFFunc extends VariationFunc {
 
   private double getAlphaSpread(int pX, int pY, int pZ) {
     if (alpha_spread > MathLib.EPSILON) {
-      @SuppressWarnings("unchecked")
-      Map<String, Double> map = (Map<String, Double>) RessourceManager.getRessource(getAlphaSpreadMapKey());
       String key = makeXYZKey(pX, pY, pZ);
-      Double storedValue = map.get(key);
+      Double storedValue = alphaSpreadMap.get(key);
       if (storedValue == null) {
         double spread = -alphaSpreadRnd.nextDouble() * alpha_spread + alpha_spread;
-        map.put(key, spread);
+        alphaSpreadMap.put(key, spread);
         return spread;
       }
       else {
@@ -238,13 +234,11 @@ public class Grid3DWFFunc extends VariationFunc {
 
   private double getBetaSpread(int pX, int pY, int pZ) {
     if (beta_spread > MathLib.EPSILON) {
-      @SuppressWarnings("unchecked")
-      Map<String, Double> map = (Map<String, Double>) RessourceManager.getRessource(getBetaSpreadMapKey());
       String key = makeXYZKey(pX, pY, pZ);
-      Double storedValue = map.get(key);
+      Double storedValue = betaSpreadMap.get(key);
       if (storedValue == null) {
         double spread = -betaSpreadRnd.nextDouble() * beta_spread + beta_spread;
-        map.put(key, spread);
+        betaSpreadMap.put(key, spread);
         return spread;
       }
       else {
@@ -256,13 +250,11 @@ public class Grid3DWFFunc extends VariationFunc {
 
   private double getGammaSpread(int pX, int pY, int pZ) {
     if (gamma_spread > MathLib.EPSILON) {
-      @SuppressWarnings("unchecked")
-      Map<String, Double> map = (Map<String, Double>) RessourceManager.getRessource(getGammaSpreadMapKey());
       String key = makeXYZKey(pX, pY, pZ);
-      Double storedValue = map.get(key);
+      Double storedValue = gammaSpreadMap.get(key);
       if (storedValue == null) {
         double spread = -gammaSpreadRnd.nextDouble() * gamma_spread + gamma_spread;
-        map.put(key, spread);
+        gammaSpreadMap.put(key, spread);
         return spread;
       }
       else {
@@ -273,29 +265,39 @@ public class Grid3DWFFunc extends VariationFunc {
   }
 
   private Random sizeSpreadRnd, alphaSpreadRnd, betaSpreadRnd, gammaSpreadRnd;
+  // resolved once in init(), the maps are shared by all render threads
+  private Map<String, Double> sizeSpreadMap, alphaSpreadMap, betaSpreadMap, gammaSpreadMap;
   private boolean doRotate;
 
+  @SuppressWarnings("unchecked")
+  private Map<String, Double> getSpreadMap(String pKey) {
+    return (Map<String, Double>) RessourceManager.getRessource(pKey, new RessourceManager.RessourceFactory() {
+
+      @Override
+      public Object createRessource() {
+        return new ConcurrentHashMap<String, Double>();
+      }
+
+    });
+  }
+
   @Override
   public void init(FlameTransformationContext pContext, Layer pLayer, XForm pXForm, double pAmount) {
     doRotate = fabs(alpha) > EPSILON || fabs(beta) > EPSILON || fabs(gamma) > EPSILON || fabs(alpha_spread) > EPSILON || fabs(beta_spread) > EPSILON || fabs(gamma_spread) > EPSILON;
 
-    if (RessourceManager.getRessource(getSizeSpreadMapKey()) == null)
-      RessourceManager.putRessource(getSizeSpreadMapKey(), new ConcurrentHashMap<String, Double>());
+    sizeSpreadMap = getSpreadMap(getSizeSpreadMapKey());
     sizeSpreadRnd = new Random();
     sizeSpreadRnd.setSeed(random_seed);
 
-    if (RessourceManager.getRessource(getAlphaSpreadMapKey()) == null)
-      RessourceManager.putRessource(getAlphaSpreadMapKey(), new ConcurrentHashMap<String, Double>());
+    alphaSpreadMap = getSpreadMap(getAlphaSpreadMapKey());
     alphaSpreadRnd = new Random();
     alphaSpreadRnd.setSeed(random_seed);
 
-    if (RessourceManager.getRessource(getBetaSpreadMapKey()) == null)
-      RessourceManager.putRessource(getBetaSpreadMapKey(), new ConcurrentHashMap<String, Double>());
+    betaSpreadMap = getSpreadMap(getBetaSpreadMapKey());
     betaSpreadRnd = new Random();
     betaSpreadRnd.setSeed(random_seed);
 
-    if (RessourceManager.getRessource(getGammaSpreadMapKey()) == null)
-      RessourceManager.putRessource(getGammaSpreadMapKey(), new ConcurrentHashMap<String, Double>());
+    gammaSpreadMap = getSpreadMap(getGammaSpreadMapKey());
     gammaSpreadRnd = new Random();
     gammaSpreadRnd.setSeed(random_seed);
   }
@@ -113,8 +113,8 @@ public class Julia3DFunc extends VariationFunc {
   }
 
   private int genRandomPower() {
-    int res = (int) (Math.random() * 5.0 + 2.5);
-    return Math.random() < 0.5 ? res : -res;
+    int res = (int) (randomInitialValue() * 5.0 + 2.5);
+    return randomInitialValue() < 0.5 ? res : -res;
   }
 
   @Override
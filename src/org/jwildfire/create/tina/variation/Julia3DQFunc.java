@@ -82,8 +82,8 @@ public class Julia3DQFunc extends VariationFunc {
   }
 
   private int genRandomPower() {
-    int res = (int) (Math.random() * 5.0 + 2.5);
-    return Math.random() < 0.5 ? res : -res;
+    int res = (int) (randomInitialValue() * 5.0 + 2.5);
+    return randomInitialValue() < 0.5 ? res : -res;
   }
 
   private double inv_power, abs_inv_power, half_inv_power, inv_power_2pi;
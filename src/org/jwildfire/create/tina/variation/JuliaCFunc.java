@@ -90,8 +90,8 @@ public class JuliaCFunc extends VariationFunc {
   }
 
   private double genRandomPower() {
-    double res = (int) (Math.random() * 5.0 + 2.5) + 0.5;
-    return Math.random() < 0.5 ? res : -res;
+    double res = (int) (randomInitialValue() * 5.0 + 2.5) + 0.5;
+    return randomInitialValue() < 0.5 ? res : -res;
   }
 
   @Override
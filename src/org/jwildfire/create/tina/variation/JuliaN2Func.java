@@ -109,8 +109,8 @@ public class JuliaN2Func extends VariationFunc {
   }
 
   private int genRandomPower() {
-    int res = (int) (Math.random() * 5.0 + 2.5);
-    return Math.random() < 0.5 ? res : -res;
+    int res = (int) (randomInitialValue() * 5.0 + 2.5);
+    return randomInitialValue() < 0.5 ? res : -res;
   }
 
   private int _absN;
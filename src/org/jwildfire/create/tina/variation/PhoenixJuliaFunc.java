@@ -96,8 +96,8 @@ public class PhoenixJuliaFunc extends VariationFunc {
   }
 
   private double genRandomPower() {
-    int res = (int) (Math.random() * 5.0 + 2.5);
-    return Math.random() < 0.5 ? res : -res;
+    int res = (int) (randomInitialValue() * 5.0 + 2.5);
+    return randomInitialValue() < 0.5 ? res : -res;
   }
 
   private double _invN, _inv2PI_N, _cN;
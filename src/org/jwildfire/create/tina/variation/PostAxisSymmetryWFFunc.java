@@ -53,7 +53,7 @@ public class PostAxisSymmetryWFFunc extends VariationFunc {
       case AXIS_X: {
         double dx, dy;
         dx = pVarTP.x - centre_x;
-        if (Math.random() < 0.5) {
+        if (pContext.random() < 0.5) {
           double ax = centre_x + dx + _halve_dist;
           double ay = pVarTP.y;
           if (_doRotate) {
@@ -82,7 +82,7 @@ public class PostAxisSymmetryWFFunc extends VariationFunc {
       case AXIS_Y: {
         double dx, dy;
         dy = pVarTP.y - centre_y;
-        if (Math.random() < 0.5) {
+        if (pContext.random() < 0.5) {
           double ax = pVarTP.x;
           double ay = centre_y + dy + _halve_dist;
           if (_doRotate) {
@@ -112,7 +112,7 @@ public class PostAxisSymmetryWFFunc extends VariationFunc {
       default: {
         double dx, dz;
         dz = pVarTP.z - centre_z;
-        if (Math.random() < 0.5) {
+        if (pContext.random() < 0.5) {
           double ax = pVarTP.x;
           double az = centre_z + dz + _halve_dist;
           if (_doRotate) {
@@ -39,8 +39,8 @@ public class PowBlockFunc extends VariationFunc {
 
   private static final String[] paramNames = { PARAM_NUMERATOR, PARAM_DENOMINATOR, PARAM_ROOT, PARAM_CORRECTN, PARAM_CORRECTD };
 
-  private double numerator = 2.0 + Math.random() * 5.0;
-  private double denominator = 1.0 + Math.random() * 3.0;
+  private double numerator = 2.0 + randomInitialValue() * 5.0;
+  private double denominator = 1.0 + randomInitialValue() * 3.0;
   private double correctn = 1.0;
   private double correctd = 1.0;
   private double root = 1.0;
@@ -0,0 +1,226 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.variation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jwildfire.create.tina.variation.mesh.PackedMesh;
+import org.jwildfire.create.tina.variation.mesh.SimpleMesh;
+import org.jwildfire.image.SimpleHDRImage;
+import org.jwildfire.image.WFImage;
+
+// Thread-safe cache of the RessourceManager, the least recently used entries are removed when the estimated size of
+// all entries exceeds the limit. Objects whose size can not be estimated (e.g. progress listeners or statistics which
+// are shared by means of the RessourceManager) are never removed and do not count.
+// Reads do not lock, they only stamp the entry with the current value of a clock which is advanced by the writes. So the
+// order of the reads between two writes is not known and the eviction is only an approximate LRU.
+public class RessourceCache {
+  private static final int ESTIMATED_ELEMENT_SIZE = 64;
+
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>(64);
+  private final AtomicLong clock = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private volatile long maxSize;
+  private volatile long size;
+
+  private static class Entry {
+    private final Object value;
+    private final long size;
+    private volatile long lastAccess;
+
+    public Entry(Object pValue, long pSize, long pLastAccess) {
+      value = pValue;
+      size = pSize;
+      lastAccess = pLastAccess;
+    }
+  }
+
+  private static class EvictionCandidate implements Comparable<EvictionCandidate> {
+    private final String key;
+    private final Entry entry;
+    private final long lastAccess;
+
+    public EvictionCandidate(String pKey, Entry pEntry) {
+      key = pKey;
+      entry = pEntry;
+      lastAccess = pEntry.lastAccess;
+    }
+
+    @Override
+    public int compareTo(EvictionCandidate pOther) {
+      return lastAccess < pOther.lastAccess ? -1 : lastAccess > pOther.lastAccess ? 1 : 0;
+    }
+  }
+
+  public RessourceCache(long pMaxSize) {
+    maxSize = pMaxSize;
+  }
+
+  public Object get(String pKey) {
+    Entry entry = entries.get(pKey);
+    if (entry != null) {
+      long now = clock.get();
+      // avoid writing to the shared entry if it was already read since the last write
+      if (entry.lastAccess != now) {
+        entry.lastAccess = now;
+      }
+      hits.incrementAndGet();
+      return entry.value;
+    }
+    misses.incrementAndGet();
+    return null;
+  }
+
+  public synchronized void put(String pKey, Object pValue) {
+    long valueSize = estimateSize(pValue);
+    if (valueSize > maxSize) {
+      // too large to be cached at all
+      remove(pKey);
+      return;
+    }
+    Entry old = entries.put(pKey, new Entry(pValue, valueSize, clock.incrementAndGet()));
+    if (old != null) {
+      size -= old.size;
+    }
+    size += valueSize;
+    evict();
+  }
+
+  public synchronized void remove(String pKey) {
+    Entry old = entries.remove(pKey);
+    if (old != null) {
+      size -= old.size;
+    }
+  }
+
+  public synchronized void removeByPrefix(String pKeyPrefix) {
+    for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+      Map.Entry<String, Entry> entry = it.next();
+      if (entry.getKey().startsWith(pKeyPrefix)) {
+        size -= entry.getValue().size;
+        it.remove();
+      }
+    }
+  }
+
+  public List<String> getKeys() {
+    return new ArrayList<String>(entries.keySet());
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    size = 0;
+  }
+
+  private void evict() {
+    if (size <= maxSize) {
+      return;
+    }
+    // the stamps may change while sorting, so they are read only once
+    List<EvictionCandidate> candidates = new ArrayList<EvictionCandidate>();
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      if (entry.getValue().size > 0) {
+        candidates.add(new EvictionCandidate(entry.getKey(), entry.getValue()));
+      }
+    }
+    Collections.sort(candidates);
+    for (Iterator<EvictionCandidate> it = candidates.iterator(); size > maxSize && it.hasNext();) {
+      EvictionCandidate candidate = it.next();
+      if (entries.remove(candidate.key, candidate.entry)) {
+        size -= candidate.entry.size;
+        evictions.incrementAndGet();
+      }
+    }
+  }
+
+  public synchronized void setMaxSize(long pMaxSize) {
+    maxSize = pMaxSize;
+    evict();
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  public String getStatistics() {
+    return String.format(Locale.US, "%d entries, %.1f of %.1f MB, %d hits, %d misses, %d evictions", entries.size(), size / 1048576.0, maxSize / 1048576.0, getHits(), getMisses(), getEvictions());
+  }
+
+  // estimated size of the object in bytes, 0 if unknown
+  public static long estimateSize(Object pValue) {
+    if (pValue instanceof SimpleHDRImage) {
+      WFImage img = (WFImage) pValue;
+      return 3L * 4L * img.getImageWidth() * img.getImageHeight();
+    }
+    else if (pValue instanceof WFImage) {
+      WFImage img = (WFImage) pValue;
+      return 4L * img.getImageWidth() * img.getImageHeight();
+    }
+    else if (pValue instanceof byte[]) {
+      return ((byte[]) pValue).length;
+    }
+    else if (pValue instanceof int[]) {
+      return 4L * ((int[]) pValue).length;
+    }
+    else if (pValue instanceof float[]) {
+      return 4L * ((float[]) pValue).length;
+    }
+    else if (pValue instanceof double[]) {
+      return 8L * ((double[]) pValue).length;
+    }
+    else if (pValue instanceof String) {
+      return 2L * ((String) pValue).length();
+    }
+    else if (pValue instanceof Collection) {
+      return (long) ESTIMATED_ELEMENT_SIZE * ((Collection<?>) pValue).size();
+    }
+    else if (pValue instanceof SimpleMesh) {
+      return 2L * ESTIMATED_ELEMENT_SIZE * ((SimpleMesh) pValue).getFaceCount();
+    }
+    else if (pValue instanceof PackedMesh) {
+      return ((PackedMesh) pValue).getMemorySize();
+    }
+    return 0;
+  }
+
+}
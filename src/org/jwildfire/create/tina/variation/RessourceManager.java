@@ -18,34 +18,51 @@ package org.jwildfire.create.tina.variation;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
-import javax.swing.JLabel;
-
-import org.jwildfire.base.Tools;
+import org.jwildfire.base.Prefs;
 import org.jwildfire.image.WFImage;
 import org.jwildfire.io.ImageReader;
 
 public class RessourceManager {
-  private static final Map<String, WFImage> imageMapByName = new HashMap<String, WFImage>();
-  private static final Map<Integer, WFImage> imageMapByHash = new HashMap<Integer, WFImage>();
-  private static final Map<String, Object> ressourceMap = new HashMap<String, Object>();
+  private static final String IMAGE_BY_NAME_PREFIX = "#image#";
+  private static final String IMAGE_BY_HASH_PREFIX = "#imagehash#";
+  private static final String RESSOURCE_PREFIX = "#ressource#";
+
+  private static final RessourceCache cache = new RessourceCache(getDefaultMaxCacheSize());
+  private static final Map<byte[], Integer> hashMap = new WeakHashMap<byte[], Integer>();
+  private static final Map<String, Object> creationLocks = new HashMap<String, Object>();
+
+  public interface RessourceFactory {
+    Object createRessource();
+  }
+
+  private static long getDefaultMaxCacheSize() {
+    int maxSizeInMB = Prefs.getPrefs().getTinaRessourceCacheSize();
+    return maxSizeInMB > 0 ? maxSizeInMB * 1024L * 1024L : Runtime.getRuntime().maxMemory() / 4;
+  }
 
   public static void clearAll() {
-    imageMapByName.clear();
-    imageMapByHash.clear();
-    ressourceMap.clear();
+    cache.clear();
+  }
+
+  public static void setMaxCacheSize(long pMaxSize) {
+    cache.setMaxSize(pMaxSize);
+  }
+
+  public static String getCacheStatistics() {
+    return cache.getStatistics();
   }
 
   public static WFImage getImage(String pFilename) throws Exception {
     if (pFilename == null || pFilename.length() == 0) {
       throw new IllegalStateException();
     }
-    WFImage res = imageMapByName.get(pFilename);
+    String key = IMAGE_BY_NAME_PREFIX + pFilename;
+    WFImage res = (WFImage) cache.get(key);
     if (res == null) {
       if (!new File(pFilename).exists()) {
         throw new FileNotFoundException(pFilename);
@@ -57,66 +74,86 @@ public class RessourceManager {
           fileExt = pFilename.substring(p + 1, pFilename.length());
         }
       }
+      // the image is decoded outside of the cache lock, so other threads are not blocked meanwhile
       if ("hdr".equalsIgnoreCase(fileExt)) {
-        res = new ImageReader(new JLabel()).loadHDRImage(pFilename);
+        res = new ImageReader().loadHDRImage(pFilename);
       }
       else {
-        res = new ImageReader(new JLabel()).loadImage(pFilename);
+        res = new ImageReader().loadImage(pFilename);
       }
-      imageMapByName.put(pFilename, res);
+      cache.put(key, res);
     }
     return res;
   }
 
   public static void clearImage(String pFilename) {
-    imageMapByName.remove(pFilename);
+    cache.remove(IMAGE_BY_NAME_PREFIX + pFilename);
   }
 
   public static Object getRessource(String pKey) {
-    return ressourceMap.get(pKey);
+    return cache.get(RESSOURCE_PREFIX + pKey);
   }
 
   public static void putRessource(String pKey, Object pRessource) {
-    ressourceMap.put(pKey, pRessource);
+    cache.put(RESSOURCE_PREFIX + pKey, pRessource);
   }
 
-  private static Map<String, Integer> hashMap = new HashMap<String, Integer>();
-
-  private static String getHashKey(byte[] pImageData) {
-    if (pImageData != null && pImageData.length > 0) {
-      return pImageData.toString() + "_" + pImageData.length + "_" + pImageData[0] + "_" + pImageData[pImageData.length / 2] + "_" + pImageData[pImageData.length - 1];
-    }
-    else {
-      return "0";
+  // returns the shared ressource or creates it, concurrent requests for the same key wait for a single creation
+  // (e.g. data which is precomputed by a variation and shared by all render threads)
+  public static Object getRessource(String pKey, RessourceFactory pFactory) {
+    Object res = getRessource(pKey);
+    if (res == null) {
+      Object lock;
+      synchronized (creationLocks) {
+        lock = creationLocks.get(pKey);
+        if (lock == null) {
+          lock = new Object();
+          creationLocks.put(pKey, lock);
+        }
+      }
+      try {
+        synchronized (lock) {
+          res = getRessource(pKey);
+          if (res == null) {
+            res = pFactory.createRessource();
+            putRessource(pKey, res);
+          }
+        }
+      }
+      finally {
+        synchronized (creationLocks) {
+          creationLocks.remove(pKey);
+        }
+      }
     }
+    return res;
   }
 
   public static int calcHashCode(byte[] pImageData) {
-    String key = getHashKey(pImageData);
-    Integer res = hashMap.get(key);
-    if (res == null) {
-      res = pImageData != null ? Arrays.hashCode(pImageData) : 0;
-      hashMap.put(key, res);
+    if (pImageData == null) {
+      return 0;
+    }
+    synchronized (hashMap) {
+      Integer res = hashMap.get(pImageData);
+      if (res == null) {
+        res = Arrays.hashCode(pImageData);
+        hashMap.put(pImageData, res);
+      }
+      return res;
     }
-    return res;
   }
 
   public static WFImage getImage(int pHashCode, byte[] pImageData) throws Exception {
-    Integer key = Integer.valueOf(pHashCode);
-    WFImage res = imageMapByHash.get(key);
+    String key = IMAGE_BY_HASH_PREFIX + pHashCode;
+    WFImage res = (WFImage) cache.get(key);
     if (res == null) {
-      String fileExt = guessImageExtension(pImageData);
-      File f = File.createTempFile("tmp", "." + fileExt);
-      f.deleteOnExit();
-      Tools.writeFile(f.getAbsolutePath(), pImageData);
-
-      if ("hdr".equalsIgnoreCase(fileExt)) {
-        res = new ImageReader(new JLabel()).loadHDRImage(f.getAbsolutePath());
+      if ("hdr".equals(guessImageExtension(pImageData))) {
+        res = new ImageReader().loadHDRImage(pImageData);
       }
       else {
-        res = new ImageReader(new JLabel()).loadImage(f.getAbsolutePath());
+        res = new ImageReader().loadImage(pImageData);
       }
-      imageMapByHash.put(key, res);
+      cache.put(key, res);
     }
     return res;
   }
@@ -134,19 +171,10 @@ public class RessourceManager {
   }
 
   public static void clearRessources(String pKeyPrefix) {
-    List<String> keys = new ArrayList<String>();
-    for (String key : ressourceMap.keySet()) {
-      if (key.startsWith(pKeyPrefix)) {
-        keys.add(key);
-      }
-    }
-    for (String key : keys) {
-      System.out.println("REM: " + key);
-      ressourceMap.remove(key);
-    }
+    cache.removeByPrefix(RESSOURCE_PREFIX + pKeyPrefix);
   }
 
   public static void removeRessource(String pKey) {
-    ressourceMap.remove(pKey);
+    cache.remove(RESSOURCE_PREFIX + pKey);
   }
 }
@@ -54,7 +54,7 @@ public class SplitBrdrFunc extends VariationFunc {
     offsetX = pAffineTP.x - roundX;
     offsetY = pAffineTP.y - roundY;
 
-    if (Math.random() >= 0.75)
+    if (pContext.random() >= 0.75)
     {
       pVarTP.x += pAmount * (offsetX * 0.5 + roundX);
       pVarTP.y += pAmount * (offsetY * 0.5 + roundY);
@@ -39,9 +39,9 @@ public class TargetFunc extends VariationFunc {
   private static final String PARAM_SIZE = "size";
   private static final String[] paramNames = { PARAM_EVEN, PARAM_ODD, PARAM_SIZE };
 
-  private double even = -M_PI + Math.random() + M_2PI;
-  private double odd = -M_PI + Math.random() + M_2PI;
-  private double size = 0.5 + Math.random() * 0.75;
+  private double even = -M_PI + randomInitialValue() + M_2PI;
+  private double odd = -M_PI + randomInitialValue() + M_2PI;
+  private double size = 0.5 + randomInitialValue() * 0.75;
 
   @Override
   public void transform(FlameTransformationContext pContext, XForm pXForm, XYZPoint pAffineTP, XYZPoint pVarTP, double pAmount) {
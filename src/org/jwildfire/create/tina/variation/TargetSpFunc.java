@@ -42,8 +42,8 @@ public class TargetSpFunc extends VariationFunc {
 
   private double twist = 0.0;
   private int n_of_sp = 1;
-  private double size = 0.5 + Math.random() * 3.0;
-  private double tightness = 0.5 + Math.random() * 0.25;
+  private double size = 0.5 + randomInitialValue() * 3.0;
+  private double tightness = 0.5 + randomInitialValue() * 0.25;
 
   @Override
   public void transform(FlameTransformationContext pContext, XForm pXForm, XYZPoint pAffineTP, XYZPoint pVarTP, double pAmount) {
@@ -17,6 +17,7 @@
 package org.jwildfire.create.tina.variation;
 
 import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.jwildfire.create.tina.base.Layer;
 import org.jwildfire.create.tina.base.XForm;
@@ -97,6 +98,12 @@ public abstract class VariationFunc implements Serializable {
     return RessourceType.BYTEARRAY;
   }
 
+  // random number for the initial values of parameters, random numbers while rendering must be obtained from the
+  // FlameTransformationContext
+  protected static double randomInitialValue() {
+    return ThreadLocalRandom.current().nextDouble();
+  }
+
   public static double limitVal(double pValue, double pMin, double pMax) {
     if (pValue < pMin) {
       return pMin;
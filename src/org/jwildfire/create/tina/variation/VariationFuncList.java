@@ -19,9 +19,11 @@ package org.jwildfire.create.tina.variation;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.jwildfire.base.Tools;
 import org.jwildfire.create.tina.variation.iflames.IFlamesFunc;
@@ -31,8 +33,9 @@ import org.jwildfire.create.tina.variation.mesh.OBJMeshWFFunc;
 public class VariationFuncList {
   public static final String DEFAULT_VARIATION = "linear3D";
   private static List<Class<? extends VariationFunc>> items = new ArrayList<Class<? extends VariationFunc>>();
-  private static List<String> unfilteredNameList = null;
   private static List<String> filteredNameList = null;
+  private static Map<String, Class<? extends VariationFunc>> unfilteredClassMap = null;
+  private static Set<String> filteredNameSet = null;
   private static Map<Class<? extends VariationFunc>, String> aliasMap = new HashMap<Class<? extends VariationFunc>, String>();
   private static final Map<String, String> resolvedAliasMap;
 
@@ -486,7 +489,7 @@ public class VariationFuncList {
   private static void registerVariationFunc(
       Class<? extends VariationFunc> pVariationFunc) {
     items.add(pVariationFunc);
-    unfilteredNameList = null;
+    unfilteredClassMap = null;
   }
 
   private static String getVariationName(
@@ -514,17 +517,22 @@ public class VariationFuncList {
   }
 
   private static void refreshNameList() {
-    unfilteredNameList = new ArrayList<String>();
-    filteredNameList = new ArrayList<String>();
+    List<String> filteredNames = new ArrayList<String>();
+    Map<String, Class<? extends VariationFunc>> classMap = new HashMap<String, Class<? extends VariationFunc>>();
     for (Class<? extends VariationFunc> funcCls : items) {
       String vName = getVariationName(funcCls, false);
       if (vName != null) {
-        unfilteredNameList.add(vName);
+        if (!classMap.containsKey(vName)) {
+          classMap.put(vName, funcCls);
+        }
         if (!vName.startsWith("_")) {
-          filteredNameList.add(vName);
+          filteredNames.add(vName);
         }
       }
     }
+    unfilteredClassMap = classMap;
+    filteredNameSet = new HashSet<String>(filteredNames);
+    filteredNameList = filteredNames;
   }
 
   public static List<String> getNameList() {
@@ -534,11 +542,19 @@ public class VariationFuncList {
     return filteredNameList;
   }
 
-  private static List<String> getUnfilteredNameList() {
-    if (unfilteredNameList == null) {
+  // same as getNameList().contains(pName), but without scanning the list
+  public static boolean isVariationName(String pName) {
+    if (filteredNameSet == null) {
+      refreshNameList();
+    }
+    return filteredNameSet.contains(pName);
+  }
+
+  private static Class<? extends VariationFunc> getVariationFuncClass(String pName) {
+    if (unfilteredClassMap == null) {
       refreshNameList();
     }
-    return unfilteredNameList;
+    return unfilteredClassMap.get(pName);
   }
 
   public static Map<String, String> getAliasMap() {
@@ -561,9 +577,8 @@ public class VariationFuncList {
 
   public static VariationFunc getVariationFuncInstance(String pName,
       boolean pFatal) {
-    int idx = getUnfilteredNameList().indexOf(pName);
-    if (idx >= 0) {
-      Class<? extends VariationFunc> funcCls = items.get(idx);
+    Class<? extends VariationFunc> funcCls = getVariationFuncClass(pName);
+    if (funcCls != null) {
       try {
         VariationFunc func = funcCls.newInstance();
         return func;
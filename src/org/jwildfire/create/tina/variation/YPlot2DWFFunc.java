@@ -20,11 +20,11 @@
 package org.jwildfire.create.tina.variation;
 
 import org.jwildfire.base.Tools;
+import org.jwildfire.base.mathparser.CompiledFormula;
 import org.jwildfire.base.mathparser.JEPWrapper;
 import org.jwildfire.create.tina.base.Layer;
 import org.jwildfire.create.tina.base.XForm;
 import org.jwildfire.create.tina.base.XYZPoint;
-import org.nfunk.jep.Node;
 
 public class YPlot2DWFFunc extends VariationFunc {
   private static final long serialVersionUID = 1L;
@@ -57,8 +57,8 @@ public class YPlot2DWFFunc extends VariationFunc {
   public void transform(FlameTransformationContext pContext, XForm pXForm, XYZPoint pAffineTP, XYZPoint pVarTP, double pAmount) {
     double x = _xmin + pContext.random() * _dx;
     double z = _zmin + pContext.random() * _dz;
-    _parser.setVarValue("x", x);
-    double y = (Double) _parser.evaluate(_node);
+    _parser.setVarValue(_xIdx, x);
+    double y = _formula.evaluate();
     if (direct_color > 0) {
       pVarTP.color = (y - _ymin) / _dy;
       if (pVarTP.color < 0.0)
@@ -126,7 +126,8 @@ public class YPlot2DWFFunc extends VariationFunc {
   }
 
   private JEPWrapper _parser;
-  private Node _node;
+  private CompiledFormula _formula;
+  private int _xIdx;
   private double _xmin, _xmax, _dx;
   private double _ymin, _ymax, _dy;
   private double _zmin, _zmax, _dz;
@@ -134,8 +135,8 @@ public class YPlot2DWFFunc extends VariationFunc {
   @Override
   public void init(FlameTransformationContext pContext, Layer pLayer, XForm pXForm, double pAmount) {
     _parser = new JEPWrapper();
-    _parser.addVariable("x", 0.0);
-    _node = _parser.parse(formula);
+    _xIdx = _parser.addVariable("x", 0.0);
+    _formula = _parser.compile(_parser.parse(formula));
     if (xmin < xmax) {
       _xmin = xmin;
       _xmax = xmax;
@@ -167,7 +168,7 @@ public class YPlot2DWFFunc extends VariationFunc {
   }
 
   private String getRandomFormula() {
-    switch (Tools.FTOI(Math.random() * 3)) {
+    switch (Tools.FTOI(randomInitialValue() * 3)) {
       case 0:
         return "(sin(x)+2*sin(2*x)+1*sin(4*x))";
       case 1:
@@ -20,11 +20,11 @@
 package org.jwildfire.create.tina.variation;
 
 import org.jwildfire.base.Tools;
+import org.jwildfire.base.mathparser.CompiledFormula;
 import org.jwildfire.base.mathparser.JEPWrapper;
 import org.jwildfire.create.tina.base.Layer;
 import org.jwildfire.create.tina.base.XForm;
 import org.jwildfire.create.tina.base.XYZPoint;
-import org.nfunk.jep.Node;
 
 public class YPlot3DWFFunc extends VariationFunc {
   private static final long serialVersionUID = 1L;
@@ -57,9 +57,9 @@ public class YPlot3DWFFunc extends VariationFunc {
   public void transform(FlameTransformationContext pContext, XForm pXForm, XYZPoint pAffineTP, XYZPoint pVarTP, double pAmount) {
     double x = _xmin + pContext.random() * _dx;
     double z = _zmin + pContext.random() * _dz;
-    _parser.setVarValue("x", x);
-    _parser.setVarValue("z", z);
-    double y = (Double) _parser.evaluate(_node);
+    _parser.setVarValue(_xIdx, x);
+    _parser.setVarValue(_zIdx, z);
+    double y = _formula.evaluate();
     if (direct_color > 0) {
       pVarTP.color = (y - _ymin) / _dy;
       if (pVarTP.color < 0.0)
@@ -73,7 +73,7 @@ public class YPlot3DWFFunc extends VariationFunc {
   }
 
   private String getRandomFormula() {
-    switch (Tools.FTOI(Math.random() * 7)) {
+    switch (Tools.FTOI(randomInitialValue() * 7)) {
       case 0:
         return "sin(2*exp(-4*(x*x+z*z)))";
       case 1:
@@ -146,7 +146,8 @@ public class YPlot3DWFFunc extends VariationFunc {
   }
 
   private JEPWrapper _parser;
-  private Node _node;
+  private CompiledFormula _formula;
+  private int _xIdx, _zIdx;
   private double _xmin, _xmax, _dx;
   private double _ymin, _ymax, _dy;
   private double _zmin, _zmax, _dz;
@@ -154,9 +155,9 @@ public class YPlot3DWFFunc extends VariationFunc {
   @Override
   public void init(FlameTransformationContext pContext, Layer pLayer, XForm pXForm, double pAmount) {
     _parser = new JEPWrapper();
-    _parser.addVariable("x", 0.0);
-    _parser.addVariable("z", 0.0);
-    _node = _parser.parse(formula);
+    _xIdx = _parser.addVariable("x", 0.0);
+    _zIdx = _parser.addVariable("z", 0.0);
+    _formula = _parser.compile(_parser.parse(formula));
     if (xmin < xmax) {
       _xmin = xmin;
       _xmax = xmax;
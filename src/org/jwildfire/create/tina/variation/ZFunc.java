@@ -52,13 +52,13 @@ public class ZFunc extends VariationFunc {
 
   private static final String[] paramNames = { PARAM_HYPERGON, PARAM_HYPERGON_N, PARAM_HYPERGON_R, PARAM_STAR, PARAM_STAR_N, PARAM_STAR_SLOPE, PARAM_LITUUS, PARAM_LITUUS_A, PARAM_SUPER, PARAM_SUPER_M, PARAM_SUPER_N1, PARAM_SUPER_N2, PARAM_SUPER_N3 };
 
-  private double hypergon = Math.random();
+  private double hypergon = randomInitialValue();
   private int hypergon_n = 4;
   private double hypergon_r = 1.0;
-  private double star = Math.random();
+  private double star = randomInitialValue();
   private int star_n = 5;
   private double star_slope = 2.0;
-  private double lituus = Math.random() * 0.25;
+  private double lituus = randomInitialValue() * 0.25;
   private double lituus_a = 1.0;
   private double _super = 0.0;
   private double super_m = 1.0;
@@ -23,6 +23,7 @@ import org.jwildfire.base.mathlib.MathLib;
 import org.jwildfire.create.tina.base.XForm;
 import org.jwildfire.create.tina.base.XYZPoint;
 import org.jwildfire.create.tina.variation.FlameTransformationContext;
+import org.jwildfire.create.tina.variation.RessourceManager;
 import org.jwildfire.create.tina.variation.VariationFunc;
 
 import com.owens.oobjloader.builder.Build;
@@ -58,13 +59,12 @@ public abstract class AbstractOBJMeshWFFunc extends VariationFunc {
   protected double subdiv_smooth_mu = -0.45;
 
   protected SimpleMesh mesh;
+  protected PackedMesh packedMesh;
 
   @Override
   public void transform(FlameTransformationContext pContext, XForm pXForm, XYZPoint pAffineTP, XYZPoint pVarTP, double pAmount) {
-    Face f = mesh.getFace(pContext.random(mesh.getFaceCount()));
-    Vertex p1 = transform(mesh.getVertex(f.v1));
-    Vertex p2 = transform(mesh.getVertex(f.v2));
-    Vertex p3 = transform(mesh.getVertex(f.v3));
+    int offset = PackedMesh.FACE_SIZE * packedMesh.selectFace(pContext.random(), pContext.random());
+    float[] v = packedMesh.getFaces();
 
     // uniform sampling:  http://math.stackexchange.com/questions/18686/uniform-random-point-in-triangle
     double sqrt_r1 = MathLib.sqrt(pContext.random());
@@ -72,21 +72,33 @@ public abstract class AbstractOBJMeshWFFunc extends VariationFunc {
     double a = 1.0 - sqrt_r1;
     double b = sqrt_r1 * (1.0 - r2);
     double c = r2 * sqrt_r1;
-    double dx = a * p1.x + b * p2.x + c * p3.x;
-    double dy = a * p1.y + b * p2.y + c * p3.y;
-    double dz = a * p1.z + b * p2.z + c * p3.z;
+    double dx = a * v[offset] + b * v[offset + 3] + c * v[offset + 6];
+    double dy = a * v[offset + 1] + b * v[offset + 4] + c * v[offset + 7];
+    double dz = a * v[offset + 2] + b * v[offset + 5] + c * v[offset + 8];
 
     pVarTP.x += pAmount * dx;
     pVarTP.y += pAmount * dy;
     pVarTP.z += pAmount * dz;
   }
 
-  private Vertex transform(Vertex p) {
-    Vertex res = new Vertex();
-    res.x = (float) (p.x * scaleX + offsetX);
-    res.y = (float) (p.y * scaleY + offsetY);
-    res.z = (float) (p.z * scaleZ + offsetZ);
-    return res;
+  // the packed mesh holds the transformed faces, so it depends on the scale and offset, and is cached separately from the
+  // mesh; pMeshKey is null for meshes which are not cached
+  protected void initPackedMesh(String pMeshKey) {
+    if (mesh == null || mesh.getFaceCount() == 0) {
+      mesh = createDfltMesh();
+      pMeshKey = null;
+    }
+    if (pMeshKey == null) {
+      packedMesh = new PackedMesh(mesh, scaleX, scaleY, scaleZ, offsetX, offsetY, offsetZ);
+    }
+    else {
+      String packedMeshKey = pMeshKey + "#packed#" + scaleX + "#" + scaleY + "#" + scaleZ + "#" + offsetX + "#" + offsetY + "#" + offsetZ;
+      packedMesh = (PackedMesh) RessourceManager.getRessource(packedMeshKey);
+      if (packedMesh == null) {
+        packedMesh = new PackedMesh(mesh, scaleX, scaleY, scaleZ, offsetX, offsetY, offsetZ);
+        RessourceManager.putRessource(packedMeshKey, packedMesh);
+      }
+    }
   }
 
   @Override
@@ -173,14 +185,9 @@ public abstract class AbstractOBJMeshWFFunc extends VariationFunc {
         mesh.addFace(v0, v2, v3);
       }
     }
-    if (subdiv_level > 0) {
-      for (int i = 0; i < subdiv_level; i++) {
-        mesh = mesh.interpolate();
-        mesh.taubinSmooth(subdiv_smooth_passes, subdiv_smooth_lambda, subdiv_smooth_mu);
-      }
-    }
-    else {
-      mesh.distributeFaces();
+    for (int i = 0; i < subdiv_level; i++) {
+      mesh = mesh.interpolate();
+      mesh.taubinSmooth(subdiv_smooth_passes, subdiv_smooth_lambda, subdiv_smooth_mu);
     }
     return mesh;
   }
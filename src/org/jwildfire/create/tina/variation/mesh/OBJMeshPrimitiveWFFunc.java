@@ -68,9 +68,10 @@ public class OBJMeshPrimitiveWFFunc extends AbstractOBJMeshWFFunc {
   public void init(FlameTransformationContext pContext, Layer pLayer, XForm pXForm, double pAmount) {
     String meshName = primitive >= 0 && primitive < primitives.length ? primitives[primitive] : null;
 
+    String meshKey = null;
     if (meshName != null && meshName.length() > 0) {
       try {
-        String meshKey = this.getClass().getName() + "_" + getMeshname(meshName);
+        meshKey = this.getClass().getName() + "_" + getMeshname(meshName);
         mesh = (SimpleMesh) RessourceManager.getRessource(meshKey);
         if (mesh == null) {
           String resourceObj = meshName + ".obj";
@@ -87,11 +88,10 @@ public class OBJMeshPrimitiveWFFunc extends AbstractOBJMeshWFFunc {
       }
       catch (Exception e) {
         e.printStackTrace();
+        meshKey = null;
       }
     }
-    if (mesh == null) {
-      mesh = createDfltMesh();
-    }
+    initPackedMesh(meshKey);
 
   }
 
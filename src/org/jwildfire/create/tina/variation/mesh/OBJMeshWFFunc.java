@@ -66,9 +66,10 @@ public class OBJMeshWFFunc extends AbstractOBJMeshWFFunc {
 
   @Override
   public void init(FlameTransformationContext pContext, Layer pLayer, XForm pXForm, double pAmount) {
+    String meshKey = null;
     if (objFilename != null && objFilename.length() > 0) {
       try {
-        String meshKey = this.getClass().getName() + "_" + getMeshname(objFilename);
+        meshKey = this.getClass().getName() + "_" + getMeshname(objFilename);
         mesh = (SimpleMesh) RessourceManager.getRessource(meshKey);
         if (mesh == null) {
           mesh = loadMeshFromFile(objFilename);
@@ -77,11 +78,10 @@ public class OBJMeshWFFunc extends AbstractOBJMeshWFFunc {
       }
       catch (Exception e) {
         e.printStackTrace();
+        meshKey = null;
       }
     }
-    if (mesh == null) {
-      mesh = createDfltMesh();
-    }
+    initPackedMesh(meshKey);
   }
 
 }
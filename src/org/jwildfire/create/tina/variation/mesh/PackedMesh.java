@@ -0,0 +1,144 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.create.tina.variation.mesh;
+
+// Compact, read-only form of a SimpleMesh for sampling random points on its surface: the faces are chosen with
+// probability proportional to their area in O(1) by using an alias table (Walker/Vose). Each face is stored as one
+// record of FACE_SIZE floats in a flat array: the (scaled and translated) corners, followed by the alias table entry of
+// the face, so choosing a face and reading its corners usually touches only one cache line.
+public class PackedMesh {
+  public static final int FACE_SIZE = 11;
+  private static final int ALIAS_PROBABILITY = 9;
+  private static final int ALIAS = 10;
+
+  private final int faceCount;
+  private final float[] faces;
+
+  public PackedMesh(SimpleMesh pMesh, double pScaleX, double pScaleY, double pScaleZ, double pOffsetX, double pOffsetY, double pOffsetZ) {
+    faceCount = pMesh.getFaceCount();
+    faces = new float[FACE_SIZE * faceCount];
+    double[] areas = new double[faceCount];
+    for (int i = 0; i < faceCount; i++) {
+      Face face = pMesh.getFace(i);
+      int offset = FACE_SIZE * i;
+      setVertex(offset, pMesh.getVertex(face.v1), pScaleX, pScaleY, pScaleZ, pOffsetX, pOffsetY, pOffsetZ);
+      setVertex(offset + 3, pMesh.getVertex(face.v2), pScaleX, pScaleY, pScaleZ, pOffsetX, pOffsetY, pOffsetZ);
+      setVertex(offset + 6, pMesh.getVertex(face.v3), pScaleX, pScaleY, pScaleZ, pOffsetX, pOffsetY, pOffsetZ);
+      areas[i] = calcArea(offset);
+    }
+    initAliasTable(areas);
+  }
+
+  private void setVertex(int pOffset, Vertex pVertex, double pScaleX, double pScaleY, double pScaleZ, double pOffsetX, double pOffsetY, double pOffsetZ) {
+    faces[pOffset] = (float) (pVertex.x * pScaleX + pOffsetX);
+    faces[pOffset + 1] = (float) (pVertex.y * pScaleY + pOffsetY);
+    faces[pOffset + 2] = (float) (pVertex.z * pScaleZ + pOffsetZ);
+  }
+
+  // twice the area of the face, only the ratios matter
+  private double calcArea(int pOffset) {
+    double ax = faces[pOffset + 3] - faces[pOffset];
+    double ay = faces[pOffset + 4] - faces[pOffset + 1];
+    double az = faces[pOffset + 5] - faces[pOffset + 2];
+    double bx = faces[pOffset + 6] - faces[pOffset];
+    double by = faces[pOffset + 7] - faces[pOffset + 1];
+    double bz = faces[pOffset + 8] - faces[pOffset + 2];
+    double cx = ay * bz - az * by;
+    double cy = az * bx - ax * bz;
+    double cz = ax * by - ay * bx;
+    return Math.sqrt(cx * cx + cy * cy + cz * cz);
+  }
+
+  private void initAliasTable(double[] pAreas) {
+    double totalArea = 0.0;
+    for (double area : pAreas) {
+      totalArea += area;
+    }
+    if (!(totalArea > 0.0) || Double.isInfinite(totalArea)) {
+      // degenerated mesh: uniform distribution
+      for (int i = 0; i < faceCount; i++) {
+        setAlias(i, 1.0, i);
+      }
+      return;
+    }
+    // scale the areas to an average of 1 and pair each face below the average with one above it
+    double[] scaled = pAreas;
+    int[] small = new int[faceCount];
+    int[] large = new int[faceCount];
+    int smallCount = 0, largeCount = 0;
+    for (int i = 0; i < faceCount; i++) {
+      scaled[i] = pAreas[i] * faceCount / totalArea;
+      if (scaled[i] < 1.0) {
+        small[smallCount++] = i;
+      }
+      else {
+        large[largeCount++] = i;
+      }
+    }
+    while (smallCount > 0 && largeCount > 0) {
+      int s = small[--smallCount];
+      int l = large[--largeCount];
+      setAlias(s, scaled[s], l);
+      scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+      if (scaled[l] < 1.0) {
+        small[smallCount++] = l;
+      }
+      else {
+        large[largeCount++] = l;
+      }
+    }
+    // remaining entries are (up to rounding errors) exactly at the average
+    while (largeCount > 0) {
+      int l = large[--largeCount];
+      setAlias(l, 1.0, l);
+    }
+    while (smallCount > 0) {
+      int s = small[--smallCount];
+      setAlias(s, 1.0, s);
+    }
+  }
+
+  // the bits of the alias index are stored as float, face indices are too small to collide with NaN values
+  private void setAlias(int pFace, double pProbability, int pAlias) {
+    faces[FACE_SIZE * pFace + ALIAS_PROBABILITY] = (float) pProbability;
+    faces[FACE_SIZE * pFace + ALIAS] = Float.intBitsToFloat(pAlias);
+  }
+
+  // chooses a face (with a probability proportional to its area) from two uniform random numbers in [0, 1), the
+  // corners of the face start at index FACE_SIZE * face in getFaces()
+  public int selectFace(double pRandom1, double pRandom2) {
+    int face = (int) (pRandom1 * faceCount);
+    if (face >= faceCount) {
+      face = faceCount - 1;
+    }
+    int offset = FACE_SIZE * face;
+    return pRandom2 < faces[offset + ALIAS_PROBABILITY] ? face : Float.floatToRawIntBits(faces[offset + ALIAS]);
+  }
+
+  public float[] getFaces() {
+    return faces;
+  }
+
+  public int getFaceCount() {
+    return faceCount;
+  }
+
+  public long getMemorySize() {
+    return 4L * FACE_SIZE * faceCount;
+  }
+
+}
@@ -17,29 +17,44 @@
 package org.jwildfire.create.tina.variation.mesh;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 import org.jwildfire.base.Tools;
-import org.jwildfire.base.mathlib.MathLib;
-import org.jwildfire.base.mathlib.VecMathLib.VectorD;
 
 public class SimpleMesh {
+  private static final double VERTEX_PRECISION = 10000.0;
+
   private List<Vertex> vertices = new ArrayList<>();
-  private Map<String, Integer> verticesMap = new HashMap<>();
+  // vertices with equal coordinates (rounded to VERTEX_PRECISION) are merged, the rounded coordinates of each vertex are
+  // stored in vertexKeys, vertexTable is an open addressing hash table of vertex indices (-1 = empty slot)
+  private int[] vertexKeys = new int[3 * 64];
+  private int[] vertexTable = createVertexTable(128);
   private List<Face> faces = new ArrayList<>();
 
-  private String calculateVertexKey(double x, double y, double z) {
-    final double prec = 10000.0;
-    return String.valueOf(Tools.FTOI(x * prec)) + "#" + String.valueOf(Tools.FTOI(y * prec)) + "#" + String.valueOf(Tools.FTOI(z * prec));
+  private static int[] createVertexTable(int pSize) {
+    int[] res = new int[pSize];
+    Arrays.fill(res, -1);
+    return res;
+  }
+
+  private static int hashVertexKey(int pX, int pY, int pZ) {
+    int h = pX * 0x9E3779B1 + pY * 0x85EBCA77 + pZ * 0xC2B2AE3D;
+    return h ^ (h >>> 15);
   }
 
   public int addVertex(double x, double y, double z) {
-    String key = calculateVertexKey(x, y, z);
-    Integer idx = verticesMap.get(key);
-    if (idx != null) {
-      return idx.intValue();
+    int kx = Tools.FTOI(x * VERTEX_PRECISION);
+    int ky = Tools.FTOI(y * VERTEX_PRECISION);
+    int kz = Tools.FTOI(z * VERTEX_PRECISION);
+    int mask = vertexTable.length - 1;
+    int slot = hashVertexKey(kx, ky, kz) & mask;
+    while (vertexTable[slot] >= 0) {
+      int idx = vertexTable[slot];
+      if (vertexKeys[3 * idx] == kx && vertexKeys[3 * idx + 1] == ky && vertexKeys[3 * idx + 2] == kz) {
+        return idx;
+      }
+      slot = (slot + 1) & mask;
     }
     Vertex p = new Vertex();
     p.x = (float) x;
@@ -47,10 +62,32 @@ public class SimpleMesh {
     p.z = (float) z;
     int res = vertices.size();
     vertices.add(p);
-    verticesMap.put(key, Integer.valueOf(res));
+    if (3 * res + 3 > vertexKeys.length) {
+      vertexKeys = Arrays.copyOf(vertexKeys, 2 * vertexKeys.length);
+    }
+    vertexKeys[3 * res] = kx;
+    vertexKeys[3 * res + 1] = ky;
+    vertexKeys[3 * res + 2] = kz;
+    vertexTable[slot] = res;
+    // keep the load factor below 1/2
+    if (2 * vertices.size() > vertexTable.length) {
+      rehashVertices(2 * vertexTable.length);
+    }
     return res;
   }
 
+  private void rehashVertices(int pTableSize) {
+    vertexTable = createVertexTable(pTableSize);
+    int mask = pTableSize - 1;
+    for (int i = 0; i < vertices.size(); i++) {
+      int slot = hashVertexKey(vertexKeys[3 * i], vertexKeys[3 * i + 1], vertexKeys[3 * i + 2]) & mask;
+      while (vertexTable[slot] >= 0) {
+        slot = (slot + 1) & mask;
+      }
+      vertexTable[slot] = i;
+    }
+  }
+
   public void addFace(int p1, int p2, int p3) {
     Face f = new Face();
     f.v1 = p1;
@@ -84,40 +121,8 @@ public class SimpleMesh {
     return vertices.get(idx);
   }
 
-  public void distributeFaces() {
-    System.out.println("VERTICES: " + vertices.size());
-
-    List<Double> areaLst = new ArrayList<>();
-    double areaMin = Double.MAX_VALUE, areaMax = 0.0;
-    for (Face face : faces) {
-      Vertex p1 = getVertex(face.v1);
-      Vertex p2 = getVertex(face.v2);
-      Vertex p3 = getVertex(face.v3);
-      VectorD a = new VectorD(p2.x - p1.x, p2.y - p1.y, p2.z - p1.z);
-      VectorD b = new VectorD(p3.x - p1.x, p3.y - p1.y, p3.z - p1.z);
-      double area = VectorD.cross(a, b).length();
-
-      areaLst.add(area);
-      if (area < areaMin) {
-        areaMin = area;
-      }
-      if (area > areaMax) {
-        areaMax = area;
-      }
-    }
-    if (MathLib.fabs(areaMin - areaMax) > MathLib.EPSILON) {
-      int maxFaces = faces.size() < 10000 ? 10000 : 1000;
-      List<Face> newFaces = new ArrayList<>();
-      for (int i = 0; i < faces.size(); i++) {
-        Face face = faces.get(i);
-        int count = Math.min(Tools.FTOI(areaLst.get(i) / areaMin), maxFaces);
-        for (int j = 0; j < count; j++) {
-          newFaces.add(face);
-          //newFaces.add(new Face(face.p1, face.p3, face.p2));
-        }
-      }
-      faces = newFaces;
-    }
+  public int getVertexCount() {
+    return vertices.size();
   }
 
   public void laplaceSmooth(NeightboursList neighbours, double strength) {
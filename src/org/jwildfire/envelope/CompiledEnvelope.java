@@ -0,0 +1,129 @@
+/*
+  JWildfire - an image and animation processor written in Java 
+  Copyright (C) 1995-2016 Andreas Maschke
+
+  This is free software; you can redistribute it and/or modify it under the terms of the GNU Lesser 
+  General Public License as published by the Free Software Foundation; either version 2.1 of the 
+  License, or (at your option) any later version.
+ 
+  This software is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without 
+  even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU 
+  Lesser General Public License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this software; 
+  if not, write to the Free Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+  02110-1301 USA, or see the FSF site: http://www.fsf.org.
+*/
+package org.jwildfire.envelope;
+
+import java.util.Arrays;
+
+import org.jwildfire.base.Tools;
+import org.jwildfire.envelope.Envelope.Interpolation;
+
+// Immutable, precomputed form of an envelope for repeated evaluation (e.g. when rendering animations). The
+// interpolated points are calculated only once and looked up by bisection, results are the same as of Envelope.evaluate()
+public final class CompiledEnvelope {
+  private final int x[];
+  private final double y[];
+  private final Interpolation interpolation;
+  private final int xmin, xmax;
+  private final double vSX[];
+  private final double vSY[];
+  // running maximum of the rounded x-values of the interpolated points, used for the bisection
+  private final int vSXMax[];
+
+  public CompiledEnvelope(int pX[], double pY[], Interpolation pInterpolation) {
+    if (pX == null || pY == null || pX.length != pY.length) {
+      throw new IllegalArgumentException();
+    }
+    x = Arrays.copyOf(pX, pX.length);
+    y = Arrays.copyOf(pY, pY.length);
+    interpolation = pInterpolation;
+    if (x.length > 0) {
+      int min = x[0], max = x[0];
+      for (int i = 1; i < x.length; i++) {
+        if (x[i] < min)
+          min = x[i];
+        else if (x[i] > max)
+          max = x[i];
+      }
+      xmin = min;
+      xmax = max;
+    }
+    else {
+      xmin = xmax = 0;
+    }
+    if (x.length > 1) {
+      Envelope.InterpolatedPoints iPoints = new Envelope.InterpolatedPoints(x, y, interpolation);
+      vSX = iPoints.getvSX();
+      vSY = iPoints.getvSY();
+      vSXMax = new int[vSX.length];
+      for (int i = 0; i < vSX.length; i++) {
+        int currX = Tools.FTOI(vSX[i]);
+        vSXMax[i] = i > 0 && vSXMax[i - 1] > currX ? vSXMax[i - 1] : currX;
+      }
+    }
+    else {
+      vSX = vSY = null;
+      vSXMax = null;
+    }
+  }
+
+  public CompiledEnvelope(Envelope pEnvelope) {
+    this(pEnvelope.getX(), pEnvelope.getY(), pEnvelope.getInterpolation());
+  }
+
+  public boolean isCompiledFrom(int pX[], double pY[], Interpolation pInterpolation) {
+    return interpolation == pInterpolation && Arrays.equals(x, pX) && Arrays.equals(y, pY);
+  }
+
+  public double evaluate(double pTime) {
+    int size = x.length;
+    if (size == 0)
+      return 0.0;
+    else if (size == 1)
+      return y[0];
+    else if (pTime <= xmin)
+      return y[0];
+    else if (pTime >= xmax)
+      return y[size - 1];
+
+    // first interpolated point with a (rounded) x-value greater than pTime
+    int low = 0;
+    int high = vSXMax.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (vSXMax[mid] <= pTime) {
+        low = mid + 1;
+      }
+      else {
+        high = mid;
+      }
+    }
+    int indr = low < vSXMax.length ? low : -1;
+    int indl = indr >= 0 ? indr - 1 : vSXMax.length - 1;
+
+    if ((indl >= 0) && (indr >= 0)) {
+      double xdist = vSX[indr] - vSX[indl];
+      if (xdist < 0.00000001)
+        return vSX[indl];
+      else
+        return vSY[indl] + (pTime - vSX[indl]) / xdist * (vSY[indr] - vSY[indl]);
+    }
+    else if (indl >= 0) {
+      return vSY[indl];
+    }
+    else if (indr >= 0) {
+      return vSY[indr];
+    }
+    else {
+      return 0.0;
+    }
+  }
+
+  public Interpolation getInterpolation() {
+    return interpolation;
+  }
+
+}
@@ -262,7 +262,7 @@ public class Envelope implements Serializable {
 
   }
 
-  private static class InterpolatedPoints {
+  static class InterpolatedPoints {
 
     private final double vSX[];
     private final double vSY[];
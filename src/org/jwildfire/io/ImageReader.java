@@ -23,6 +23,7 @@ import java.awt.MediaTracker;
 import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -50,7 +51,15 @@ public class ImageReader {
     File file = new File(pFilename);
     if (!file.exists())
       throw new FileNotFoundException(pFilename);
-    Image fileImg = Toolkit.getDefaultToolkit().createImage(pFilename);
+    return loadImage(Toolkit.getDefaultToolkit().createImage(pFilename));
+  }
+
+  // decodes an image (e.g. an image embedded into a flame) without writing it to a file first
+  public SimpleImage loadImage(byte[] pImageData) throws Exception {
+    return loadImage(Toolkit.getDefaultToolkit().createImage(pImageData));
+  }
+
+  private SimpleImage loadImage(Image fileImg) throws Exception {
     MediaTracker tracker = new MediaTracker(owner);
     tracker.addImage(fileImg, 0);
     tracker.waitForID(0);
@@ -80,6 +89,19 @@ public class ImageReader {
     if (!file.exists())
       throw new FileNotFoundException(pFilename);
     InputStream f = new BufferedInputStream(new FileInputStream(pFilename));
+    try {
+      return loadHDRImage(f);
+    }
+    finally {
+      f.close();
+    }
+  }
+
+  public SimpleHDRImage loadHDRImage(byte[] pImageData) throws Exception {
+    return loadHDRImage(new ByteArrayInputStream(pImageData));
+  }
+
+  private SimpleHDRImage loadHDRImage(InputStream f) throws Exception {
     // header
     String header = readNextLine(f);
     if (!"#?RGBE".equals(header)) {
@@ -18,11 +18,11 @@ package org.jwildfire.transform;
 
 import org.jwildfire.base.Property;
 import org.jwildfire.base.Tools;
+import org.jwildfire.base.mathparser.CompiledFormula;
 import org.jwildfire.base.mathparser.JEPWrapper;
 import org.jwildfire.image.Pixel;
 import org.jwildfire.image.SimpleImage;
 import org.jwildfire.image.WFImage;
-import org.nfunk.jep.Node;
 
 public class FormulaColorTransformer extends Mesh2DTransformer {
 
@@ -45,38 +45,38 @@ public class FormulaColorTransformer extends Mesh2DTransformer {
     int height = pImg.getImageHeight();
 
     JEPWrapper parser = new JEPWrapper();
-    parser.addVariable("r", 0.0);
-    parser.addVariable("g", 0.0);
-    parser.addVariable("b", 0.0);
-    parser.addVariable("x", 0.0);
-    parser.addVariable("y", 0.0);
+    int rIdx = parser.addVariable("r", 0.0);
+    int gIdx = parser.addVariable("g", 0.0);
+    int bIdx = parser.addVariable("b", 0.0);
+    int xIdx = parser.addVariable("x", 0.0);
+    int yIdx = parser.addVariable("y", 0.0);
     parser.addVariable("width", (double) width);
     parser.addVariable("height", (double) height);
-    Node redNode = parser.parse(formula1Red);
-    Node greenNode = parser.parse(formula2Green);
-    Node blueNode = parser.parse(formula3Blue);
+    CompiledFormula redFunc = parser.compile(parser.parse(formula1Red));
+    CompiledFormula greenFunc = parser.compile(parser.parse(formula2Green));
+    CompiledFormula blueFunc = parser.compile(parser.parse(formula3Blue));
 
     Pixel pixel = new Pixel();
     for (int i = 0; i < height; i++) {
-      parser.setVarValue("y", i);
+      parser.setVarValue(yIdx, i);
       for (int j = 0; j < width; j++) {
-        parser.setVarValue("x", j);
+        parser.setVarValue(xIdx, j);
         pixel.setARGBValue(srcImg.getARGBValue(j, i));
         if (useOriginalRGBValues) {
-          parser.setVarValue("r", (double) pixel.r);
-          parser.setVarValue("g", (double) pixel.g);
-          parser.setVarValue("b", (double) pixel.b);
-          pixel.r = Tools.roundColor((Double) parser.evaluate(redNode));
-          pixel.g = Tools.roundColor((Double) parser.evaluate(greenNode));
-          pixel.b = Tools.roundColor((Double) parser.evaluate(blueNode));
+          parser.setVarValue(rIdx, (double) pixel.r);
+          parser.setVarValue(gIdx, (double) pixel.g);
+          parser.setVarValue(bIdx, (double) pixel.b);
+          pixel.r = Tools.roundColor(redFunc.evaluate());
+          pixel.g = Tools.roundColor(greenFunc.evaluate());
+          pixel.b = Tools.roundColor(blueFunc.evaluate());
         }
         else {
-          parser.setVarValue("r", (double) pixel.r / 255.0);
-          parser.setVarValue("g", (double) pixel.g / 255.0);
-          parser.setVarValue("b", (double) pixel.b / 255.0);
-          pixel.r = Tools.roundColor((Double) parser.evaluate(redNode) * 255.0);
-          pixel.g = Tools.roundColor((Double) parser.evaluate(greenNode) * 255.0);
-          pixel.b = Tools.roundColor((Double) parser.evaluate(blueNode) * 255.0);
+          parser.setVarValue(rIdx, (double) pixel.r / 255.0);
+          parser.setVarValue(gIdx, (double) pixel.g / 255.0);
+          parser.setVarValue(bIdx, (double) pixel.b / 255.0);
+          pixel.r = Tools.roundColor(redFunc.evaluate() * 255.0);
+          pixel.g = Tools.roundColor(greenFunc.evaluate() * 255.0);
+          pixel.b = Tools.roundColor(blueFunc.evaluate() * 255.0);
         }
         img.setRGB(j, i, pixel);
       }
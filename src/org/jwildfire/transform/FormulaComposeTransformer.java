@@ -19,13 +19,13 @@ package org.jwildfire.transform;
 import org.jwildfire.base.Property;
 import org.jwildfire.base.PropertyCategory;
 import org.jwildfire.base.Tools;
+import org.jwildfire.base.mathparser.CompiledFormula;
 import org.jwildfire.base.mathparser.JEPWrapper;
 import org.jwildfire.image.Pixel;
 import org.jwildfire.image.SimpleImage;
 import org.jwildfire.image.WFImage;
 import org.jwildfire.swing.Buffer;
 import org.jwildfire.swing.NonHDRImageBufferComboBoxEditor;
-import org.nfunk.jep.Node;
 
 import com.l2fprod.common.beans.editor.ComboBoxPropertyEditor;
 
@@ -99,47 +99,47 @@ public class FormulaComposeTransformer extends Mesh2DTransformer {
 
     // Initialize the parser
     JEPWrapper parser = new JEPWrapper();
-    parser.addVariable("fgR", 0.0);
-    parser.addVariable("fgG", 0.0);
-    parser.addVariable("fgB", 0.0);
+    int fgRIdx = parser.addVariable("fgR", 0.0);
+    int fgGIdx = parser.addVariable("fgG", 0.0);
+    int fgBIdx = parser.addVariable("fgB", 0.0);
     parser.addVariable("fgWidth", (double) fgWidth);
     parser.addVariable("fgHeight", (double) fgHeight);
-    parser.addVariable("bgR", 0.0);
-    parser.addVariable("bgG", 0.0);
-    parser.addVariable("bgB", 0.0);
+    int bgRIdx = parser.addVariable("bgR", 0.0);
+    int bgGIdx = parser.addVariable("bgG", 0.0);
+    int bgBIdx = parser.addVariable("bgB", 0.0);
     parser.addVariable("bgWidth", (double) bgWidth);
     parser.addVariable("bgHeight", (double) bgHeight);
     parser.addVariable("fgLeft", (double) fgLeft);
     parser.addVariable("fgTop", (double) fgTop);
-    parser.addVariable("fgX", 0.0);
-    parser.addVariable("fgY", 0.0);
-    Node redNode = parser.parse(formula1Red);
-    Node greenNode = parser.parse(formula2Green);
-    Node blueNode = parser.parse(formula3Blue);
+    int fgXIdx = parser.addVariable("fgX", 0.0);
+    int fgYIdx = parser.addVariable("fgY", 0.0);
+    CompiledFormula redFunc = parser.compile(parser.parse(formula1Red));
+    CompiledFormula greenFunc = parser.compile(parser.parse(formula2Green));
+    CompiledFormula blueFunc = parser.compile(parser.parse(formula3Blue));
     // compose the images
     for (int i = 0; i < fgHeight; i++) {
       int top = fgTop + i;
       if (top >= 0 && top < bgHeight) {
-        parser.setVarValue("fgY", (double) i / 255.0);
+        parser.setVarValue(fgYIdx, (double) i / 255.0);
         for (int j = 0; j < fgWidth; j++) {
           int left = fgLeft + j;
           if (left >= 0 && left < bgWidth) {
-            parser.setVarValue("fgX", (double) j / 255.0);
+            parser.setVarValue(fgXIdx, (double) j / 255.0);
             bgPixel.setARGBValue(bgImg.getARGBValue(left, top));
             fgPixel.setARGBValue(fgImg.getARGBValue(j, i));
-            parser.setVarValue("bgR", (double) bgPixel.r / 255.0);
-            parser.setVarValue("bgG", (double) bgPixel.g / 255.0);
-            parser.setVarValue("bgB", (double) bgPixel.b / 255.0);
-            parser.setVarValue("fgR", (double) fgPixel.r / 255.0);
-            parser.setVarValue("fgG", (double) fgPixel.g / 255.0);
-            parser.setVarValue("fgB", (double) fgPixel.b / 255.0);
+            parser.setVarValue(bgRIdx, (double) bgPixel.r / 255.0);
+            parser.setVarValue(bgGIdx, (double) bgPixel.g / 255.0);
+            parser.setVarValue(bgBIdx, (double) bgPixel.b / 255.0);
+            parser.setVarValue(fgRIdx, (double) fgPixel.r / 255.0);
+            parser.setVarValue(fgGIdx, (double) fgPixel.g / 255.0);
+            parser.setVarValue(fgBIdx, (double) fgPixel.b / 255.0);
 
             // TODO Genlock: z. B. Testen, ob Intensitat 0 oder grober 0
             // genlockFormula, genlockOperator (gleich, grober), genlockRefValue
 
-            bgPixel.r = Tools.roundColor((Double) parser.evaluate(redNode) * 255.0);
-            bgPixel.g = Tools.roundColor((Double) parser.evaluate(greenNode) * 255.0);
-            bgPixel.b = Tools.roundColor((Double) parser.evaluate(blueNode) * 255.0);
+            bgPixel.r = Tools.roundColor(redFunc.evaluate() * 255.0);
+            bgPixel.g = Tools.roundColor(greenFunc.evaluate() * 255.0);
+            bgPixel.b = Tools.roundColor(blueFunc.evaluate() * 255.0);
             bgImg.setRGB(left, top, bgPixel);
           }
         }
@@ -18,9 +18,9 @@ package org.jwildfire.transform;
 
 import org.jwildfire.base.Property;
 import org.jwildfire.base.mathlib.MathLib;
+import org.jwildfire.base.mathparser.CompiledFormula;
 import org.jwildfire.base.mathparser.JEPWrapper;
 import org.jwildfire.image.WFImage;
-import org.nfunk.jep.Node;
 
 import com.l2fprod.common.beans.editor.ComboBoxPropertyEditor;
 
@@ -69,11 +69,11 @@ public class ParPlot3DTransformer extends Mesh3DTransformer {
     double z[] = pMesh3D.getZ();
 
     JEPWrapper parser = new JEPWrapper();
-    parser.addVariable("u", 0.0);
-    parser.addVariable("v", 0.0);
-    Node xNode = parser.parse(xFormula);
-    Node yNode = parser.parse(yFormula);
-    Node zNode = parser.parse(zFormula);
+    int uIdx = parser.addVariable("u", 0.0);
+    int vIdx = parser.addVariable("v", 0.0);
+    CompiledFormula xFunc = parser.compile(parser.parse(xFormula));
+    CompiledFormula yFunc = parser.compile(parser.parse(yFormula));
+    CompiledFormula zFunc = parser.compile(parser.parse(zFormula));
 
     // Don't calculate the actual bounding box because this may cause unexpected results if the object was deformed by another tansformer before
     double objUMin = -(double) width / 2.0;
@@ -102,19 +102,19 @@ public class ParPlot3DTransformer extends Mesh3DTransformer {
       double zz = oriZSize > MathLib.EPSILON ? z[i] / oriZSize * oriZScale : 0.0;
       double uu = ((x[i] - objUMin) * du) / objUSize + uMin;
       double vv = ((y[i] - objVMin) * dv) / objVSize + vMin;
-      parser.setVarValue("u", uu);
-      parser.setVarValue("v", vv);
-      x[i] = (Double) parser.evaluate(xNode) * (1 + zz * this.zScale);
+      parser.setVarValue(uIdx, uu);
+      parser.setVarValue(vIdx, vv);
+      x[i] = xFunc.evaluate() * (1 + zz * this.zScale);
       if (x[i] < xMin)
         xMin = x[i];
       else if (x[i] > xMax)
         xMax = x[i];
-      y[i] = (Double) parser.evaluate(yNode) * (1 + zz * this.zScale);
+      y[i] = yFunc.evaluate() * (1 + zz * this.zScale);
       if (y[i] < yMin)
         yMin = y[i];
       else if (y[i] > yMax)
         yMax = y[i];
-      z[i] = (Double) parser.evaluate(zNode) * (1 + zz * this.zScale);
+      z[i] = zFunc.evaluate() * (1 + zz * this.zScale);
       if (z[i] < zMin)
         zMin = z[i];
       else if (z[i] > zMax)
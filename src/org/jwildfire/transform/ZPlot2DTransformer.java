@@ -18,9 +18,9 @@ package org.jwildfire.transform;
 
 import org.jwildfire.base.Property;
 import org.jwildfire.base.PropertyCategory;
+import org.jwildfire.base.mathparser.CompiledFormula;
 import org.jwildfire.base.mathparser.JEPWrapper;
 import org.jwildfire.image.WFImage;
-import org.nfunk.jep.Node;
 
 import com.l2fprod.common.beans.editor.ComboBoxPropertyEditor;
 
@@ -67,8 +67,8 @@ public class ZPlot2DTransformer extends Mesh3DTransformer {
     double z[] = pMesh3D.getZ();
 
     JEPWrapper parser = new JEPWrapper();
-    parser.addVariable("x", 0.0);
-    Node node = parser.parse(formula);
+    int xIdx = parser.addVariable("x", 0.0);
+    CompiledFormula func = parser.compile(parser.parse(formula));
 
     // Don't calculate the actual bounding box because this may cause unexpected results if the object was deformed by another tansformer before
     double objXMin = -(double) width / 2.0;
@@ -84,16 +84,16 @@ public class ZPlot2DTransformer extends Mesh3DTransformer {
       if (!this.damp) {
         for (int i = 0; i < pCount; i++) {
           double xx = ((x[i] - objXMin) * dx) / objXSize + xMin;
-          parser.setVarValue("x", xx);
-          double amp = (Double) parser.evaluate(node);
+          parser.setVarValue(xIdx, xx);
+          double amp = func.evaluate();
           z[i] -= amp;
         }
       }
       else {
         for (int i = 0; i < pCount; i++) {
           double xx = ((x[i] - objXMin) * dx) / objXSize + xMin;
-          parser.setVarValue("x", xx);
-          double amp = (Double) parser.evaluate(node);
+          parser.setVarValue(xIdx, xx);
+          double amp = func.evaluate();
           double dxx = ((x[i] - objXMin) * dx) / objXSize + xMin - originX;
           double drr = Math.abs(dxx);
           double dmp = drr * damping;
@@ -106,16 +106,16 @@ public class ZPlot2DTransformer extends Mesh3DTransformer {
       if (!this.damp) {
         for (int i = 0; i < pCount; i++) {
           double yy = ((y[i] - objYMin) * dx) / objYSize + xMin;
-          parser.setVarValue("x", yy);
-          double amp = (Double) parser.evaluate(node);
+          parser.setVarValue(xIdx, yy);
+          double amp = func.evaluate();
           z[i] -= amp;
         }
       }
       else {
         for (int i = 0; i < pCount; i++) {
           double yy = ((y[i] - objYMin) * dx) / objYSize + xMin;
-          parser.setVarValue("x", yy);
-          double amp = (Double) parser.evaluate(node);
+          parser.setVarValue(xIdx, yy);
+          double amp = func.evaluate();
           double dyy = ((y[i] - objYMin) * dx) / objYSize + xMin - originY;
           double drr = Math.abs(dyy);
           double dmp = drr * damping;
@@ -130,8 +130,8 @@ public class ZPlot2DTransformer extends Mesh3DTransformer {
           double xx = ((x[i] - objXMin) * dx) / objXSize + xMin;
           double yy = ((y[i] - objYMin) * dx) / objYSize + xMin;
           double rr = Math.sqrt(xx * xx + yy * yy);
-          parser.setVarValue("x", rr);
-          double amp = (Double) parser.evaluate(node);
+          parser.setVarValue(xIdx, rr);
+          double amp = func.evaluate();
           z[i] -= amp;
         }
       }
@@ -140,8 +140,8 @@ public class ZPlot2DTransformer extends Mesh3DTransformer {
           double xx = ((x[i] - objXMin) * dx) / objXSize + xMin;
           double yy = ((y[i] - objYMin) * dx) / objYSize + xMin;
           double rr = Math.sqrt(xx * xx + yy * yy);
-          parser.setVarValue("x", rr);
-          double amp = (Double) parser.evaluate(node);
+          parser.setVarValue(xIdx, rr);
+          double amp = func.evaluate();
 
           double dxx = ((x[i] - objXMin) * dx) / objXSize + xMin - originX;
           double dyy = ((y[i] - objYMin) * dx) / objYSize + xMin - originY;
@@ -159,8 +159,8 @@ public class ZPlot2DTransformer extends Mesh3DTransformer {
           double yy = ((y[i] - objYMin) * dx) / objYSize + xMin - originY;
           double zz = z[i] - originZ;
           double rr = Math.sqrt(xx * xx + yy * yy + zz * zz);
-          parser.setVarValue("x", rr);
-          double amp = (Double) parser.evaluate(node);
+          parser.setVarValue(xIdx, rr);
+          double amp = func.evaluate();
           double vx, vy, vz;
           if (rr > 0.00001) {
             vx = xx / rr;
@@ -182,8 +182,8 @@ public class ZPlot2DTransformer extends Mesh3DTransformer {
           double yy = ((y[i] - objYMin) * dx) / objYSize + xMin - originY;
           double zz = z[i] - originZ;
           double rr = Math.sqrt(xx * xx + yy * yy + zz * zz);
-          parser.setVarValue("x", rr);
-          double amp = (Double) parser.evaluate(node);
+          parser.setVarValue(xIdx, rr);
+          double amp = func.evaluate();
 
           double drr = rr;
           double dmp = drr * damping;
@@ -18,9 +18,9 @@ package org.jwildfire.transform;
 
 import org.jwildfire.base.Property;
 import org.jwildfire.base.PropertyCategory;
+import org.jwildfire.base.mathparser.CompiledFormula;
 import org.jwildfire.base.mathparser.JEPWrapper;
 import org.jwildfire.image.WFImage;
-import org.nfunk.jep.Node;
 
 import com.l2fprod.common.beans.editor.ComboBoxPropertyEditor;
 
@@ -74,9 +74,9 @@ public class ZPlot3DTransformer extends Mesh3DTransformer {
     double z[] = pMesh3D.getZ();
 
     JEPWrapper parser = new JEPWrapper();
-    parser.addVariable("x", 0.0);
-    parser.addVariable("y", 0.0);
-    Node node = parser.parse(formula);
+    int xIdx = parser.addVariable("x", 0.0);
+    int yIdx = parser.addVariable("y", 0.0);
+    CompiledFormula func = parser.compile(parser.parse(formula));
 
     // Don't calculate the actual bounding box because this may cause unexpected results if the object was deformed by another tansformer before
     double objXMin = -(double) width / 2.0;
@@ -93,9 +93,9 @@ public class ZPlot3DTransformer extends Mesh3DTransformer {
       for (int i = 0; i < pCount; i++) {
         double xx = ((x[i] - objXMin) * dx) / objXSize + xMin;
         double yy = ((y[i] - objYMin) * dy) / objYSize + xMin;
-        parser.setVarValue("x", xx);
-        parser.setVarValue("y", yy);
-        double amp = (Double) parser.evaluate(node);
+        parser.setVarValue(xIdx, xx);
+        parser.setVarValue(yIdx, yy);
+        double amp = func.evaluate();
         z[i] -= amp;
       }
     }
@@ -103,9 +103,9 @@ public class ZPlot3DTransformer extends Mesh3DTransformer {
       for (int i = 0; i < pCount; i++) {
         double xx = ((x[i] - objXMin) * dx) / objXSize + xMin;
         double yy = ((y[i] - objYMin) * dy) / objYSize + xMin;
-        parser.setVarValue("x", xx);
-        parser.setVarValue("y", yy);
-        double amp = (Double) parser.evaluate(node);
+        parser.setVarValue(xIdx, xx);
+        parser.setVarValue(yIdx, yy);
+        double amp = func.evaluate();
 
         double dxx = ((x[i] - objXMin) * dx) / objXSize + xMin - originX;
         double dyy = ((y[i] - objYMin) * dy) / objYSize + xMin - originY;
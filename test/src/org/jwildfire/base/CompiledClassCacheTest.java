@@ -0,0 +1,56 @@
+package org.jwildfire.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.jwildfire.create.tina.variation.CustomWFFuncRunner;
+
+public class CompiledClassCacheTest
+{
+	private static final String CODE = "public void setA(double a) { this.a = 2.0 * a; }\n";
+
+	@Test
+	public void testClassIsCompiledOnce() throws Exception
+	{
+		CompiledClassCache cache = new CompiledClassCache(8);
+		CustomWFFuncRunner r1 = cache.newInstance(CustomWFFuncRunner.class, CODE);
+		CustomWFFuncRunner r2 = cache.newInstance(CustomWFFuncRunner.class, CODE);
+		assertNotSame(r1, r2);
+		assertSame(r1.getClass(), r2.getClass());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getSize());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() throws Exception
+	{
+		CompiledClassCache cache = new CompiledClassCache(2);
+		Class<?> a = cache.getClass(CustomWFFuncRunner.class, CODE + "// a\n");
+		cache.getClass(CustomWFFuncRunner.class, CODE + "// b\n");
+		assertSame(a, cache.getClass(CustomWFFuncRunner.class, CODE + "// a\n"));
+		cache.getClass(CustomWFFuncRunner.class, CODE + "// c\n");
+		assertEquals(2, cache.getSize());
+		assertEquals(1, cache.getEvictions());
+		assertSame(a, cache.getClass(CustomWFFuncRunner.class, CODE + "// a\n"));
+		assertEquals(3, cache.getMisses());
+	}
+
+	@Test
+	public void testCompileErrorIsNotCached() throws Exception
+	{
+		CompiledClassCache cache = new CompiledClassCache(8);
+		try {
+			cache.getClass(CustomWFFuncRunner.class, "public void broken( {");
+			fail();
+		}
+		catch (Exception ex) {
+			// expected
+		}
+		assertEquals(0, cache.getSize());
+	}
+
+}
@@ -0,0 +1,53 @@
+package org.jwildfire.base.mathparser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.nfunk.jep.Node;
+
+public class JEPWrapperTest
+{
+	private static final String[] FORMULAS = { "(sin(x)+2*sin(2*x)+1*sin(4*x))", "sin(x)*cos(x)", "sin(2*x*x)", "x^3-2*x^2+y", "x%0.7+y/3",
+			"-x*pi+e", "rect(x)+sawtooth(2*x)-triangle(x*y)", "atan2(y,x)+atan(x)+tan(x/3)", "exp(-x*x)*ln(x*x+1)+log(y*y+1)",
+			"sqrt(x*x+y*y)+abs(x-y)", "sinh(x/3)+cosh(y/3)+tanh(x)", "asin(x/4)+acos(y/4)", "floor(x)+ceil(y)",
+			"if(x-y, x, y)", "(x<y)+(x>y)*2+(x<=y)*3+(x>=y)*4+(x==y)*5+(x!=y)*6", "(x>0)&&(y>0)", "(x>0)||!(y>0)", "2*3+4^0.5" };
+
+	@Test
+	public void testCompiledFormulasMatchJEP()
+	{
+		JEPWrapper parser = new JEPWrapper();
+		parser.addVariable("x", 0.0);
+		parser.addVariable("y", 0.0);
+		int xIdx = parser.getVarIndex("x");
+		int yIdx = parser.getVarIndex("y");
+		for (String formula : FORMULAS) {
+			Node node = parser.parse(formula);
+			CompiledFormula compiled = parser.compile(node);
+			assertFalse(formula, JEPWrapper.isInterpreted(compiled));
+			for (double x = -3.75; x <= 3.75; x += 0.5) {
+				for (double y = -3.5; y <= 3.5; y += 0.75) {
+					parser.setVarValue("x", x);
+					parser.setVarValue("y", y);
+					double expected = parser.evaluate(node);
+					parser.setVarValue(xIdx, x);
+					parser.setVarValue(yIdx, y);
+					assertEquals(formula + " x=" + x + " y=" + y, expected, compiled.evaluate(), 1.0e-12);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testUnsupportedFormulaIsInterpreted()
+	{
+		JEPWrapper parser = new JEPWrapper();
+		parser.addVariable("x", 0.0);
+		CompiledFormula formula = parser.compile(parser.parse("x+0*rand()"));
+		assertTrue(JEPWrapper.isInterpreted(formula));
+		parser.setVarValue(parser.getVarIndex("x"), 2.5);
+		assertEquals(2.5, formula.evaluate(), 0.0);
+	}
+
+}
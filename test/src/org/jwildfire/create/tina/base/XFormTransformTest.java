@@ -0,0 +1,91 @@
+package org.jwildfire.create.tina.base;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Test;
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.random.MarsagliaRandomGenerator;
+import org.jwildfire.create.tina.variation.FlameTransformationContext;
+import org.jwildfire.create.tina.variation.VariationFuncList;
+
+public class XFormTransformTest
+{
+	private final boolean compiledXForms = Prefs.getPrefs().isTinaCompiledXForms();
+
+	@After
+	public void restorePrefs()
+	{
+		Prefs.getPrefs().setTinaCompiledXForms(compiledXForms);
+	}
+
+	private XForm createXForm(boolean pCompiled, boolean pPreAffine, boolean pPostAffine, String... pVariations)
+	{
+		Prefs.getPrefs().setTinaCompiledXForms(pCompiled);
+		XForm xForm = new XForm();
+		xForm.setColor(0.3);
+		xForm.setColorSymmetry(0.2);
+		if (pPreAffine)
+		{
+			xForm.setXYCoeff00(0.7);
+			xForm.setXYCoeff01(-0.2);
+			xForm.setXYCoeff10(0.35);
+			xForm.setXYCoeff11(0.9);
+			xForm.setXYCoeff20(-0.15);
+			xForm.setXYCoeff21(0.4);
+		}
+		if (pPostAffine)
+		{
+			xForm.setXYPostCoeff00(1.1);
+			xForm.setXYPostCoeff01(0.25);
+			xForm.setXYPostCoeff10(-0.3);
+			xForm.setXYPostCoeff11(0.8);
+			xForm.setXYPostCoeff20(0.05);
+			xForm.setXYPostCoeff21(-0.6);
+		}
+		double amount = 0.5;
+		for (String variation : pVariations)
+		{
+			xForm.addVariation(amount, VariationFuncList.getVariationFuncInstance(variation));
+			amount += 0.25;
+		}
+		xForm.initTransform();
+		return xForm;
+	}
+
+	private void assertSameTransform(boolean pPreAffine, boolean pPostAffine, boolean pPreserveZ, String... pVariations)
+	{
+		XForm compiled = createXForm(true, pPreAffine, pPostAffine, pVariations);
+		XForm stepwise = createXForm(false, pPreAffine, pPostAffine, pVariations);
+		FlameTransformationContext ctx = new FlameTransformationContext(null, new MarsagliaRandomGenerator(), 0);
+		ctx.setPreserveZCoordinate(pPreserveZ);
+		XYZPoint affineT = new XYZPoint(), varT = new XYZPoint();
+		XYZPoint p1 = new XYZPoint(), p2 = new XYZPoint();
+		p1.x = p2.x = 0.4;
+		p1.y = p2.y = -0.7;
+		p1.z = p2.z = 0.2;
+		p1.color = p2.color = 0.6;
+		for (int i = 0; i < 100; i++)
+		{
+			compiled.transformPoint(ctx, affineT, varT, p1, p1);
+			stepwise.transformPoint(ctx, affineT, varT, p2, p2);
+			assertEquals(p2.x, p1.x, 0.0);
+			assertEquals(p2.y, p1.y, 0.0);
+			assertEquals(p2.z, p1.z, 0.0);
+			assertEquals(p2.color, p1.color, 0.0);
+			assertEquals(p2.material, p1.material, 0.0);
+		}
+	}
+
+	@Test
+	public void testLinearTransforms()
+	{
+		assertSameTransform(false, false, false, "linear3D");
+		assertSameTransform(true, false, false, "linear3D");
+		assertSameTransform(true, true, false, "linear3D", "linear");
+		assertSameTransform(true, true, true, "linear", "linear3D");
+		assertSameTransform(false, true, true, "linear");
+		assertSameTransform(true, true, false);
+	}
+
+}
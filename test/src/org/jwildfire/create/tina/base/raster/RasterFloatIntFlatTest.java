@@ -0,0 +1,122 @@
+package org.jwildfire.create.tina.base.raster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.base.Tools;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.render.PlotSample;
+
+public class RasterFloatIntFlatTest 
+{
+	private static final int WIDTH = 640;
+	private static final int HEIGHT = 480;
+
+	private PlotSample[] createSamples(long seed, int count)
+	{
+		Random rnd = new Random(seed);
+		PlotSample[] res = new PlotSample[count];
+		for (int i = 0; i < count; i++)
+		{
+			res[i] = new PlotSample();
+			res[i].set(rnd.nextInt(WIDTH), rnd.nextInt(HEIGHT), rnd.nextDouble() * 255.0, rnd.nextDouble() * 255.0, rnd.nextDouble() * 255.0, 0, 0, 0, 0, 0, 0, 0, 0);
+		}
+		return res;
+	}
+
+	@Test
+	public void testSameContentAsRasterFloatInt()
+	{
+		AbstractRaster reference = new RasterFloatInt();
+		reference.allocRaster(new Flame(), WIDTH, HEIGHT);
+		AbstractRaster flat = new RasterFloatIntFlat();
+		flat.allocRaster(new Flame(), WIDTH, HEIGHT);
+		for (int i = 0; i < 16; i++)
+		{
+			PlotSample[] samples = createSamples(i, Tools.PLOT_BUFFER_SIZE);
+			reference.addSamples(samples, samples.length);
+			flat.addSamples(samples, samples.length);
+		}
+		reference.incCount(3, 4);
+		flat.incCount(3, 4);
+
+		RasterPoint refPoint = new RasterPoint(0);
+		RasterPoint flatPoint = new RasterPoint(0);
+		for (int y = 0; y < HEIGHT; y++)
+		{
+			for (int x = 0; x < WIDTH; x++)
+			{
+				reference.readRasterPoint(x, y, refPoint);
+				flat.readRasterPoint(x, y, flatPoint);
+				Assert.assertEquals(refPoint.count, flatPoint.count);
+				Assert.assertEquals(refPoint.red, flatPoint.red, 0.0);
+				Assert.assertEquals(refPoint.green, flatPoint.green, 0.0);
+				Assert.assertEquals(refPoint.blue, flatPoint.blue, 0.0);
+			}
+		}
+		flat.readRasterPointSafe(-1, HEIGHT, flatPoint);
+		Assert.assertEquals(0, flatPoint.count);
+	}
+
+	@Test
+	public void testConcurrentSamplesMatchSingleThread() throws Exception
+	{
+		int threadCount = Math.max(4, Runtime.getRuntime().availableProcessors());
+		int buffersPerThread = 20;
+		AbstractRaster single = new RasterFloatIntFlat();
+		single.allocRaster(new Flame(), WIDTH, HEIGHT);
+		for (int i = 0; i < threadCount; i++)
+		{
+			PlotSample[] samples = createSamples(i, Tools.PLOT_BUFFER_SIZE);
+			for (int j = 0; j < buffersPerThread; j++)
+				single.addSamples(samples, samples.length);
+		}
+		AbstractRaster concurrent = new RasterFloatIntFlat();
+		addSamplesConcurrently(concurrent, threadCount, buffersPerThread);
+
+		RasterPoint singlePoint = new RasterPoint(0);
+		RasterPoint concurrentPoint = new RasterPoint(0);
+		long total = 0;
+		for (int y = 0; y < HEIGHT; y++)
+		{
+			for (int x = 0; x < WIDTH; x++)
+			{
+				single.readRasterPoint(x, y, singlePoint);
+				concurrent.readRasterPoint(x, y, concurrentPoint);
+				Assert.assertEquals(singlePoint.count, concurrentPoint.count);
+				// the order of the float additions differs
+				Assert.assertEquals(singlePoint.red, concurrentPoint.red, 1.0e-3 * singlePoint.red);
+				Assert.assertEquals(singlePoint.green, concurrentPoint.green, 1.0e-3 * singlePoint.green);
+				Assert.assertEquals(singlePoint.blue, concurrentPoint.blue, 1.0e-3 * singlePoint.blue);
+				total += concurrentPoint.count;
+			}
+		}
+		Assert.assertEquals((long) threadCount * buffersPerThread * Tools.PLOT_BUFFER_SIZE, total);
+	}
+
+	private void addSamplesConcurrently(final AbstractRaster raster, int threadCount, final int buffersPerThread) throws Exception
+	{
+		raster.allocRaster(new Flame(), WIDTH, HEIGHT);
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < threadCount; i++)
+		{
+			final PlotSample[] samples = createSamples(i, Tools.PLOT_BUFFER_SIZE);
+			threads.add(new Thread()
+			{
+				@Override
+				public void run()
+				{
+					for (int j = 0; j < buffersPerThread; j++)
+						raster.addSamples(samples, samples.length);
+				}
+			});
+		}
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+	}
+}
@@ -0,0 +1,97 @@
+package org.jwildfire.create.tina.base.raster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.render.PlotSample;
+
+public class RasterFloatIntMappedTest 
+{
+	private static final int WIDTH = 320;
+	private static final int HEIGHT = 200;
+
+	private PlotSample[] createSamples(long pSeed, int pCount)
+	{
+		Random rnd = new Random(pSeed);
+		PlotSample[] samples = new PlotSample[pCount];
+		for (int i = 0; i < samples.length; i++)
+		{
+			samples[i] = new PlotSample();
+			samples[i].set(rnd.nextInt(WIDTH), rnd.nextInt(HEIGHT), rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble(), 0, 0, 0, 0, 0, 0, 0, 0);
+		}
+		return samples;
+	}
+
+	private void assertSameContent(AbstractRaster pExpected, AbstractRaster pRaster)
+	{
+		RasterPoint refPoint = new RasterPoint(0);
+		RasterPoint point = new RasterPoint(0);
+		for (int y = 0; y < HEIGHT; y++)
+		{
+			for (int x = 0; x < WIDTH; x++)
+			{
+				pExpected.readRasterPoint(x, y, refPoint);
+				pRaster.readRasterPoint(x, y, point);
+				Assert.assertEquals(refPoint.count, point.count);
+				Assert.assertEquals(refPoint.red, point.red, 0.0);
+				Assert.assertEquals(refPoint.green, point.green, 0.0);
+				Assert.assertEquals(refPoint.blue, point.blue, 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testCopyIsNotChangedByLaterSamples() throws Exception
+	{
+		RasterFloatIntMapped raster = new RasterFloatIntMapped();
+		raster.allocRaster(new Flame(), WIDTH, HEIGHT);
+		AbstractRaster reference = new RasterFloatInt();
+		reference.allocRaster(new Flame(), WIDTH, HEIGHT);
+
+		PlotSample[] samples = createSamples(42, 5000);
+		raster.addSamples(samples, samples.length);
+		reference.addSamples(samples, samples.length);
+
+		File file = File.createTempFile("jwf_raster_test", ".raster");
+		file.deleteOnExit();
+		raster.copyTo(file);
+		PlotSample[] laterSamples = createSamples(43, 5000);
+		raster.addSamples(laterSamples, laterSamples.length);
+
+		RasterFloatIntMapped restored = new RasterFloatIntMapped();
+		restored.allocRaster(new Flame(), WIDTH, HEIGHT);
+		restored.copyFrom(file);
+		assertSameContent(reference, restored);
+		raster.cleanupRaster();
+		restored.cleanupRaster();
+		file.delete();
+	}
+
+	@Test
+	public void testSerializeOnlyFilename() throws Exception
+	{
+		RasterFloatIntMapped raster = new RasterFloatIntMapped();
+		raster.allocRaster(new Flame(), WIDTH, HEIGHT);
+		PlotSample[] samples = createSamples(42, 5000);
+		raster.addSamples(samples, samples.length);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(raster);
+		out.close();
+		Assert.assertTrue("raster data must not be serialized", bytes.size() < 1024);
+
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		AbstractRaster restored = (AbstractRaster) in.readObject();
+		in.close();
+		assertSameContent(raster, restored);
+		raster.cleanupRaster();
+	}
+}
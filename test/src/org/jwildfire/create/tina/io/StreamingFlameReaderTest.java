@@ -0,0 +1,101 @@
+package org.jwildfire.create.tina.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.Layer;
+import org.jwildfire.create.tina.base.XForm;
+import org.jwildfire.create.tina.variation.VariationFuncList;
+
+public class StreamingFlameReaderTest
+{
+
+	private XForm createXForm(double pWeight, String... pVariations)
+	{
+		XForm xForm = new XForm();
+		xForm.setWeight(pWeight);
+		xForm.setColor(0.25);
+		xForm.setXYCoeff20(0.5);
+		for (String variation : pVariations)
+		{
+			xForm.addVariation(0.75, VariationFuncList.getVariationFuncInstance(variation, true));
+		}
+		return xForm;
+	}
+
+	private Flame createFlame(String pName, int pLayers)
+	{
+		Flame flame = new Flame();
+		flame.setName(pName);
+		flame.setCamZoom(2.5);
+		flame.getLayers().clear();
+		for (int i = 0; i < pLayers; i++)
+		{
+			Layer layer = new Layer();
+			layer.setName("layer " + i);
+			layer.setWeight(1.0 + i);
+			layer.getXForms().add(createXForm(1.0, "linear3D", "spherical3D"));
+			// the same variation twice is written with indexed attribute names (linear3D#1#)
+			layer.getXForms().add(createXForm(0.5, "linear3D", "linear3D", "bubble"));
+			layer.getFinalXForms().add(createXForm(1.0, "linear3D", "hemisphere"));
+			for (int j = 0; j < 256; j++)
+			{
+				layer.getPalette().setColor(j, j, (j * 3) % 256, 255 - j);
+			}
+			flame.getLayers().add(layer);
+		}
+		return flame;
+	}
+
+	private void assertSameFlames(List<Flame> pExpected, List<Flame> pActual) throws Exception
+	{
+		assertEquals(pExpected.size(), pActual.size());
+		FlameWriter writer = new FlameWriter();
+		for (int i = 0; i < pExpected.size(); i++)
+		{
+			assertEquals(writer.getFlameXML(pExpected.get(i)), writer.getFlameXML(pActual.get(i)));
+			assertTrue(pExpected.get(i).isEqual(pActual.get(i)));
+		}
+	}
+
+	private String createLibrary(Flame... pFlames) throws Exception
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!-- test library -->\n<flames name=\"test\">\n");
+		for (Flame flame : pFlames)
+		{
+			sb.append(new FlameWriter().getFlameXML(flame));
+		}
+		sb.append("</flames>\n");
+		return sb.toString();
+	}
+
+	@Test
+	public void testFlam3Flames() throws Exception
+	{
+		String xml = createLibrary(createFlame("first", 1), createFlame("second", 1));
+		List<Flame> flames = new StreamingFlameReader(Prefs.newInstance()).readFlamesfromXML(xml);
+		assertEquals(2, flames.size());
+		assertEquals("second", flames.get(1).getName());
+		assertEquals(3, flames.get(0).getFirstLayer().getXForms().get(1).getVariationCount());
+		assertSameFlames(new FlameReader(Prefs.newInstance()).readFlamesfromXML(xml), flames);
+	}
+
+	@Test
+	public void testJWFFlames() throws Exception
+	{
+		String xml = createLibrary(createFlame("first", 3), createFlame("second", 2));
+		List<Flame> flames = new StreamingFlameReader(Prefs.newInstance()).readFlamesfromXML(xml);
+		assertEquals(2, flames.size());
+		assertEquals(3, flames.get(0).getLayers().size());
+		assertEquals("layer 2", flames.get(0).getLayers().get(2).getName());
+		assertEquals(2.0, flames.get(1).getLayers().get(1).getWeight(), 0.0);
+		assertSameFlames(new FlameReader(Prefs.newInstance()).readFlamesfromXML(xml), flames);
+	}
+
+}
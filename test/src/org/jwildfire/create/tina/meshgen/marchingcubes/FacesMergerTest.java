@@ -0,0 +1,131 @@
+package org.jwildfire.create.tina.meshgen.marchingcubes;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FacesMergerTest
+{
+	private static final int SIZE = 24;
+	private static final int THRESHOLD = 128;
+
+	private VoxelGrid createSphere() throws Exception
+	{
+		VoxelGrid voxels = new VoxelGrid(SIZE, SIZE);
+		for (int z = 0; z < SIZE; z++)
+		{
+			byte[] slice = new byte[SIZE * SIZE];
+			for (int y = 0; y < SIZE; y++)
+			{
+				for (int x = 0; x < SIZE; x++)
+				{
+					double dx = x - 11.5, dy = y - 11.3, dz = z - 11.7;
+					double r = Math.sqrt(dx * dx + dy * dy + dz * dz);
+					slice[y * SIZE + x] = (byte) Math.max(0, Math.min(255, (int) (THRESHOLD + (8.0 - r) * 40.0)));
+				}
+			}
+			voxels.addSlice(slice);
+		}
+		return voxels;
+	}
+
+	private IndexedMesh createMesh(ImageStackSampler pSampler, int pSlabs)
+	{
+		List<GenerateFacesThread> slabs = new ArrayList<GenerateFacesThread>();
+		int zsize = SIZE + 2;
+		int zmin = -1;
+		for (int i = 0; i < pSlabs; i++)
+		{
+			int zmax = zmin + zsize / pSlabs - 1;
+			if (i == pSlabs - 1)
+			{
+				zmax = SIZE;
+			}
+			GenerateFacesThread slab = new GenerateFacesThread(pSampler, THRESHOLD, zmin, zmax, true);
+			slab.run();
+			slabs.add(slab);
+			zmin = zmax + 1;
+		}
+		return FacesMerger.generateMesh(slabs);
+	}
+
+	@Test
+	public void testClosedSurface() throws Exception
+	{
+		ImageStackSampler sampler = new ImageStackSampler(createSphere(), 0.0);
+		try
+		{
+			IndexedMesh single = createMesh(sampler, 1);
+			IndexedMesh mesh = createMesh(sampler, 4);
+			Assert.assertTrue(mesh.getFaceCount() > 0);
+			Assert.assertEquals(single.getVertexCount(), mesh.getVertexCount());
+			Assert.assertEquals(single.getFaceCount(), mesh.getFaceCount());
+			// a closed sphere (Euler characteristic 2) where each edge is used once in each direction
+			Assert.assertEquals(2, mesh.getVertexCount() - 3 * mesh.getFaceCount() / 2 + mesh.getFaceCount());
+			Map<Long, Integer> edges = new HashMap<Long, Integer>();
+			int[] faces = mesh.getFaces();
+			double volume = 0.0;
+			float[] v = mesh.getVertices();
+			for (int i = 0; i < mesh.getFaceCount(); i++)
+			{
+				for (int j = 0; j < 3; j++)
+				{
+					long edge = ((long) faces[3 * i + j] << 32) | faces[3 * i + (j + 1) % 3];
+					Assert.assertNull(edges.put(edge, i));
+				}
+				int a = 3 * faces[3 * i], b = 3 * faces[3 * i + 1], c = 3 * faces[3 * i + 2];
+				volume += v[a] * (v[b + 1] * v[c + 2] - v[b + 2] * v[c + 1]) - v[a + 1] * (v[b] * v[c + 2] - v[b + 2] * v[c]) + v[a + 2] * (v[b] * v[c + 1] - v[b + 1] * v[c]);
+			}
+			for (long edge : edges.keySet())
+			{
+				Assert.assertTrue(edges.containsKey((edge << 32) | (edge >>> 32)));
+			}
+			// counter-clockwise faces and normals point outwards
+			Assert.assertTrue(volume > 0.0);
+			float[] n = mesh.getNormals();
+			for (int i = 0; i < mesh.getVertexCount(); i++)
+			{
+				Assert.assertTrue(v[3 * i] * n[3 * i] + v[3 * i + 1] * n[3 * i + 1] + v[3 * i + 2] * n[3 * i + 2] > 0.0f);
+			}
+		}
+		finally
+		{
+			sampler.dispose();
+		}
+	}
+
+	@Test
+	public void testBinaryFormats() throws Exception
+	{
+		ImageStackSampler sampler = new ImageStackSampler(createSphere(), 0.0);
+		try
+		{
+			IndexedMesh mesh = createMesh(sampler, 2);
+			File stl = File.createTempFile("mesh", ".stl");
+			File ply = File.createTempFile("mesh", ".ply");
+			try
+			{
+				MeshWriter.saveMesh(mesh, stl.getAbsolutePath());
+				Assert.assertEquals(84 + 50 * mesh.getFaceCount(), stl.length());
+				MeshWriter.saveMesh(mesh, ply.getAbsolutePath());
+				long dataSize = 24L * mesh.getVertexCount() + 13L * mesh.getFaceCount();
+				Assert.assertTrue(ply.length() > dataSize && ply.length() < dataSize + 512);
+			}
+			finally
+			{
+				stl.delete();
+				ply.delete();
+			}
+		}
+		finally
+		{
+			sampler.dispose();
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+package org.jwildfire.create.tina.meshgen.marchingcubes;
+
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.create.tina.meshgen.filter.PreFilter;
+import org.jwildfire.image.SimpleImage;
+
+public class VoxelGridTest
+{
+
+	@Test
+	public void testAddAndReadSlices() throws Exception
+	{
+		VoxelGrid voxels = new VoxelGrid(3, 2);
+		try
+		{
+			for (int z = 0; z < 4; z++)
+			{
+				byte[] slice = new byte[6];
+				for (int i = 0; i < slice.length; i++)
+				{
+					slice[i] = (byte) (z * 60 + i);
+				}
+				voxels.addSlice(slice);
+			}
+			Assert.assertEquals(4, voxels.getSizeZ());
+			Assert.assertEquals(0, voxels.getValue(0, 0, 0));
+			Assert.assertEquals(5, voxels.getValue(2, 1, 0));
+			Assert.assertEquals(184, voxels.getValue(1, 1, 3));
+		}
+		finally
+		{
+			voxels.close();
+		}
+	}
+
+	@Test
+	public void testDownsampleImage() throws Exception
+	{
+		SimpleImage image = new SimpleImage(4, 2);
+		image.setRGB(0, 0, 100, 0, 0);
+		image.setRGB(1, 0, 200, 0, 0);
+		image.setRGB(0, 1, 255, 0, 0);
+		image.setRGB(1, 1, 255, 0, 0);
+		image.setRGB(3, 1, 9, 0, 0);
+		VoxelGrid voxels = new VoxelGrid(2, 1);
+		try
+		{
+			voxels.addSlice(image, Collections.<PreFilter> emptyList(), 2);
+			Assert.assertEquals(203, voxels.getValue(0, 0, 0));
+			Assert.assertEquals(2, voxels.getValue(1, 0, 0));
+		}
+		finally
+		{
+			voxels.close();
+		}
+	}
+
+}
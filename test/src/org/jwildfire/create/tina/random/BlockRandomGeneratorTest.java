@@ -0,0 +1,61 @@
+package org.jwildfire.create.tina.random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.jwildfire.base.Prefs;
+
+public class BlockRandomGeneratorTest
+{
+
+	private AbstractRandomGenerator createGenerator(RandomGeneratorType pType)
+	{
+		return new RandomStreamProvider(Prefs.newInstance(), pType, 4711L).createStream(0);
+	}
+
+	@Test
+	public void testNextDoublesSameAsRandom()
+	{
+		for (RandomGeneratorType type : RandomGeneratorType.values())
+		{
+			AbstractRandomGenerator single = createGenerator(type);
+			AbstractRandomGenerator block = createGenerator(type);
+			AbstractRandomGenerator buffered = new BufferedRandomGenerator(createGenerator(type), 100);
+			double[] buffer = new double[333];
+			for (int j = 0; j < 5; j++)
+			{
+				block.nextDoubles(buffer);
+				for (int i = 0; i < buffer.length; i++)
+				{
+					double expected = single.random();
+					assertEquals(type.toString(), expected, buffer[i], 0.0);
+					assertEquals(type.toString(), expected, buffered.random(), 0.0);
+					assertTrue(type.toString(), expected >= 0.0 && expected <= 1.0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testDistribution()
+	{
+		for (RandomGeneratorType type : new RandomGeneratorType[] { RandomGeneratorType.XORSHIFT, RandomGeneratorType.PCG })
+		{
+			AbstractRandomGenerator randGen = createGenerator(type);
+			double[] buffer = new double[1000000];
+			randGen.nextDoubles(buffer);
+			int[] buckets = new int[10];
+			for (double value : buffer)
+			{
+				assertTrue(value >= 0.0 && value < 1.0);
+				buckets[(int) (value * buckets.length)]++;
+			}
+			for (int bucket : buckets)
+			{
+				assertTrue(type.toString(), Math.abs(bucket - buffer.length / buckets.length) < buffer.length / 200);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,51 @@
+package org.jwildfire.create.tina.random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+import org.jwildfire.base.Prefs;
+
+public class RandomStreamProviderTest
+{
+
+	@Test
+	public void testSameSeedSameSequence()
+	{
+		Prefs prefs = Prefs.newInstance();
+		for (RandomGeneratorType type : RandomGeneratorType.values())
+		{
+			AbstractRandomGenerator a = new RandomStreamProvider(prefs, type, 4711L).createStream(3);
+			AbstractRandomGenerator b = new RandomStreamProvider(prefs, type, 4711L).createStream(3);
+			// another stream of the same type in between must not influence the sequences
+			AbstractRandomGenerator other = new RandomStreamProvider(prefs, type, 4711L).createStream(3);
+			for (int i = 0; i < 1000; i++)
+			{
+				other.random();
+				assertEquals(type.toString(), a.random(), b.random(), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testStreamsDiffer()
+	{
+		Prefs prefs = Prefs.newInstance();
+		for (RandomGeneratorType type : RandomGeneratorType.values())
+		{
+			RandomStreamProvider provider = new RandomStreamProvider(prefs, type, 4711L);
+			AbstractRandomGenerator a = provider.createStream(0);
+			AbstractRandomGenerator b = provider.createStream(1);
+			int equalValues = 0;
+			for (int i = 0; i < 1000; i++)
+			{
+				if (a.random() == b.random())
+				{
+					equalValues++;
+				}
+			}
+			assertFalse(type.toString(), equalValues > 10);
+		}
+	}
+
+}
@@ -0,0 +1,107 @@
+package org.jwildfire.create.tina.render;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterFloatInt;
+import org.jwildfire.create.tina.base.raster.RasterPoint;
+
+public class ConvergenceMapTest
+{
+	private static final int WIDTH = 64;
+	private static final int HEIGHT = 32;
+	private static final int BORDER = 2;
+
+	@Test
+	public void testNoiseOfTiles() throws Exception
+	{
+		ConvergenceMap map = new ConvergenceMap(WIDTH, HEIGHT, 0.006, 1.0, 0);
+		Assert.assertEquals(2, map.getTileCountX());
+		Assert.assertEquals(1, map.getTileCountY());
+		Assert.assertFalse(map.isConverged());
+
+		map.update(createRaster(100, 10000), BORDER, 1, 1000000L);
+		// relative error 1 / sqrt(c), weighted by the brightness log(1 + c / m) relative to the brightest pixel (mean count 5050)
+		double leftBrightness = Math.log(1.0 + 100.0 / 5050.0) / Math.log(1.0 + 10000.0 / 5050.0);
+		Assert.assertEquals(leftBrightness / 10.0, map.getNoise(0, 0), 1.0e-9);
+		Assert.assertEquals(1.0 / 100.0, map.getNoise(1, 0), 1.0e-9);
+		Assert.assertEquals(map.getNoise(1, 0), map.getMaxNoise(), 0.0);
+		Assert.assertFalse(map.isConverged());
+		Assert.assertEquals(1.0, map.getConfidence(0, 0), 0.0);
+		double f = 0.006 / map.getNoise(1, 0);
+		Assert.assertEquals(f * f, map.getConfidence(1, 0), 1.0e-9);
+		Assert.assertEquals((long) (1000000L / (f * f) + 0.5), map.getEstimatedRequiredSamples());
+
+		// four times the samples halve the noise
+		map.update(createRaster(400, 40000), BORDER, 1, 4000000L);
+		Assert.assertEquals(leftBrightness / 20.0, map.getNoise(0, 0), 1.0e-9);
+		Assert.assertEquals(1.0 / 200.0, map.getMaxNoise(), 1.0e-9);
+		Assert.assertTrue(map.isConverged());
+		Assert.assertEquals(4000000L, map.getEstimatedRequiredSamples());
+	}
+
+	@Test
+	public void testGammaBrightensTheNoiseOfDarkTiles() throws Exception
+	{
+		ConvergenceMap linear = new ConvergenceMap(WIDTH, HEIGHT, 0.006, 1.0, 0);
+		ConvergenceMap gamma = new ConvergenceMap(WIDTH, HEIGHT, 0.006, 4.0, 0);
+		linear.update(createRaster(100, 10000), BORDER, 1, 1000000L);
+		gamma.update(createRaster(100, 10000), BORDER, 1, 1000000L);
+		double leftBrightness = Math.log(1.0 + 100.0 / 5050.0) / Math.log(1.0 + 10000.0 / 5050.0);
+		Assert.assertEquals(Math.pow(leftBrightness, 0.25) / 10.0, gamma.getNoise(0, 0), 1.0e-9);
+		Assert.assertTrue(gamma.getNoise(0, 0) > linear.getNoise(0, 0));
+		// the dark tile is not converged any more
+		Assert.assertTrue(gamma.getNoise(0, 0) > 0.006);
+		Assert.assertFalse(gamma.isConverged());
+		// the brightest pixels are not changed by the gamma
+		Assert.assertEquals(linear.getNoise(1, 0), gamma.getNoise(1, 0), 1.0e-9);
+	}
+
+	@Test
+	public void testSparseTileKeepsRendering() throws Exception
+	{
+		ConvergenceMap map = new ConvergenceMap(WIDTH, HEIGHT, 0.006, 1.0, 0);
+		AbstractRaster raster = createRaster(0, 40000);
+		// a few dim hits in the otherwise empty left tile
+		RasterPoint point = new RasterPoint(0);
+		for (int i = 0; i < 8; i++)
+		{
+			point.count = 2;
+			raster.writeRasterPoint(BORDER + 3 * i, BORDER + 2 * i, point);
+		}
+		map.update(raster, BORDER, 1, 1000000L);
+		Assert.assertEquals(ConvergenceMap.SPARSE_TILE_NOISE, map.getNoise(0, 0), 0.0);
+		Assert.assertFalse(map.isConverged());
+		Assert.assertTrue(map.getEstimatedRequiredSamples() > 1000000L);
+		Assert.assertTrue(map.getConfidence(0, 0) < 1.0);
+	}
+
+	@Test
+	public void testEmptyRaster() throws Exception
+	{
+		ConvergenceMap map = new ConvergenceMap(WIDTH, HEIGHT, 0.005, 1.0, 0);
+		map.update(createRaster(0, 0), BORDER, 1, 1000L);
+		Assert.assertEquals(0.0, map.getMaxNoise(), 0.0);
+		Assert.assertTrue(map.isConverged());
+	}
+
+	// left tile with pLeftCount hits per pixel, right tile with pRightCount, the border is not part of the image
+	private AbstractRaster createRaster(int pLeftCount, int pRightCount)
+	{
+		AbstractRaster raster = new RasterFloatInt();
+		raster.allocRaster(new Flame(), WIDTH + 2 * BORDER, HEIGHT + 2 * BORDER);
+		RasterPoint point = new RasterPoint(0);
+		for (int y = 0; y < HEIGHT + 2 * BORDER; y++)
+		{
+			for (int x = 0; x < WIDTH + 2 * BORDER; x++)
+			{
+				boolean border = x < BORDER || y < BORDER || x >= WIDTH + BORDER || y >= HEIGHT + BORDER;
+				point.count = border ? 1 : x < BORDER + ConvergenceMap.TILE_SIZE ? pLeftCount : pRightCount;
+				raster.writeRasterPoint(x, y, point);
+			}
+		}
+		return raster;
+	}
+
+}
@@ -0,0 +1,179 @@
+package org.jwildfire.create.tina.render;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.Layer;
+import org.jwildfire.create.tina.base.XForm;
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterCreator;
+import org.jwildfire.create.tina.base.raster.RasterPoint;
+import org.jwildfire.create.tina.variation.VariationFuncList;
+
+public class FlameRendererCheckpointTest
+{
+	private static final int WIDTH = 64;
+	private static final int HEIGHT = 48;
+
+	private Flame createFlame()
+	{
+		Flame flame = new Flame();
+		flame.setWidth(WIDTH);
+		flame.setHeight(HEIGHT);
+		flame.setPixelsPerUnit(20);
+		flame.setSampleDensity(1000);
+		Layer layer = flame.getFirstLayer();
+		double[][] offsets = { { 0.0, 0.0 }, { 1.0, 0.0 }, { 0.5, 1.0 } };
+		for (double[] offset : offsets)
+		{
+			XForm xForm = new XForm();
+			xForm.setWeight(1.0);
+			xForm.setXYCoeff00(0.5);
+			xForm.setXYCoeff11(0.5);
+			xForm.setXYCoeff20(offset[0] - 0.5);
+			xForm.setXYCoeff21(offset[1] - 0.5);
+			xForm.addVariation(1.0, VariationFuncList.getVariationFuncInstance("linear3D"));
+			layer.getXForms().add(xForm);
+		}
+		return flame;
+	}
+
+	private static long getTotalCount(AbstractRaster pRaster, int pWidth, int pHeight)
+	{
+		long res = 0;
+		RasterPoint point = new RasterPoint(0);
+		for (int y = 0; y < pHeight; y++)
+		{
+			for (int x = 0; x < pWidth; x++)
+			{
+				pRaster.readRasterPoint(x, y, point);
+				res += point.count;
+			}
+		}
+		return res;
+	}
+
+	private static long getSampleCount(RenderThreads pThreads)
+	{
+		long res = 0;
+		for (AbstractRenderThread thread : pThreads.getRenderThreads())
+		{
+			res += thread.getCurrSample();
+		}
+		return res;
+	}
+
+	private static void stop(RenderThreads pThreads) throws InterruptedException
+	{
+		for (AbstractRenderThread thread : pThreads.getRenderThreads())
+		{
+			thread.cancel();
+		}
+		for (AbstractRenderThread thread : pThreads.getRenderThreads())
+		{
+			while (!thread.isFinished())
+			{
+				Thread.sleep(1);
+			}
+		}
+	}
+
+	private static void waitForSamples(RenderThreads pThreads, long pMinSamples) throws InterruptedException
+	{
+		long timeout = System.currentTimeMillis() + 10000;
+		while (getSampleCount(pThreads) < pMinSamples && System.currentTimeMillis() < timeout)
+		{
+			Thread.sleep(10);
+		}
+		Assert.assertTrue(getSampleCount(pThreads) >= pMinSamples);
+	}
+
+	@Test
+	public void testResumeAfterSamplesWereAddedToHeapRaster() throws Exception
+	{
+		testResumeAfterSamplesWereAdded(RasterCreator.FLOAT_INT_RASTER);
+	}
+
+	@Test
+	public void testResumeAfterSamplesWereAddedToMappedRaster() throws Exception
+	{
+		testResumeAfterSamplesWereAdded(RasterCreator.FLOAT_INT_MAPPED_RASTER);
+	}
+
+	private void testResumeAfterSamplesWereAdded(RasterCreator pRasterType) throws Exception
+	{
+		Prefs prefs = Prefs.newInstance();
+		prefs.setTinaRasterType(pRasterType);
+		prefs.setTinaCompressRenderState(true);
+		File file = File.createTempFile("jwf_checkpoint", ".jwfrender");
+		file.deleteOnExit();
+
+		FlameRenderer renderer = new FlameRenderer(createFlame(), prefs, false, false);
+		renderer.setRenderThreadCount(2);
+		RenderThreads threads = renderer.startRenderFlame(new RenderInfo(WIDTH, HEIGHT, RenderMode.PRODUCTION));
+		long checkpointRasterCount;
+		long checkpointSamples;
+		try
+		{
+			waitForSamples(threads, 100000);
+			renderer.saveState(file.getAbsolutePath(), threads.getRenderThreads(), getSampleCount(threads), 0, null);
+			JWFRenderFileReader reader = new JWFRenderFileReader(prefs);
+			reader.readRenderFile(file.getAbsolutePath());
+			checkpointSamples = 0;
+			for (RenderThreadPersistentState state : reader.getThreadState())
+			{
+				checkpointSamples += state.currSample;
+			}
+			checkpointRasterCount = readCheckpointRasterCount(prefs, file);
+			Assert.assertTrue(checkpointRasterCount > 0);
+
+			// the render continues after the checkpoint
+			waitForSamples(threads, checkpointSamples + 100000);
+		}
+		finally
+		{
+			stop(threads);
+		}
+		Assert.assertTrue(getTotalCount(renderer.getRaster(), renderer.rasterWidth, renderer.rasterHeight) > checkpointRasterCount);
+		// the samples after the checkpoint must not show up in the saved state
+		Assert.assertEquals(checkpointRasterCount, readCheckpointRasterCount(prefs, file));
+
+		FlameRenderer resumedRenderer = new FlameRenderer(new Flame(), prefs, false, false);
+		ResumedFlameRender resumed = resumedRenderer.resumeRenderFlame(file.getAbsolutePath());
+		Assert.assertEquals(checkpointRasterCount, getTotalCount(resumedRenderer.getRaster(), resumedRenderer.rasterWidth, resumedRenderer.rasterHeight));
+
+		// rendering into the resumed raster must not change the checkpoint
+		Thread thread = new Thread(resumed.getThreads().get(0));
+		thread.start();
+		Thread.sleep(200);
+		resumed.getThreads().get(0).cancel();
+		thread.join();
+		Assert.assertEquals(checkpointRasterCount, readCheckpointRasterCount(prefs, file));
+		renderer.getRaster().cleanupRaster();
+		resumedRenderer.getRaster().cleanupRaster();
+		deleteCheckpoint(file);
+	}
+
+	private long readCheckpointRasterCount(Prefs pPrefs, File pFile) throws Exception
+	{
+		FlameRenderer renderer = new FlameRenderer(new Flame(), pPrefs, false, false);
+		renderer.resumeRenderFlame(pFile.getAbsolutePath());
+		long res = getTotalCount(renderer.getRaster(), renderer.rasterWidth, renderer.rasterHeight);
+		renderer.getRaster().cleanupRaster();
+		return res;
+	}
+
+	private void deleteCheckpoint(File pFile)
+	{
+		for (File file : pFile.getParentFile().listFiles())
+		{
+			if (file.getName().startsWith(pFile.getName()))
+			{
+				file.delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package org.jwildfire.create.tina.render;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.jwildfire.base.Prefs;
+import org.jwildfire.create.tina.base.Flame;
+import org.jwildfire.create.tina.base.XYZPoint;
+import org.jwildfire.create.tina.base.raster.AbstractRaster;
+import org.jwildfire.create.tina.base.raster.RasterFloatInt;
+import org.jwildfire.create.tina.base.raster.RasterPoint;
+
+public class JWFRenderFileTest 
+{
+	private static final int WIDTH = 300;
+	private static final int HEIGHT = 200;
+
+	@Test
+	public void testWriteAndReadCompressed() throws Exception
+	{
+		testWriteAndRead(true);
+	}
+
+	@Test
+	public void testWriteAndReadUncompressed() throws Exception
+	{
+		testWriteAndRead(false);
+	}
+
+	private void testWriteAndRead(boolean compressed) throws Exception
+	{
+		Flame flame = new Flame();
+		flame.setName("checkpoint");
+		flame.setWidth(640);
+		flame.setHeight(480);
+		RenderInfo renderInfo = new RenderInfo(640, 480, RenderMode.PRODUCTION);
+		renderInfo.setRenderHDR(true);
+		JWFRenderFileHeader header = new JWFRenderFileHeader(1, 640, 480, 123456L, 9876L, 1, 1, 100, true, false, true);
+
+		DefaultRenderThreadPersistentState state = new DefaultRenderThreadPersistentState();
+		state.currSample = 1000;
+		state.startIter = 999;
+		DefaultRenderThreadPersistentState.IterationState layerState = new DefaultRenderThreadPersistentState.IterationState();
+		layerState.xfIndex = 2;
+		layerState.p = new XYZPoint();
+		layerState.p.x = 0.25;
+		layerState.p.color = 0.75;
+		state.getLayerState().add(layerState);
+
+		AbstractRaster raster = new RasterFloatInt();
+		raster.allocRaster(flame, WIDTH, HEIGHT);
+		Random rnd = new Random(7);
+		RasterPoint point = new RasterPoint(0);
+		for (int i = 0; i < 10000; i++)
+		{
+			point.red = rnd.nextFloat();
+			point.green = rnd.nextFloat();
+			point.blue = rnd.nextFloat();
+			point.count = rnd.nextInt(100);
+			raster.writeRasterPoint(rnd.nextInt(WIDTH), rnd.nextInt(HEIGHT), point);
+		}
+
+		File file = File.createTempFile("jwf_test", ".jwfrender");
+		file.deleteOnExit();
+		new JWFRenderFileWriter(compressed).writeRenderFile(file.getAbsolutePath(), header, flame, renderInfo, new RenderThreadPersistentState[] { state }, raster, WIDTH, HEIGHT);
+		Assert.assertTrue(JWFRenderFileReader.isBinaryRenderFile(file.getAbsolutePath()));
+
+		JWFRenderFileReader reader = new JWFRenderFileReader(Prefs.newInstance());
+		reader.readRenderFile(file.getAbsolutePath());
+		Assert.assertEquals(123456L, reader.getHeader().getSampleCount());
+		Assert.assertEquals(9876L, reader.getHeader().getElapsedMilliseconds());
+		Assert.assertTrue(reader.getHeader().isWithTransparency());
+		Assert.assertEquals("checkpoint", reader.getFlame().getName());
+		Assert.assertTrue(renderInfo.isEqual(reader.getRenderInfo()));
+		Assert.assertEquals(WIDTH, reader.getRasterWidth());
+		Assert.assertEquals(HEIGHT, reader.getRasterHeight());
+		DefaultRenderThreadPersistentState readState = (DefaultRenderThreadPersistentState) reader.getThreadState()[0];
+		Assert.assertEquals(999, readState.startIter);
+		Assert.assertEquals(2, readState.getLayerState().get(0).xfIndex);
+		Assert.assertEquals(0.25, readState.getLayerState().get(0).p.x, 0.0);
+		Assert.assertEquals(0.75, readState.getLayerState().get(0).p.color, 0.0);
+		Assert.assertNull(readState.getLayerState().get(0).q);
+
+		AbstractRaster readRaster = new RasterFloatInt();
+		readRaster.allocRaster(flame, WIDTH, HEIGHT);
+		reader.readRaster(readRaster);
+		RasterPoint readPoint = new RasterPoint(0);
+		for (int y = 0; y < HEIGHT; y++)
+		{
+			for (int x = 0; x < WIDTH; x++)
+			{
+				raster.readRasterPoint(x, y, point);
+				readRaster.readRasterPoint(x, y, readPoint);
+				Assert.assertEquals(point.count, readPoint.count);
+				Assert.assertEquals(point.red, readPoint.red, 0.0);
+				Assert.assertEquals(point.green, readPoint.green, 0.0);
+				Assert.assertEquals(point.blue, readPoint.blue, 0.0);
+			}
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package org.jwildfire.create.tina.swing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.jwildfire.image.SimpleImage;
+
+public class ThumbnailStoreTest
+{
+	private static final int WIDTH = 32;
+	private static final int HEIGHT = 24;
+	private static final long IMAGE_SIZE = 4L * WIDTH * HEIGHT;
+
+	private File directory;
+
+	@Before
+	public void createDirectory() throws Exception
+	{
+		directory = Files.createTempDirectory("thumbnails").toFile();
+	}
+
+	@After
+	public void deleteDirectory()
+	{
+		for (File file : directory.listFiles())
+		{
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private SimpleImage createImage(int pSeed)
+	{
+		SimpleImage img = new SimpleImage(WIDTH, HEIGHT);
+		for (int y = 0; y < HEIGHT; y++)
+		{
+			for (int x = 0; x < WIDTH; x++)
+			{
+				img.setARGB(x, y, (pSeed * 31 + x * 7 + y * 13) | 0xff000000);
+			}
+		}
+		return img;
+	}
+
+	private void assertImage(int pSeed, SimpleImage pImage)
+	{
+		assertNotNull(pImage);
+		SimpleImage expected = createImage(pSeed);
+		for (int y = 0; y < HEIGHT; y++)
+		{
+			for (int x = 0; x < WIDTH; x++)
+			{
+				assertEquals(expected.getARGBValue(x, y), pImage.getARGBValue(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testPersistence()
+	{
+		ThumbnailStore store = new ThumbnailStore(directory, 100 * IMAGE_SIZE, 0);
+		for (int i = 0; i < 10; i++)
+		{
+			store.put(i, createImage(i));
+		}
+		store.close();
+		store = new ThumbnailStore(directory, 100 * IMAGE_SIZE, 0);
+		assertEquals(10, store.getCount());
+		for (int i = 0; i < 10; i++)
+		{
+			assertImage(i, store.get(i));
+		}
+		assertNull(store.get(10));
+		store.close();
+	}
+
+	@Test
+	public void testEvictionAndCompaction()
+	{
+		ThumbnailStore store = new ThumbnailStore(directory, 5 * IMAGE_SIZE, 2 * IMAGE_SIZE);
+		for (int i = 0; i < 5; i++)
+		{
+			store.put(i, createImage(i));
+		}
+		// 0 becomes the most recently used thumbnail
+		assertImage(0, store.get(0));
+		for (int i = 5; i < 40; i++)
+		{
+			store.put(i, createImage(i));
+			assertImage(0, store.get(0));
+		}
+		assertEquals(5, store.getCount());
+		assertEquals(5 * IMAGE_SIZE, store.getSize());
+		assertNull(store.get(1));
+		assertImage(39, store.get(39));
+		store.close();
+		long packSize = 0;
+		for (File file : directory.listFiles())
+		{
+			if (file.getName().endsWith(".pack"))
+			{
+				packSize += file.length();
+			}
+		}
+		assertEquals(true, packSize <= 10 * IMAGE_SIZE);
+		store = new ThumbnailStore(directory, 5 * IMAGE_SIZE, 0);
+		assertImage(0, store.get(0));
+		assertImage(36, store.get(36));
+		store.close();
+	}
+
+	@Test
+	public void testReplacedThumbnailsStayInMemory()
+	{
+		ThumbnailStore store = new ThumbnailStore(directory, 100 * IMAGE_SIZE, 2 * IMAGE_SIZE);
+		for (int i = 0; i < 10; i++)
+		{
+			SimpleImage img = createImage(i);
+			store.put(1, img);
+			// served from memory, i.e. the same instance
+			assertSame(img, store.get(1));
+		}
+		store.close();
+	}
+
+	@Test
+	public void testEvictedThumbnailsAreRemovedFromMemory()
+	{
+		ThumbnailStore store = new ThumbnailStore(directory, 3 * IMAGE_SIZE, 10 * IMAGE_SIZE);
+		for (int i = 0; i < 4; i++)
+		{
+			store.put(i, createImage(i));
+		}
+		// still in memory, but no longer in the store
+		assertNull(store.get(0));
+		assertImage(3, store.get(3));
+		store.close();
+	}
+
+	@Test
+	public void testSharedDirectoryIsReadOnly()
+	{
+		ThumbnailStore store = new ThumbnailStore(directory, 100 * IMAGE_SIZE, 0);
+		assertFalse(store.isReadOnly());
+		for (int i = 0; i < 5; i++)
+		{
+			store.put(i, createImage(i));
+		}
+		store.flush();
+
+		ThumbnailStore sharedStore = new ThumbnailStore(directory, 100 * IMAGE_SIZE, 10 * IMAGE_SIZE);
+		assertTrue(sharedStore.isReadOnly());
+		assertImage(2, sharedStore.get(2));
+		// new thumbnails are only kept in memory
+		sharedStore.put(10, createImage(10));
+		assertImage(10, sharedStore.get(10));
+		assertEquals(5, sharedStore.getCount());
+		sharedStore.close();
+
+		store.put(5, createImage(5));
+		store.close();
+		store = new ThumbnailStore(directory, 100 * IMAGE_SIZE, 0);
+		assertFalse(store.isReadOnly());
+		assertEquals(6, store.getCount());
+		assertImage(5, store.get(5));
+		assertNull(store.get(10));
+		store.close();
+	}
+
+}
@@ -0,0 +1,81 @@
+package org.jwildfire.create.tina.variation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class RessourceCacheTest
+{
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted()
+	{
+		RessourceCache cache = new RessourceCache(300);
+		cache.put("a", new byte[100]);
+		cache.put("b", new byte[100]);
+		cache.put("c", new byte[100]);
+		assertNotNull(cache.get("a"));
+		cache.put("d", new byte[100]);
+		assertNull(cache.get("b"));
+		assertNotNull(cache.get("a"));
+		assertNotNull(cache.get("c"));
+		assertNotNull(cache.get("d"));
+		assertEquals(300, cache.getSize());
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	public void testUnknownObjectsArePinned()
+	{
+		RessourceCache cache = new RessourceCache(100);
+		Object state = new Object();
+		cache.put("state", state);
+		cache.put("a", new byte[100]);
+		cache.put("b", new byte[100]);
+		assertSame(state, cache.get("state"));
+		assertNull(cache.get("a"));
+		assertNotNull(cache.get("b"));
+	}
+
+	@Test
+	public void testTooLargeIsNotCached()
+	{
+		RessourceCache cache = new RessourceCache(100);
+		cache.put("a", new int[100]);
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testRemoveByPrefix()
+	{
+		RessourceCache cache = new RessourceCache(1000);
+		cache.put("x_1", new byte[10]);
+		cache.put("x_2", new byte[10]);
+		cache.put("y_1", new byte[10]);
+		cache.removeByPrefix("x_");
+		assertNull(cache.get("x_1"));
+		assertNull(cache.get("x_2"));
+		assertNotNull(cache.get("y_1"));
+		assertEquals(10, cache.getSize());
+	}
+
+	@Test
+	public void testStatistics()
+	{
+		RessourceCache cache = new RessourceCache(150);
+		cache.put("a", new byte[100]);
+		assertNotNull(cache.get("a"));
+		assertNotNull(cache.get("a"));
+		assertNull(cache.get("b"));
+		cache.put("b", new byte[100]);
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getEvictions());
+		assertEquals("1 entries, 0.0 of 0.0 MB, 2 hits, 1 misses, 1 evictions", cache.getStatistics());
+	}
+
+}
@@ -0,0 +1,79 @@
+package org.jwildfire.create.tina.variation.mesh;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PackedMeshTest
+{
+
+	@Test
+	public void testVerticesAreMerged()
+	{
+		SimpleMesh mesh = new SimpleMesh();
+		int v0 = mesh.addVertex(0.0, 0.0, 0.0);
+		int v1 = mesh.addVertex(1.0, 0.0, 0.0);
+		Assert.assertEquals(v0, mesh.addVertex(0.00001, 0.0, -0.00001));
+		Assert.assertEquals(v1, mesh.addVertex(1.0, 0.0, 0.0));
+		Assert.assertNotEquals(v0, mesh.addVertex(0.001, 0.0, 0.0));
+		for (int i = 0; i < 1000; i++)
+		{
+			mesh.addVertex(i, -i, 0.5 * i);
+		}
+		// (0, 0, 0) was already added
+		Assert.assertEquals(3 + 999, mesh.getVertexCount());
+		Assert.assertEquals(v1, mesh.addVertex(1.0, 0.0, 0.0));
+	}
+
+	@Test
+	public void testFacesAreTransformed()
+	{
+		SimpleMesh mesh = new SimpleMesh();
+		mesh.addFace(mesh.addVertex(0.0, 0.0, 0.0), mesh.addVertex(1.0, 0.0, 0.0), mesh.addVertex(0.0, 1.0, 1.0));
+		PackedMesh packedMesh = new PackedMesh(mesh, 2.0, 3.0, 4.0, 1.0, 0.0, -1.0);
+		float[] expected = { 1.0f, 0.0f, -1.0f, 3.0f, 0.0f, -1.0f, 1.0f, 3.0f, 3.0f };
+		Assert.assertEquals(PackedMesh.FACE_SIZE, packedMesh.getFaces().length);
+		Assert.assertArrayEquals(expected, Arrays.copyOf(packedMesh.getFaces(), 9), 0.0f);
+		Assert.assertEquals(0, packedMesh.selectFace(0.99, 0.99));
+	}
+
+	@Test
+	public void testFacesAreSelectedByArea()
+	{
+		// strip of triangles with the areas 1, 2, ..., 8
+		SimpleMesh mesh = new SimpleMesh();
+		int faceCount = 8;
+		for (int i = 0; i < faceCount; i++)
+		{
+			mesh.addFace(mesh.addVertex(0.0, 10.0 * i, 0.0), mesh.addVertex(i + 1.0, 10.0 * i, 0.0), mesh.addVertex(0.0, 10.0 * i + 2.0, 0.0));
+		}
+		PackedMesh packedMesh = new PackedMesh(mesh, 1.0, 1.0, 1.0, 0.0, 0.0, 0.0);
+		Random random = new Random(42);
+		int samples = 360000;
+		int[] hits = new int[faceCount];
+		for (int i = 0; i < samples; i++)
+		{
+			hits[packedMesh.selectFace(random.nextDouble(), random.nextDouble())]++;
+		}
+		for (int i = 0; i < faceCount; i++)
+		{
+			double expected = samples * (i + 1.0) / 36.0;
+			Assert.assertEquals(expected, hits[i], 0.05 * expected);
+		}
+	}
+
+	@Test
+	public void testDegeneratedFacesAreSelectedUniformly()
+	{
+		SimpleMesh mesh = new SimpleMesh();
+		int v = mesh.addVertex(1.0, 1.0, 1.0);
+		mesh.addFace(v, v, v);
+		mesh.addFace(v, v, v);
+		PackedMesh packedMesh = new PackedMesh(mesh, 1.0, 1.0, 1.0, 0.0, 0.0, 0.0);
+		Assert.assertEquals(0, packedMesh.selectFace(0.25, 0.9));
+		Assert.assertEquals(1, packedMesh.selectFace(0.75, 0.9));
+	}
+
+}
@@ -0,0 +1,65 @@
+package org.jwildfire.envelope;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.jwildfire.create.tina.base.motion.MotionCurve;
+import org.jwildfire.envelope.Envelope.Interpolation;
+
+public class CompiledEnvelopeTest
+{
+
+	private void assertSameValues(int[] pX, double[] pY, Interpolation pInterpolation)
+	{
+		Envelope envelope = new Envelope(pX, pY);
+		envelope.setInterpolation(pInterpolation);
+		CompiledEnvelope compiled = new CompiledEnvelope(envelope);
+		for (double time = pX[0] - 10.0; time <= pX[pX.length - 1] + 10.0; time += 0.125)
+		{
+			assertEquals(pInterpolation + " at " + time, envelope.evaluate(time), compiled.evaluate(time), 1.0e-12);
+		}
+	}
+
+	@Test
+	public void testSameValuesAsEnvelope()
+	{
+		Random rnd = new Random(4711);
+		for (Interpolation interpolation : Interpolation.values())
+		{
+			for (int size = 1; size < 12; size++)
+			{
+				int[] x = new int[size];
+				double[] y = new double[size];
+				int currX = rnd.nextInt(20);
+				for (int i = 0; i < size; i++)
+				{
+					x[i] = currX;
+					y[i] = rnd.nextDouble() * 200.0 - 100.0;
+					currX += 1 + rnd.nextInt(60);
+				}
+				assertSameValues(x, y, interpolation);
+			}
+		}
+	}
+
+	@Test
+	public void testMotionCurveRecompilesChangedPoints()
+	{
+		MotionCurve curve = new MotionCurve();
+		curve.setPoints(new int[] { 1, 50, 100 }, new double[] { 0.0, 10.0, 5.0 });
+		assertEquals(curve.toEnvelope().evaluate(42.5), curve.evaluate(42.5), 1.0e-12);
+
+		MotionCurve copy = curve.makeCopy();
+		assertEquals(curve.evaluate(42.5), copy.evaluate(42.5), 1.0e-12);
+
+		curve.getY()[1] = -20.0;
+		assertEquals(curve.toEnvelope().evaluate(42.5), curve.evaluate(42.5), 1.0e-12);
+		curve.setInterpolation(Interpolation.LINEAR);
+		assertEquals(curve.toEnvelope().evaluate(42.5), curve.evaluate(42.5), 1.0e-12);
+		curve.appendKeyFrame(150, 3.0);
+		assertEquals(curve.toEnvelope().evaluate(120.0), curve.evaluate(120.0), 1.0e-12);
+	}
+
+}